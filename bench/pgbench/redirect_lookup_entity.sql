@@ -0,0 +1,5 @@
+-- "До": то, что выполнял findBySlug - полная строка links для гидрации Link.
+-- pgbench -n -c 16 -j 4 -T 60 -D slug=<существующий slug> -f bench/pgbench/redirect_lookup_entity.sql shortener
+SELECT l.id, l.clicks_total, l.created_at, l.expires_at, l.slug, l.target_url, l.user_id
+FROM links l
+WHERE l.slug = :'slug';
@@ -0,0 +1,6 @@
+-- "После": findRedirectTargetBySlug - только покрытые индексом колонки (index-only scan).
+-- pgbench -n -c 16 -j 4 -T 60 -D slug=<существующий slug> -f bench/pgbench/redirect_lookup_projection.sql shortener
+-- План: EXPLAIN (ANALYZE, BUFFERS) должен показать "Index Only Scan using links_slug_uidx" и Heap Fetches: 0.
+SELECT l.id, l.target_url, l.expires_at
+FROM links l
+WHERE l.slug = :'slug';
@@ -0,0 +1,9 @@
+-- Наполнение для сравнения: 1M ссылок без пользователя.
+-- psql -d shortener -f bench/pgbench/seed_links.sql && psql -d shortener -c 'VACUUM ANALYZE links'
+INSERT INTO links (id, slug, target_url, expires_at)
+SELECT gen_random_uuid(),
+       'bench' || g,
+       'https://example.com/articles/' || g || '?utm_source=bench',
+       now() + interval '30 days'
+FROM generate_series(1, 1000000) AS g
+ON CONFLICT DO NOTHING;
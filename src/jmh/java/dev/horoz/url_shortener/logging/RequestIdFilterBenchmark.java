@@ -0,0 +1,77 @@
+package dev.horoz.url_shortener.logging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RequestIdFilter на каждом запросе: id из заголовка или новый, MDC, заголовок ответа
+ * и запись в access log. sampleRate - доля /r/ запросов, попадающих в лог (в проде 0.01);
+ * файл пишет фоновый поток, в замер входит только путь запроса.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="RequestIdFilter -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestIdFilterBenchmark {
+
+    private static final FilterChain PASS = (request, response) -> {
+    };
+
+    @Param({"generated", "incoming"})
+    public String requestId;
+
+    @Param({"0.01", "1.0"})
+    public double sampleRate;
+
+    private Path dir;
+    private AccessLog accessLog;
+    private RequestIdFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("access-log-bench");
+        accessLog = new AccessLog(new AccessLogProperties(true, dir.resolve("access.log").toString(),
+                DataSize.ofMegabytes(64), 2, 65536, Duration.ofMillis(200), 500, Duration.ofMillis(500), 1.0,
+                List.of(new AccessLogProperties.Route("/r/", sampleRate))), new SimpleMeterRegistry());
+
+        filter = new RequestIdFilter(new RequestIdGenerator(1), accessLog);
+        request = new MockHttpServletRequest("GET", "/r/aB3dE100");
+        if (requestId.equals("incoming")) {
+            request.addHeader(RequestIdFilter.HEADER, "0f8fad5b-d9cb-469f-a165-70867728950e");
+        }
+        response = new MockHttpServletResponse();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        accessLog.close();
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public String doFilter() throws ServletException, IOException {
+        filter.doFilter(request, response, PASS);
+        return response.getHeader(RequestIdFilter.HEADER);
+    }
+}
@@ -0,0 +1,35 @@
+package dev.horoz.url_shortener.logging;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генерация request id под конкуренцией: UUID.randomUUID() (общий SecureRandom)
+ * против RequestIdGenerator (ThreadLocal, без синхронизации).
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="RequestIdGenerator -t 16 -prof gc"
+ * По умолчанию 8 потоков; -t 1 - стоимость без конкуренции.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class RequestIdGeneratorBenchmark {
+
+    private final RequestIdGenerator generator = new RequestIdGenerator(1);
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String timeOrdered() {
+        return generator.next();
+    }
+}
@@ -0,0 +1,80 @@
+package dev.horoz.url_shortener.mapper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.horoz.url_shortener.domain.Link;
+import dev.horoz.url_shortener.dto.link.LinkResponseDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ответ GET /api/links: Link -> LinkResponseDto и сериализация в JSON тем же ObjectMapper,
+ * что собирает Spring Boot (Jackson2ObjectMapperBuilder: JavaTimeModule, даты ISO-строкой).
+ * page - страница из 20 ссылок, как в keyset-выдаче.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="LinkMapper -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LinkMapperBenchmark {
+
+    private static final int PAGE = 20;
+
+    private ObjectMapper objectMapper;
+    private Link link;
+    private LinkResponseDto dto;
+    private List<Link> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        page = new ArrayList<>(PAGE);
+        for (int i = 0; i < PAGE; i++) {
+            page.add(link(i));
+        }
+        link = page.get(0);
+        dto = LinkMapper.toDto(link);
+    }
+
+    @Benchmark
+    public LinkResponseDto toDto() {
+        return LinkMapper.toDto(link);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(dto);
+    }
+
+    @Benchmark
+    public byte[] toDtoAndSerializePage() throws JsonProcessingException {
+        List<LinkResponseDto> dtos = new ArrayList<>(PAGE);
+        for (Link l : page) {
+            dtos.add(LinkMapper.toDto(l));
+        }
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+
+    private static Link link(int i) {
+        Link link = new Link();
+        // id, clicksTotal и createdAt заполняет БД
+        ReflectionTestUtils.setField(link, "id", UUID.randomUUID());
+        ReflectionTestUtils.setField(link, "clicksTotal", 1000L + i);
+        ReflectionTestUtils.setField(link, "createdAt", Instant.parse("2026-10-01T12:00:00Z").plusSeconds(i));
+        link.setSlug("aB3dE" + (100 + i));
+        link.setTargetUrl("https://example.com/articles/2026/10/" + i + "?utm_source=newsletter");
+        link.setExpiresAt(i % 2 == 0 ? null : Instant.parse("2027-01-01T00:00:00Z"));
+        return link;
+    }
+}
@@ -0,0 +1,144 @@
+package dev.horoz.url_shortener.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ключ клиента + bucket на один /r/ запрос: строковые ключи (String из X-Forwarded-For,
+ * Caffeine + bucket4j) против примитивных (ClientKeyResolver + RateLimitBucketStore).
+ * 4096 разных клиентов за доверенным прокси, лимит не срабатывает - меряется горячий путь.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="RedirectRateLimit -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RedirectRateLimitBenchmark {
+
+    private static final int CLIENTS = 4096;
+    private static final long CAPACITY = 1_000_000_000L;
+
+    private HttpServletRequest[] requests;
+
+    private StringKeyLimiter stringKeys;
+    private ClientKeyResolver resolver;
+    private RateLimitBucketStore store;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int advance() {
+            return next = (next + 1) & (CLIENTS - 1);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        requests = new HttpServletRequest[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            String client = i % 4 == 0
+                    ? "2001:db8:" + Integer.toHexString(i) + ":1::" + Integer.toHexString(i)
+                    : "198.51." + (i >>> 8) + "." + (i & 0xFF);
+            requests[i] = new ProxiedRequest(client + ", 10.0.0.2", "10.0.0.1");
+        }
+
+        RateLimitProperties properties = new RateLimitProperties(100_000, Duration.ofMinutes(10), null,
+                List.of(new RateLimitProperties.Route("/r/", "GET", CAPACITY, CAPACITY, Duration.ofMinutes(1),
+                        RateLimitProperties.KeyStrategy.X_FORWARDED_FOR)), null, null);
+
+        stringKeys = new StringKeyLimiter(properties);
+        resolver = new ClientKeyResolver(properties);
+        store = new RateLimitBucketStore(properties, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public long stringKeys(Cursor cursor) {
+        return stringKeys.tryConsume(requests[cursor.advance()]);
+    }
+
+    @Benchmark
+    public long primitiveKeys(Cursor cursor) {
+        return store.tryConsume(0, resolver.resolve(requests[cursor.advance()]));
+    }
+
+    /**
+     * Запрос с готовыми заголовком и адресом: MockHttpServletRequest.getHeader сам аллоцирует
+     * (регистронезависимый поиск) и зашумлял бы сравнение.
+     */
+    static final class ProxiedRequest extends HttpServletRequestWrapper {
+
+        private final String forwardedFor;
+        private final String remoteAddr;
+
+        ProxiedRequest(String forwardedFor, String remoteAddr) {
+            super(new MockHttpServletRequest("GET", "/r/abc"));
+            this.forwardedFor = forwardedFor;
+            this.remoteAddr = remoteAddr;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return "X-Forwarded-For".equals(name) ? forwardedFor : null;
+        }
+
+        @Override
+        public String getRemoteAddr() {
+            return remoteAddr;
+        }
+    }
+
+    /**
+     * Путь до перехода на примитивные ключи: substring/trim заголовка, record-ключ,
+     * Caffeine-кэш bucket4j-bucket'ов.
+     */
+    static final class StringKeyLimiter {
+
+        private final RateLimitProperties.Route route;
+        private final Cache<Key, Bucket> buckets;
+
+        StringKeyLimiter(RateLimitProperties properties) {
+            this.route = properties.routes().get(0);
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(properties.maxBuckets())
+                    .expireAfterAccess(properties.idleTimeout())
+                    .executor(Runnable::run)
+                    .recordStats()
+                    .build();
+        }
+
+        long tryConsume(HttpServletRequest request) {
+            Bucket bucket = buckets.get(new Key(0, resolveClientIp(request)), k -> Bucket.builder()
+                    .addLimit(limit -> limit.capacity(route.capacity())
+                            .refillIntervally(route.refillTokens(), route.refillPeriod()))
+                    .build());
+            return bucket.tryConsumeAndReturnRemaining(1).getNanosToWaitForRefill();
+        }
+
+        private static String resolveClientIp(HttpServletRequest request) {
+            String xff = request.getHeader("X-Forwarded-For");
+            if (xff != null && !xff.isBlank()) {
+                int comma = xff.indexOf(',');
+                return (comma > 0 ? xff.substring(0, comma) : xff).trim();
+            }
+            return request.getRemoteAddr();
+        }
+
+        private record Key(int route, String client) {
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package dev.horoz.url_shortener.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedirectRateLimitFilter целиком на /r/ запросе: сопоставление маршрута, ключ клиента
+ * из X-Forwarded-For (ClientKeyResolver) и bucket (RateLimitBucketStore). Лимит не срабатывает.
+ * Без фильтра те же шаги меряет RedirectRateLimitBenchmark.primitiveKeys.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="RedirectRateLimitFilter -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RedirectRateLimitFilterBenchmark {
+
+    private static final int CLIENTS = 4096;
+    private static final long CAPACITY = 1_000_000_000L;
+    private static final FilterChain PASS = (request, response) -> {
+    };
+
+    private RedirectRateLimitFilter filter;
+
+    /**
+     * Запросы свои у каждого потока: OncePerRequestFilter ставит на запрос атрибут.
+     */
+    @State(Scope.Thread)
+    public static class Requests {
+        final HttpServletRequest[] requests = new HttpServletRequest[CLIENTS];
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        int next;
+
+        @Setup
+        public void setUp() {
+            for (int i = 0; i < CLIENTS; i++) {
+                String client = i % 4 == 0
+                        ? "2001:db8:" + Integer.toHexString(i) + ":1::" + Integer.toHexString(i)
+                        : "198.51." + (i >>> 8) + "." + (i & 0xFF);
+                requests[i] = new RedirectRateLimitBenchmark.ProxiedRequest(client + ", 10.0.0.2", "10.0.0.1");
+            }
+        }
+
+        HttpServletRequest advance() {
+            return requests[next = (next + 1) & (CLIENTS - 1)];
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties properties = new RateLimitProperties(100_000, Duration.ofMinutes(10), null,
+                List.of(new RateLimitProperties.Route("/r/", "GET", CAPACITY, CAPACITY, Duration.ofMinutes(1),
+                        RateLimitProperties.KeyStrategy.X_FORWARDED_FOR)), null, null);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        filter = new RedirectRateLimitFilter(properties, new RateLimitBucketStore(properties, meterRegistry),
+                new ClientKeyResolver(properties), meterRegistry);
+    }
+
+    @Benchmark
+    public int doFilter(Requests requests) throws ServletException, IOException {
+        filter.doFilter(requests.advance(), requests.response, PASS);
+        return requests.response.getStatus();
+    }
+}
@@ -0,0 +1,132 @@
+package dev.horoz.url_shortener.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.horoz.url_shortener.dto.link.RedirectTargetDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Пропускная способность redirect под высокой конкуренцией при медленной БД:
+ * платформенные потоки (пул Tomcat по умолчанию, 200) против виртуальных (профиль virtual).
+ *
+ * Запрос - поиск slug в кэше; промах идёт в "БД": пул соединений (Semaphore, как Hikari)
+ * и задержка dbLatencyMs. hitRatio запросов попадает в прогретые slug'и.
+ * loading=computeLoader - прежний SlugCache (загрузка внутри Caffeine compute()):
+ * на Java 21 виртуальный поток в нём пиннит carrier, и параллелизм падает до числа ядер.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="RedirectThreads"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedirectThreadsBenchmark {
+
+    private static final int REQUESTS = 4_000;
+    private static final int TOMCAT_THREADS = 200;
+    private static final int HOT_SLUGS = 1_024;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"slugCache", "computeLoader"})
+    public String loading;
+
+    @Param({"10"})
+    public int dbLatencyMs;
+
+    @Param({"64"})
+    public int poolSize;
+
+    @Param({"0.9"})
+    public double hitRatio;
+
+    private ExecutorService executor;
+    private Semaphore connections;
+    private Function<String, Optional<RedirectTargetDto>> lookup;
+
+    private final AtomicLong coldSlugs = new AtomicLong();
+    private final RedirectTargetDto target =
+            new RedirectTargetDto(UUID.randomUUID(), "https://example.com", Instant.now().plusSeconds(3600));
+
+    @Setup
+    public void setUp() {
+        executor = threads.equals("virtual")
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_THREADS);
+        connections = new Semaphore(poolSize, true);
+
+        Function<String, Optional<RedirectTargetDto>> db = this::slowFind;
+        if (loading.equals("slugCache")) {
+            SlugCache slugCache = new SlugCache(100_000, 600, 30, new SimpleMeterRegistry());
+            lookup = slug -> slugCache.get(slug, db);
+        } else {
+            Cache<String, Optional<RedirectTargetDto>> cache = Caffeine.newBuilder()
+                    .maximumSize(100_000)
+                    .build();
+            lookup = slug -> cache.get(slug, db);
+        }
+        for (int i = 0; i < HOT_SLUGS; i++) {
+            lookup.apply(hotSlug(i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public void redirects() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            executor.execute(() -> {
+                try {
+                    lookup.apply(nextSlug());
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    private String nextSlug() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return random.nextDouble() < hitRatio
+                ? hotSlug(random.nextInt(HOT_SLUGS))
+                : "cold" + coldSlugs.incrementAndGet();
+    }
+
+    private static String hotSlug(int i) {
+        return "hot" + i;
+    }
+
+    private Optional<RedirectTargetDto> slowFind(String slug) {
+        connections.acquireUninterruptibly();
+        try {
+            Thread.sleep(dbLatencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            connections.release();
+        }
+        return slug.startsWith("hot") ? Optional.of(target) : Optional.empty();
+    }
+}
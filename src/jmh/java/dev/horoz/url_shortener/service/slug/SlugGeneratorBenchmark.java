@@ -0,0 +1,68 @@
+package dev.horoz.url_shortener.service.slug;
+
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * nextSlug() одним потоком и под конкуренцией: полосы DRBG с пачками байтов (random) против
+ * блоков из sequence с перестановкой (sequence, БД заменена счётчиком).
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SlugGenerator"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SlugGeneratorBenchmark {
+
+    @Param({"random", "sequence"})
+    public String strategy;
+
+    private SlugGenerator generator;
+
+    @Setup
+    public void setUp() {
+        generator = switch (strategy) {
+            case "random" -> new RandomBase62SlugGenerator(new InMemorySequence(), 8, 0.001, new SimpleMeterRegistry());
+            case "sequence" -> new SequenceSlugGenerator(new InMemorySequence(), "9B2E41C07A5D4F8E93C1D6A0E7F2B843");
+            default -> throw new IllegalArgumentException(strategy);
+        };
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String nextSlug() {
+        return generator.nextSlug();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String nextSlugContended() {
+        return generator.nextSlug();
+    }
+
+    /**
+     * links_slug_seq без БД: блоки по 1024, как INCREMENT BY в V6.
+     */
+    static final class InMemorySequence extends LinkJdbcRepository {
+
+        private static final long BLOCK = 1024;
+
+        private final AtomicLong next = new AtomicLong();
+
+        InMemorySequence() {
+            super(null);
+        }
+
+        @Override
+        public SlugBlock reserveSlugBlock() {
+            return new SlugBlock(next.getAndAdd(BLOCK), BLOCK);
+        }
+    }
+}
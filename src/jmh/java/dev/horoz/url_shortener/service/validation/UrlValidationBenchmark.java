@@ -0,0 +1,49 @@
+package dev.horoz.url_shortener.service.validation;
+
+import dev.horoz.url_shortener.exceptions.InvalidTargetUrlException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * normalizeAndValidateUrl на смеси входов, которые приходят в POST /api/links:
+ * уже нормальные, с пробелами и регистром схемы/хоста, длинные с query, невалидные (исключение).
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="UrlValidation"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlValidationBenchmark {
+
+    @Param({"plain", "untrimmed", "longQuery", "invalid"})
+    public String input;
+
+    private UrlValidationService service;
+    private String url;
+
+    @Setup
+    public void setUp() {
+        service = new UrlValidationService();
+        url = switch (input) {
+            case "plain" -> "https://example.com/articles/2026/10/benchmarks";
+            case "untrimmed" -> "  HTTPS://Example.COM/Articles?id=42  ";
+            case "longQuery" -> "https://shop.example.com/catalog/search?q=" + "x".repeat(400)
+                    + "&utm_source=newsletter&utm_medium=email&utm_campaign=autumn#results";
+            case "invalid" -> "javascript:alert(1)";
+            default -> throw new IllegalArgumentException(input);
+        };
+    }
+
+    @Benchmark
+    public String normalizeAndValidate() {
+        try {
+            return service.normalizeAndValidateUrl(url);
+        } catch (InvalidTargetUrlException e) {
+            return null;
+        }
+    }
+}
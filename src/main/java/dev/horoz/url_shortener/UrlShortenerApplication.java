@@ -1,5 +1,6 @@
 package dev.horoz.url_shortener;
 
+import dev.horoz.url_shortener.edge.EdgeRedirectServer;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -7,6 +8,11 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class UrlShortenerApplication {
 
 	public static void main(String[] args) {
+		// java -jar url-shortener.jar edge - только redirect'ы из индекса, без Spring-контекста
+		if (args.length > 0 && args[0].equals("edge")) {
+			EdgeRedirectServer.main(args);
+			return;
+		}
 		SpringApplication.run(UrlShortenerApplication.class, args);
 	}
 
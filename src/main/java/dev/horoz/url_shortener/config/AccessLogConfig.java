@@ -0,0 +1,10 @@
+package dev.horoz.url_shortener.config;
+
+import dev.horoz.url_shortener.logging.AccessLogProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AccessLogProperties.class)
+public class AccessLogConfig {
+}
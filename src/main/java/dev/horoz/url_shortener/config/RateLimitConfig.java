@@ -0,0 +1,43 @@
+package dev.horoz.url_shortener.config;
+
+import dev.horoz.url_shortener.repository.RateLimitBucketRepository;
+import dev.horoz.url_shortener.security.DistributedRateLimiter;
+import dev.horoz.url_shortener.security.RateLimitBucketStore;
+import dev.horoz.url_shortener.security.RateLimitProperties;
+import io.github.bucket4j.distributed.jdbc.BucketTableSettings;
+import io.github.bucket4j.distributed.jdbc.PrimaryKeyMapper;
+import io.github.bucket4j.distributed.jdbc.SQLProxyConfiguration;
+import io.github.bucket4j.postgresql.PostgreSQLSelectForUpdateBasedProxyManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+
+    /**
+     * app.rate-limit.mode=distributed: лимит общий для всех узлов, локальный store остаётся запасным.
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "app.rate-limit.mode", havingValue = "distributed")
+    public DistributedRateLimiter distributedRateLimiter(RateLimitProperties properties,
+                                                         DataSource dataSource,
+                                                         RateLimitBucketStore localStore,
+                                                         RateLimitBucketRepository bucketRepository,
+                                                         MeterRegistry meterRegistry) {
+        SQLProxyConfiguration<String> configuration = SQLProxyConfiguration.builder()
+                .withPrimaryKeyMapper(PrimaryKeyMapper.STRING)
+                .withTableSettings(BucketTableSettings.customSettings("rate_limit_buckets", "id", "state"))
+                .build(dataSource);
+        return new DistributedRateLimiter(properties,
+                new PostgreSQLSelectForUpdateBasedProxyManager<>(configuration),
+                localStore, bucketRepository, meterRegistry);
+    }
+}
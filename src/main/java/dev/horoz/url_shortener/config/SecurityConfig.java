@@ -3,6 +3,7 @@ package dev.horoz.url_shortener.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.horoz.url_shortener.logging.RequestIdFilter;
 import dev.horoz.url_shortener.repository.UserRepository;
+import dev.horoz.url_shortener.security.AuthenticatedUser;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.context.annotation.Bean;
@@ -15,6 +16,7 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -25,6 +27,7 @@ import org.springframework.security.web.SecurityFilterChain;
 
 import java.io.IOException;
 import java.time.Instant;
+import java.util.List;
 
 import static org.springframework.http.HttpStatus.FORBIDDEN;
 import static org.springframework.http.HttpStatus.UNAUTHORIZED;
@@ -44,7 +47,11 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/r/**").permitAll()
-                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/health", "/livez", "/readyz").permitAll()
+                        // management-порт слушает только 127.0.0.1 (management.server.address)
+                        .requestMatchers("/actuator/prometheus").permitAll()
+                        // edge-серверы без JWT: проверка общего секрета в InternalClickController
+                        .requestMatchers(HttpMethod.POST, "/internal/clicks").permitAll()
                         .anyRequest().authenticated()
                 )
 
@@ -98,13 +105,10 @@ public class SecurityConfig {
 
     @Bean
     UserDetailsService userDetailsService(UserRepository userRepository) {
+        // id в principal'е -> AuthService кладёт его в JWT без повторного SELECT
         return username -> userRepository.findByEmailIgnoreCase(username)
-                .map(u -> org.springframework.security.core.userdetails.User
-                        .withUsername(u.getEmail())
-                        .password(u.getPasswordHash())
-                        .roles("USER")
-                        .build()
-                )
+                .map(u -> new AuthenticatedUser(u.getId(), u.getEmail(), u.getPasswordHash(),
+                        List.of(new SimpleGrantedAuthority("ROLE_USER"))))
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
     }
 
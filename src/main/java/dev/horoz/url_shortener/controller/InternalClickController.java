@@ -0,0 +1,74 @@
+package dev.horoz.url_shortener.controller;
+
+import dev.horoz.url_shortener.edge.EdgeClickForwarder;
+import dev.horoz.url_shortener.service.click.ClickEvent;
+import dev.horoz.url_shortener.service.click.ClickIngestionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Приём кликов от edge-серверов (формат - см. EdgeClickForwarder). JWT здесь нет:
+ * доступ по общему секрету app.edge.secret, пустой секрет выключает endpoint.
+ *
+ * Пачка принимается целиком или никак: edge повторяет всю пачку при любом не-2xx,
+ * поэтому тело сначала читается и проверяется полностью и только потом уходит в ingest.
+ */
+@RestController
+@RequestMapping("/internal")
+class InternalClickController {
+
+    private final ClickIngestionService clickIngestionService;
+    private final byte[] secret;
+    private final int maxBodyBytes;
+
+    public InternalClickController(ClickIngestionService clickIngestionService,
+                                   @Value("${app.edge.secret:}") String secret,
+                                   @Value("${app.edge.max-clicks-per-request:100000}") int maxClicksPerRequest) {
+        this.clickIngestionService = clickIngestionService;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.maxBodyBytes = Math.multiplyExact(maxClicksPerRequest, EdgeClickForwarder.RECORD_BYTES);
+    }
+
+    @PostMapping(value = "/clicks", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> clicks(@RequestHeader(name = EdgeClickForwarder.SECRET_HEADER, required = false) String secret,
+                                       InputStream body) throws IOException {
+        if (this.secret.length == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        // сравнение за постоянное время: секрет не подбирается по времени ответа
+        if (secret == null || !MessageDigest.isEqual(this.secret, secret.getBytes(StandardCharsets.UTF_8))) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        }
+
+        // на байт больше лимита - чтобы отличить "ровно лимит" от "больше"
+        byte[] bytes = body.readNBytes(maxBodyBytes + 1);
+        if (bytes.length > maxBodyBytes) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Too many click records");
+        }
+        if (bytes.length == 0 || bytes.length % EdgeClickForwarder.RECORD_BYTES != 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Truncated click record");
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        while (buf.hasRemaining()) {
+            clickIngestionService.ingest(new ClickEvent(new UUID(buf.getLong(), buf.getLong()),
+                    Instant.ofEpochMilli(buf.getLong()), buf.getLong()));
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
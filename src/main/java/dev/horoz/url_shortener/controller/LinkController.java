@@ -1,19 +1,30 @@
 package dev.horoz.url_shortener.controller;
 
 import dev.horoz.url_shortener.domain.Link;
+import dev.horoz.url_shortener.dto.link.LinkBatchCreateRequestDto;
+import dev.horoz.url_shortener.dto.link.LinkBatchResponseDto;
 import dev.horoz.url_shortener.dto.link.LinkCreateRequestDto;
 import dev.horoz.url_shortener.dto.link.LinkResponseDto;
+import dev.horoz.url_shortener.dto.link.LinkSliceDto;
 import dev.horoz.url_shortener.dto.link.LinkStatsDto;
 import dev.horoz.url_shortener.mapper.LinkMapper;
 import dev.horoz.url_shortener.service.LinkService;
+import dev.horoz.url_shortener.service.bulk.LinkExportService;
+import dev.horoz.url_shortener.service.bulk.LinkFileFormat;
+import dev.horoz.url_shortener.service.bulk.LinkImportService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URI;
+import java.time.Instant;
 import java.util.UUID;
 
 @RestController
@@ -21,9 +32,15 @@ import java.util.UUID;
 public class LinkController {
 
     private final LinkService linkService;
+    private final LinkImportService linkImportService;
+    private final LinkExportService linkExportService;
 
-    public LinkController(LinkService linkService) {
+    public LinkController(LinkService linkService,
+                          LinkImportService linkImportService,
+                          LinkExportService linkExportService) {
         this.linkService = linkService;
+        this.linkImportService = linkImportService;
+        this.linkExportService = linkExportService;
     }
 
 
@@ -32,6 +49,39 @@ public class LinkController {
         return linkService.createLink(authentication, dto.targetUrl(), dto.customSlug());
     }
 
+    @PostMapping("/batch")
+    public LinkBatchResponseDto createBatch(Authentication authentication,
+                                            @Valid @RequestBody LinkBatchCreateRequestDto dto) {
+        return linkService.createLinks(authentication, dto.targetUrls());
+    }
+
+    /**
+     * Тело читается и пишется в БД потоком, ответ - NDJSON с ошибками по строкам и прогрессом.
+     */
+    @PostMapping(value = "/import",
+            consumes = {LinkFileFormat.NDJSON_VALUE, LinkFileFormat.CSV_VALUE},
+            produces = LinkFileFormat.NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importLinks(Authentication authentication, HttpServletRequest request) {
+        String email = authentication.getName();
+        LinkFileFormat format = LinkFileFormat.fromContentType(request.getContentType());
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(LinkFileFormat.NDJSON_VALUE))
+                .body(out -> linkImportService.importLinks(email, request.getInputStream(), format, out));
+    }
+
+    /**
+     * Все ссылки пользователя одним потоком; format: ndjson (по умолчанию) или csv.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportLinks(@RequestParam(defaultValue = "ndjson") String format,
+                                                             Authentication authentication) {
+        String email = authentication.getName();
+        LinkFileFormat fileFormat = LinkFileFormat.fromName(format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(fileFormat.mediaType()))
+                .body(out -> linkExportService.exportLinks(email, fileFormat, out));
+    }
+
     @GetMapping
     public Page<LinkResponseDto> getLinks(
             @RequestParam(defaultValue = "0") int page,
@@ -41,13 +91,31 @@ public class LinkController {
         return linkService.getLinks(authentication, page, size);
     }
 
+    /**
+     * Keyset-режим: ?after= (пусто - первая страница, дальше - nextCursor из ответа).
+     */
+    @GetMapping(params = "after")
+    public LinkSliceDto getLinksAfter(
+            @RequestParam String after,
+            @RequestParam(defaultValue = "20") int size,
+            Authentication authentication
+    ) {
+        return linkService.getLinksAfter(authentication, after, size);
+    }
+
     @GetMapping("/{id}")
     public LinkResponseDto getById(@PathVariable UUID id, Authentication authentication) {
         return linkService.getLinkById(authentication, id);
     }
     @GetMapping("/{id}/stats")
-    public LinkStatsDto getLinkStatsById(@PathVariable UUID id, Authentication authentication) {
-        return linkService.getLinkStatsById(authentication, id);
+    public LinkStatsDto getLinkStatsById(
+            @PathVariable UUID id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String granularity,
+            Authentication authentication
+    ) {
+        return linkService.getLinkStatsById(authentication, id, from, to, granularity);
     }
 
     @PatchMapping("/{id}")
@@ -1,6 +1,8 @@
 package dev.horoz.url_shortener.controller;
 
+import dev.horoz.url_shortener.security.ClientKeyResolver;
 import dev.horoz.url_shortener.service.LinkService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,14 +17,16 @@ import java.net.URI;
 class RedirectController {
 
     private final LinkService linkService;
+    private final ClientKeyResolver clientKeyResolver;
 
-    public RedirectController(LinkService linkService) {
+    public RedirectController(LinkService linkService, ClientKeyResolver clientKeyResolver) {
         this.linkService = linkService;
+        this.clientKeyResolver = clientKeyResolver;
     }
 
     @GetMapping("/{slug}")
-    public ResponseEntity<Void> redirect(@PathVariable String slug) {
-        String url = linkService.processRedirect(slug);
+    public ResponseEntity<Void> redirect(@PathVariable String slug, HttpServletRequest request) {
+        String url = linkService.processRedirect(slug, clientKeyResolver.resolve(request));
         return ResponseEntity.status(HttpStatus.FOUND)
                 .location(URI.create(url))
                 .build();
@@ -0,0 +1,30 @@
+package dev.horoz.url_shortener.domain;
+
+import java.time.Instant;
+
+/**
+ * Гранулярность rollup-таблиц кликов. Границы бакетов - по UTC.
+ */
+public enum ClickGranularity {
+
+    HOUR(3_600),
+    DAY(86_400);
+
+    private final long seconds;
+
+    ClickGranularity(long seconds) {
+        this.seconds = seconds;
+    }
+
+    public long seconds() {
+        return seconds;
+    }
+
+    public long truncate(long epochSecond) {
+        return epochSecond - Math.floorMod(epochSecond, seconds);
+    }
+
+    public Instant truncate(Instant instant) {
+        return Instant.ofEpochSecond(truncate(instant.getEpochSecond()));
+    }
+}
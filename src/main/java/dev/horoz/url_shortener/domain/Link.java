@@ -33,6 +33,12 @@ public class Link {
     @Setter
     @Column(name = "target_url", nullable = false, columnDefinition = "TEXT")
     private String targetUrl;
+
+    // UrlFingerprint.hash(targetUrl); null только у строк, которые ещё не прошёл backfill
+    @Setter
+    @Column(name = "url_hash")
+    private Long urlHash;
+
     @Setter
     @Column(name = "expires_at", columnDefinition = "TIMESTAMPTZ")
     private Instant expiresAt;
@@ -0,0 +1,11 @@
+package dev.horoz.url_shortener.dto.link;
+
+import java.time.Instant;
+
+public record ClickBucketDto(
+        Instant start,
+        long clicks,
+        // только для дневных бакетов
+        Long uniqueVisitorsEstimate
+) {
+}
@@ -0,0 +1,16 @@
+package dev.horoz.url_shortener.dto.link;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record LinkBatchCreateRequestDto(
+
+        // невалидные URL не валят пачку, а возвращаются по отдельности
+        @NotEmpty
+        @Size(max = 1000)
+        List<String> targetUrls
+
+) {
+}
@@ -0,0 +1,20 @@
+package dev.horoz.url_shortener.dto.link;
+
+public record LinkBatchItemDto(
+        // позиция в запросе
+        int index,
+        String targetUrl,
+        Status status,
+        // null для INVALID и FAILED
+        LinkResponseDto link,
+        String error
+) {
+
+    public enum Status {
+        CREATED,
+        // у пользователя уже была ссылка на этот URL (или он повторяется в пачке)
+        EXISTING,
+        INVALID,
+        FAILED
+    }
+}
@@ -0,0 +1,11 @@
+package dev.horoz.url_shortener.dto.link;
+
+import java.util.List;
+
+public record LinkBatchResponseDto(
+        int created,
+        int existing,
+        int failed,
+        List<LinkBatchItemDto> items
+) {
+}
@@ -0,0 +1,11 @@
+package dev.horoz.url_shortener.dto.link;
+
+import java.util.List;
+
+public record LinkSliceDto(
+        List<LinkResponseDto> items,
+        // передать в ?after= за следующей страницей; null - это последняя страница
+        String nextCursor,
+        boolean hasNext
+) {
+}
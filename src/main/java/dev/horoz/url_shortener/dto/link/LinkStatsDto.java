@@ -1,10 +1,18 @@
 package dev.horoz.url_shortener.dto.link;
 
+import dev.horoz.url_shortener.domain.ClickGranularity;
+
 import java.time.Instant;
+import java.util.List;
 
 public record LinkStatsDto(
         Long clicksTotal,
+        Long uniqueVisitorsEstimate,
         Instant createdAt,
-        Instant expiresAt
+        Instant expiresAt,
+        ClickGranularity granularity,
+        Instant from,
+        Instant to,
+        List<ClickBucketDto> buckets
 ) {
 }
@@ -0,0 +1,11 @@
+package dev.horoz.url_shortener.dto.link;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record RedirectTargetDto(
+        UUID linkId,
+        String targetUrl,
+        Instant expiresAt
+) {
+}
@@ -0,0 +1,129 @@
+package dev.horoz.url_shortener.edge;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Клики edge-сервера копятся в памяти (по 4 long на клик, без объектов на запрос)
+ * и раз в flush уходят в основное приложение одним POST /internal/clicks.
+ *
+ * Тело - подряд записи по RECORD_BYTES (big-endian): linkId (2 long), время клика (epoch ms),
+ * ключ клиента (ClientAddresses). Переполненный буфер отбрасывает клики (счётчик dropped),
+ * неотправленная пачка повторяется на следующем flush.
+ */
+public final class EdgeClickForwarder {
+
+    public static final String SECRET_HEADER = "X-Edge-Secret";
+    public static final int RECORD_BYTES = 32;
+
+    private static final Logger log = LoggerFactory.getLogger(EdgeClickForwarder.class);
+
+    private final HttpClient client;
+    private final URI endpoint;
+    private final String secret;
+    private final int capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private long[] active;
+    private long[] spare;
+    private int size;
+    private byte[] retry;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    public EdgeClickForwarder(URI endpoint, String secret, int capacity) {
+        this.client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        this.endpoint = endpoint;
+        this.secret = secret;
+        this.capacity = capacity;
+        this.active = new long[capacity * 4];
+        this.spare = new long[capacity * 4];
+    }
+
+    public void record(long linkIdMsb, long linkIdLsb, long epochMillis, long visitorKey) {
+        lock.lock();
+        try {
+            if (size == capacity) {
+                dropped.incrementAndGet();
+                return;
+            }
+            int at = size++ * 4;
+            active[at] = linkIdMsb;
+            active[at + 1] = linkIdLsb;
+            active[at + 2] = epochMillis;
+            active[at + 3] = visitorKey;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (retry != null) {
+                if (!send(retry)) return;
+                retry = null;
+            }
+
+            long[] batch;
+            int n;
+            lock.lock();
+            try {
+                batch = active;
+                n = size;
+                active = spare;
+                spare = batch;
+                size = 0;
+            } finally {
+                lock.unlock();
+            }
+            if (n == 0) return;
+
+            ByteBuffer body = ByteBuffer.allocate(n * RECORD_BYTES);
+            for (int i = 0; i < n * 4; i++) {
+                body.putLong(batch[i]);
+            }
+            if (!send(body.array())) retry = body.array();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    private boolean send(byte[] body) {
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(Duration.ofSeconds(5))
+                .header("Content-Type", "application/octet-stream")
+                .header(SECRET_HEADER, secret)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        try {
+            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status / 100 == 2) return true;
+            log.warn("Click forwarding rejected with {}, {} clicks kept for retry", status, body.length / RECORD_BYTES);
+        } catch (IOException e) {
+            log.warn("Click forwarding failed, {} clicks kept for retry: {}", body.length / RECORD_BYTES, e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,47 @@
+package dev.horoz.url_shortener.edge;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Настройки edge-сервера из переменных окружения - без Spring, чтобы процесс стартовал за миллисекунды.
+ *
+ * @param clicksEndpoint  POST /internal/clicks основного приложения; null - клики не пересылаются
+ * @param fallbackBaseUrl основное приложение напрямую (не через балансировщик edge'ей): slug'и, которых
+ *                        ещё нет в индексе, уходят туда redirect'ом; null - 404
+ */
+public record EdgeConfig(
+        int port,
+        Path indexPath,
+        Duration pollInterval,
+        URI clicksEndpoint,
+        String secret,
+        Duration clickFlushInterval,
+        int clickBufferSize,
+        URI fallbackBaseUrl,
+        List<String> trustedProxies
+) {
+
+    public static EdgeConfig fromEnvironment(Map<String, String> env) {
+        String clicks = env.get("EDGE_CLICKS_URL");
+        String fallback = env.get("EDGE_FALLBACK_URL");
+        return new EdgeConfig(
+                Integer.parseInt(env.getOrDefault("EDGE_PORT", "8081")),
+                Path.of(env.getOrDefault("EDGE_INDEX", "/var/lib/url-shortener/slugs.idx")),
+                Duration.ofMillis(Long.parseLong(env.getOrDefault("EDGE_POLL_MS", "1000"))),
+                clicks == null || clicks.isBlank() ? null : URI.create(clicks),
+                env.getOrDefault("EDGE_SECRET", ""),
+                Duration.ofMillis(Long.parseLong(env.getOrDefault("EDGE_CLICK_FLUSH_MS", "1000"))),
+                Integer.parseInt(env.getOrDefault("EDGE_CLICK_BUFFER", "100000")),
+                fallback == null || fallback.isBlank() ? null : URI.create(fallback.replaceAll("/+$", "")),
+                Arrays.stream(env.getOrDefault("EDGE_TRUSTED_PROXIES", "127.0.0.0/8,::1/128").split(","))
+                        .map(String::trim)
+                        .filter(s -> !s.isEmpty())
+                        .toList()
+        );
+    }
+}
@@ -0,0 +1,178 @@
+package dev.horoz.url_shortener.edge;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.horoz.url_shortener.security.ClientKeyResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отдельный процесс только для GET /r/{slug}: JDK HttpServer на виртуальных потоках,
+ * slug'и из mmap-индекса (SlugIndex), без Spring, Security и JPA.
+ *
+ * Индекс экспортирует основное приложение (SlugIndexExporter) и подменяет файл атомарно;
+ * сервер раз в pollInterval сверяет mtime/inode и переключается на новый файл.
+ * Клики пересылаются в основное приложение пачками (EdgeClickForwarder).
+ *
+ * Запуск: java -jar url-shortener.jar edge (настройки - см. EdgeConfig).
+ */
+public final class EdgeRedirectServer implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(EdgeRedirectServer.class);
+
+    private static final String PREFIX = "/r/";
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    private final EdgeConfig config;
+    private final HttpServer server;
+    private final ClientKeyResolver clientKeyResolver;
+    private final EdgeClickForwarder clickForwarder;
+    private final ScheduledExecutorService maintenance;
+
+    private volatile SlugIndex index;
+    private Object indexVersion;
+
+    public EdgeRedirectServer(EdgeConfig config) throws IOException {
+        this.config = config;
+        this.clientKeyResolver = new ClientKeyResolver(config.trustedProxies());
+        this.clickForwarder = config.clicksEndpoint() == null ? null
+                : new EdgeClickForwarder(config.clicksEndpoint(), config.secret(), config.clickBufferSize());
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "edge-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.server = HttpServer.create(new InetSocketAddress(config.port()), 1024);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext(PREFIX, this::redirect);
+        server.createContext("/health", this::health);
+    }
+
+    public void start() {
+        reloadIfChanged();
+        maintenance.scheduleWithFixedDelay(this::reloadIfChanged,
+                config.pollInterval().toMillis(), config.pollInterval().toMillis(), TimeUnit.MILLISECONDS);
+        if (clickForwarder != null) {
+            maintenance.scheduleWithFixedDelay(clickForwarder::flush,
+                    config.clickFlushInterval().toMillis(), config.clickFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        server.start();
+        log.info("Edge redirect server listening on {}", server.getAddress());
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        maintenance.shutdownNow();
+        if (clickForwarder != null) clickForwarder.flush();
+    }
+
+    /**
+     * Проверка подмены файла индекса. Вызывается из maintenance-потока (и из start()).
+     */
+    void reloadIfChanged() {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(config.indexPath(), BasicFileAttributes.class);
+            // атомарная подмена - новый inode; mtime на случай ФС без fileKey
+            Object version = Objects.requireNonNullElse(attrs.fileKey(), "") + "@" + attrs.lastModifiedTime().toMillis();
+            if (version.equals(indexVersion)) return;
+
+            SlugIndex fresh = SlugIndex.open(config.indexPath());
+            index = fresh;
+            indexVersion = version;
+            log.info("Slug index loaded: {} links, exported at {}", fresh.size(), fresh.createdAt());
+        } catch (NoSuchFileException e) {
+            if (index == null) log.warn("Slug index {} not found yet", config.indexPath());
+        } catch (IOException | RuntimeException e) {
+            // остаёмся на предыдущем индексе
+            log.warn("Failed to load slug index {}", config.indexPath(), e);
+        }
+    }
+
+    public static void main(String[] args) {
+        EdgeRedirectServer server;
+        try {
+            server = new EdgeRedirectServer(EdgeConfig.fromEnvironment(System.getenv()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start edge redirect server", e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "edge-shutdown"));
+        server.start();
+    }
+
+    // ========================================================================
+    // Handlers
+    // ========================================================================
+
+    private void redirect(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            String slug = path.substring(PREFIX.length());
+            if (slug.isEmpty() || slug.indexOf('/') >= 0) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            SlugIndex current = index;
+            int record = current == null ? -1 : current.find(slug);
+            if (record < 0) {
+                fallback(exchange);
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            long expiresAt = current.expiresAtMillis(record);
+            if (expiresAt != SlugIndex.NO_EXPIRY && expiresAt < now) {
+                exchange.sendResponseHeaders(410, -1);
+                return;
+            }
+
+            if (clickForwarder != null) {
+                clickForwarder.record(current.linkIdMostSigBits(record), current.linkIdLeastSigBits(record), now,
+                        clientKeyResolver.resolve(exchange.getRemoteAddress().getAddress().getHostAddress(),
+                                exchange.getRequestHeaders().getFirst(X_FORWARDED_FOR)));
+            }
+            exchange.getResponseHeaders().set("Location", current.targetUrl(record));
+            exchange.sendResponseHeaders(302, -1);
+        }
+    }
+
+    /**
+     * Slug'а нет в индексе: ссылку могли создать после последнего экспорта - пусть решает основное приложение.
+     */
+    private void fallback(HttpExchange exchange) throws IOException {
+        if (config.fallbackBaseUrl() == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Location", config.fallbackBaseUrl() + exchange.getRequestURI().getRawPath());
+        exchange.sendResponseHeaders(302, -1);
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.sendResponseHeaders(index == null ? 503 : 200, -1);
+        }
+    }
+}
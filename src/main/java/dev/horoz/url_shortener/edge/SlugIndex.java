@@ -0,0 +1,168 @@
+package dev.horoz.url_shortener.edge;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Неизменяемый индекс slug -> (linkId, targetUrl, expiresAt), отображённый в память (mmap).
+ *
+ * Формат (big-endian):
+ *  - заголовок: magic, version, count, 0, createdAt (epoch ms), 8 байт резерва;
+ *  - таблица: count записей (hash slug'а: long, смещение записи: int), отсортирована по hash;
+ *  - записи: linkId (2 long), expiresAt (epoch ms, NO_EXPIRY - бессрочно), slug (1 байт длины + UTF-8),
+ *    targetUrl (int длины + UTF-8).
+ * Поиск - бинарный по таблице и сверка байтов slug'а, без аллокаций; строку создаёт только targetUrl.
+ * Файл не меняется после записи (SlugIndexWriter подменяет его атомарно), поэтому читать можно из любых потоков.
+ */
+public final class SlugIndex {
+
+    static final int MAGIC = 0x534C4958; // "SLIX"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int TABLE_ENTRY_BYTES = 12;
+    static final long NO_EXPIRY = Long.MAX_VALUE;
+    static final int MAX_SLUG_BYTES = 255;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final long createdAtMillis;
+
+    private SlugIndex(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a slug index");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported slug index version: " + buffer.getInt(4));
+        }
+        this.buffer = buffer;
+        this.count = buffer.getInt(8);
+        this.createdAtMillis = buffer.getLong(16);
+    }
+
+    public static SlugIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // отображение живёт и после закрытия канала, и после замены файла другим inode
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SlugIndex(mapped);
+        }
+    }
+
+    static SlugIndex wrap(ByteBuffer buffer) {
+        return new SlugIndex(buffer);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public Instant createdAt() {
+        return Instant.ofEpochMilli(createdAtMillis);
+    }
+
+    /**
+     * @return позиция записи для accessor'ов ниже или -1
+     */
+    public int find(String slug) {
+        if (slug.isEmpty() || slug.length() > MAX_SLUG_BYTES) return -1;
+        long hash = hash(slug);
+
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long h = tableHash(mid);
+            if (h < hash) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        // lo - первая запись с таким hash; коллизии разбираются сверкой slug'а
+        for (int i = lo; i < count && tableHash(i) == hash; i++) {
+            int record = buffer.getInt(HEADER_BYTES + i * TABLE_ENTRY_BYTES + 8);
+            if (slugEquals(record, slug)) return record;
+        }
+        return -1;
+    }
+
+    public long linkIdMostSigBits(int record) {
+        return buffer.getLong(record);
+    }
+
+    public long linkIdLeastSigBits(int record) {
+        return buffer.getLong(record + 8);
+    }
+
+    /**
+     * @return epoch ms или NO_EXPIRY
+     */
+    public long expiresAtMillis(int record) {
+        return buffer.getLong(record + 16);
+    }
+
+    public String targetUrl(int record) {
+        int slugLength = buffer.get(record + 24) & 0xFF;
+        int at = record + 25 + slugLength;
+        int length = buffer.getInt(at);
+        byte[] bytes = new byte[length];
+        buffer.get(at + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * FNV-1a по UTF-8 байтам slug'а. Для ASCII (все сгенерированные slug'и) байты берутся
+     * прямо из char'ов, без кодирования в новый массив.
+     */
+    static long hash(String slug) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < slug.length(); i++) {
+            char c = slug.charAt(i);
+            if (c >= 0x80) return hash(slug.getBytes(StandardCharsets.UTF_8));
+            h = (h ^ c) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    static long hash(byte[] utf8) {
+        long h = FNV_OFFSET;
+        for (byte b : utf8) {
+            h = (h ^ (b & 0xFF)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    private long tableHash(int i) {
+        return buffer.getLong(HEADER_BYTES + i * TABLE_ENTRY_BYTES);
+    }
+
+    private boolean slugEquals(int record, String slug) {
+        int length = buffer.get(record + 24) & 0xFF;
+        int at = record + 25;
+        if (length == slug.length()) {
+            int i = 0;
+            while (i < length) {
+                char c = slug.charAt(i);
+                if (c >= 0x80) break;
+                if (buffer.get(at + i) != (byte) c) return false;
+                i++;
+            }
+            if (i == length) return true;
+        }
+        // не-ASCII slug: длины в байтах и в char'ах не совпадают, сравниваем закодированные байты
+        byte[] utf8 = slug.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(at + i) != utf8[i]) return false;
+        }
+        return true;
+    }
+}
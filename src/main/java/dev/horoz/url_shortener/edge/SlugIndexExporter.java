@@ -0,0 +1,62 @@
+package dev.horoz.url_shortener.edge;
+
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Периодически выгружает links в SlugIndex для edge-серверов. Файл подменяется атомарно,
+ * так что edge читает либо прошлую выгрузку, либо новую целиком.
+ * Удалённые и продлённые ссылки edge видит с задержкой до interval + EDGE_POLL_MS.
+ */
+@Component
+@ConditionalOnProperty(name = "app.edge.export.enabled", havingValue = "true")
+public class SlugIndexExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(SlugIndexExporter.class);
+
+    private final LinkJdbcRepository linkJdbcRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Path path;
+
+    public SlugIndexExporter(LinkJdbcRepository linkJdbcRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.edge.export.path}") String path) {
+        this.linkJdbcRepository = linkJdbcRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.path = Path.of(path);
+    }
+
+    @Scheduled(fixedDelayString = "${app.edge.export.interval-ms:30000}")
+    public void export() {
+        long started = System.nanoTime();
+        try (SlugIndexWriter writer = new SlugIndexWriter(path)) {
+            readOnlyTransaction.executeWithoutResult(status ->
+                    linkJdbcRepository.forEachRedirectTarget(Instant.now(), (slug, linkId, targetUrl, expiresAt) -> {
+                        try {
+                            writer.add(slug, linkId, targetUrl, expiresAt);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+            writer.commit();
+            log.info("Slug index exported: {} links to {} in {} ms",
+                    writer.count(), path, (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            // edge продолжает работать на прошлой выгрузке
+            log.warn("Slug index export to {} failed", path, e);
+        }
+    }
+}
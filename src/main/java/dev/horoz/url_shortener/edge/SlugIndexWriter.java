@@ -0,0 +1,179 @@
+package dev.horoz.url_shortener.edge;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Пишет SlugIndex: записи потоком во временный файл, в памяти только (hash, смещение) на ссылку.
+ * commit() собирает итоговый файл рядом с целевым, делает fsync и атомарно подменяет целевой
+ * (rename) - читатель видит либо старый индекс, либо новый целиком.
+ */
+public final class SlugIndexWriter implements Closeable {
+
+    private final Path target;
+    private final Path dataFile;
+    private final DataOutputStream data;
+
+    private long[] hashes = new long[1024];
+    private int[] offsets = new int[1024];
+    private int count;
+    private long dataBytes;
+    private boolean committed;
+
+    public SlugIndexWriter(Path target) throws IOException {
+        this.target = target.toAbsolutePath();
+        Files.createDirectories(this.target.getParent());
+        this.dataFile = Files.createTempFile(this.target.getParent(), this.target.getFileName() + ".", ".data");
+        this.data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dataFile), 1 << 16));
+    }
+
+    /**
+     * @param expiresAt null - бессрочная ссылка
+     */
+    public void add(String slug, UUID linkId, String targetUrl, Instant expiresAt) throws IOException {
+        byte[] slugBytes = slug.getBytes(StandardCharsets.UTF_8);
+        if (slugBytes.length == 0 || slugBytes.length > SlugIndex.MAX_SLUG_BYTES) {
+            throw new IllegalArgumentException("Slug does not fit the index: " + slug);
+        }
+        byte[] urlBytes = targetUrl.getBytes(StandardCharsets.UTF_8);
+
+        if (count == hashes.length) {
+            hashes = Arrays.copyOf(hashes, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        hashes[count] = SlugIndex.hash(slugBytes);
+        // пока смещение от начала секции записей; к началу файла приводится в commit()
+        offsets[count] = Math.toIntExact(dataBytes);
+        count++;
+
+        data.writeLong(linkId.getMostSignificantBits());
+        data.writeLong(linkId.getLeastSignificantBits());
+        data.writeLong(expiresAt == null ? SlugIndex.NO_EXPIRY : expiresAt.toEpochMilli());
+        data.writeByte(slugBytes.length);
+        data.write(slugBytes);
+        data.writeInt(urlBytes.length);
+        data.write(urlBytes);
+        dataBytes += 25 + slugBytes.length + 4 + urlBytes.length;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public void commit() throws IOException {
+        data.close();
+        long tableBytes = (long) count * SlugIndex.TABLE_ENTRY_BYTES;
+        long dataStart = SlugIndex.HEADER_BYTES + tableBytes;
+        // MappedByteBuffer адресуется int'ом
+        if (dataStart + dataBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Slug index exceeds 2 GiB: " + (dataStart + dataBytes) + " bytes");
+        }
+
+        sortByHash(hashes, offsets, 0, count - 1);
+
+        // не createTempFile: у него права 0600, а edge-процесс может работать под другим пользователем
+        Path tmp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                 FileChannel in = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(SlugIndex.HEADER_BYTES)
+                        .putInt(SlugIndex.MAGIC)
+                        .putInt(SlugIndex.VERSION)
+                        .putInt(count)
+                        .putInt(0)
+                        .putLong(Instant.now().toEpochMilli())
+                        .putLong(0)
+                        .flip();
+                writeFully(out, header);
+
+                ByteBuffer table = ByteBuffer.allocate(64 * 1024 / SlugIndex.TABLE_ENTRY_BYTES * SlugIndex.TABLE_ENTRY_BYTES);
+                for (int i = 0; i < count; i++) {
+                    if (table.remaining() < SlugIndex.TABLE_ENTRY_BYTES) {
+                        writeFully(out, table.flip());
+                        table.clear();
+                    }
+                    table.putLong(hashes[i]).putInt((int) (dataStart + offsets[i]));
+                }
+                writeFully(out, table.flip());
+
+                long copied = 0;
+                while (copied < dataBytes) {
+                    copied += in.transferTo(copied, dataBytes - copied, out);
+                }
+                out.force(true);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+        } finally {
+            Files.deleteIfExists(tmp);
+            Files.deleteIfExists(dataFile);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (committed) return;
+        data.close();
+        Files.deleteIfExists(dataFile);
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Quicksort по hash с параллельным массивом смещений (без боксинга на миллионах записей).
+     */
+    private static void sortByHash(long[] h, int[] o, int lo, int hi) {
+        while (lo < hi) {
+            if (hi - lo < 16) {
+                for (int i = lo + 1; i <= hi; i++) {
+                    for (int j = i; j > lo && h[j - 1] > h[j]; j--) swap(h, o, j - 1, j);
+                }
+                return;
+            }
+            long pivot = h[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (h[i] < pivot) i++;
+                while (h[j] > pivot) j--;
+                if (i <= j) swap(h, o, i++, j--);
+            }
+            // рекурсия в меньшую половину - глубина стека O(log n)
+            if (j - lo < hi - i) {
+                sortByHash(h, o, lo, j);
+                lo = i;
+            } else {
+                sortByHash(h, o, i, hi);
+                hi = j;
+            }
+        }
+    }
+
+    private static void swap(long[] h, int[] o, int a, int b) {
+        long th = h[a];
+        h[a] = h[b];
+        h[b] = th;
+        int to = o[a];
+        o[a] = o[b];
+        o[b] = to;
+    }
+}
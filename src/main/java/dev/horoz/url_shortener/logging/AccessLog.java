@@ -0,0 +1,226 @@
+package dev.horoz.url_shortener.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Access log в JSON Lines вместо синхронной INFO-строки на каждый запрос.
+ *
+ * Поток запроса только решает, попадает ли запрос в выборку, и кладёт запись в lock-free
+ * кольцевой буфер; форматирование и запись в файл - в отдельном потоке пачками.
+ * Переполненный буфер теряет строки (счётчик access.log.dropped), запрос никогда не ждёт диска.
+ */
+@Component
+public class AccessLog {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLog.class);
+
+    private static final int DRAIN_BATCH = 4096;
+
+    private final boolean enabled;
+    private final String[] routePrefixes;
+    private final double[] routeRates;
+    private final double defaultRate;
+    private final int errorStatus;
+    private final long slowNanos;
+    private final long flushIntervalNanos;
+
+    private final AccessLogRingBuffer<AccessLogEntry> buffer;
+    private final RollingFileWriter file;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // только writer-поток
+    private final StringBuilder line = new StringBuilder(256);
+
+    private final Counter written;
+    private final Counter dropped;
+
+    public AccessLog(AccessLogProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        List<AccessLogProperties.Route> routes = properties.routes();
+        this.routePrefixes = new String[routes.size()];
+        this.routeRates = new double[routes.size()];
+        for (int i = 0; i < routes.size(); i++) {
+            routePrefixes[i] = routes.get(i).pathPrefix();
+            routeRates[i] = routes.get(i).sampleRate();
+        }
+        this.defaultRate = properties.defaultSampleRate();
+        this.errorStatus = properties.errorStatus();
+        this.slowNanos = properties.slowThreshold().toNanos();
+        this.flushIntervalNanos = properties.flushInterval().toNanos();
+
+        this.written = Counter.builder("access.log.written")
+                .description("Access log lines written")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("access.log.dropped")
+                .description("Sampled access log lines lost to a full buffer or a write error")
+                .register(meterRegistry);
+
+        if (!enabled) {
+            this.buffer = null;
+            this.file = null;
+            this.writer = null;
+            return;
+        }
+        this.buffer = new AccessLogRingBuffer<>(properties.bufferSize());
+        try {
+            this.file = new RollingFileWriter(Path.of(properties.path()), properties.maxFileSize().toBytes(),
+                    properties.maxHistory());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open access log " + properties.path(), e);
+        }
+        this.writer = new Thread(this::writeLoop, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @param traceId trace-id из входящего traceparent или null
+     */
+    public void record(String method, String path, int status, long durationNanos, String requestId, String traceId,
+                       String remoteAddr) {
+        if (!enabled || !sampled(path, status, durationNanos)) return;
+        AccessLogEntry entry = new AccessLogEntry(System.currentTimeMillis(), requestId, traceId, method, path, status,
+                durationNanos, remoteAddr);
+        if (!buffer.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Дописывает всё из буфера и закрывает файл.
+     */
+    @PreDestroy
+    public void close() {
+        if (!enabled) return;
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    boolean sampled(String path, int status, long durationNanos) {
+        if (status >= errorStatus || durationNanos >= slowNanos) return true;
+        double rate = defaultRate;
+        for (int i = 0; i < routePrefixes.length; i++) {
+            if (path.startsWith(routePrefixes[i])) {
+                rate = routeRates[i];
+                break;
+            }
+        }
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    // ========================================================================
+    // Writer thread
+    // ========================================================================
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                int n = drain();
+                if (n == 0) {
+                    if (!running) break;
+                    LockSupport.parkNanos(this, flushIntervalNanos);
+                }
+            }
+        } finally {
+            try {
+                file.close();
+            } catch (IOException e) {
+                log.warn("Failed to close access log", e);
+            }
+        }
+    }
+
+    private int drain() {
+        int n = 0;
+        AccessLogEntry entry;
+        while (n < DRAIN_BATCH && (entry = buffer.poll()) != null) {
+            n++;
+            try {
+                file.write(format(entry));
+                written.increment();
+            } catch (IOException e) {
+                dropped.increment();
+                log.warn("Failed to write access log line: {}", e.toString());
+            }
+        }
+        if (n > 0) {
+            try {
+                file.flush();
+            } catch (IOException e) {
+                log.warn("Failed to flush access log: {}", e.toString());
+            }
+        }
+        return n;
+    }
+
+    private byte[] format(AccessLogEntry e) {
+        line.setLength(0);
+        line.append("{\"ts\":\"");
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(e.epochMillis()), line);
+        line.append("\",\"request_id\":");
+        appendString(e.requestId());
+        if (e.traceId() != null) {
+            line.append(",\"trace_id\":");
+            appendString(e.traceId());
+        }
+        line.append(",\"method\":");
+        appendString(e.method());
+        line.append(",\"path\":");
+        appendString(e.path());
+        line.append(",\"status\":").append(e.status());
+        line.append(",\"duration_ns\":").append(e.durationNanos());
+        line.append(",\"remote\":");
+        appendString(e.remoteAddr());
+        line.append("}\n");
+        return line.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // request id и путь приходят от клиента: экранируем всё, что ломает JSON-строку
+    private void appendString(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,16 @@
+package dev.horoz.url_shortener.logging;
+
+/**
+ * Одна строка access log'а; создаётся только для попавших в выборку запросов.
+ */
+record AccessLogEntry(
+        long epochMillis,
+        String requestId,
+        String traceId,
+        String method,
+        String path,
+        int status,
+        long durationNanos,
+        String remoteAddr
+) {
+}
@@ -0,0 +1,44 @@
+package dev.horoz.url_shortener.logging;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Настройки access log'а (app.access-log). Для запроса берётся доля первого подходящего
+ * правила routes, иначе defaultSampleRate; ошибки и медленные запросы пишутся всегда.
+ */
+@ConfigurationProperties("app.access-log")
+public record AccessLogProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("logs/access.log") String path,
+        // при превышении файл переименовывается в .1 (старые сдвигаются до .maxHistory)
+        @DefaultValue("100MB") DataSize maxFileSize,
+        @DefaultValue("10") int maxHistory,
+        // ёмкость кольцевого буфера (округляется до степени двойки); переполнение - строка теряется
+        @DefaultValue("65536") int bufferSize,
+        // как часто фоновый writer просыпается, если буфер пуст
+        @DefaultValue("200ms") Duration flushInterval,
+        // статус от этого значения пишется всегда
+        @DefaultValue("500") int errorStatus,
+        // запрос дольше этого срока пишется всегда
+        @DefaultValue("500ms") Duration slowThreshold,
+        @DefaultValue("1.0") double defaultSampleRate,
+        List<Route> routes
+) {
+
+    public AccessLogProperties {
+        if (routes == null) {
+            routes = List.of();
+        }
+    }
+
+    /**
+     * @param sampleRate доля запросов в логе: 0..1
+     */
+    public record Route(String pathPrefix, double sampleRate) {
+    }
+}
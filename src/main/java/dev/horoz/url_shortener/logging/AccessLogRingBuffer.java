@@ -0,0 +1,69 @@
+package dev.horoz.url_shortener.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ограниченная lock-free очередь "много писателей - один читатель" (схема Вьюкова):
+ * у каждой ячейки свой номер последовательности, писатель занимает позицию одним CAS по tail,
+ * читатель (только writer-поток AccessLog) двигает head без атомиков.
+ * Полный буфер offer не ждёт, а возвращает false.
+ */
+final class AccessLogRingBuffer<E> {
+
+    private final Object[] items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    AccessLogRingBuffer(int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.items = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(E item) {
+        long pos = tail.get();
+        while (true) {
+            int i = (int) (pos & mask);
+            long diff = sequences.getAcquire(i) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    items[i] = item;
+                    // публикация для читателя: он увидит item после getAcquire этой ячейки
+                    sequences.setRelease(i, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // ячейку ещё не освободил читатель - буфер полон
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Только из одного потока-читателя.
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        int i = (int) (head & mask);
+        if (sequences.getAcquire(i) != head + 1) return null;
+        E item = (E) items[i];
+        items[i] = null;
+        sequences.setRelease(i, head + items.length);
+        head++;
+        return item;
+    }
+
+    int capacity() {
+        return items.length;
+    }
+}
@@ -8,19 +8,23 @@ import org.slf4j.MDC;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.Optional;
-import java.util.UUID;
 
 @Component
 public class RequestIdFilter extends OncePerRequestFilter {
 
     public static final String HEADER = "X-Request-Id";
     public static final String MDC_KEY = "requestId";
-    private static final Logger log = LoggerFactory.getLogger(RequestIdFilter.class);
+    public static final String TRACE_MDC_KEY = "traceId";
+
+    private final RequestIdGenerator requestIdGenerator;
+    private final AccessLog accessLog;
+
+    public RequestIdFilter(RequestIdGenerator requestIdGenerator, AccessLog accessLog) {
+        this.requestIdGenerator = requestIdGenerator;
+        this.accessLog = accessLog;
+    }
 
     @Override
     protected void doFilterInternal(
@@ -28,26 +32,32 @@ public class RequestIdFilter extends OncePerRequestFilter {
             @NonNull HttpServletResponse response,
             @NonNull FilterChain filterChain
     ) throws ServletException, IOException {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
 
-        String requestId = Optional.ofNullable(request.getHeader(HEADER))
-                .filter(s -> !s.isBlank())
-                .orElse(UUID.randomUUID().toString());
+        String requestId = request.getHeader(HEADER);
+        if (requestId == null || requestId.isBlank()) {
+            requestId = requestIdGenerator.next();
+        }
+        // trace-id прокси: по нему строки сводятся между хопами, X-Request-Id остаётся нашим
+        String traceId = TraceContext.traceId(request.getHeader(TraceContext.HEADER));
 
         MDC.put(MDC_KEY, requestId);
+        if (traceId != null) MDC.put(TRACE_MDC_KEY, traceId);
         response.setHeader(HEADER, requestId);
 
+        boolean failed = false;
         try {
             filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            failed = true;
+            throw e;
         } finally {
-            long tookMs = System.currentTimeMillis() - start;
-            log.info("{} {} -> {} ({} ms)",
-                    request.getMethod(),
-                    request.getRequestURI(),
-                    response.getStatus(),
-                    tookMs
-            );
+            // исключение дальше обработает контейнер - в логе это 500, а не ещё не выставленный статус
+            accessLog.record(request.getMethod(), request.getRequestURI(),
+                    failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus(),
+                    System.nanoTime() - start, requestId, traceId, request.getRemoteAddr());
             MDC.remove(MDC_KEY);
+            MDC.remove(TRACE_MDC_KEY);
         }
     }
 }
@@ -0,0 +1,114 @@
+package dev.horoz.url_shortener.logging;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Request id в духе ULID вместо UUID.randomUUID(): 128 бит = время (48 бит, epoch ms)
+ * + узел (16 бит, из app.node-id) + per-thread счётчик (64 бита), 26 символов Crockford base32.
+ *
+ * Первые 10 символов - время, поэтому id сортируются по времени создания, а внутри потока
+ * строго возрастают. Счётчик потока стартует со случайного значения (ThreadLocalRandom, без
+ * общего SecureRandom), так что потоки одного узла в одну миллисекунду не пересекаются.
+ * Ни блокировок, ни CAS: вся изменяемая часть - в ThreadLocal; на запрос аллоцируется только строка
+ * (на виртуальных потоках ещё и состояние потока - по одному на запрос).
+ */
+@Component
+public class RequestIdGenerator {
+
+    static final int LENGTH = 26;
+
+    private static final byte[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    private final long node;
+
+    @Autowired
+    public RequestIdGenerator(@Value("${app.node-id:local}") String nodeId) {
+        this(nodeBits(nodeId));
+    }
+
+    RequestIdGenerator(int node) {
+        this.node = node & 0xFFFF;
+    }
+
+    public String next() {
+        State s = STATE.get();
+        // часы могут уйти назад (NTP) - внутри потока время не убывает
+        long now = Math.max(System.currentTimeMillis(), s.lastMillis);
+        s.lastMillis = now;
+        long hi = now << 16 | node;
+        long lo = s.sequence++;
+
+        byte[] out = s.chars;
+        out[0] = ALPHABET[(int) (hi >>> 61)];
+        for (int i = 1; i < LENGTH; i++) {
+            // символ i - 5 бит, начиная с бита 125 - 5 * i (от младшего)
+            int at = 125 - 5 * i;
+            long bits;
+            if (at >= 64) bits = hi >>> (at - 64);
+            else if (at > 59) bits = lo >>> at | hi << (64 - at);
+            else bits = lo >>> at;
+            out[i] = ALPHABET[(int) (bits & 31)];
+        }
+        return new String(out, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Время создания id (epoch ms) - для отладки и тестов.
+     */
+    static long epochMillis(String id) {
+        long ms = 0;
+        // 10 символов = 3 + 9 * 5 = 48 бит времени
+        for (int i = 0; i < 10; i++) {
+            ms = ms << 5 | decode(id.charAt(i));
+        }
+        return ms;
+    }
+
+    static int node(String id) {
+        long bits = 0;
+        // символы 10..13 - 20 бит: 16 бит узла и старшие 4 бита счётчика
+        for (int i = 10; i < 14; i++) {
+            bits = bits << 5 | decode(id.charAt(i));
+        }
+        return (int) (bits >>> 4);
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    /**
+     * Числовой node-id берётся как есть (его можно раздать узлам без коллизий),
+     * иначе - хэш строки (обычно HOSTNAME пода).
+     */
+    private static int nodeBits(String nodeId) {
+        try {
+            int n = Integer.parseInt(nodeId);
+            if (n >= 0 && n <= 0xFFFF) return n;
+        } catch (NumberFormatException ignored) {
+            // не число
+        }
+        int h = nodeId.hashCode();
+        return (h ^ h >>> 16) & 0xFFFF;
+    }
+
+    private static int decode(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) return i;
+        }
+        throw new IllegalArgumentException("Not a Crockford base32 character: " + c);
+    }
+
+    private static final class State {
+        final byte[] chars = new byte[LENGTH];
+        long sequence = ThreadLocalRandom.current().nextLong();
+        long lastMillis;
+    }
+}
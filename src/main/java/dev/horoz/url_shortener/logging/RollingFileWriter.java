@@ -0,0 +1,79 @@
+package dev.horoz.url_shortener.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Файл с ротацией по размеру: access.log -> access.log.1 -> ... -> access.log.maxHistory (удаляется).
+ * Не потокобезопасен - пишет только writer-поток AccessLog.
+ */
+final class RollingFileWriter implements Closeable {
+
+    private final Path path;
+    private final long maxBytes;
+    private final int maxHistory;
+
+    private OutputStream out;
+    private long size;
+
+    RollingFileWriter(Path path, long maxBytes, int maxHistory) throws IOException {
+        this.path = path.toAbsolutePath();
+        this.maxBytes = maxBytes;
+        this.maxHistory = maxHistory;
+        Files.createDirectories(this.path.getParent());
+        open();
+    }
+
+    void write(byte[] line) throws IOException {
+        if (size > 0 && size + line.length > maxBytes) {
+            roll();
+        }
+        out.write(line);
+        size += line.length;
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    private void open() throws IOException {
+        out = new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 1 << 16);
+        size = Files.size(path);
+    }
+
+    private void roll() throws IOException {
+        out.close();
+        Files.deleteIfExists(rolled(maxHistory));
+        for (int i = maxHistory - 1; i >= 1; i--) {
+            Path from = rolled(i);
+            if (Files.exists(from)) {
+                Files.move(from, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxHistory > 0) {
+            Files.move(path, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(path);
+        }
+        open();
+    }
+
+    private Path rolled(int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+}
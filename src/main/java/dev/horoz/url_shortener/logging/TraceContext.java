@@ -0,0 +1,61 @@
+package dev.horoz.url_shortener.logging;
+
+/**
+ * Разбор W3C traceparent (version-traceid-parentid-flags): trace-id от прокси попадает в MDC
+ * и access log, чтобы строки разных хопов сводились по одному id.
+ */
+final class TraceContext {
+
+    static final String HEADER = "traceparent";
+
+    private static final int TRACE_ID_START = 3;
+    private static final int TRACE_ID_END = 35;
+    private static final int PARENT_ID_END = 52;
+    private static final int MIN_LENGTH = 55;
+
+    private TraceContext() {
+    }
+
+    /**
+     * @return trace-id (32 hex) или null, если заголовка нет или он некорректен
+     */
+    static String traceId(String traceparent) {
+        if (traceparent == null || traceparent.length() < MIN_LENGTH) return null;
+        // версия 00 - ровно 55 символов; более новые версии могут дописывать поля после флагов
+        boolean version00 = traceparent.startsWith("00");
+        if (version00 && traceparent.length() != MIN_LENGTH) return null;
+        if (!version00 && traceparent.length() > MIN_LENGTH && traceparent.charAt(MIN_LENGTH) != '-') return null;
+        if (!isHex(traceparent, 0, 2) || traceparent.startsWith("ff")
+                || traceparent.charAt(2) != '-'
+                || traceparent.charAt(TRACE_ID_END) != '-'
+                || traceparent.charAt(PARENT_ID_END) != '-'
+                || !isHex(traceparent, TRACE_ID_START, TRACE_ID_END)
+                || !isHex(traceparent, TRACE_ID_END + 1, PARENT_ID_END)
+                || !isHex(traceparent, PARENT_ID_END + 1, MIN_LENGTH)
+                || isZero(traceparent, TRACE_ID_START, TRACE_ID_END)
+                || isZero(traceparent, TRACE_ID_END + 1, PARENT_ID_END)) {
+            return null;
+        }
+        return traceparent.substring(TRACE_ID_START, TRACE_ID_END);
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    // спецификация допускает только строчные hex-цифры
+    private static boolean isHex(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) return false;
+        }
+        return true;
+    }
+
+    private static boolean isZero(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) != '0') return false;
+        }
+        return true;
+    }
+}
@@ -1,9 +1,14 @@
 package dev.horoz.url_shortener.mapper;
 
+import dev.horoz.url_shortener.domain.ClickGranularity;
 import dev.horoz.url_shortener.domain.Link;
+import dev.horoz.url_shortener.dto.link.ClickBucketDto;
 import dev.horoz.url_shortener.dto.link.LinkResponseDto;
 import dev.horoz.url_shortener.dto.link.LinkStatsDto;
 
+import java.time.Instant;
+import java.util.List;
+
 public final class LinkMapper {
 
     private LinkMapper() {}
@@ -18,11 +23,23 @@ public final class LinkMapper {
                 link.getCreatedAt()
         );
     }
-    public static LinkStatsDto toStatsDto(Link link) {
+    public static LinkStatsDto toStatsDto(Link link,
+                                          long pendingClicks,
+                                          long uniqueVisitorsEstimate,
+                                          ClickGranularity granularity,
+                                          Instant from,
+                                          Instant to,
+                                          List<ClickBucketDto> buckets) {
+        long persisted = link.getClicksTotal() == null ? 0 : link.getClicksTotal();
         return new LinkStatsDto(
-                link.getClicksTotal(),
+                persisted + pendingClicks,
+                uniqueVisitorsEstimate,
                 link.getCreatedAt(),
-                link.getExpiresAt()
+                link.getExpiresAt(),
+                granularity,
+                from,
+                to,
+                buckets
         );
     }
 }
@@ -0,0 +1,88 @@
+package dev.horoz.url_shortener.repository;
+
+import dev.horoz.url_shortener.dto.link.ClickBucketDto;
+import dev.horoz.url_shortener.domain.ClickGranularity;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Rollup-таблицы кликов link_clicks_hourly / link_clicks_daily.
+ * Чтение статистики идёт только отсюда: O(бакетов) по первичному ключу (link_id, bucket_start).
+ */
+@Repository
+public class ClickRollupRepository {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO %1$s (link_id, bucket_start, clicks)
+            SELECT d.link_id, to_timestamp(d.bucket_start), d.clicks
+              FROM unnest(?::uuid[], ?::bigint[], ?::bigint[]) AS d(link_id, bucket_start, clicks)
+             WHERE EXISTS (SELECT 1 FROM links l WHERE l.id = d.link_id)
+            ON CONFLICT (link_id, bucket_start) DO UPDATE SET clicks = %1$s.clicks + EXCLUDED.clicks
+            """;
+
+    private static final String FIND_SQL = """
+            SELECT bucket_start, clicks
+              FROM %s
+             WHERE link_id = ? AND bucket_start >= ? AND bucket_start < ?
+             ORDER BY bucket_start
+            """;
+
+    private static final String DELETE_BEFORE_SQL = """
+            DELETE FROM %1$s
+             WHERE ctid = ANY (ARRAY(SELECT ctid FROM %1$s WHERE bucket_start < ? LIMIT ?))
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RepositoryInvocations invocations;
+
+    public ClickRollupRepository(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.invocations = new RepositoryInvocations(meterRegistry, ClickRollupRepository.class);
+    }
+
+    /**
+     * clicks += delta для каждого (linkIds[i], bucketStarts[i]); пары в одном вызове уникальны.
+     * Бакеты уже удалённых ссылок пропускаются.
+     */
+    public void addClicks(ClickGranularity granularity, UUID[] linkIds, Long[] bucketStartsEpochSec, Long[] clicks) {
+        String sql = UPSERT_SQL.formatted(table(granularity));
+        invocations.run("addClicks", () -> jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", linkIds));
+            ps.setArray(2, con.createArrayOf("bigint", bucketStartsEpochSec));
+            ps.setArray(3, con.createArrayOf("bigint", clicks));
+            return ps;
+        }));
+    }
+
+    public List<ClickBucketDto> find(ClickGranularity granularity, UUID linkId, Instant from, Instant to) {
+        return invocations.record("find", () -> jdbcTemplate.query(
+                FIND_SQL.formatted(table(granularity)),
+                (rs, i) -> new ClickBucketDto(rs.getTimestamp(1).toInstant(), rs.getLong(2), null),
+                linkId, Timestamp.from(from), Timestamp.from(to)
+        ));
+    }
+
+    /**
+     * Удаляет не больше batchSize бакетов старше before.
+     * @return сколько строк удалено
+     */
+    public int deleteBefore(ClickGranularity granularity, Instant before, int batchSize) {
+        return invocations.record("deleteBefore", () ->
+                jdbcTemplate.update(DELETE_BEFORE_SQL.formatted(table(granularity)), Timestamp.from(before), batchSize));
+    }
+
+    private static String table(ClickGranularity granularity) {
+        return switch (granularity) {
+            case HOUR -> "link_clicks_hourly";
+            case DAY -> "link_clicks_daily";
+        };
+    }
+}
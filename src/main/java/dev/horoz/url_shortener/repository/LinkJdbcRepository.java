@@ -0,0 +1,329 @@
+package dev.horoz.url_shortener.repository;
+
+import dev.horoz.url_shortener.dto.link.LinkResponseDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Set-based операции над links, которые неудобно или дорого выражать через JPA:
+ * один statement на пачку строк вместо statement'а на строку.
+ */
+@Repository
+public class LinkJdbcRepository {
+
+    private static final String ADD_CLICKS_SQL = """
+            UPDATE links l
+               SET clicks_total = l.clicks_total + d.delta
+              FROM unnest(?::uuid[], ?::bigint[]) AS d(id, delta)
+             WHERE l.id = d.id
+            """;
+
+    // дедупликация пачки: пробы links_user_url_hash_idx по всем хэшам сразу, старые ссылки первыми
+    private static final String FIND_BY_USER_AND_URL_HASHES_SQL = """
+            SELECT l.id, l.slug, l.target_url, l.expires_at, l.clicks_total, l.created_at
+              FROM links l
+             WHERE l.user_id = ?
+               AND l.url_hash = ANY(?::bigint[])
+             ORDER BY l.created_at, l.id
+            """;
+
+    // строки с занятым slug молча пропускаются: вызывающий повторит их с новыми slug'ами
+    private static final String INSERT_LINKS_SQL = """
+            INSERT INTO links (id, user_id, slug, target_url, url_hash, expires_at)
+            SELECT n.id, ?, n.slug, n.target_url, n.url_hash, ?
+              FROM unnest(?::uuid[], ?::text[], ?::text[], ?::bigint[]) AS n(id, slug, target_url, url_hash)
+                ON CONFLICT DO NOTHING
+            RETURNING id, slug, target_url, expires_at, clicks_total, created_at
+            """;
+
+    // импорт: slug и expires_at приходят из файла, занятые slug'и возвращаются вызывающему как ошибки
+    private static final String IMPORT_LINKS_SQL = """
+            INSERT INTO links (id, user_id, slug, target_url, url_hash, expires_at)
+            SELECT gen_random_uuid(), ?, n.slug, n.target_url, n.url_hash, n.expires_at
+              FROM unnest(?::text[], ?::text[], ?::bigint[], ?::timestamptz[]) AS n(slug, target_url, url_hash, expires_at)
+                ON CONFLICT DO NOTHING
+            RETURNING slug
+            """;
+
+    // backfill url_hash: keyset по PK, SKIP LOCKED - не ждём строки, занятые redirect'ами или другим узлом
+    private static final String FIND_WITHOUT_URL_HASH_SQL = """
+            SELECT id, target_url
+              FROM links
+             WHERE id > ?
+               AND url_hash IS NULL
+             ORDER BY id
+             LIMIT ?
+               FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final String SET_URL_HASHES_SQL = """
+            UPDATE links l
+               SET url_hash = d.url_hash
+              FROM unnest(?::uuid[], ?::bigint[]) AS d(id, url_hash)
+             WHERE l.id = d.id
+            """;
+
+    private static final RowMapper<LinkResponseDto> LINK_ROW_MAPPER = (rs, i) -> new LinkResponseDto(
+            rs.getObject("id", UUID.class),
+            rs.getString("slug"),
+            rs.getString("target_url"),
+            toInstant(rs.getTimestamp("expires_at")),
+            rs.getLong("clicks_total"),
+            toInstant(rs.getTimestamp("created_at")));
+
+    // экспорт индекса для edge-сервера: все ещё не истёкшие ссылки одним проходом
+    private static final String REDIRECT_TARGETS_SQL = """
+            SELECT slug, id, target_url, expires_at
+              FROM links
+             WHERE expires_at IS NULL OR expires_at > ?
+            """;
+
+    private static final int EXPORT_FETCH_SIZE = 10_000;
+
+    // фильтр существующих slug'ов (SlugFilter): полная сборка и догрузка новых по links_created_idx
+    private static final String ALL_SLUGS_SQL = "SELECT slug, created_at FROM links";
+
+    private static final String SLUGS_CREATED_AFTER_SQL = """
+            SELECT slug, created_at
+              FROM links
+             WHERE created_at > ?
+            """;
+
+    // оценка планировщика по последнему ANALYZE/VACUUM; -1, пока таблицу ни разу не анализировали
+    private static final String ESTIMATED_LINK_COUNT_SQL = "SELECT reltuples::bigint FROM pg_class WHERE oid = 'links'::regclass";
+
+    // ExpiredLinkReaper: пачка истёкших по links_expires_idx после курсора (expires_at, id);
+    // SKIP LOCKED - строки, занятые кликами или другим узлом, останутся до следующего прохода
+    private static final String REAP_EXPIRED_SQL = """
+            WITH doomed AS (
+                SELECT id
+                  FROM links
+                 WHERE expires_at < ?%s
+                 ORDER BY expires_at, id
+                 LIMIT ?
+                   FOR UPDATE SKIP LOCKED
+            ), gone AS (
+                DELETE FROM links l
+                 USING doomed d
+                 WHERE l.id = d.id
+             RETURNING l.id, l.user_id, l.slug, l.target_url, l.expires_at, l.clicks_total, l.created_at
+            )%s
+            SELECT id, slug, expires_at FROM gone
+            """;
+
+    private static final String REAP_AFTER_CURSOR = "\n       AND (expires_at, id) > (?, ?)";
+
+    private static final String REAP_ARCHIVE = """
+            , archived AS (
+                INSERT INTO links_archive (id, user_id, slug, target_url, expires_at, clicks_total, created_at)
+                SELECT id, user_id, slug, target_url, expires_at, clicks_total, created_at FROM gone
+            )""";
+
+    private static final String REAP_FIRST_SQL = REAP_EXPIRED_SQL.formatted("", "");
+    private static final String REAP_NEXT_SQL = REAP_EXPIRED_SQL.formatted(REAP_AFTER_CURSOR, "");
+    private static final String REAP_FIRST_ARCHIVE_SQL = REAP_EXPIRED_SQL.formatted("", REAP_ARCHIVE);
+    private static final String REAP_NEXT_ARCHIVE_SQL = REAP_EXPIRED_SQL.formatted(REAP_AFTER_CURSOR, REAP_ARCHIVE);
+
+    // nextval резервирует блок [start, start + increment_by)
+    private static final String RESERVE_SLUG_BLOCK_SQL = """
+            SELECT nextval('links_slug_seq') AS block_start, s.increment_by AS block_size
+              FROM pg_sequences s
+             WHERE s.schemaname = current_schema()
+               AND s.sequencename = 'links_slug_seq'
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RepositoryInvocations invocations;
+
+    public LinkJdbcRepository(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.invocations = new RepositoryInvocations(meterRegistry, LinkJdbcRepository.class);
+    }
+
+    /**
+     * Один multi-row UPDATE: clicks_total += delta для каждой пары (ids[i], deltas[i]).
+     * Удалённые ссылки просто не матчатся.
+     */
+    public int addClicks(UUID[] ids, Long[] deltas) {
+        return invocations.record("addClicks", () -> jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(ADD_CLICKS_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            ps.setArray(2, con.createArrayOf("bigint", deltas));
+            return ps;
+        }));
+    }
+
+    /**
+     * Резервирует следующий блок id для slug'ов. nextval не откатывается вместе с транзакцией,
+     * так что блок не достанется никому другому, даже если вставка ссылки упадёт.
+     */
+    public SlugBlock reserveSlugBlock() {
+        return invocations.record("reserveSlugBlock", () -> jdbcTemplate.queryForObject(RESERVE_SLUG_BLOCK_SQL,
+                (rs, i) -> new SlugBlock(rs.getLong("block_start"), rs.getLong("block_size"))));
+    }
+
+    public record SlugBlock(long start, long size) {
+    }
+
+    /**
+     * Ссылки пользователя с любым из хэшей одним запросом, от старых к новым.
+     * Совпадение хэша ещё не совпадение URL - вызывающий сверяет канонические формы.
+     */
+    public List<LinkResponseDto> findByUserAndUrlHashes(UUID userId, Long[] urlHashes) {
+        return invocations.record("findByUserAndUrlHashes", () -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_BY_USER_AND_URL_HASHES_SQL);
+            ps.setObject(1, userId);
+            ps.setArray(2, con.createArrayOf("bigint", urlHashes));
+            return ps;
+        }, LINK_ROW_MAPPER));
+    }
+
+    /**
+     * Один multi-row INSERT для пачки ссылок пользователя.
+     *
+     * @return вставленные строки; строк, наткнувшихся на занятый slug, среди них нет
+     */
+    public List<LinkResponseDto> insertLinks(UUID userId, Instant expiresAt,
+                                             UUID[] ids, String[] slugs, String[] targetUrls, Long[] urlHashes) {
+        return invocations.record("insertLinks", () -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_LINKS_SQL);
+            ps.setObject(1, userId);
+            ps.setTimestamp(2, Timestamp.from(expiresAt));
+            ps.setArray(3, con.createArrayOf("uuid", ids));
+            ps.setArray(4, con.createArrayOf("text", slugs));
+            ps.setArray(5, con.createArrayOf("text", targetUrls));
+            ps.setArray(6, con.createArrayOf("bigint", urlHashes));
+            return ps;
+        }, LINK_ROW_MAPPER));
+    }
+
+    /**
+     * Один multi-row INSERT для пачки импортируемых строк (slug'и внутри пачки различны).
+     *
+     * @return slug'и, которые удалось вставить
+     */
+    public Set<String> importLinks(UUID userId, String[] slugs, String[] targetUrls, Long[] urlHashes,
+                                   Timestamp[] expiresAt) {
+        Set<String> inserted = new HashSet<>(slugs.length * 2);
+        invocations.run("importLinks", () -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(IMPORT_LINKS_SQL);
+            ps.setObject(1, userId);
+            ps.setArray(2, con.createArrayOf("text", slugs));
+            ps.setArray(3, con.createArrayOf("text", targetUrls));
+            ps.setArray(4, con.createArrayOf("bigint", urlHashes));
+            ps.setArray(5, con.createArrayOf("timestamptz", expiresAt));
+            return ps;
+        }, rs -> {
+            inserted.add(rs.getString(1));
+        }));
+        return inserted;
+    }
+
+    /**
+     * Следующие после afterId (по PK) ссылки без url_hash, залоченные до конца транзакции.
+     */
+    public List<UrlRow> lockWithoutUrlHash(UUID afterId, int limit) {
+        return invocations.record("lockWithoutUrlHash", () -> jdbcTemplate.query(FIND_WITHOUT_URL_HASH_SQL,
+                (rs, i) -> new UrlRow(rs.getObject("id", UUID.class), rs.getString("target_url")),
+                afterId, limit));
+    }
+
+    public int setUrlHashes(UUID[] ids, Long[] urlHashes) {
+        return invocations.record("setUrlHashes", () -> jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(SET_URL_HASHES_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            ps.setArray(2, con.createArrayOf("bigint", urlHashes));
+            return ps;
+        }));
+    }
+
+    public record UrlRow(UUID id, String targetUrl) {
+    }
+
+    /**
+     * Потоковый обход ссылок для SlugIndexExporter. Postgres отдаёт строки по fetchSize
+     * только внутри транзакции - вызывающий открывает её сам.
+     */
+    public void forEachRedirectTarget(Instant notExpiredAt, RedirectTargetHandler handler) {
+        invocations.run("forEachRedirectTarget", () -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(REDIRECT_TARGETS_SQL);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            ps.setTimestamp(1, Timestamp.from(notExpiredAt));
+            return ps;
+        }, rs -> {
+            handler.accept(rs.getString("slug"), rs.getObject("id", UUID.class), rs.getString("target_url"),
+                    toInstant(rs.getTimestamp("expires_at")));
+        }));
+    }
+
+    @FunctionalInterface
+    public interface RedirectTargetHandler {
+        void accept(String slug, UUID linkId, String targetUrl, Instant expiresAt);
+    }
+
+    /**
+     * Потоковый обход slug'ов; createdAfter = null - вся таблица. Как и forEachRedirectTarget,
+     * по fetchSize строки идут только внутри транзакции вызывающего.
+     */
+    public void forEachSlug(Instant createdAfter, SlugHandler handler) {
+        invocations.run("forEachSlug", () -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(createdAfter == null ? ALL_SLUGS_SQL : SLUGS_CREATED_AFTER_SQL);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            if (createdAfter != null) ps.setTimestamp(1, Timestamp.from(createdAfter));
+            return ps;
+        }, rs -> {
+            handler.accept(rs.getString("slug"), rs.getTimestamp("created_at").toInstant());
+        }));
+    }
+
+    @FunctionalInterface
+    public interface SlugHandler {
+        void accept(String slug, Instant createdAt);
+    }
+
+    /**
+     * Удаляет (archive - переносит в links_archive) до limit ссылок с expires_at < expiredBefore,
+     * следующих за after в порядке (expires_at, id); after = null - с начала. Одна команда,
+     * строки залочены до конца транзакции вызывающего.
+     */
+    public List<ReapedLink> reapExpired(Instant expiredBefore, ReapedLink after, int limit, boolean archive) {
+        String sql = after == null
+                ? (archive ? REAP_FIRST_ARCHIVE_SQL : REAP_FIRST_SQL)
+                : (archive ? REAP_NEXT_ARCHIVE_SQL : REAP_NEXT_SQL);
+        return invocations.record("reapExpired", () -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            int i = 1;
+            ps.setTimestamp(i++, Timestamp.from(expiredBefore));
+            if (after != null) {
+                ps.setTimestamp(i++, Timestamp.from(after.expiresAt()));
+                ps.setObject(i++, after.id());
+            }
+            ps.setInt(i, limit);
+            return ps;
+        }, (rs, n) -> new ReapedLink(rs.getObject("id", UUID.class), rs.getString("slug"),
+                rs.getTimestamp("expires_at").toInstant())));
+    }
+
+    public record ReapedLink(UUID id, String slug, Instant expiresAt) {
+    }
+
+    public long estimatedLinkCount() {
+        Long count = invocations.record("estimatedLinkCount", () ->
+                jdbcTemplate.queryForObject(ESTIMATED_LINK_COUNT_SQL, Long.class));
+        return count == null ? -1 : count;
+    }
+
+    private static Instant toInstant(Timestamp ts) {
+        return ts == null ? null : ts.toInstant();
+    }
+}
@@ -2,25 +2,64 @@ package dev.horoz.url_shortener.repository;
 
 import dev.horoz.url_shortener.domain.Link;
 import dev.horoz.url_shortener.domain.User;
+import dev.horoz.url_shortener.dto.link.RedirectTargetDto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface LinkRepository extends JpaRepository<Link, UUID> {
     Optional<Link> findByTargetUrlIgnoreCase(String targetUrl);
-    Optional<Link> findByUserAndTargetUrlIgnoreCase(User user, String targetUrl);
-    Page<Link> findAllByUser(User user, Pageable pageable);
-    Optional<Link> findByIdAndUser(UUID id, User user);
-    Optional<Link> findBySlug(String slug);
-
-    @Modifying(clearAutomatically = true, flushAutomatically = true)
-    @Query("update Link l set l.clicksTotal = l.clicksTotal + 1 where l.id = :id")
-    void incrementClicksTotal(@Param("id") UUID id);
+    // Дедупликация createLink: одна проба links_user_url_hash_idx. Совпадение хэша ещё не
+    // совпадение URL - LinkService сверяет канонические формы.
+    List<Link> findByUserIdAndUrlHash(UUID userId, Long urlHash);
+    Page<Link> findAllByUserId(UUID userId, Pageable pageable);
+
+    // Экспорт: серверный курсор (Postgres отдаёт по fetchSize строк, только внутри транзакции),
+    // read-only - Hibernate не держит снимки для dirty checking. Вызывающий закрывает Stream.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select l from Link l where l.user = :user order by l.createdAt desc, l.id")
+    Stream<Link> streamAllByUser(@Param("user") User user);
+    // user.id - это сам links.user_id: владелец проверяется в том же запросе, без join и без users
+    Optional<Link> findByIdAndUserId(UUID id, UUID userId);
+
+    // Keyset-пагинация по индексу links_user_created_idx (user_id, created_at DESC, id):
+    // без OFFSET и без count, страница после курсора - range scan от (createdAt, id).
+    List<Link> findByUserIdOrderByCreatedAtDescIdAsc(UUID userId, Limit limit);
+
+    // createdAt <= :createdAt - граница диапазона в Index Cond; одно OR Postgres применяет
+    // только как Filter, и глубокая страница перебирала бы все более новые ссылки пользователя
+    @Query("select l from Link l where l.user.id = :userId and l.createdAt <= :createdAt " +
+            "and (l.createdAt < :createdAt or (l.createdAt = :createdAt and l.id > :id)) " +
+            "order by l.createdAt desc, l.id")
+    List<Link> findPageAfter(@Param("userId") UUID userId,
+                             @Param("createdAt") Instant createdAt,
+                             @Param("id") UUID id,
+                             Limit limit);
+
+    // Горячий путь redirect: только (id, target_url, expires_at) без гидрации Link/User.
+    // SUPPORTS -> вне транзакции запрос идёт в autocommit, без BEGIN/COMMIT,
+    // а покрывающий индекс links_slug_uidx позволяет index-only scan.
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    @Query("select new dev.horoz.url_shortener.dto.link.RedirectTargetDto(l.id, l.targetUrl, l.expiresAt) " +
+            "from Link l where l.slug = :slug")
+    Optional<RedirectTargetDto> findRedirectTargetBySlug(@Param("slug") String slug);
 }
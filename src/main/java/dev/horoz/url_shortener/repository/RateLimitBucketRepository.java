@@ -0,0 +1,46 @@
+package dev.horoz.url_shortener.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Обслуживание таблицы rate_limit_buckets (само состояние bucket'ов читает и пишет bucket4j).
+ */
+@Repository
+public class RateLimitBucketRepository {
+
+    private static final int DELETE_BATCH = 1_000;
+
+    // SKIP LOCKED: строки, которые прямо сейчас держит redirect, не ждём - удалим в следующий раз
+    private static final String DELETE_IDLE_SQL = """
+            DELETE FROM rate_limit_buckets
+             WHERE id IN (SELECT id
+                            FROM rate_limit_buckets
+                           WHERE touched_at < ?
+                           LIMIT ?
+                             FOR UPDATE SKIP LOCKED)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RateLimitBucketRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Удаляет bucket'ы, не менявшиеся с before, пачками по DELETE_BATCH (короткие транзакции).
+     */
+    public int deleteIdle(Instant before) {
+        Timestamp threshold = Timestamp.from(before);
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(DELETE_IDLE_SQL, threshold, DELETE_BATCH);
+            total += deleted;
+        } while (deleted == DELETE_BATCH);
+        return total;
+    }
+}
@@ -0,0 +1,53 @@
+package dev.horoz.url_shortener.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Таймер spring.data.repository.invocations для JdbcTemplate-репозиториев. Spring Data меряет
+ * только свои прокси, а set-based запросы горячих путей (flush кликов, пачки ссылок, reaper)
+ * идут мимо них. Имя и теги те же, что у Spring Data (repository, method, state, exception),
+ * поэтому на дашбордах это одна метрика.
+ */
+final class RepositoryInvocations {
+
+    static final String METRIC = "spring.data.repository.invocations";
+
+    private final MeterRegistry meterRegistry;
+    private final String repository;
+
+    RepositoryInvocations(MeterRegistry meterRegistry, Class<?> repository) {
+        this.meterRegistry = meterRegistry;
+        this.repository = repository.getSimpleName();
+    }
+
+    <T> T record(String method, Supplier<T> call) {
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            return call.get();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            Timer.builder(METRIC)
+                    .description("Duration of repository invocations")
+                    .tag("repository", repository)
+                    .tag("method", method)
+                    .tag("state", failure == null ? "SUCCESS" : "ERROR")
+                    .tag("exception", failure == null ? "None" : failure.getClass().getSimpleName())
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void run(String method, Runnable call) {
+        record(method, () -> {
+            call.run();
+            return null;
+        });
+    }
+}
@@ -2,10 +2,18 @@ package dev.horoz.url_shortener.repository;
 
 import dev.horoz.url_shortener.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 import java.util.UUID;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
-    Optional<User> findByEmailIgnoreCase(String email);
+
+    // Выражение совпадает с users_email_lower_uidx ON (LOWER(email)) -> index scan.
+    // Производный IgnoreCase-запрос Hibernate строит как upper(email) = upper(?), и индекс не используется.
+    String FIND_BY_EMAIL_SQL = "SELECT * FROM users WHERE lower(email) = lower(:email)";
+
+    @Query(value = FIND_BY_EMAIL_SQL, nativeQuery = true)
+    Optional<User> findByEmailIgnoreCase(@Param("email") String email);
 }
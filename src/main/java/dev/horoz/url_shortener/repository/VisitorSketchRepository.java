@@ -0,0 +1,239 @@
+package dev.horoz.url_shortener.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Сериализованные HyperLogLog-скетчи посетителей: link_visitor_sketches (за всё время)
+ * и link_visitor_sketches_daily (по дням). Строки разделены по node_id; строки ушедших узлов
+ * сливаются в общую строку MERGED_NODE.
+ */
+@Repository
+public class VisitorSketchRepository {
+
+    public static final String MERGED_NODE = "*";
+
+    private static final String LOCK_TOTAL_SQL = """
+            SELECT s.link_id, s.sketch
+              FROM link_visitor_sketches s
+              JOIN unnest(?::uuid[]) AS k(link_id) ON s.link_id = k.link_id
+             WHERE s.node_id = ?
+             ORDER BY s.link_id
+               FOR UPDATE OF s
+            """;
+
+    private static final String LOCK_DAILY_SQL = """
+            SELECT s.link_id, extract(epoch FROM s.bucket_start)::bigint, s.sketch
+              FROM link_visitor_sketches_daily s
+              JOIN unnest(?::uuid[], ?::bigint[]) AS k(link_id, bucket_start)
+                ON s.link_id = k.link_id AND s.bucket_start = to_timestamp(k.bucket_start)
+             WHERE s.node_id = ?
+             ORDER BY s.link_id, s.bucket_start
+               FOR UPDATE OF s
+            """;
+
+    private static final String UPSERT_TOTAL_SQL = """
+            INSERT INTO link_visitor_sketches (link_id, node_id, sketch)
+            SELECT ?, ?, ?
+             WHERE EXISTS (SELECT 1 FROM links l WHERE l.id = ?)
+            ON CONFLICT (link_id, node_id) DO UPDATE SET sketch = EXCLUDED.sketch, updated_at = now()
+            """;
+
+    private static final String UPSERT_DAILY_SQL = """
+            INSERT INTO link_visitor_sketches_daily (link_id, bucket_start, node_id, sketch)
+            SELECT ?, to_timestamp(?), ?, ?
+             WHERE EXISTS (SELECT 1 FROM links l WHERE l.id = ?)
+            ON CONFLICT (link_id, bucket_start, node_id) DO UPDATE SET sketch = EXCLUDED.sketch, updated_at = now()
+            """;
+
+    private static final String FIND_TOTAL_SQL = """
+            SELECT sketch FROM link_visitor_sketches WHERE link_id = ?
+            """;
+
+    private static final String FIND_DAILY_SQL = """
+            SELECT extract(epoch FROM bucket_start)::bigint, sketch
+              FROM link_visitor_sketches_daily
+             WHERE link_id = ? AND bucket_start >= ? AND bucket_start < ?
+            """;
+
+    // компакция: строки узлов, не писавших дольше retention (по *_stale_idx); SKIP LOCKED - узел как раз пишет
+    private static final String LOCK_STALE_TOTAL_SQL = """
+            SELECT link_id, node_id, sketch
+              FROM link_visitor_sketches
+             WHERE node_id <> '*' AND updated_at < ?
+             ORDER BY link_id, node_id
+             LIMIT ?
+               FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final String LOCK_STALE_DAILY_SQL = """
+            SELECT link_id, extract(epoch FROM bucket_start)::bigint, node_id, sketch
+              FROM link_visitor_sketches_daily
+             WHERE node_id <> '*' AND updated_at < ?
+             ORDER BY link_id, bucket_start, node_id
+             LIMIT ?
+               FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final String DELETE_TOTAL_SQL = """
+            DELETE FROM link_visitor_sketches s
+             USING unnest(?::uuid[], ?::text[]) AS k(link_id, node_id)
+             WHERE s.link_id = k.link_id AND s.node_id = k.node_id
+            """;
+
+    private static final String DELETE_DAILY_SQL = """
+            DELETE FROM link_visitor_sketches_daily s
+             USING unnest(?::uuid[], ?::bigint[], ?::text[]) AS k(link_id, bucket_start, node_id)
+             WHERE s.link_id = k.link_id AND s.bucket_start = to_timestamp(k.bucket_start) AND s.node_id = k.node_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RepositoryInvocations invocations;
+
+    public VisitorSketchRepository(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.invocations = new RepositoryInvocations(meterRegistry, VisitorSketchRepository.class);
+    }
+
+    /**
+     * Скетчи узла за всё время для указанных ссылок, строки блокируются до конца транзакции.
+     */
+    public List<StoredSketch> lockTotal(String nodeId, UUID[] linkIds) {
+        return invocations.record("lockTotal", () -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(LOCK_TOTAL_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", linkIds));
+            ps.setString(2, nodeId);
+            return ps;
+        }, (rs, i) -> new StoredSketch(rs.getObject(1, UUID.class), 0, rs.getBytes(2))));
+    }
+
+    /**
+     * Дневные скетчи узла для пар (linkIds[i], bucketStarts[i]), строки блокируются до конца транзакции.
+     */
+    public List<StoredSketch> lockDaily(String nodeId, UUID[] linkIds, Long[] bucketStartsEpochSec) {
+        return invocations.record("lockDaily", () -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(LOCK_DAILY_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", linkIds));
+            ps.setArray(2, con.createArrayOf("bigint", bucketStartsEpochSec));
+            ps.setString(3, nodeId);
+            return ps;
+        }, (rs, i) -> new StoredSketch(rs.getObject(1, UUID.class), rs.getLong(2), rs.getBytes(3))));
+    }
+
+    /**
+     * Перезаписывает скетчи узла (bucketStart игнорируется). Скетчи удалённых ссылок пропускаются.
+     */
+    public void saveTotal(String nodeId, List<StoredSketch> sketches) {
+        invocations.run("saveTotal", () -> jdbcTemplate.batchUpdate(UPSERT_TOTAL_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                StoredSketch s = sketches.get(i);
+                ps.setObject(1, s.linkId());
+                ps.setString(2, nodeId);
+                ps.setBytes(3, s.sketch());
+                ps.setObject(4, s.linkId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return sketches.size();
+            }
+        }));
+    }
+
+    public void saveDaily(String nodeId, List<StoredSketch> sketches) {
+        invocations.run("saveDaily", () -> jdbcTemplate.batchUpdate(UPSERT_DAILY_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                StoredSketch s = sketches.get(i);
+                ps.setObject(1, s.linkId());
+                ps.setLong(2, s.bucketStart());
+                ps.setString(3, nodeId);
+                ps.setBytes(4, s.sketch());
+                ps.setObject(5, s.linkId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return sketches.size();
+            }
+        }));
+    }
+
+    /**
+     * Скетчи ссылки за всё время со всех узлов.
+     */
+    public List<byte[]> findTotal(UUID linkId) {
+        return invocations.record("findTotal", () ->
+                jdbcTemplate.query(FIND_TOTAL_SQL, (rs, i) -> rs.getBytes(1), linkId));
+    }
+
+    /**
+     * Дневные скетчи ссылки в [from, to) со всех узлов, по строке на (день, узел).
+     */
+    public List<StoredSketch> findDaily(UUID linkId, Instant from, Instant to) {
+        return invocations.record("findDaily", () -> jdbcTemplate.query(
+                FIND_DAILY_SQL,
+                (rs, i) -> new StoredSketch(linkId, rs.getLong(1), rs.getBytes(2)),
+                linkId, Timestamp.from(from), Timestamp.from(to)
+        ));
+    }
+
+    /**
+     * До limit строк узлов (кроме MERGED_NODE), не обновлявшихся с updatedBefore, в порядке (link_id, node_id);
+     * строки блокируются до конца транзакции, занятые пропускаются.
+     */
+    public List<NodeSketch> lockStaleTotal(Instant updatedBefore, int limit) {
+        return invocations.record("lockStaleTotal", () -> jdbcTemplate.query(LOCK_STALE_TOTAL_SQL,
+                (rs, i) -> new NodeSketch(rs.getObject(1, UUID.class), 0, rs.getString(2), rs.getBytes(3)),
+                Timestamp.from(updatedBefore), limit));
+    }
+
+    public List<NodeSketch> lockStaleDaily(Instant updatedBefore, int limit) {
+        return invocations.record("lockStaleDaily", () -> jdbcTemplate.query(LOCK_STALE_DAILY_SQL,
+                (rs, i) -> new NodeSketch(rs.getObject(1, UUID.class), rs.getLong(2), rs.getString(3), rs.getBytes(4)),
+                Timestamp.from(updatedBefore), limit));
+    }
+
+    public void deleteTotal(List<NodeSketch> sketches) {
+        UUID[] linkIds = sketches.stream().map(NodeSketch::linkId).toArray(UUID[]::new);
+        String[] nodeIds = sketches.stream().map(NodeSketch::nodeId).toArray(String[]::new);
+        invocations.run("deleteTotal", () -> jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(DELETE_TOTAL_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", linkIds));
+            ps.setArray(2, con.createArrayOf("text", nodeIds));
+            return ps;
+        }));
+    }
+
+    public void deleteDaily(List<NodeSketch> sketches) {
+        UUID[] linkIds = sketches.stream().map(NodeSketch::linkId).toArray(UUID[]::new);
+        Long[] days = sketches.stream().map(NodeSketch::bucketStart).toArray(Long[]::new);
+        String[] nodeIds = sketches.stream().map(NodeSketch::nodeId).toArray(String[]::new);
+        invocations.run("deleteDaily", () -> jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(DELETE_DAILY_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", linkIds));
+            ps.setArray(2, con.createArrayOf("bigint", days));
+            ps.setArray(3, con.createArrayOf("text", nodeIds));
+            return ps;
+        }));
+    }
+
+    /**
+     * @param bucketStart начало дня в epoch seconds (0 для скетчей за всё время)
+     */
+    public record StoredSketch(UUID linkId, long bucketStart, byte[] sketch) {
+    }
+
+    public record NodeSketch(UUID linkId, long bucketStart, String nodeId, byte[] sketch) {
+    }
+}
@@ -0,0 +1,54 @@
+package dev.horoz.url_shortener.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Principal логина с id пользователя: id уходит в JWT claim "uid",
+ * и API-запросы находят владельца ссылок без SELECT из users.
+ */
+public class AuthenticatedUser extends User {
+
+    public static final String USER_ID_CLAIM = "uid";
+
+    private final UUID id;
+
+    public AuthenticatedUser(UUID id, String email, String passwordHash,
+                             Collection<? extends GrantedAuthority> authorities) {
+        super(email, passwordHash, authorities);
+        this.id = id;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    /**
+     * @return id из claim "uid" или principal'а логина; null - токен выпущен до появления claim'а
+     */
+    public static UUID userIdOf(Authentication authentication) {
+        if (authentication instanceof JwtAuthenticationToken token) {
+            return parse(token.getToken());
+        }
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.getId();
+        }
+        return null;
+    }
+
+    private static UUID parse(Jwt jwt) {
+        String uid = jwt.getClaimAsString(USER_ID_CLAIM);
+        if (uid == null) return null;
+        try {
+            return UUID.fromString(uid);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package dev.horoz.url_shortener.security;
+
+/**
+ * Разбор IP-адресов клиента прямо в long-ключ, без промежуточных строк.
+ *
+ * Ключ:
+ *  - IPv4 (и IPv4-mapped ::ffff:a.b.c.d) -> IPV4_TAG | адрес;
+ *  - IPv6 -> старшие 64 бита (префикс /64). Младшие 64 бита клиент выбирает сам
+ *    (privacy extensions, SLAAC), поэтому лимит по /128 обходится одним хостом.
+ * IPV4_TAG лежит в зарезервированном ffff::/16, где реальных /64 клиентов нет.
+ */
+public final class ClientAddresses {
+
+    public static final long INVALID = -1L;
+
+    static final long IPV4_TAG = 0xFFFF_0000_0000_0000L;
+
+    private ClientAddresses() {}
+
+    public static long parse(CharSequence s) {
+        return s == null ? INVALID : parse(s, 0, s.length());
+    }
+
+    /**
+     * Адрес в s[from, to): IPv4 (можно с :port), IPv6 (можно в [..]:port и с %zone).
+     * Пробелы по краям пропускаются.
+     *
+     * @return ключ или INVALID
+     */
+    public static long parse(CharSequence s, int from, int to) {
+        while (from < to && s.charAt(from) == ' ') from++;
+        while (to > from && s.charAt(to - 1) == ' ') to--;
+        if (from >= to) return INVALID;
+
+        if (s.charAt(from) == '[') {
+            int close = indexOf(s, ']', from + 1, to);
+            if (close < 0) return INVALID;
+            return parseIPv6(s, from + 1, close);
+        }
+
+        int firstColon = indexOf(s, ':', from, to);
+        if (firstColon < 0 || indexOf(s, ':', firstColon + 1, to) < 0) {
+            // IPv4 или IPv4:port
+            long v4 = parseIPv4(s, from, firstColon < 0 ? to : firstColon);
+            return v4 < 0 ? INVALID : IPV4_TAG | v4;
+        }
+        return parseIPv6(s, from, to);
+    }
+
+    /**
+     * @return адрес как беззнаковые 32 бита или -1
+     */
+    static long parseIPv4(CharSequence s, int from, int to) {
+        long result = 0;
+        int octets = 0;
+        int i = from;
+        while (octets < 4) {
+            int start = i;
+            int value = 0;
+            while (i < to && i - start < 3) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') break;
+                value = value * 10 + (c - '0');
+                i++;
+            }
+            if (i == start || value > 255) return -1;
+            result = result << 8 | value;
+            octets++;
+            if (octets < 4) {
+                if (i >= to || s.charAt(i) != '.') return -1;
+                i++;
+            }
+        }
+        return i == to ? result : -1;
+    }
+
+    private static long parseIPv6(CharSequence s, int from, int to) {
+        int zone = indexOf(s, '%', from, to);
+        if (zone >= 0) to = zone;
+        if (from >= to) return INVALID;
+
+        // группы до "::" (head) и после (tail) копятся как 128-битные сдвиговые регистры
+        long headHi = 0, headLo = 0, tailHi = 0, tailLo = 0;
+        int headGroups = 0, tailGroups = 0;
+        boolean compressed = false;
+
+        int i = from;
+        if (s.charAt(i) == ':') {
+            if (i + 1 >= to || s.charAt(i + 1) != ':') return INVALID;
+            compressed = true;
+            i += 2;
+        }
+
+        while (i < to) {
+            int start = i;
+            int value = 0;
+            while (i < to && i - start < 5) {
+                int digit = Character.digit(s.charAt(i), 16);
+                if (digit < 0) break;
+                value = value << 4 | digit;
+                i++;
+            }
+
+            long group;
+            int groups;
+            if (i < to && s.charAt(i) == '.') {
+                // встроенный IPv4 в конце: ::ffff:1.2.3.4
+                long v4 = parseIPv4(s, start, to);
+                if (v4 < 0) return INVALID;
+                group = v4;
+                groups = 2;
+                i = to;
+            } else {
+                if (i == start || i - start > 4) return INVALID;
+                group = value;
+                groups = 1;
+            }
+
+            if (compressed) {
+                tailHi = tailHi << 16 * groups | tailLo >>> 64 - 16 * groups;
+                tailLo = tailLo << 16 * groups | group;
+                tailGroups += groups;
+            } else {
+                headHi = headHi << 16 * groups | headLo >>> 64 - 16 * groups;
+                headLo = headLo << 16 * groups | group;
+                headGroups += groups;
+            }
+            if (headGroups + tailGroups > 8) return INVALID;
+
+            if (i == to) break;
+            if (s.charAt(i) != ':') return INVALID;
+            i++;
+            if (i < to && s.charAt(i) == ':') {
+                if (compressed) return INVALID;
+                compressed = true;
+                i++;
+            } else if (i == to) {
+                return INVALID;
+            }
+        }
+
+        long hi, lo;
+        if (compressed) {
+            if (headGroups + tailGroups > 7) return INVALID;
+            int shift = 16 * (8 - headGroups);
+            hi = (shift >= 64 ? headLo << shift - 64 : headHi << shift | headLo >>> 64 - shift) | tailHi;
+            lo = (shift >= 64 ? 0 : headLo << shift) | tailLo;
+        } else {
+            if (headGroups != 8) return INVALID;
+            hi = headHi;
+            lo = headLo;
+        }
+
+        if (hi == 0 && lo >>> 32 == 0xFFFFL) {
+            return IPV4_TAG | lo & 0xFFFF_FFFFL;
+        }
+        return hi;
+    }
+
+    private static int indexOf(CharSequence s, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,101 @@
+package dev.horoz.url_shortener.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Ключ клиента (см. ClientAddresses) с учётом доверенных прокси.
+ *
+ * X-Forwarded-For читается справа налево, только пока очередной хоп - доверенный прокси:
+ * клиент - первый недоверенный адрес. Если соединение пришло не от доверенного прокси,
+ * заголовок игнорируется целиком, иначе любой клиент подделал бы себе ключ.
+ */
+@Component
+public class ClientKeyResolver {
+
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    private final long[] trustedPrefixes;
+    private final long[] trustedMasks;
+
+    @Autowired
+    public ClientKeyResolver(RateLimitProperties properties) {
+        this(properties.trustedProxies());
+    }
+
+    /**
+     * @param cidrs доверенные прокси (CIDR); edge-сервер передаёт их без Spring
+     */
+    public ClientKeyResolver(List<String> cidrs) {
+        this.trustedPrefixes = new long[cidrs.size()];
+        this.trustedMasks = new long[cidrs.size()];
+        for (int i = 0; i < cidrs.size(); i++) {
+            String cidr = cidrs.get(i).trim();
+            int slash = cidr.indexOf('/');
+            long key = ClientAddresses.parse(slash < 0 ? cidr : cidr.substring(0, slash));
+            if (key == ClientAddresses.INVALID) {
+                throw new IllegalArgumentException("Invalid trusted proxy: " + cidr);
+            }
+            boolean v4 = (key & 0xFFFF_FFFF_0000_0000L) == ClientAddresses.IPV4_TAG;
+            int maxBits = v4 ? 32 : 128;
+            int bits = slash < 0 ? maxBits : Integer.parseInt(cidr.substring(slash + 1));
+            if (bits < 0 || bits > maxBits) {
+                throw new IllegalArgumentException("Invalid trusted proxy prefix length: " + cidr);
+            }
+            // IPv6 сравнивается только по /64 - больше в ключе не хранится
+            long mask = v4
+                    ? 0xFFFF_FFFF_0000_0000L | (bits == 0 ? 0 : 0xFFFF_FFFFL << 32 - bits & 0xFFFF_FFFFL)
+                    : bits == 0 ? 0 : -1L << 64 - Math.min(bits, 64);
+            trustedMasks[i] = mask;
+            trustedPrefixes[i] = key & mask;
+        }
+    }
+
+    public long resolve(HttpServletRequest request) {
+        return resolve(remoteKey(request), request.getHeader(X_FORWARDED_FOR));
+    }
+
+    /**
+     * То же без servlet API: адрес соединения и сырой X-Forwarded-For (может быть null).
+     */
+    public long resolve(String remoteAddr, String forwardedFor) {
+        return resolve(ClientAddresses.parse(remoteAddr), forwardedFor);
+    }
+
+    public long remoteKey(HttpServletRequest request) {
+        return ClientAddresses.parse(request.getRemoteAddr());
+    }
+
+    boolean isTrusted(long key) {
+        for (int i = 0; i < trustedMasks.length; i++) {
+            if ((key & trustedMasks[i]) == trustedPrefixes[i]) return true;
+        }
+        return false;
+    }
+
+    private long resolve(long client, String xff) {
+        if (!isTrusted(client) || xff == null) return client;
+
+        int end = xff.length();
+        while (end > 0) {
+            int comma = lastIndexOf(xff, ',', end);
+            long hop = ClientAddresses.parse(xff, comma + 1, end);
+            // мусор в цепочке: дальше доверять нечему, остаёмся на последнем проверенном хопе
+            if (hop == ClientAddresses.INVALID) return client;
+            client = hop;
+            if (!isTrusted(client)) return client;
+            end = comma;
+        }
+        return client;
+    }
+
+    private static int lastIndexOf(String s, char c, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (s.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+}
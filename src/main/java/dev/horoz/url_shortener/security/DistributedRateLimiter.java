@@ -0,0 +1,210 @@
+package dev.horoz.url_shortener.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.horoz.url_shortener.repository.RateLimitBucketRepository;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.BucketProxy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Общий для кластера rate limit: состояние bucket'ов лежит в Postgres (bucket4j, SELECT ... FOR UPDATE),
+ * поэтому лимит не умножается на число узлов.
+ *
+ * Чтобы не ходить в БД на каждый redirect, узел забирает токены пачкой (lease) и раздаёт их из памяти.
+ * Размер пачки подстраивается под клиента: удваивается (до leaseMax), если пачка израсходована за leaseTtl,
+ * и сбрасывается до 1, если нет - редкий клиент не теряет токены в чужих пачках, частый стоит
+ * одного round-trip'а на leaseMax запросов. Неизрасходованные токены по истечении leaseTtl сгорают,
+ * так что лимит никогда не превышается, а узел не придерживает чужие токены дольше leaseTtl.
+ * Отказ тоже кэшируется до момента пополнения.
+ *
+ * Если БД недоступна, решение принимает локальный лимитер: redirect'ы не должны падать вместе с БД.
+ * После ошибки лимитер failureBackoff не ходит в БД вовсе - иначе каждый redirect ждал бы connection
+ * timeout пула; по истечении окна БД пробует один запрос, остальные пока решаются локально.
+ */
+public class DistributedRateLimiter implements RateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(DistributedRateLimiter.class);
+
+    private static final long FAILURE_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long REMOTE_UP = Long.MIN_VALUE;
+
+    private final ProxyManager<String> proxyManager;
+    private final RateLimiter fallback;
+    private final RateLimitBucketRepository bucketRepository;
+    private final BucketConfiguration[] configurations;
+    private final long leaseMax;
+    private final long leaseTtlNanos;
+    private final long failureBackoffNanos;
+    private final RateLimitProperties.Distributed settings;
+    private final LongSupplier nanoTime;
+
+    private final Cache<LeaseKey, Lease> leases;
+    private final AtomicLong remoteCalls = new AtomicLong();
+    private final AtomicLong remoteFailures = new AtomicLong();
+    private final AtomicLong lastFailureLoggedAt = new AtomicLong(Long.MIN_VALUE);
+    // до какого момента (nanoTime) не ходим в БД; REMOTE_UP - БД отвечает
+    private final AtomicLong remoteDownUntil = new AtomicLong(REMOTE_UP);
+
+    public DistributedRateLimiter(RateLimitProperties properties,
+                                  ProxyManager<String> proxyManager,
+                                  RateLimiter fallback,
+                                  RateLimitBucketRepository bucketRepository,
+                                  MeterRegistry meterRegistry) {
+        this(properties, proxyManager, fallback, bucketRepository, meterRegistry, System::nanoTime);
+    }
+
+    DistributedRateLimiter(RateLimitProperties properties,
+                           ProxyManager<String> proxyManager,
+                           RateLimiter fallback,
+                           RateLimitBucketRepository bucketRepository,
+                           MeterRegistry meterRegistry,
+                           LongSupplier nanoTime) {
+        this.proxyManager = proxyManager;
+        this.fallback = fallback;
+        this.bucketRepository = bucketRepository;
+        this.nanoTime = nanoTime;
+        this.settings = properties.distributed();
+        this.leaseMax = Math.max(1, settings.leaseMax());
+        this.leaseTtlNanos = settings.leaseTtl().toNanos();
+        this.failureBackoffNanos = settings.failureBackoff().toNanos();
+
+        List<RateLimitProperties.Route> routes = properties.routes();
+        this.configurations = new BucketConfiguration[routes.size()];
+        for (int i = 0; i < configurations.length; i++) {
+            RateLimitProperties.Route r = routes.get(i);
+            configurations[i] = BucketConfiguration.builder()
+                    .addLimit(limit -> limit.capacity(r.capacity()).refillIntervally(r.refillTokens(), r.refillPeriod()))
+                    .build();
+        }
+
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(properties.maxBuckets())
+                .expireAfterAccess(properties.idleTimeout())
+                .build();
+
+        FunctionCounter.builder("ratelimit.remote.calls", remoteCalls, AtomicLong::get)
+                .description("Rate limit round-trips to the shared bucket store")
+                .register(meterRegistry);
+        FunctionCounter.builder("ratelimit.remote.failures", remoteFailures, AtomicLong::get)
+                .description("Rate limit decisions made locally because the shared bucket store failed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public long tryConsume(int route, long client) {
+        long downUntil = remoteDownUntil.get();
+        if (downUntil != REMOTE_UP) {
+            long now = nanoTime.getAsLong();
+            // окно ещё открыто или пробу после него уже делает другой запрос
+            if (now - downUntil < 0 || !remoteDownUntil.compareAndSet(downUntil, now + failureBackoffNanos)) {
+                remoteFailures.incrementAndGet();
+                return fallback.tryConsume(route, client);
+            }
+        }
+
+        Lease lease = leases.get(new LeaseKey(route, client), k -> new Lease());
+        lease.lock.lock();
+        try {
+            long now = nanoTime.getAsLong();
+            if (lease.tokens > 0) {
+                if (now - lease.expiresAt < 0) {
+                    lease.tokens--;
+                    return 0;
+                }
+                // пачку не успели израсходовать -> для этого клиента она слишком большая
+                lease.tokens = 0;
+                lease.size = 1;
+            } else if (now - lease.expiresAt < 0) {
+                lease.size = Math.min(lease.size * 2, leaseMax);
+            }
+            if (now - lease.blockedUntil < 0) {
+                return lease.blockedUntil - now;
+            }
+            long wait = acquire(lease, route, client, now);
+            if (remoteDownUntil.get() != REMOTE_UP) {
+                remoteDownUntil.set(REMOTE_UP);
+            }
+            return wait;
+        } catch (RuntimeException e) {
+            onRemoteFailure(e);
+            return fallback.tryConsume(route, client);
+        } finally {
+            lease.lock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет из БД bucket'ы, к которым не обращались дольше idleTimeout:
+     * bucket4j JDBC не умеет expiration сам.
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.distributed.sweep-interval-ms:300000}")
+    public void evictIdle() {
+        Instant before = Instant.now().minus(settings.idleTimeout());
+        int deleted = bucketRepository.deleteIdle(before);
+        if (deleted > 0) {
+            log.debug("Evicted {} idle rate limit buckets", deleted);
+        }
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    private long acquire(Lease lease, int route, long client, long now) {
+        BucketProxy bucket = proxyManager.builder().build(bucketId(route, client), () -> configurations[route]);
+        remoteCalls.incrementAndGet();
+        long granted = bucket.tryConsumeAsMuchAsPossible(lease.size);
+        if (granted > 0) {
+            lease.tokens = granted - 1;
+            lease.expiresAt = now + leaseTtlNanos;
+            return 0;
+        }
+
+        remoteCalls.incrementAndGet();
+        long wait = Math.max(1, bucket.estimateAbilityToConsume(1).getNanosToWaitForRefill());
+        lease.size = 1;
+        lease.blockedUntil = now + wait;
+        return wait;
+    }
+
+    private void onRemoteFailure(RuntimeException e) {
+        remoteFailures.incrementAndGet();
+        long now = nanoTime.getAsLong();
+        remoteDownUntil.set(now + failureBackoffNanos);
+        long last = lastFailureLoggedAt.get();
+        if ((last == Long.MIN_VALUE || now - last >= FAILURE_LOG_INTERVAL_NANOS)
+                && lastFailureLoggedAt.compareAndSet(last, now)) {
+            log.warn("Shared rate limit store unavailable, falling back to local buckets", e);
+        }
+    }
+
+    static String bucketId(int route, long client) {
+        return route + ":" + Long.toHexString(client);
+    }
+
+    private record LeaseKey(int route, long client) {
+    }
+
+    private static final class Lease {
+        final ReentrantLock lock = new ReentrantLock();
+        // сколько токенов ещё можно раздать без БД
+        long tokens;
+        // сколько токенов просить у БД в следующий раз
+        long size = 1;
+        long expiresAt;
+        long blockedUntil;
+    }
+}
@@ -0,0 +1,250 @@
+package dev.horoz.url_shortener.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket'ы rate limit'а в примитивной open-addressing таблице: ключ (маршрут, long-ключ клиента),
+ * состояние - пара long'ов в том же массиве. На запрос ни одной аллокации.
+ *
+ * Таблица разбита на сегменты со своим ReentrantLock. Память ограничена: в сегменте не больше
+ * maxBuckets / SEGMENTS записей. При переполнении вытесняется самая давно использованная запись
+ * из случайной выборки (приближённый LRU, как в Redis), простаивающие дольше idleTimeout
+ * удаляются периодическим sweep'ом. Вытесненный bucket при следующем запросе создаётся заново полным.
+ */
+@Component
+public class RateLimitBucketStore implements RateLimiter {
+
+    private static final int SEGMENTS = 64;
+    private static final int EVICTION_SAMPLES = 8;
+
+    private final Route[] routes;
+    private final long idleTimeoutNanos;
+    private final LongSupplier nanoTime;
+    // случайный seed: подобрать ключи, которые лягут в одну цепочку проб, снаружи нельзя
+    private final long seed = ThreadLocalRandom.current().nextLong();
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public RateLimitBucketStore(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    RateLimitBucketStore(RateLimitProperties properties, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        List<RateLimitProperties.Route> configured = properties.routes();
+        this.routes = new Route[configured.size()];
+        for (int i = 0; i < routes.length; i++) {
+            RateLimitProperties.Route r = configured.get(i);
+            routes[i] = new Route(r.capacity(), r.refillTokens(), r.refillPeriod().toNanos());
+        }
+        this.idleTimeoutNanos = properties.idleTimeout().toNanos();
+        this.nanoTime = nanoTime;
+
+        int perSegment = (int) Math.max(1, properties.maxBuckets() / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+
+        Gauge.builder("ratelimit.buckets", size, AtomicLong::get)
+                .description("Live rate limit buckets")
+                .register(meterRegistry);
+        FunctionCounter.builder("ratelimit.evictions", evictions, AtomicLong::get)
+                .description("Rate limit buckets evicted by size cap or idle timeout")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public long tryConsume(int route, long client) {
+        long hash = hash(route, client);
+        return segments[(int) (hash >>> 58)].tryConsume(route, client, hash, routes[route], nanoTime.getAsLong());
+    }
+
+    /**
+     * Удаляет bucket'ы, к которым не обращались дольше idleTimeout.
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long now = nanoTime.getAsLong();
+        for (Segment segment : segments) {
+            segment.evictIdle(now);
+        }
+    }
+
+    long size() {
+        return size.get();
+    }
+
+    private long hash(int route, long client) {
+        long h = client ^ seed ^ (long) route * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private record Route(long capacity, long refillTokens, long refillPeriodNanos) {
+    }
+
+    /**
+     * Linear probing, удаление со сдвигом назад (без tombstone'ов).
+     * Слот - STRIDE long'ов: ключ клиента, маршрут + 1 (0 = пусто), токены, время последнего
+     * пополнения, время последнего обращения.
+     */
+    private final class Segment {
+
+        private static final int STRIDE = 5;
+        private static final int KEY = 0, ROUTE = 1, TOKENS = 2, REFILLED_AT = 3, ACCESSED_AT = 4;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int maxEntries;
+        private final int mask;
+        private final long[] slots;
+        private int entries;
+
+        Segment(int maxEntries) {
+            this.maxEntries = maxEntries;
+            // заполненность <= 50% -> короткие цепочки проб
+            int capacity = Integer.highestOneBit(Math.max(2, maxEntries) * 2 - 1) << 1;
+            this.mask = capacity - 1;
+            this.slots = new long[capacity * STRIDE];
+        }
+
+        long tryConsume(int route, long client, long hash, Route config, long now) {
+            lock.lock();
+            try {
+                int slot = find(route, client, hash);
+                if (slots[slot * STRIDE + ROUTE] == 0) {
+                    if (entries >= maxEntries) {
+                        evictSampled(hash);
+                        slot = find(route, client, hash);
+                    }
+                    int base = slot * STRIDE;
+                    slots[base + KEY] = client;
+                    slots[base + ROUTE] = route + 1;
+                    slots[base + TOKENS] = config.capacity();
+                    slots[base + REFILLED_AT] = now;
+                    entries++;
+                    size.incrementAndGet();
+                }
+
+                int base = slot * STRIDE;
+                slots[base + ACCESSED_AT] = now;
+                refill(base, config, now);
+
+                if (slots[base + TOKENS] > 0) {
+                    slots[base + TOKENS]--;
+                    return 0;
+                }
+                return Math.max(1, slots[base + REFILLED_AT] + config.refillPeriodNanos() - now);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void evictIdle(long now) {
+            lock.lock();
+            try {
+                for (int slot = 0; slot <= mask; ) {
+                    int base = slot * STRIDE;
+                    if (slots[base + ROUTE] != 0 && now - slots[base + ACCESSED_AT] > idleTimeoutNanos) {
+                        // на место удалённого мог сдвинуться следующий -> проверяем слот ещё раз
+                        remove(slot);
+                        continue;
+                    }
+                    slot++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void refill(int base, Route config, long now) {
+            long elapsed = now - slots[base + REFILLED_AT];
+            if (elapsed < config.refillPeriodNanos()) return;
+
+            long periods = elapsed / config.refillPeriodNanos();
+            long missing = config.capacity() - slots[base + TOKENS];
+            // через сколько периодов bucket полон - дальше считать незачем (и нет переполнения)
+            long periodsToFull = (missing + config.refillTokens() - 1) / config.refillTokens();
+            slots[base + TOKENS] = periods >= periodsToFull
+                    ? config.capacity()
+                    : slots[base + TOKENS] + periods * config.refillTokens();
+            slots[base + REFILLED_AT] += periods * config.refillPeriodNanos();
+        }
+
+        /**
+         * @return слот с ключом или первый пустой слот цепочки
+         */
+        private int find(int route, long client, long hash) {
+            int slot = (int) hash & mask;
+            for (;;) {
+                int base = slot * STRIDE;
+                long storedRoute = slots[base + ROUTE];
+                if (storedRoute == 0 || (storedRoute == route + 1 && slots[base + KEY] == client)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private void evictSampled(long hash) {
+            int victim = -1;
+            long oldest = Long.MAX_VALUE;
+            // выборка: случайные стартовые позиции, от каждой - ближайший занятый слот
+            long r = hash;
+            for (int sample = 0; sample < EVICTION_SAMPLES; sample++) {
+                r = r * 6364136223846793005L + 1442695040888963407L;
+                int slot = (int) (r >>> 33) & mask;
+                while (slots[slot * STRIDE + ROUTE] == 0) {
+                    slot = (slot + 1) & mask;
+                }
+                long accessedAt = slots[slot * STRIDE + ACCESSED_AT];
+                if (accessedAt < oldest) {
+                    oldest = accessedAt;
+                    victim = slot;
+                }
+            }
+            remove(victim);
+        }
+
+        private void remove(int slot) {
+            int hole = slot;
+            int next = slot;
+            for (;;) {
+                next = (next + 1) & mask;
+                int base = next * STRIDE;
+                if (slots[base + ROUTE] == 0) break;
+
+                int home = (int) hash((int) slots[base + ROUTE] - 1, slots[base + KEY]) & mask;
+                // запись остаётся, если её "домашний" слот циклически в (hole, next]
+                boolean stays = hole <= next
+                        ? hole < home && home <= next
+                        : hole < home || home <= next;
+                if (stays) continue;
+
+                System.arraycopy(slots, base, slots, hole * STRIDE, STRIDE);
+                hole = next;
+            }
+            Arrays.fill(slots, hole * STRIDE, hole * STRIDE + STRIDE, 0L);
+            entries--;
+            size.decrementAndGet();
+            evictions.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package dev.horoz.url_shortener.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Настройки rate limit'а (app.rate-limit): общий лимит на число bucket'ов в памяти
+ * и правила по маршрутам. Для запроса применяется первое подходящее правило.
+ */
+@ConfigurationProperties("app.rate-limit")
+public record RateLimitProperties(
+        // жёсткий потолок числа bucket'ов; при переполнении вытесняются редко используемые
+        @DefaultValue("100000") long maxBuckets,
+        // bucket без запросов дольше этого срока удаляется
+        @DefaultValue("10m") Duration idleTimeout,
+        // прокси, которым верим X-Forwarded-For (CIDR); IPv6 сравнивается по /64
+        List<String> trustedProxies,
+        List<Route> routes,
+        // LOCAL - bucket'ы в памяти узла, DISTRIBUTED - общие для кластера (Postgres)
+        @DefaultValue("LOCAL") Mode mode,
+        @DefaultValue Distributed distributed
+) {
+
+    public RateLimitProperties {
+        if (trustedProxies == null) {
+            trustedProxies = List.of("127.0.0.0/8", "10.0.0.0/8", "172.16.0.0/12", "192.168.0.0/16", "::1/128", "fc00::/7");
+        }
+        if (routes == null || routes.isEmpty()) {
+            routes = List.of(new Route("/r/", "GET", 60, 60, Duration.ofMinutes(1), KeyStrategy.X_FORWARDED_FOR));
+        }
+        if (mode == null) {
+            mode = Mode.LOCAL;
+        }
+        if (distributed == null) {
+            distributed = new Distributed(16, Duration.ofSeconds(1), Duration.ofHours(1), Duration.ofSeconds(5));
+        }
+    }
+
+    /**
+     * @param method HTTP-метод; null - любой
+     */
+    public record Route(
+            String pathPrefix,
+            String method,
+            @DefaultValue("60") long capacity,
+            @DefaultValue("60") long refillTokens,
+            @DefaultValue("1m") Duration refillPeriod,
+            @DefaultValue("X_FORWARDED_FOR") KeyStrategy key
+    ) {
+
+        boolean matches(String requestMethod, String uri) {
+            return (method == null || method.equalsIgnoreCase(requestMethod)) && uri.startsWith(pathPrefix);
+        }
+    }
+
+    /**
+     * Режим DISTRIBUTED: состояние bucket'ов в Postgres (общий лимит на кластер).
+     * Узел забирает токены пачкой (lease) и раздаёт их локально: размер пачки растёт вдвое,
+     * пока клиент успевает её израсходовать за leaseTtl, и сбрасывается до 1, если нет.
+     *
+     * @param leaseMax       максимальный размер пачки токенов
+     * @param leaseTtl       сколько узел держит неизрасходованные токены
+     * @param idleTimeout    строки bucket'ов без обращений дольше этого срока удаляются из БД
+     * @param failureBackoff после ошибки БД столько времени решает только локальный лимитер
+     */
+    public record Distributed(
+            @DefaultValue("16") long leaseMax,
+            @DefaultValue("1s") Duration leaseTtl,
+            @DefaultValue("1h") Duration idleTimeout,
+            @DefaultValue("5s") Duration failureBackoff
+    ) {
+    }
+
+    public enum Mode {
+        LOCAL,
+        DISTRIBUTED
+    }
+
+    public enum KeyStrategy {
+        // ближайший к нам недоверенный адрес из X-Forwarded-For (см. trustedProxies)
+        X_FORWARDED_FOR,
+        // только адрес соединения (когда перед сервисом нет прокси)
+        REMOTE_ADDR,
+        // один bucket на маршрут для всех клиентов
+        GLOBAL
+    }
+}
@@ -0,0 +1,16 @@
+package dev.horoz.url_shortener.security;
+
+/**
+ * Token bucket'ы rate limit'а по (маршрут, ключ клиента).
+ * Локально - RateLimitBucketStore, для кластера - DistributedRateLimiter.
+ */
+public interface RateLimiter {
+
+    /**
+     * Забирает один токен из bucket'а (route, client).
+     *
+     * @param route индекс правила в RateLimitProperties.routes
+     * @return 0, если токен получен, иначе сколько наносекунд ждать следующего пополнения
+     */
+    long tryConsume(int route, long client);
+}
@@ -1,6 +1,7 @@
 package dev.horoz.url_shortener.security;
 
-import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,22 +10,33 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class RedirectRateLimitFilter extends OncePerRequestFilter {
 
-    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private static final long GLOBAL_KEY = 0;
 
-    private Bucket newBucket() {
-        return Bucket.builder()
-                .addLimit(limit -> limit
-                        .capacity(60)
-                        .refillIntervally(60, Duration.ofMinutes(1))
-                )
-                .build();
+    private final List<RateLimitProperties.Route> routes;
+    private final RateLimiter rateLimiter;
+    private final ClientKeyResolver clientKeyResolver;
+    private final Counter[] rejections;
+
+    public RedirectRateLimitFilter(RateLimitProperties properties,
+                                   RateLimiter rateLimiter,
+                                   ClientKeyResolver clientKeyResolver,
+                                   MeterRegistry meterRegistry) {
+        this.routes = properties.routes();
+        this.rateLimiter = rateLimiter;
+        this.clientKeyResolver = clientKeyResolver;
+        this.rejections = new Counter[routes.size()];
+        for (int i = 0; i < routes.size(); i++) {
+            rejections[i] = Counter.builder("ratelimit.rejections")
+                    .description("Requests rejected with 429")
+                    .tag("route", routes.get(i).pathPrefix())
+                    .register(meterRegistry);
+        }
     }
 
     @Override
@@ -32,31 +44,38 @@ public class RedirectRateLimitFilter extends OncePerRequestFilter {
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
 
-        if (!"GET".equalsIgnoreCase(request.getMethod()) || !request.getRequestURI().startsWith("/r/")) {
+        int routeIndex = matchRoute(request);
+        if (routeIndex < 0) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        String key = resolveClientIp(request);
-        Bucket bucket = buckets.computeIfAbsent(key, k -> newBucket());
+        long key = switch (routes.get(routeIndex).key()) {
+            case X_FORWARDED_FOR -> clientKeyResolver.resolve(request);
+            case REMOTE_ADDR -> clientKeyResolver.remoteKey(request);
+            case GLOBAL -> GLOBAL_KEY;
+        };
 
-        if (bucket.tryConsume(1)) {
+        long waitNanos = rateLimiter.tryConsume(routeIndex, key);
+        if (waitNanos == 0) {
             filterChain.doFilter(request, response);
             return;
         }
 
+        rejections[routeIndex].increment();
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
         response.setStatus(429);
-        response.setHeader("Retry-After", "60");
+        response.setHeader("Retry-After", Long.toString(retryAfter));
         response.setContentType("text/plain");
         response.getWriter().write("Too Many Requests");
     }
 
-    private String resolveClientIp(HttpServletRequest request) {
-        String xff = request.getHeader("X-Forwarded-For");
-        if (xff != null && !xff.isBlank()) {
-            int comma = xff.indexOf(',');
-            return (comma > 0 ? xff.substring(0, comma) : xff).trim();
+    private int matchRoute(HttpServletRequest request) {
+        String method = request.getMethod();
+        String uri = request.getRequestURI();
+        for (int i = 0; i < routes.size(); i++) {
+            if (routes.get(i).matches(method, uri)) return i;
         }
-        return request.getRemoteAddr();
+        return -1;
     }
 }
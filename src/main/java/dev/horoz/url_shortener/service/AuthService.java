@@ -3,6 +3,8 @@ package dev.horoz.url_shortener.service;
 import dev.horoz.url_shortener.exceptions.EmailAlreadyExistsException;
 import dev.horoz.url_shortener.domain.User;
 import dev.horoz.url_shortener.repository.UserRepository;
+import dev.horoz.url_shortener.security.AuthenticatedUser;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 
@@ -18,6 +20,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.UUID;
 
 @Service
 public class AuthService {
@@ -43,20 +46,21 @@ public class AuthService {
         this.ttlSeconds = ttlSeconds;
     }
 
+    /**
+     * Без предварительного SELECT: занятость email проверяет users_email_lower_uidx,
+     * а INSERT сразу отправляется в БД (saveAndFlush), чтобы нарушение поймать здесь, а не на коммите.
+     */
     @Transactional
     public void register(String email, String rawPassword) {
-        if (userRepository.findByEmailIgnoreCase(email).isPresent()) {
-            throw new EmailAlreadyExistsException(email);
-        }
-
         User user = new User();
         user.setEmail(email);
         user.setPasswordHash(passwordEncoder.encode(rawPassword));
 
         try {
-            userRepository.save(user);
+            userRepository.saveAndFlush(user);
         } catch (DataIntegrityViolationException e) {
-            throw new EmailAlreadyExistsException(email);
+            if (isUniqueEmailViolation(e)) throw new EmailAlreadyExistsException(email);
+            throw e;
         }
     }
 
@@ -67,14 +71,29 @@ public class AuthService {
         Instant now = Instant.now();
         Instant exp = now.plusSeconds(ttlSeconds);
 
-        JwtClaimsSet claims = JwtClaimsSet.builder()
+        JwtClaimsSet.Builder claims = JwtClaimsSet.builder()
                 .issuer("url-shortener")
                 .issuedAt(now)
                 .expiresAt(exp)
-                .subject(authentication.getName())
-                .build();
+                .subject(authentication.getName());
+        UUID userId = AuthenticatedUser.userIdOf(authentication);
+        if (userId != null) {
+            claims.claim(AuthenticatedUser.USER_ID_CLAIM, userId.toString());
+        }
 
         JwsHeader headers = JwsHeader.with(MacAlgorithm.HS256).build();
-        return jwtEncoder.encode(JwtEncoderParameters.from(headers, claims)).getTokenValue();
+        return jwtEncoder.encode(JwtEncoderParameters.from(headers, claims.build())).getTokenValue();
+    }
+
+    private boolean isUniqueEmailViolation(DataIntegrityViolationException e) {
+        Throwable t = e;
+        while (t != null) {
+            if (t instanceof ConstraintViolationException cve) {
+                String name = cve.getConstraintName();
+                return name != null && name.equalsIgnoreCase("users_email_lower_uidx");
+            }
+            t = t.getCause();
+        }
+        return false;
     }
 }
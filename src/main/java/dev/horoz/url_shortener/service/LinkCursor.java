@@ -0,0 +1,44 @@
+package dev.horoz.url_shortener.service;
+
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Позиция keyset-пагинации: (createdAt, id) последней ссылки страницы.
+ * Снаружи - непрозрачная base64url-строка, клиент её не разбирает.
+ */
+record LinkCursor(Instant createdAt, UUID id) {
+
+    private static final int BYTES = Long.BYTES + Integer.BYTES + 2 * Long.BYTES;
+
+    String encode() {
+        ByteBuffer buf = ByteBuffer.allocate(BYTES)
+                .putLong(createdAt.getEpochSecond())
+                .putInt(createdAt.getNano())
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buf.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException если строка - не курсор
+     */
+    static LinkCursor decode(String cursor) {
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        if (bytes.length != BYTES) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        Instant createdAt;
+        try {
+            createdAt = Instant.ofEpochSecond(buf.getLong(), buf.getInt());
+        } catch (DateTimeException | ArithmeticException e) {
+            // подделанный курсор: секунды за пределами Instant
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+        return new LinkCursor(createdAt, new UUID(buf.getLong(), buf.getLong()));
+    }
+}
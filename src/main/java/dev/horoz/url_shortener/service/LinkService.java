@@ -1,49 +1,118 @@
 package dev.horoz.url_shortener.service;
 
+import dev.horoz.url_shortener.domain.ClickGranularity;
 import dev.horoz.url_shortener.domain.Link;
 import dev.horoz.url_shortener.domain.User;
+import dev.horoz.url_shortener.dto.link.ClickBucketDto;
+import dev.horoz.url_shortener.dto.link.LinkBatchItemDto;
+import dev.horoz.url_shortener.dto.link.LinkBatchResponseDto;
 import dev.horoz.url_shortener.dto.link.LinkResponseDto;
+import dev.horoz.url_shortener.dto.link.LinkSliceDto;
 import dev.horoz.url_shortener.dto.link.LinkStatsDto;
+import dev.horoz.url_shortener.dto.link.RedirectTargetDto;
+import dev.horoz.url_shortener.exceptions.InvalidTargetUrlException;
 import dev.horoz.url_shortener.exceptions.SlugAlreadyExistsException;
 import dev.horoz.url_shortener.mapper.LinkMapper;
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
 import dev.horoz.url_shortener.repository.LinkRepository;
 import dev.horoz.url_shortener.repository.UserRepository;
+import dev.horoz.url_shortener.security.AuthenticatedUser;
+import dev.horoz.url_shortener.service.cache.SlugCache;
+import dev.horoz.url_shortener.service.cache.SlugFilter;
+import dev.horoz.url_shortener.service.click.ClickEvent;
+import dev.horoz.url_shortener.service.click.ClickIngestionService;
+import dev.horoz.url_shortener.service.click.ClickStatsService;
 import dev.horoz.url_shortener.service.slug.SlugGenerator;
+import dev.horoz.url_shortener.service.validation.UrlFingerprint;
 import dev.horoz.url_shortener.service.validation.UrlValidationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 @Service
 public class LinkService {
 
+    // SequenceSlugGenerator не повторяется, но его slug мог заранее занять custom slug
     private static final int MAX_ATTEMPTS = 10;
+    private static final Duration DEFAULT_STATS_RANGE = Duration.ofDays(7);
+    private static final int MAX_SLICE_SIZE = 100;
 
     private final UserRepository userRepository;
     private final LinkRepository linkRepository;
+    private final LinkJdbcRepository linkJdbcRepository;
     private final SlugGenerator slugGenerator;
     private final UrlValidationService urlValidationService;
+    private final SlugCache slugCache;
+    private final SlugFilter slugFilter;
+    private final ClickIngestionService clickIngestionService;
+    private final ClickStatsService clickStatsService;
+
+    // links.redirect / links.create по исходу; время - тело метода, без commit (его видно в http.server.requests)
+    private final Timer redirectFound;
+    private final Timer redirectNotFound;
+    private final Timer redirectGone;
+    private final Timer redirectError;
+    private final Timer createCreated;
+    private final Timer createExisting;
+    private final Timer createError;
+    private final Counter slugCollisions;
 
     public LinkService(UserRepository userRepository,
                        LinkRepository linkRepository,
+                       LinkJdbcRepository linkJdbcRepository,
                        SlugGenerator slugGenerator,
-                       UrlValidationService urlValidationService) {
+                       UrlValidationService urlValidationService,
+                       SlugCache slugCache,
+                       SlugFilter slugFilter,
+                       ClickIngestionService clickIngestionService,
+                       ClickStatsService clickStatsService,
+                       MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
         this.linkRepository = linkRepository;
+        this.linkJdbcRepository = linkJdbcRepository;
         this.slugGenerator = slugGenerator;
         this.urlValidationService = urlValidationService;
+        this.slugCache = slugCache;
+        this.slugFilter = slugFilter;
+        this.clickIngestionService = clickIngestionService;
+        this.clickStatsService = clickStatsService;
+
+        this.redirectFound = timer(meterRegistry, "links.redirect", "Slug resolution for GET /r/{slug}", "found");
+        this.redirectNotFound = timer(meterRegistry, "links.redirect", "Slug resolution for GET /r/{slug}", "not_found");
+        this.redirectGone = timer(meterRegistry, "links.redirect", "Slug resolution for GET /r/{slug}", "gone");
+        this.redirectError = timer(meterRegistry, "links.redirect", "Slug resolution for GET /r/{slug}", "error");
+        this.createCreated = timer(meterRegistry, "links.create", "Single link creation", "created");
+        this.createExisting = timer(meterRegistry, "links.create", "Single link creation", "existing");
+        this.createError = timer(meterRegistry, "links.create", "Single link creation", "error");
+        this.slugCollisions = Counter.builder("links.slug.collisions")
+                .description("Generated slugs rejected by the unique index and retried")
+                .register(meterRegistry);
     }
 
     // ========================================================================
@@ -52,27 +121,91 @@ public class LinkService {
 
     @Transactional
     public LinkResponseDto createLink(Authentication authentication, String targetUrl, String customSlug) {
-        String email = authentication.getName();
-        String validUrl = urlValidationService.normalizeAndValidateUrl(targetUrl);
+        long started = System.nanoTime();
+        Timer timer = createError;
+        try {
+            String validUrl = urlValidationService.normalizeAndValidateUrl(targetUrl);
+
+            UUID userId = currentUserId(authentication);
+
+            Optional<Link> existingLink = findExistingLink(userId, validUrl);
+            if (existingLink.isPresent()) {
+                timer = createExisting;
+                return LinkMapper.toDto(existingLink.get());
+            }
 
-        User user = getAuthenticatedUser(email);
+            Link link = buildNewLink(userId, validUrl);
 
-        Optional<Link> existingLink = linkRepository.findByUserAndTargetUrlIgnoreCase(user, validUrl);
-        if (existingLink.isPresent()) return LinkMapper.toDto(existingLink.get());
+            Link saved = (customSlug == null || customSlug.isBlank())
+                    ? saveWithGeneratedSlug(link)
+                    : saveWithCustomSlugOrThrow(link, customSlug);
 
-        Link link = buildNewLink(user, validUrl);
+            slugFilter.add(saved.getSlug());
+            // slug мог попасть в негативный кэш (404) до создания ссылки
+            evictSlugAfterCommit(saved.getSlug());
 
-        if (customSlug == null || customSlug.isBlank()) {
-            return LinkMapper.toDto(saveWithGeneratedSlug(link));
+            timer = createCreated;
+            return LinkMapper.toDto(saved);
+        } finally {
+            timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
         }
+    }
 
-        return LinkMapper.toDto(saveWithCustomSlugOrThrow(link, customSlug));
+    /**
+     * Пачка ссылок за фиксированное число запросов: один поиск существующих и multi-row INSERT
+     * (повторяется только для строк, наткнувшихся на занятый slug). Невалидный URL не валит пачку.
+     */
+    @Transactional
+    public LinkBatchResponseDto createLinks(Authentication authentication, List<String> targetUrls) {
+        UUID userId = currentUserId(authentication);
+        LinkBatchItemDto[] items = new LinkBatchItemDto[targetUrls.size()];
+
+        // дубликаты внутри пачки (по канонической форме) сводятся к первому вхождению
+        Map<String, BatchEntry> entries = new LinkedHashMap<>();
+        for (int i = 0; i < items.length; i++) {
+            String raw = targetUrls.get(i);
+            try {
+                String validUrl = urlValidationService.normalizeAndValidateUrl(raw == null ? "" : raw);
+                entries.computeIfAbsent(UrlFingerprint.canonical(validUrl), k -> new BatchEntry(validUrl)).indexes.add(i);
+            } catch (InvalidTargetUrlException e) {
+                items[i] = new LinkBatchItemDto(i, raw, LinkBatchItemDto.Status.INVALID, null, e.getMessage());
+            }
+        }
+
+        if (!entries.isEmpty()) {
+            Long[] hashes = entries.values().stream().map(e -> e.urlHash).toArray(Long[]::new);
+            // кандидаты по хэшу -> сверка канонических форм, самая старая ссылка выигрывает
+            Map<String, LinkResponseDto> existing = new HashMap<>();
+            for (LinkResponseDto link : linkJdbcRepository.findByUserAndUrlHashes(userId, hashes)) {
+                existing.putIfAbsent(UrlFingerprint.canonical(link.targetUrl()), link);
+            }
+
+            List<BatchEntry> toInsert = new ArrayList<>();
+            for (Map.Entry<String, BatchEntry> e : entries.entrySet()) {
+                BatchEntry entry = e.getValue();
+                LinkResponseDto link = existing.get(e.getKey());
+                if (link != null) {
+                    fill(items, entry, LinkBatchItemDto.Status.EXISTING, link);
+                } else {
+                    toInsert.add(entry);
+                }
+            }
+            insertWithGeneratedSlugs(userId, toInsert, items);
+        }
+
+        int created = 0, existingCount = 0, failed = 0;
+        for (LinkBatchItemDto item : items) {
+            switch (item.status()) {
+                case CREATED -> created++;
+                case EXISTING -> existingCount++;
+                default -> failed++;
+            }
+        }
+        return new LinkBatchResponseDto(created, existingCount, failed, Arrays.asList(items));
     }
 
     public Page<LinkResponseDto> getLinks(Authentication authentication, Integer page, Integer size) {
-        String email = authentication.getName();
-
-        User user = getAuthenticatedUser(email);
+        UUID userId = currentUserId(authentication);
 
         Pageable pageable = PageRequest.of(
                 page,
@@ -80,7 +213,33 @@ public class LinkService {
                 Sort.by("createdAt").descending()
         );
 
-        return linkRepository.findAllByUser(user, pageable).map(LinkMapper::toDto);
+        return linkRepository.findAllByUserId(userId, pageable).map(LinkMapper::toDto);
+    }
+
+    /**
+     * Keyset-страница: ссылки после курсора (пустой after - первая страница), без count.
+     * Стоимость не зависит от глубины страницы.
+     */
+    @Transactional(readOnly = true)
+    public LinkSliceDto getLinksAfter(Authentication authentication, String after, int size) {
+        int limit = Math.clamp(size, 1, MAX_SLICE_SIZE);
+        LinkCursor cursor = parseCursor(after);
+
+        UUID userId = currentUserId(authentication);
+
+        // на одну больше: так без count понятно, есть ли следующая страница
+        List<Link> links = cursor == null
+                ? linkRepository.findByUserIdOrderByCreatedAtDescIdAsc(userId, Limit.of(limit + 1))
+                : linkRepository.findPageAfter(userId, cursor.createdAt(), cursor.id(), Limit.of(limit + 1));
+
+        boolean hasNext = links.size() > limit;
+        List<Link> page = hasNext ? links.subList(0, limit) : links;
+        String nextCursor = null;
+        if (hasNext) {
+            Link last = page.get(page.size() - 1);
+            nextCursor = new LinkCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new LinkSliceDto(page.stream().map(LinkMapper::toDto).toList(), nextCursor, hasNext);
     }
 
     public LinkResponseDto getLinkById(Authentication authentication, UUID id) {
@@ -89,26 +248,46 @@ public class LinkService {
         return LinkMapper.toDto(link);
     }
 
-    public LinkStatsDto getLinkStatsById(Authentication authentication, UUID id) {
+    public LinkStatsDto getLinkStatsById(Authentication authentication, UUID id,
+                                         Instant from, Instant to, String granularity) {
+        ClickGranularity g = clickStatsService.parseGranularity(granularity);
+        Instant rangeTo = to != null ? to : Instant.now();
+        Instant rangeFrom = from != null ? from : rangeTo.minus(DEFAULT_STATS_RANGE);
 
         Link link = requireOwnedLink(authentication, id);
 
-        return LinkMapper.toStatsDto(link);
-    }
+        List<ClickBucketDto> buckets = clickStatsService.series(link.getId(), rangeFrom, rangeTo, g);
 
-    @Transactional
-    public String processRedirect(String slug) {
+        return LinkMapper.toStatsDto(link, clickStatsService.pendingClicks(link.getId()),
+                clickStatsService.uniqueVisitors(link.getId()),
+                g, g.truncate(rangeFrom), rangeTo, buckets);
+    }
 
-        Link link = requireLinkBySlug(slug);
+    /**
+     * @param clientKey ключ клиента (ClientAddresses) для оценки уникальных посетителей
+     */
+    public String processRedirect(String slug, long clientKey) {
+        long started = System.nanoTime();
+        Timer timer = redirectError;
+        try {
+            RedirectTargetDto target = requireLinkBySlug(slug);
+            Instant now = Instant.now();
 
-        if (link.getExpiresAt() != null &&
-                link.getExpiresAt().isBefore(Instant.now())) {
-            throw new ResponseStatusException(HttpStatus.GONE);
-        }
+            if (target.expiresAt() != null &&
+                    target.expiresAt().isBefore(now)) {
+                throw new ResponseStatusException(HttpStatus.GONE);
+            }
 
-        linkRepository.incrementClicksTotal(link.getId());
+            clickIngestionService.ingest(new ClickEvent(target.linkId(), now, clientKey));
 
-        return link.getTargetUrl();
+            timer = redirectFound;
+            return target.targetUrl();
+        } catch (ResponseStatusException e) {
+            timer = e.getStatusCode() == HttpStatus.GONE ? redirectGone : redirectNotFound;
+            throw e;
+        } finally {
+            timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
     }
 
 
@@ -116,12 +295,14 @@ public class LinkService {
         Link link = requireOwnedLink(authentication, id);
 
         linkRepository.delete(link);
+        evictSlugAfterCommit(link.getSlug());
     }
 
     @Transactional
     public LinkResponseDto updateLink(Authentication authentication, UUID id) {
         Link link = requireOwnedLink(authentication, id);
         link.setExpiresAt(defaultExpiresAt());
+        evictSlugAfterCommit(link.getSlug());
         return LinkMapper.toDto(link);
     }
 
@@ -130,8 +311,17 @@ public class LinkService {
     // Private helpers: auth/user
     // ========================================================================
 
-    private User getAuthenticatedUser(String email) {
+    /**
+     * id владельца из JWT claim "uid" - без запроса к users. Токены, выпущенные до появления
+     * claim'а, живут до истечения ttl: для них id по-прежнему ищется по email.
+     */
+    private UUID currentUserId(Authentication authentication) {
+        UUID userId = AuthenticatedUser.userIdOf(authentication);
+        if (userId != null) return userId;
+
+        String email = authentication.getName();
         return userRepository.findByEmailIgnoreCase(email)
+                .map(User::getId)
                 .orElseThrow(() -> new IllegalStateException("Authenticated user not found: " + email));
     }
 
@@ -139,19 +329,40 @@ public class LinkService {
     // Private helpers: link
     // ========================================================================
 
-    private Link requireLinkById(User user, UUID id) {
-        return linkRepository.findByIdAndUser(id, user)
+    private Link requireLinkById(UUID userId, UUID id) {
+        return linkRepository.findByIdAndUserId(id, userId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
-    private Link requireLinkBySlug(String slug) {
-        return linkRepository.findBySlug(slug)
+    private RedirectTargetDto requireLinkBySlug(String slug) {
+        // заведомо несуществующий slug не доходит ни до кэша, ни до БД
+        if (!slugFilter.mightContain(slug)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return slugCache.get(slug, this::loadRedirectTarget)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
-    private Link buildNewLink(User user, String validUrl) {
+    private Optional<RedirectTargetDto> loadRedirectTarget(String slug) {
+        Optional<RedirectTargetDto> target = linkRepository.findRedirectTargetBySlug(slug);
+        if (target.isEmpty()) slugFilter.recordFalsePositive();
+        return target;
+    }
+
+    /**
+     * Одна проба индекса (user_id, url_hash); совпадение хэша проверяется по канонической форме.
+     */
+    private Optional<Link> findExistingLink(UUID userId, String validUrl) {
+        return linkRepository.findByUserIdAndUrlHash(userId, UrlFingerprint.hash(validUrl)).stream()
+                .filter(link -> UrlFingerprint.sameUrl(link.getTargetUrl(), validUrl))
+                .findFirst();
+    }
+
+    private Link buildNewLink(UUID userId, String validUrl) {
         Link link = new Link();
-        link.setUser(user);
+        // прокси без SELECT: для INSERT нужен только user_id
+        link.setUser(userRepository.getReferenceById(userId));
         link.setTargetUrl(validUrl);
+        link.setUrlHash(UrlFingerprint.hash(validUrl));
         link.setExpiresAt(defaultExpiresAt());
         return link;
     }
@@ -160,9 +371,17 @@ public class LinkService {
         return Instant.now().atZone(ZoneOffset.UTC).plusMonths(1).toInstant();
     }
 
+    private static LinkCursor parseCursor(String after) {
+        if (after == null || after.isBlank()) return null;
+        try {
+            return LinkCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
     private Link requireOwnedLink(Authentication auth, UUID id) {
-        User user = getAuthenticatedUser(auth.getName());
-        return requireLinkById(user, id);
+        return requireLinkById(currentUserId(auth), id);
     }
 
 
@@ -180,6 +399,7 @@ public class LinkService {
                 return link;
             } catch (DataIntegrityViolationException e) {
                 if (isUniqueSlugViolation(e)) {
+                    slugCollisions.increment();
                     continue;
                 }
                 throw e;
@@ -191,6 +411,69 @@ public class LinkService {
         );
     }
 
+    private void insertWithGeneratedSlugs(UUID userId, List<BatchEntry> entries, LinkBatchItemDto[] items) {
+        Instant expiresAt = defaultExpiresAt();
+        List<String> createdSlugs = new ArrayList<>(entries.size());
+        List<BatchEntry> remaining = entries;
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS && !remaining.isEmpty(); attempt++) {
+            int n = remaining.size();
+            UUID[] ids = new UUID[n];
+            String[] slugs = new String[n];
+            String[] urls = new String[n];
+            Long[] hashes = new Long[n];
+            Map<UUID, BatchEntry> byId = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                BatchEntry entry = remaining.get(i);
+                ids[i] = UUID.randomUUID();
+                slugs[i] = slugGenerator.nextSlug();
+                urls[i] = entry.url;
+                hashes[i] = entry.urlHash;
+                byId.put(ids[i], entry);
+            }
+
+            for (LinkResponseDto link : linkJdbcRepository.insertLinks(userId, expiresAt, ids, slugs, urls, hashes)) {
+                fill(items, byId.remove(link.id()), LinkBatchItemDto.Status.CREATED, link);
+                createdSlugs.add(link.slug());
+            }
+            // не вставились только строки с занятым slug
+            remaining = new ArrayList<>(byId.values());
+            slugCollisions.increment(remaining.size());
+        }
+
+        for (BatchEntry entry : remaining) {
+            for (int i : entry.indexes) {
+                items[i] = new LinkBatchItemDto(i, entry.url, LinkBatchItemDto.Status.FAILED, null,
+                        String.format("Could not generate unique slug after %d attempts", MAX_ATTEMPTS));
+            }
+        }
+
+        createdSlugs.forEach(slugFilter::add);
+        // slug'и могли попасть в негативный кэш (404) до создания ссылок
+        evictSlugsAfterCommit(createdSlugs);
+    }
+
+    private static void fill(LinkBatchItemDto[] items, BatchEntry entry, LinkBatchItemDto.Status status,
+                             LinkResponseDto link) {
+        boolean first = true;
+        for (int i : entry.indexes) {
+            // повторы URL внутри пачки получают ту же ссылку как уже существующую
+            items[i] = new LinkBatchItemDto(i, entry.url, first ? status : LinkBatchItemDto.Status.EXISTING, link, null);
+            first = false;
+        }
+    }
+
+    private static final class BatchEntry {
+        final String url;
+        final long urlHash;
+        final List<Integer> indexes = new ArrayList<>(1);
+
+        BatchEntry(String url) {
+            this.url = url;
+            this.urlHash = UrlFingerprint.hash(url);
+        }
+    }
+
     private Link saveWithCustomSlugOrThrow(Link link, String customSlug) {
         link.setSlug(customSlug);
 
@@ -205,6 +488,44 @@ public class LinkService {
         }
     }
 
+    // ========================================================================
+    // Private helpers: slug cache
+    // ========================================================================
+
+    /**
+     * Инвалидирует slug сразу и ещё раз после коммита: иначе параллельный redirect
+     * может успеть положить в кэш старое значение, пока транзакция не закоммичена.
+     */
+    private void evictSlugAfterCommit(String slug) {
+        evictSlugsAfterCommit(List.of(slug));
+    }
+
+    private void evictSlugsAfterCommit(List<String> slugs) {
+        if (slugs.isEmpty()) return;
+        slugs.forEach(slugCache::invalidate);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    slugs.forEach(slugCache::invalidate);
+                }
+            });
+        }
+    }
+
+    // ========================================================================
+    // Private helpers: metrics
+    // ========================================================================
+
+    private static Timer timer(MeterRegistry meterRegistry, String name, String description, String outcome) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
     // ========================================================================
     // Private helpers: errors
     // ========================================================================
@@ -0,0 +1,203 @@
+package dev.horoz.url_shortener.service.bulk;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import dev.horoz.url_shortener.repository.LinkJdbcRepository.ReapedLink;
+import dev.horoz.url_shortener.service.cache.SlugCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Удаляет (или переносит в links_archive) ссылки, истёкшие больше grace назад.
+ * До этого redirect отвечает 410, после - 404.
+ *
+ * Проход keyset'ом по (expires_at, id) через links_expires_idx, каждая пачка - отдельная короткая
+ * транзакция с FOR UPDATE SKIP LOCKED, как у UrlHashBackfill. Между пачками пауза; пока пул
+ * соединений кому-то отказывает (Hikari threadsAwaitingConnection > 0), пауза удваивается, а после
+ * max-backoff проход прерывается до следующего запуска - redirect'ы важнее уборки.
+ * Паузы длятся секундами, поэтому проход идёт в собственном потоке, а не в общем пуле @Scheduled.
+ *
+ * Удалённые slug'и вычищаются из SlugCache этого узла; на других узлах закэшированная запись
+ * уже истекла и отвечает 410 до своего TTL. SlugFilter удалять не умеет - лишние slug'и уйдут
+ * при его плановой пересборке, до тех пор это просто промахи фильтра.
+ */
+@Component
+public class ExpiredLinkReaper {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpiredLinkReaper.class);
+
+    // порядок links_expires_idx: uuid в Postgres сравнивается побайтно, без знака
+    private static final Comparator<ReapedLink> KEYSET_ORDER = Comparator.comparing(ReapedLink::expiresAt)
+            .thenComparing(ReapedLink::id, (a, b) -> {
+                int c = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+                return c != 0 ? c : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+            });
+
+    private final LinkJdbcRepository linkJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SlugCache slugCache;
+    private final HikariDataSource hikari;
+
+    private final boolean enabled;
+    private final boolean archive;
+    private final Duration grace;
+    private final int batchSize;
+    private final long batchPauseMs;
+    private final long maxBackoffMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicBoolean runRequested = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "expired-link-reaper");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Counter reaped;
+
+    public ExpiredLinkReaper(LinkJdbcRepository linkJdbcRepository,
+                             TransactionTemplate transactionTemplate,
+                             SlugCache slugCache,
+                             DataSource dataSource,
+                             @Value("${app.links.expired-reaper.enabled:true}") boolean enabled,
+                             @Value("${app.links.expired-reaper.archive:false}") boolean archive,
+                             @Value("${app.links.expired-reaper.grace:7d}") Duration grace,
+                             @Value("${app.links.expired-reaper.batch-size:500}") int batchSize,
+                             @Value("${app.links.expired-reaper.batch-pause-ms:200}") long batchPauseMs,
+                             @Value("${app.links.expired-reaper.max-backoff-ms:10000}") long maxBackoffMs,
+                             MeterRegistry meterRegistry) {
+        this.linkJdbcRepository = linkJdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.slugCache = slugCache;
+        this.hikari = hikari(dataSource);
+        this.enabled = enabled;
+        this.archive = archive;
+        this.grace = grace;
+        this.batchSize = batchSize;
+        this.batchPauseMs = batchPauseMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.reaped = Counter.builder("links.expired.reaped")
+                .description("Expired links deleted by the reaper")
+                .tag("mode", archive ? "archive" : "delete")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Только отдаёт проход потоку reaper'а; пока предыдущий не закончился, новый не ставится.
+     */
+    @Scheduled(fixedDelayString = "${app.links.expired-reaper.interval-ms:300000}")
+    public void schedule() {
+        if (!enabled || !runRequested.compareAndSet(false, true)) return;
+        executor.execute(() -> {
+            try {
+                run();
+            } finally {
+                runRequested.set(false);
+            }
+        });
+    }
+
+    public void run() {
+        if (!enabled || !lock.tryLock()) return;
+        long total = 0;
+        try {
+            Instant expiredBefore = Instant.now().minus(grace);
+            ReapedLink cursor = null;
+            while (yieldToTraffic()) {
+                List<ReapedLink> batch = runBatch(expiredBefore, cursor);
+                total += batch.size();
+                if (batch.size() < batchSize) break;
+                cursor = batch.getLast();
+                pause(batchPauseMs);
+            }
+        } catch (RuntimeException e) {
+            // удалённое закоммичено; остальное - на следующем запуске
+            log.warn("Expired link reaper failed after {} links, will retry", total, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+        if (total > 0) {
+            log.info("Expired link reaper {} {} links", archive ? "archived" : "deleted", total);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        // прерывает паузу; удалённое уже закоммичено
+        executor.shutdownNow();
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    /**
+     * @return пачка в порядке (expires_at, id); последняя запись - курсор для следующей
+     */
+    private List<ReapedLink> runBatch(Instant expiredBefore, ReapedLink after) {
+        List<ReapedLink> batch = transactionTemplate.execute(status ->
+                linkJdbcRepository.reapExpired(expiredBefore, after, batchSize, archive));
+        if (batch == null || batch.isEmpty()) return List.of();
+
+        // RETURNING не обещает порядок
+        batch = batch.stream().sorted(KEYSET_ORDER).toList();
+        for (ReapedLink link : batch) {
+            slugCache.invalidate(link.slug());
+        }
+        reaped.increment(batch.size());
+        return batch;
+    }
+
+    /**
+     * Ждёт, пока у пула нет очереди за соединениями. false - очередь не рассосалась за max-backoff.
+     */
+    private boolean yieldToTraffic() throws InterruptedException {
+        // MXBean появляется только после старта пула
+        HikariPoolMXBean pool = hikari == null ? null : hikari.getHikariPoolMXBean();
+        long backoff = Math.max(1, batchPauseMs);
+        while (pool != null && pool.getThreadsAwaitingConnection() > 0) {
+            if (backoff > maxBackoffMs) {
+                log.info("Expired link reaper yields: connection pool is saturated");
+                return false;
+            }
+            pause(backoff);
+            backoff *= 2;
+        }
+        return true;
+    }
+
+    private static void pause(long millis) throws InterruptedException {
+        if (millis > 0) Thread.sleep(millis);
+    }
+
+    private static HikariDataSource hikari(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class);
+            }
+        } catch (SQLException e) {
+            log.debug("DataSource does not expose a Hikari pool", e);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,137 @@
+package dev.horoz.url_shortener.service.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.horoz.url_shortener.domain.Link;
+import dev.horoz.url_shortener.domain.User;
+import dev.horoz.url_shortener.mapper.LinkMapper;
+import dev.horoz.url_shortener.repository.LinkRepository;
+import dev.horoz.url_shortener.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Потоковый экспорт всех ссылок пользователя в NDJSON/CSV.
+ *
+ * Один запрос с серверным курсором вместо постраничного findAllByUser (и count на каждую страницу).
+ * Каждая ссылка после записи detach'ится из persistence context, так что память не растёт
+ * с числом ссылок. Формат совместим с импортом.
+ */
+@Service
+public class LinkExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(LinkExportService.class);
+
+    private static final String CSV_HEADER = "slug,targetUrl,expiresAt,clicksTotal,createdAt,id";
+    // как часто отдавать накопленное клиенту
+    private static final int FLUSH_EVERY = 1_000;
+
+    private final UserRepository userRepository;
+    private final LinkRepository linkRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+
+    public LinkExportService(UserRepository userRepository,
+                             LinkRepository linkRepository,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper) {
+        this.userRepository = userRepository;
+        this.linkRepository = linkRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void exportLinks(String email, LinkFileFormat format, OutputStream out) throws IOException {
+        User user = userRepository.findByEmailIgnoreCase(email)
+                .orElseThrow(() -> new IllegalStateException("Authenticated user not found: " + email));
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == LinkFileFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long[] exported = new long[1];
+        long startedAt = System.nanoTime();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Link> links = linkRepository.streamAllByUser(user)) {
+                    links.forEach(link -> {
+                        write(writer, format, link);
+                        entityManager.detach(link);
+                        if (++exported[0] % FLUSH_EVERY == 0) flush(writer);
+                    });
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // клиент оборвал соединение: курсор уже закрыт, транзакция откатилась
+            throw e.getCause();
+        }
+        writer.flush();
+
+        log.info("Exported {} links for {} in {} ms", exported[0], email, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    private void write(Writer writer, LinkFileFormat format, Link link) {
+        try {
+            if (format == LinkFileFormat.CSV) {
+                writer.write(csv(link.getSlug()));
+                writer.write(',');
+                writer.write(csv(link.getTargetUrl()));
+                writer.write(',');
+                writer.write(instant(link.getExpiresAt()));
+                writer.write(',');
+                writer.write(link.getClicksTotal() == null ? "0" : link.getClicksTotal().toString());
+                writer.write(',');
+                writer.write(instant(link.getCreatedAt()));
+                writer.write(',');
+                writer.write(link.getId().toString());
+            } else {
+                writer.write(objectMapper.writeValueAsString(LinkMapper.toDto(link)));
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void flush(Writer writer) {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String instant(Instant value) {
+        return value == null ? "" : value.toString();
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
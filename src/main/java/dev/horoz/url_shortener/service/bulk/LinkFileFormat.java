@@ -0,0 +1,32 @@
+package dev.horoz.url_shortener.service.bulk;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Формат файла импорта/экспорта: одна строка файла - одна ссылка.
+ * Экспорт читается импортом обратно: лишние поля и колонки импорт игнорирует.
+ */
+public enum LinkFileFormat {
+    // {"slug": "...", "targetUrl": "...", "expiresAt": "2030-01-01T00:00:00Z"}
+    NDJSON,
+    // slug,targetUrl,expiresAt[,...] (заголовок необязателен, поля можно брать в кавычки)
+    CSV;
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final String CSV_VALUE = "text/csv";
+
+    public static LinkFileFormat fromContentType(String contentType) {
+        if (contentType != null && MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(CSV_VALUE))) {
+            return CSV;
+        }
+        return NDJSON;
+    }
+
+    public static LinkFileFormat fromName(String name) {
+        return name != null && name.equalsIgnoreCase("csv") ? CSV : NDJSON;
+    }
+
+    public String mediaType() {
+        return this == CSV ? CSV_VALUE : NDJSON_VALUE;
+    }
+}
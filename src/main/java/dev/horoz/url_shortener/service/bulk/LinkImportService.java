@@ -0,0 +1,382 @@
+package dev.horoz.url_shortener.service.bulk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.horoz.url_shortener.domain.User;
+import dev.horoz.url_shortener.exceptions.InvalidTargetUrlException;
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import dev.horoz.url_shortener.repository.UserRepository;
+import dev.horoz.url_shortener.service.cache.SlugCache;
+import dev.horoz.url_shortener.service.cache.SlugFilter;
+import dev.horoz.url_shortener.service.validation.UrlFingerprint;
+import dev.horoz.url_shortener.service.validation.UrlValidationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Потоковый импорт ссылок (slug, targetUrl, expiresAt) из NDJSON/CSV.
+ *
+ * Файл читается построчно и пишется пачками по batchSize строк, каждая пачка - своя транзакция
+ * и один multi-row INSERT. В памяти только текущая пачка, так что размер файла не важен.
+ * Следующая пачка читается только после коммита предыдущей: если БД не успевает,
+ * чтение тела встаёт, и клиента притормаживает TCP.
+ *
+ * Ответ - тоже NDJSON: ошибки по строкам (error), прогресс после каждой пачки (progress)
+ * и итог (summary) со скоростью в строках в секунду.
+ */
+@Service
+public class LinkImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(LinkImportService.class);
+
+    // как у custom slug (3..32), но без символов, которые ломают путь /r/{slug}
+    private static final Pattern SLUG = Pattern.compile("[0-9A-Za-z_-]{3,32}");
+    private static final String CSV_HEADER_PREFIX = "slug,targetUrl";
+
+    private final UserRepository userRepository;
+    private final LinkJdbcRepository linkJdbcRepository;
+    private final UrlValidationService urlValidationService;
+    private final SlugCache slugCache;
+    private final SlugFilter slugFilter;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxLineLength;
+
+    public LinkImportService(UserRepository userRepository,
+                             LinkJdbcRepository linkJdbcRepository,
+                             UrlValidationService urlValidationService,
+                             SlugCache slugCache,
+                             SlugFilter slugFilter,
+                             TransactionTemplate transactionTemplate,
+                             ObjectMapper objectMapper,
+                             @Value("${app.links.import.batch-size:1000}") int batchSize,
+                             @Value("${app.links.import.max-line-length:8192}") int maxLineLength) {
+        this.userRepository = userRepository;
+        this.linkJdbcRepository = linkJdbcRepository;
+        this.urlValidationService = urlValidationService;
+        this.slugCache = slugCache;
+        this.slugFilter = slugFilter;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxLineLength = maxLineLength;
+    }
+
+    public void importLinks(String email, InputStream in, LinkFileFormat format, OutputStream out) throws IOException {
+        User user = userRepository.findByEmailIgnoreCase(email)
+                .orElseThrow(() -> new IllegalStateException("Authenticated user not found: " + email));
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        Progress progress = new Progress(System.nanoTime());
+        Batch batch = new Batch(batchSize);
+
+        StringBuilder line = new StringBuilder();
+        long lineNo = 0;
+        int length;
+        while ((length = readLine(reader, line)) >= 0) {
+            lineNo++;
+            if (length > maxLineLength) {
+                progress.rows++;
+                progress.failed++;
+                writeLine(writer, new ImportError(lineNo, null, "Line is longer than " + maxLineLength + " characters"));
+                continue;
+            }
+            if (line.toString().isBlank()) continue;
+            if (format == LinkFileFormat.CSV && lineNo == 1 && line.toString().trim().regionMatches(true, 0, CSV_HEADER_PREFIX, 0, CSV_HEADER_PREFIX.length())) continue;
+
+            progress.rows++;
+            try {
+                Row row = format == LinkFileFormat.CSV ? parseCsv(line) : parseJson(line);
+                batch.add(lineNo, validate(row));
+            } catch (InvalidRowException e) {
+                progress.failed++;
+                writeLine(writer, new ImportError(lineNo, e.slug, e.getMessage()));
+            }
+            if (batch.size() == batchSize) {
+                writeBatch(user, batch, progress, writer);
+            }
+        }
+        writeBatch(user, batch, progress, writer);
+
+        ImportSummary summary = progress.summary();
+        writeLine(writer, summary);
+        writer.flush();
+        log.info("Imported links for {}: rows={}, imported={}, failed={}, rowsPerSec={}",
+                email, summary.rows(), summary.imported(), summary.failed(), summary.rowsPerSec());
+    }
+
+    // ========================================================================
+    // Private helpers: batches
+    // ========================================================================
+
+    private void writeBatch(User user, Batch batch, Progress progress, Writer writer) throws IOException {
+        if (batch.size() == 0) return;
+
+        int n = batch.size();
+        String[] slugs = batch.slugs.toArray(String[]::new);
+        String[] urls = batch.urls.toArray(String[]::new);
+        Long[] hashes = new Long[n];
+        for (int i = 0; i < n; i++) {
+            hashes[i] = UrlFingerprint.hash(urls[i]);
+        }
+        Timestamp[] expiresAt = batch.expiresAt.toArray(Timestamp[]::new);
+        // в фильтр до commit: иначе свежая ссылка успела бы получить 404; лишние (занятые) slug'и там и так есть
+        for (String slug : slugs) {
+            slugFilter.add(slug);
+        }
+        try {
+            Set<String> inserted = transactionTemplate.execute(status ->
+                    linkJdbcRepository.importLinks(user.getId(), slugs, urls, hashes, expiresAt));
+            for (int i = 0; i < n; i++) {
+                if (inserted.contains(slugs[i])) {
+                    progress.imported++;
+                    // slug мог попасть в негативный кэш (404) до импорта
+                    slugCache.invalidate(slugs[i]);
+                } else {
+                    progress.failed++;
+                    writeLine(writer, new ImportError(batch.lines.get(i), slugs[i], "Slug already exists"));
+                }
+            }
+        } catch (DataAccessException | TransactionException e) {
+            // пачка откатилась целиком (или не закоммитилась): сообщаем по каждой строке и идём дальше
+            log.warn("Import batch of {} rows failed", n, e);
+            progress.failed += n;
+            for (int i = 0; i < n; i++) {
+                writeLine(writer, new ImportError(batch.lines.get(i), slugs[i], "Batch failed: " + e.getMostSpecificCause().getMessage()));
+            }
+        }
+        batch.clear();
+
+        writeLine(writer, progress.snapshot());
+        writer.flush();
+    }
+
+    private Row validate(Row row) {
+        if (row.slug == null || !SLUG.matcher(row.slug).matches()) {
+            throw new InvalidRowException(row.slug, "slug must be 3-32 characters of [0-9A-Za-z_-]");
+        }
+        try {
+            String url = urlValidationService.normalizeAndValidateUrl(row.targetUrl == null ? "" : row.targetUrl);
+            return new Row(row.slug, url, row.expiresAt);
+        } catch (InvalidTargetUrlException e) {
+            throw new InvalidRowException(row.slug, e.getMessage());
+        }
+    }
+
+    // ========================================================================
+    // Private helpers: parsing
+    // ========================================================================
+
+    /**
+     * Читает строку без '\n' / "\r\n" в buf. Хвост строки сверх maxLineLength не копится,
+     * только считается - одна гигантская строка не раздувает память.
+     *
+     * @return полная длина строки или -1 в конце потока
+     */
+    private int readLine(BufferedReader reader, StringBuilder buf) throws IOException {
+        buf.setLength(0);
+        int length = 0;
+        int c;
+        while ((c = reader.read()) >= 0) {
+            if (c == '\n') break;
+            if (length++ < maxLineLength) buf.append((char) c);
+        }
+        if (c < 0 && length == 0) return -1;
+        if (length <= maxLineLength && !buf.isEmpty() && buf.charAt(buf.length() - 1) == '\r') {
+            buf.setLength(buf.length() - 1);
+            length--;
+        }
+        return length;
+    }
+
+    private Row parseJson(CharSequence line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line.toString());
+        } catch (IOException e) {
+            throw new InvalidRowException(null, "Malformed JSON");
+        }
+        if (!node.isObject()) {
+            throw new InvalidRowException(null, "Expected a JSON object");
+        }
+        String slug = text(node, "slug");
+        return new Row(slug, text(node, "targetUrl"), parseInstant(slug, text(node, "expiresAt")));
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    /**
+     * Одна строка CSV (RFC 4180 без переносов внутри полей): поля через запятую,
+     * в кавычках запятая - часть значения, "" - кавычка.
+     */
+    private static Row parseCsv(CharSequence line) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new InvalidRowException(null, "Unterminated quoted field");
+        }
+        fields.add(field.toString().trim());
+
+        // колонки после expiresAt (их пишет экспорт) игнорируются
+        if (fields.size() < 2) {
+            throw new InvalidRowException(null, "Expected slug,targetUrl[,expiresAt]");
+        }
+        String slug = fields.get(0);
+        String expiresAt = fields.size() >= 3 && !fields.get(2).isEmpty() ? fields.get(2) : null;
+        return new Row(slug, fields.get(1), parseInstant(slug, expiresAt));
+    }
+
+    private static Instant parseInstant(String slug, String value) {
+        if (value == null) return null;
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidRowException(slug, "expiresAt must be an ISO-8601 instant");
+        }
+    }
+
+    private void writeLine(Writer writer, Object event) throws IOException {
+        writer.write(objectMapper.writeValueAsString(event));
+        writer.write('\n');
+    }
+
+    // ========================================================================
+    // Types
+    // ========================================================================
+
+    private record Row(String slug, String targetUrl, Instant expiresAt) {
+    }
+
+    public record ImportError(String type, long line, String slug, String error) {
+        ImportError(long line, String slug, String error) {
+            this("error", line, slug, error);
+        }
+    }
+
+    public record ImportProgress(String type, long rows, long imported, long failed, long rowsPerSec) {
+    }
+
+    public record ImportSummary(String type, long rows, long imported, long failed, long rowsPerSec, long elapsedMs) {
+    }
+
+    private static final class Batch {
+        final List<Long> lines;
+        final List<String> slugs;
+        final List<String> urls;
+        final List<Timestamp> expiresAt;
+        // дубликат slug внутри пачки INSERT молча пропустил бы, не отличив от вставленного
+        final Set<String> seen;
+
+        Batch(int capacity) {
+            lines = new ArrayList<>(capacity);
+            slugs = new ArrayList<>(capacity);
+            urls = new ArrayList<>(capacity);
+            expiresAt = new ArrayList<>(capacity);
+            seen = new HashSet<>(capacity * 2);
+        }
+
+        void add(long line, Row row) {
+            if (!seen.add(row.slug)) {
+                throw new InvalidRowException(row.slug, "Duplicate slug in import");
+            }
+            lines.add(line);
+            slugs.add(row.slug);
+            urls.add(row.targetUrl);
+            expiresAt.add(row.expiresAt == null ? null : Timestamp.from(row.expiresAt));
+        }
+
+        int size() {
+            return slugs.size();
+        }
+
+        void clear() {
+            lines.clear();
+            slugs.clear();
+            urls.clear();
+            expiresAt.clear();
+            seen.clear();
+        }
+    }
+
+    private static final class Progress {
+        final long startedAt;
+        long rows;
+        long imported;
+        long failed;
+
+        Progress(long startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        ImportProgress snapshot() {
+            return new ImportProgress("progress", rows, imported, failed, rowsPerSec(System.nanoTime() - startedAt));
+        }
+
+        ImportSummary summary() {
+            long elapsed = System.nanoTime() - startedAt;
+            return new ImportSummary("summary", rows, imported, failed, rowsPerSec(elapsed), elapsed / 1_000_000);
+        }
+
+        private long rowsPerSec(long elapsedNanos) {
+            return elapsedNanos <= 0 ? 0 : rows * 1_000_000_000L / elapsedNanos;
+        }
+    }
+
+    private static final class InvalidRowException extends RuntimeException {
+        final String slug;
+
+        InvalidRowException(String slug, String message) {
+            super(message, null, false, false);
+            this.slug = slug;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package dev.horoz.url_shortener.service.bulk;
+
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import dev.horoz.url_shortener.repository.LinkJdbcRepository.UrlRow;
+import dev.horoz.url_shortener.service.validation.UrlFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Заполняет links.url_hash для ссылок, созданных до V8.
+ *
+ * Проход по первичному ключу (keyset), каждая пачка - отдельная короткая транзакция
+ * с FOR UPDATE SKIP LOCKED: узлы кластера не мешают друг другу и живому трафику.
+ * Позиция в памяти, после рестарта проход начинается заново - заполненные строки
+ * отсекает условие url_hash IS NULL. Пока строка не заполнена, дедупликация её не видит.
+ */
+@Component
+public class UrlHashBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(UrlHashBackfill.class);
+
+    private static final UUID START = new UUID(0, 0);
+
+    private final LinkJdbcRepository linkJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private UUID lastId = START;
+    private long updatedInPass;
+    private volatile boolean done;
+
+    public UrlHashBackfill(LinkJdbcRepository linkJdbcRepository,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${app.links.url-hash-backfill.batch-size:1000}") int batchSize) {
+        this.linkJdbcRepository = linkJdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.links.url-hash-backfill.interval-ms:60000}")
+    public void run() {
+        if (done || !lock.tryLock()) return;
+        try {
+            int batch;
+            do {
+                batch = runBatch();
+            } while (batch == batchSize);
+            finishPass();
+        } catch (RuntimeException e) {
+            // позиция не сдвинута - следующий запуск повторит пачку
+            log.warn("url_hash backfill failed after {}, will retry", lastId, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    /**
+     * @return сколько строк пачка прочитала (меньше batchSize - конец таблицы)
+     */
+    private int runBatch() {
+        Integer read = transactionTemplate.execute(status -> {
+            List<UrlRow> rows = linkJdbcRepository.lockWithoutUrlHash(lastId, batchSize);
+            if (rows.isEmpty()) return 0;
+
+            int n = rows.size();
+            UUID[] ids = new UUID[n];
+            Long[] hashes = new Long[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = rows.get(i).id();
+                hashes[i] = UrlFingerprint.hash(rows.get(i).targetUrl());
+            }
+            linkJdbcRepository.setUrlHashes(ids, hashes);
+            lastId = ids[n - 1];
+            updatedInPass += n;
+            return n;
+        });
+        return read == null ? 0 : read;
+    }
+
+    private void finishPass() {
+        if (updatedInPass == 0) {
+            // полный проход без единой строки - новые ссылки пишутся уже с хэшем
+            done = true;
+            log.info("url_hash backfill complete");
+        } else {
+            log.info("url_hash backfill pass filled {} links", updatedInPass);
+        }
+        lastId = START;
+        updatedInPass = 0;
+    }
+}
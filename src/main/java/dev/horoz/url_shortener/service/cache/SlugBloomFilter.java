@@ -0,0 +1,126 @@
+package dev.horoz.url_shortener.service.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума по slug'ам на AtomicLongArray: put и mightContain из любых потоков без блокировок,
+ * бит ставится CAS'ом. Ложноотрицательных ответов нет; ложноположительные - с вероятностью ~fpp,
+ * пока entries не превысил capacity. Удаления не поддерживаются - удалённый slug даёт
+ * ложноположительный ответ до пересборки (SlugFilter).
+ *
+ * k позиций по схеме Кирша-Митценмахера: h1 + i * h2 от одного 64-битного хэша.
+ */
+final class SlugBloomFilter {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final long capacity;
+
+    private final AtomicLong bitsSet = new AtomicLong();
+    private final AtomicLong entries = new AtomicLong();
+
+    private SlugBloomFilter(long bits, int hashes, long capacity) {
+        this.words = new AtomicLongArray(Math.toIntExact(bits >>> 6));
+        this.bits = bits;
+        this.hashes = hashes;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Размер по классическим формулам: m = -n ln p / ln^2 2, k = m / n ln 2.
+     */
+    static SlugBloomFilter create(long expectedInsertions, double fpp) {
+        if (fpp <= 0 || fpp >= 1) throw new IllegalArgumentException("fpp must be in (0, 1): " + fpp);
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, (m + 63) & ~63L);
+        int k = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        return new SlugBloomFilter(m, k, n);
+    }
+
+    /**
+     * @return true, если slug'а в фильтре ещё не было (поставлен хотя бы один новый бит)
+     */
+    boolean put(String slug) {
+        long h1 = hash(slug);
+        long h2 = mix(h1) | 1;
+        boolean changed = false;
+        for (int i = 0; i < hashes; i++) {
+            changed |= setBit(Long.remainderUnsigned(h1 + i * h2, bits));
+        }
+        if (changed) entries.incrementAndGet();
+        return changed;
+    }
+
+    boolean mightContain(String slug) {
+        long h1 = hash(slug);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Уникальных slug'ов (оценка снизу: ложноположительный put не считается).
+     */
+    long entries() {
+        return entries.get();
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    long memoryBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    /**
+     * Ожидаемая доля ложноположительных ответов по фактической заполненности битов.
+     */
+    double expectedFpp() {
+        return Math.pow((double) bitsSet.get() / bits, hashes);
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    private boolean setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        while (true) {
+            long old = words.get(word);
+            if ((old & mask) != 0) return false;
+            if (words.compareAndSet(word, old, old | mask)) {
+                bitsSet.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    private static long hash(String slug) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < slug.length(); i++) {
+            h = (h ^ slug.charAt(i)) * FNV_PRIME;
+        }
+        return mix(h);
+    }
+
+    // финализатор MurmurHash3: FNV сам по себе плохо перемешивает старшие биты
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,104 @@
+package dev.horoz.url_shortener.service.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import dev.horoz.url_shortener.dto.link.RedirectTargetDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Ограниченный по размеру и TTL кэш slug -> (linkId, targetUrl, expiresAt) перед БД.
+ * Отсутствующие slug'и (404) кэшируются как Optional.empty() на более короткий срок.
+ * Истечение ссылки проверяет вызывающий код по закэшированному expiresAt.
+ *
+ * Загрузка идёт в потоке вызывающего, но вне compute() кэша: синхронный Cache.get держит монитор
+ * ConcurrentHashMap на время запроса в БД, а это пиннинг carrier-потока для виртуальных потоков.
+ * Конкурентные промахи по одному slug всё так же ждут одну загрузку (на future, без монитора).
+ */
+@Component
+public class SlugCache {
+
+    public static final String CACHE_NAME = "slugCache";
+
+    private final AsyncCache<String, Optional<RedirectTargetDto>> cache;
+
+    public SlugCache(
+            @Value("${app.redirect.cache.max-size:100000}") long maxSize,
+            @Value("${app.redirect.cache.ttl:600}") long ttlSeconds,
+            @Value("${app.redirect.cache.negative-ttl:30}") long negativeTtlSeconds,
+            MeterRegistry meterRegistry
+    ) {
+        long ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        long negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Optional<RedirectTargetDto>>() {
+                    @Override
+                    public long expireAfterCreate(String slug, Optional<RedirectTargetDto> value, long currentTime) {
+                        return value.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String slug, Optional<RedirectTargetDto> value,
+                                                  long currentTime, long currentDuration) {
+                        return expireAfterCreate(slug, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String slug, Optional<RedirectTargetDto> value,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .executor(Runnable::run)
+                .recordStats()
+                .buildAsync();
+
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME);
+    }
+
+    public Optional<RedirectTargetDto> get(String slug, Function<String, Optional<RedirectTargetDto>> loader) {
+        // внутри compute() только кладём пустой future, загрузка - после выхода из него
+        CompletableFuture<Optional<RedirectTargetDto>> pending = new CompletableFuture<>();
+        CompletableFuture<Optional<RedirectTargetDto>> future = cache.get(slug, (k, executor) -> pending);
+        if (future == pending) {
+            try {
+                pending.complete(loader.apply(slug));
+            } catch (RuntimeException | Error e) {
+                // упавший future Caffeine сам убирает из кэша, следующий запрос повторит загрузку
+                pending.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    public void invalidate(String slug) {
+        cache.synchronous().invalidate(slug);
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    public long estimatedSize() {
+        return cache.synchronous().estimatedSize();
+    }
+}
@@ -0,0 +1,197 @@
+package dev.horoz.url_shortener.service.cache;
+
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Фильтр Блума по всем slug'ам узла перед SlugCache и БД: сканеры, перебирающие случайные
+ * /r/{slug}, получают 404 без запроса в Postgres и не вытесняют из SlugCache живые записи
+ * своими негативными.
+ *
+ * Фильтр собирается потоковым чтением links при старте и раз в rebuild-interval (так уходят
+ * удалённые slug'и и меняется размер). Свои новые slug'и узел добавляет сразу (add), чужие -
+ * догрузкой по created_at раз в refresh-interval. Пока догрузка не прошла, ссылка, созданная
+ * другим узлом, отдаёт здесь 404 - как и с негативным кэшем SlugCache.
+ * До первой сборки и при enabled=false фильтр пропускает всё в БД.
+ */
+@Component
+public class SlugFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SlugFilter.class);
+
+    // запас на рост таблицы до следующей пересборки
+    private static final int GROWTH_HEADROOM = 2;
+
+    private final LinkJdbcRepository linkJdbcRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final double fpp;
+    private final long minExpectedInsertions;
+    private final Duration refreshOverlap;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile SlugBloomFilter current;
+    // собираемый фильтр: add пишет и в него, чтобы slug, созданный во время сборки, не потерялся
+    private volatile SlugBloomFilter building;
+    // max(created_at) среди загруженных; под lock
+    private Instant watermark;
+
+    private final Counter negatives;
+    private final Counter falsePositives;
+
+    public SlugFilter(LinkJdbcRepository linkJdbcRepository,
+                      PlatformTransactionManager transactionManager,
+                      @Value("${app.redirect.slug-filter.enabled:true}") boolean enabled,
+                      @Value("${app.redirect.slug-filter.fpp:0.01}") double fpp,
+                      @Value("${app.redirect.slug-filter.expected-insertions:1000000}") long minExpectedInsertions,
+                      @Value("${app.redirect.slug-filter.refresh-overlap:60}") long refreshOverlapSeconds,
+                      MeterRegistry meterRegistry) {
+        this.linkJdbcRepository = linkJdbcRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.fpp = fpp;
+        this.minExpectedInsertions = minExpectedInsertions;
+        this.refreshOverlap = Duration.ofSeconds(refreshOverlapSeconds);
+
+        Gauge.builder("slug.filter.memory", this, f -> f.current == null ? 0 : f.current.memoryBytes())
+                .description("Memory held by the slug Bloom filter")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("slug.filter.entries", this, f -> f.current == null ? 0 : f.current.entries())
+                .description("Slugs in the Bloom filter")
+                .register(meterRegistry);
+        Gauge.builder("slug.filter.expected.fpp", this, f -> f.current == null ? 0 : f.current.expectedFpp())
+                .description("False positive rate predicted from the filter's bit occupancy")
+                .register(meterRegistry);
+        // наблюдаемая доля: false.positives / (false.positives + negatives) по несуществующим slug'ам
+        this.negatives = Counter.builder("slug.filter.negatives")
+                .description("Redirects answered 404 by the filter without a database lookup")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("slug.filter.false.positives")
+                .description("Slugs the filter let through that the database did not have")
+                .register(meterRegistry);
+    }
+
+    /**
+     * false - slug'а точно нет (с точностью до задержки догрузки чужих ссылок).
+     */
+    public boolean mightContain(String slug) {
+        SlugBloomFilter filter = current;
+        if (filter == null || filter.mightContain(slug)) return true;
+        negatives.increment();
+        return false;
+    }
+
+    /**
+     * Вызывается при создании ссылки до commit: ложноположительный ответ после отката безвреден,
+     * а 404 на только что созданную ссылку - нет.
+     */
+    public void add(String slug) {
+        SlugBloomFilter next = building;
+        if (next != null) next.put(slug);
+        SlugBloomFilter filter = current;
+        if (filter != null) filter.put(slug);
+    }
+
+    /**
+     * Фильтр пропустил slug, которого в БД не оказалось.
+     */
+    public void recordFalsePositive() {
+        if (current != null) falsePositives.increment();
+    }
+
+    /**
+     * Полная пересборка; первый запуск - сразу после старта.
+     */
+    @Scheduled(fixedDelayString = "${app.redirect.slug-filter.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        if (!enabled) return;
+        lock.lock();
+        try {
+            rebuildLocked();
+        } catch (RuntimeException e) {
+            // остаёмся на прежнем фильтре (или без фильтра - всё идёт в БД)
+            log.warn("Slug filter rebuild failed", e);
+        } finally {
+            building = null;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Догрузка slug'ов, созданных после watermark (в т.ч. другими узлами). Отрезок refresh-overlap
+     * перечитывается: created_at = now() начала транзакции, и её строки видны только после commit.
+     */
+    @Scheduled(fixedDelayString = "${app.redirect.slug-filter.refresh-interval-ms:1000}")
+    public void refresh() {
+        if (!enabled || !lock.tryLock()) return;
+        try {
+            SlugBloomFilter filter = current;
+            if (filter == null) return;
+
+            Instant loaded = load(filter, watermark.minus(refreshOverlap));
+            if (loaded != null && loaded.isAfter(watermark)) watermark = loaded;
+
+            if (filter.entries() > filter.capacity()) {
+                log.info("Slug filter is over capacity ({} > {}), rebuilding", filter.entries(), filter.capacity());
+                rebuildLocked();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Slug filter refresh failed", e);
+        } finally {
+            building = null;
+            lock.unlock();
+        }
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    private void rebuildLocked() {
+        long started = System.nanoTime();
+        SlugBloomFilter previous = current;
+        long expected = Math.max(minExpectedInsertions, Math.max(linkJdbcRepository.estimatedLinkCount(),
+                previous == null ? 0 : previous.entries())) * GROWTH_HEADROOM;
+
+        SlugBloomFilter fresh = SlugBloomFilter.create(expected, fpp);
+        building = fresh;
+        Instant loaded = load(fresh, null);
+        // add, разминувшийся с подменой, попал только в старый фильтр - slug подберёт следующий refresh
+        current = fresh;
+        building = null;
+        watermark = loaded == null ? Instant.EPOCH : loaded;
+
+        log.info("Slug filter built: {} slugs, {} KiB, expected fpp {} in {} ms",
+                fresh.entries(), fresh.memoryBytes() / 1024, String.format("%.4f", fresh.expectedFpp()),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * @return max(created_at) загруженных строк или null, если строк не было
+     */
+    private Instant load(SlugBloomFilter filter, Instant createdAfter) {
+        return readOnlyTransaction.execute(status -> {
+            Instant[] max = {null};
+            linkJdbcRepository.forEachSlug(createdAfter, (slug, createdAt) -> {
+                filter.put(slug);
+                if (max[0] == null || createdAt.isAfter(max[0])) max[0] = createdAt;
+            });
+            return max[0];
+        });
+    }
+}
@@ -0,0 +1,143 @@
+package dev.horoz.url_shortener.service.click;
+
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind счётчик кликов: redirect только инкрементирует LongAdder в памяти,
+ * а в БД дельты уходят пачкой (один UPDATE) по таймеру или по порогу размера.
+ */
+@Component
+public class ClickCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickCounter.class);
+
+    private static final int SHUTDOWN_FLUSH_ATTEMPTS = 4;
+    private static final long SHUTDOWN_FLUSH_BACKOFF_MS = 100;
+
+    private final LinkJdbcRepository linkJdbcRepository;
+    private final int flushThreshold;
+
+    private final Generations<UUID, LongAdder> counters = new Generations<>(k -> new LongAdder());
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "click-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ClickCounter(LinkJdbcRepository linkJdbcRepository,
+                        @Value("${app.clicks.flush-threshold:10000}") int flushThreshold) {
+        this.linkJdbcRepository = linkJdbcRepository;
+        this.flushThreshold = flushThreshold;
+    }
+
+    public void record(UUID linkId) {
+        int size = counters.update(linkId, LongAdder::increment);
+
+        if (size >= flushThreshold && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Клики, которые этот узел уже посчитал, но ещё не записал в БД.
+     */
+    public long pending(UUID linkId) {
+        long[] pending = new long[1];
+        counters.forEachPending(linkId, adder -> pending[0] += adder.sum());
+        return pending[0];
+    }
+
+    @Scheduled(fixedDelayString = "${app.clicks.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            counters.drain(this::write);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * На остановке БД может моргнуть: несколько попыток с растущей паузой, потом
+     * незаписанные клики явно логируются как потерянные.
+     */
+    @PreDestroy
+    public void flushAll() {
+        flushExecutor.shutdown();
+        long backoffMs = SHUTDOWN_FLUSH_BACKOFF_MS;
+        for (int attempt = 1; ; attempt++) {
+            flush();
+            long[] left = new long[2];
+            counters.forEachPending((linkId, adder) -> {
+                left[0]++;
+                left[1] += adder.sum();
+            });
+            if (left[1] == 0) return;
+
+            if (attempt == SHUTDOWN_FLUSH_ATTEMPTS) {
+                log.error("Lost {} clicks of {} links: failed to flush them on shutdown", left[1], left[0]);
+                return;
+            }
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Lost {} clicks of {} links: interrupted while flushing on shutdown", left[1], left[0]);
+                return;
+            }
+            backoffMs *= 2;
+        }
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    private void write(Map<UUID, LongAdder> pending) {
+        UUID[] ids = pending.keySet().toArray(UUID[]::new);
+        // одинаковый порядок строк на всех узлах -> меньше шансов на deadlock
+        Arrays.sort(ids);
+
+        int n = 0;
+        Long[] deltas = new Long[ids.length];
+        for (UUID id : ids) {
+            long delta = pending.get(id).sum();
+            if (delta == 0) continue;
+            ids[n] = id;
+            deltas[n++] = delta;
+        }
+        if (n == 0) return;
+
+        UUID[] batchIds = Arrays.copyOf(ids, n);
+        Long[] batchDeltas = Arrays.copyOf(deltas, n);
+        try {
+            linkJdbcRepository.addClicks(batchIds, batchDeltas);
+        } catch (RuntimeException e) {
+            // не теряем клики: возвращаем дельты в текущее поколение до следующего flush
+            log.warn("Failed to flush {} click counters, will retry", n, e);
+            counters.dropInFlight();
+            for (int i = 0; i < n; i++) {
+                long delta = batchDeltas[i];
+                counters.update(batchIds[i], adder -> adder.add(delta));
+            }
+        }
+    }
+}
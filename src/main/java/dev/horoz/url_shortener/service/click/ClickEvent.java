@@ -0,0 +1,12 @@
+package dev.horoz.url_shortener.service.click;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record ClickEvent(
+        UUID linkId,
+        Instant occurredAt,
+        // ключ клиента (ClientAddresses); ClientAddresses.INVALID, если неизвестен
+        long visitorKey
+) {
+}
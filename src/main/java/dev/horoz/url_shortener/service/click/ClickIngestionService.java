@@ -0,0 +1,29 @@
+package dev.horoz.url_shortener.service.click;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Точка входа для событий клика: раздаёт событие всем in-memory агрегаторам.
+ * Ничего не пишет в БД синхронно - redirect никогда не ждёт записи.
+ */
+@Service
+public class ClickIngestionService {
+
+    private final ClickCounter clickCounter;
+    private final ClickRollupAggregator clickRollupAggregator;
+    private final UniqueVisitorTracker uniqueVisitorTracker;
+
+    public ClickIngestionService(ClickCounter clickCounter,
+                                 ClickRollupAggregator clickRollupAggregator,
+                                 UniqueVisitorTracker uniqueVisitorTracker) {
+        this.clickCounter = clickCounter;
+        this.clickRollupAggregator = clickRollupAggregator;
+        this.uniqueVisitorTracker = uniqueVisitorTracker;
+    }
+
+    public void ingest(ClickEvent event) {
+        clickCounter.record(event.linkId());
+        clickRollupAggregator.record(event);
+        uniqueVisitorTracker.record(event);
+    }
+}
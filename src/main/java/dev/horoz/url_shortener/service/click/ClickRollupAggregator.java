@@ -0,0 +1,158 @@
+package dev.horoz.url_shortener.service.click;
+
+import dev.horoz.url_shortener.domain.ClickGranularity;
+import dev.horoz.url_shortener.repository.ClickRollupRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Собирает клики в минутные бакеты в памяти и на flush раскладывает их
+ * в часовые и дневные rollup-таблицы (оба upsert'а в одной транзакции).
+ */
+@Component
+public class ClickRollupAggregator {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickRollupAggregator.class);
+
+    private static final int COMPACTION_BATCH_SIZE = 10_000;
+
+    // одинаковый порядок строк upsert'а на всех узлах -> без deadlock'ов на горячих бакетах
+    private static final Comparator<RollupKey> ROLLUP_ORDER =
+            Comparator.comparing(RollupKey::linkId).thenComparingLong(RollupKey::bucketStart);
+
+    private final ClickRollupRepository clickRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration hourlyRetention;
+
+    // ссылка -> (epoch minute -> клики): pendingMinutes читает только бакеты своей ссылки
+    private final Generations<UUID, Map<Long, LongAdder>> buckets = new Generations<>(k -> new ConcurrentHashMap<>());
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public ClickRollupAggregator(ClickRollupRepository clickRollupRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${app.analytics.hourly-retention-days:90}") long hourlyRetentionDays) {
+        this.clickRollupRepository = clickRollupRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.hourlyRetention = Duration.ofDays(hourlyRetentionDays);
+    }
+
+    public void record(ClickEvent event) {
+        long minute = Math.floorDiv(event.occurredAt().getEpochSecond(), 60);
+        buckets.update(event.linkId(), minutes -> minutes.computeIfAbsent(minute, m -> new LongAdder()).increment());
+    }
+
+    /**
+     * Ещё не записанные в БД минутные бакеты ссылки: (начало минуты в epoch seconds, клики).
+     */
+    public Map<Long, Long> pendingMinutes(UUID linkId) {
+        Map<Long, Long> result = new HashMap<>();
+        buckets.forEachPending(linkId, minutes -> minutes.forEach((minute, adder) -> {
+            long clicks = adder.sum();
+            if (clicks != 0) {
+                result.merge(minute * 60, clicks, Long::sum);
+            }
+        }));
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.flush-interval-ms:10000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            buckets.drain(this::write);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Компакция: часовые бакеты старше retention удаляются небольшими пачками,
+     * дневные rollup'ы за тот же период остаются.
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.compaction-interval-ms:3600000}")
+    public void compact() {
+        Instant before = ClickGranularity.DAY.truncate(Instant.now().minus(hourlyRetention));
+        long total = 0;
+        int deleted;
+        do {
+            deleted = clickRollupRepository.deleteBefore(ClickGranularity.HOUR, before, COMPACTION_BATCH_SIZE);
+            total += deleted;
+        } while (deleted == COMPACTION_BATCH_SIZE);
+
+        if (total > 0) {
+            log.info("Compacted {} hourly click buckets older than {}", total, before);
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        flush();
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    private void write(Map<UUID, Map<Long, LongAdder>> pending) {
+        Map<RollupKey, Long> hourly = new TreeMap<>(ROLLUP_ORDER);
+        Map<RollupKey, Long> daily = new TreeMap<>(ROLLUP_ORDER);
+
+        pending.forEach((linkId, minutes) -> minutes.forEach((minute, adder) -> {
+            long clicks = adder.sum();
+            if (clicks == 0) return;
+            long second = minute * 60;
+            hourly.merge(new RollupKey(linkId, ClickGranularity.HOUR.truncate(second)), clicks, Long::sum);
+            daily.merge(new RollupKey(linkId, ClickGranularity.DAY.truncate(second)), clicks, Long::sum);
+        }));
+        if (hourly.isEmpty()) return;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                upsert(ClickGranularity.HOUR, hourly);
+                upsert(ClickGranularity.DAY, daily);
+            });
+        } catch (RuntimeException e) {
+            // транзакция откатилась целиком -> возвращаем минуты в память до следующего flush
+            log.warn("Failed to flush minute click buckets of {} links, will retry", pending.size(), e);
+            buckets.dropInFlight();
+            pending.forEach((linkId, minutes) -> minutes.forEach((minute, adder) -> {
+                long clicks = adder.sum();
+                buckets.update(linkId, m -> m.computeIfAbsent(minute, k -> new LongAdder()).add(clicks));
+            }));
+        }
+    }
+
+    private void upsert(ClickGranularity granularity, Map<RollupKey, Long> rollups) {
+        int n = rollups.size();
+        UUID[] linkIds = new UUID[n];
+        Long[] starts = new Long[n];
+        Long[] clicks = new Long[n];
+
+        int i = 0;
+        for (Map.Entry<RollupKey, Long> e : rollups.entrySet()) {
+            linkIds[i] = e.getKey().linkId();
+            starts[i] = e.getKey().bucketStart();
+            clicks[i++] = e.getValue();
+        }
+        clickRollupRepository.addClicks(granularity, linkIds, starts, clicks);
+    }
+
+    private record RollupKey(UUID linkId, long bucketStart) {
+    }
+}
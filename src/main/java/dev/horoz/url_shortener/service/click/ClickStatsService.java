@@ -0,0 +1,99 @@
+package dev.horoz.url_shortener.service.click;
+
+import dev.horoz.url_shortener.domain.ClickGranularity;
+import dev.horoz.url_shortener.dto.link.ClickBucketDto;
+import dev.horoz.url_shortener.repository.ClickRollupRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Чтение статистики кликов: rollup-таблицы + то, что этот узел ещё не успел записать.
+ */
+@Service
+public class ClickStatsService {
+
+    static final int MAX_BUCKETS = 2_000;
+
+    private final ClickRollupRepository clickRollupRepository;
+    private final ClickCounter clickCounter;
+    private final ClickRollupAggregator clickRollupAggregator;
+    private final UniqueVisitorTracker uniqueVisitorTracker;
+
+    public ClickStatsService(ClickRollupRepository clickRollupRepository,
+                             ClickCounter clickCounter,
+                             ClickRollupAggregator clickRollupAggregator,
+                             UniqueVisitorTracker uniqueVisitorTracker) {
+        this.clickRollupRepository = clickRollupRepository;
+        this.clickCounter = clickCounter;
+        this.clickRollupAggregator = clickRollupAggregator;
+        this.uniqueVisitorTracker = uniqueVisitorTracker;
+    }
+
+    public long pendingClicks(UUID linkId) {
+        return clickCounter.pending(linkId);
+    }
+
+    /**
+     * Оценка (HyperLogLog) уникальных посетителей ссылки за всё время по всем узлам.
+     */
+    public long uniqueVisitors(UUID linkId) {
+        return uniqueVisitorTracker.estimate(linkId);
+    }
+
+    public ClickGranularity parseGranularity(String value) {
+        if (value == null || value.isBlank()) return ClickGranularity.HOUR;
+        try {
+            return ClickGranularity.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "granularity must be one of: hour, day");
+        }
+    }
+
+    /**
+     * Бакеты [from, to) с ненулевым числом кликов, по возрастанию начала бакета.
+     * from выравнивается вниз по границе бакета. Для дневных бакетов заполняется
+     * оценка уникальных посетителей, для часовых она null.
+     */
+    public List<ClickBucketDto> series(UUID linkId, Instant from, Instant to, ClickGranularity granularity) {
+        Instant alignedFrom = granularity.truncate(from);
+        if (!alignedFrom.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to");
+        }
+        long buckets = (to.getEpochSecond() - alignedFrom.getEpochSecond()) / granularity.seconds();
+        if (buckets > MAX_BUCKETS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Range is too large: at most %d %s buckets".formatted(MAX_BUCKETS, granularity.name().toLowerCase(Locale.ROOT)));
+        }
+
+        TreeMap<Instant, Long> merged = new TreeMap<>();
+        for (ClickBucketDto bucket : clickRollupRepository.find(granularity, linkId, alignedFrom, to)) {
+            merged.merge(bucket.start(), bucket.clicks(), Long::sum);
+        }
+
+        long fromSec = alignedFrom.getEpochSecond();
+        long toSec = to.getEpochSecond();
+        for (Map.Entry<Long, Long> minute : clickRollupAggregator.pendingMinutes(linkId).entrySet()) {
+            long second = minute.getKey();
+            if (second < fromSec || second >= toSec) continue;
+            merged.merge(Instant.ofEpochSecond(granularity.truncate(second)), minute.getValue(), Long::sum);
+        }
+
+        Map<Long, Long> uniques = granularity == ClickGranularity.DAY
+                ? uniqueVisitorTracker.dailyEstimates(linkId, alignedFrom, to)
+                : Map.of();
+
+        List<ClickBucketDto> result = new ArrayList<>(merged.size());
+        merged.forEach((start, clicks) -> result.add(new ClickBucketDto(start, clicks,
+                granularity == ClickGranularity.DAY ? uniques.getOrDefault(start.getEpochSecond(), 0L) : null)));
+        return result;
+    }
+}
@@ -0,0 +1,128 @@
+package dev.horoz.url_shortener.service.click;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Изменяемые значения в памяти с "поколениями" для write-behind записи в БД.
+ *
+ * Писатели обновляют значение в текущем поколении. drain() подменяет поколение
+ * новым и ждёт, пока из старого выйдут все писатели, успевшие в него зайти, -
+ * поэтому ни одно обновление не теряется и не отдаётся дважды.
+ * Пока старое поколение пишется в БД, оно остаётся видимым через forEachPending().
+ */
+final class Generations<K, V> {
+
+    private final Function<? super K, ? extends V> factory;
+
+    private volatile Generation<K, V> current = new Generation<>();
+    private volatile Generation<K, V> inFlight = new Generation<>();
+
+    Generations(Function<? super K, ? extends V> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * @return число ключей в текущем поколении (для порога flush)
+     */
+    int update(K key, Consumer<? super V> action) {
+        int stripe = Generation.stripe();
+        for (;;) {
+            Generation<K, V> gen = current;
+            gen.enter(stripe);
+            try {
+                // drain уже забрал это поколение -> пишем в новое
+                if (gen != current) continue;
+
+                V value = gen.values.get(key);
+                if (value == null) {
+                    value = gen.values.computeIfAbsent(key, factory);
+                }
+                action.accept(value);
+                return gen.values.size();
+            } finally {
+                gen.exit(stripe);
+            }
+        }
+    }
+
+    /**
+     * Ещё не записанные значения ключа: то, что пишется сейчас, и текущее поколение.
+     */
+    void forEachPending(K key, Consumer<? super V> action) {
+        V writing = inFlight.values.get(key);
+        if (writing != null) action.accept(writing);
+        V value = current.values.get(key);
+        if (value != null) action.accept(value);
+    }
+
+    void forEachPending(BiConsumer<? super K, ? super V> action) {
+        inFlight.values.forEach(action);
+        current.values.forEach(action);
+    }
+
+    /**
+     * Забирает текущее поколение и отдаёт его writer'у. Вызывающий код сериализует drain'ы.
+     * Если writer упал, он сам возвращает значения через update() - предварительно вызвав
+     * dropInFlight(), иначе forEachPending() увидит их дважды.
+     */
+    void drain(Consumer<Map<K, V>> writer) {
+        Generation<K, V> toWrite = current;
+        inFlight = toWrite;
+        current = new Generation<>();
+        try {
+            toWrite.awaitWriters();
+            if (!toWrite.values.isEmpty()) {
+                writer.accept(toWrite.values);
+            }
+        } finally {
+            inFlight = new Generation<>();
+        }
+    }
+
+    /**
+     * Прячет пишущееся поколение от forEachPending(). Вызывается только из writer'а внутри drain().
+     */
+    void dropInFlight() {
+        inFlight = new Generation<>();
+    }
+
+    /**
+     * Счётчик "писателей внутри" разбит на полосы по потокам. Поток входит и выходит
+     * через одну и ту же полосу, поэтому ненулевая полоса всегда означает, что
+     * кто-то ещё пишет в это поколение.
+     */
+    private static final class Generation<K, V> {
+
+        private static final int STRIPES = 64;
+        // 16 long = 128 байт между полосами, чтобы не было false sharing
+        private static final int PAD = 16;
+
+        final ConcurrentHashMap<K, V> values = new ConcurrentHashMap<>();
+        private final AtomicLongArray writers = new AtomicLongArray(STRIPES * PAD);
+
+        static int stripe() {
+            return (int) (Thread.currentThread().threadId() & (STRIPES - 1)) * PAD;
+        }
+
+        void enter(int stripe) {
+            writers.incrementAndGet(stripe);
+        }
+
+        void exit(int stripe) {
+            writers.decrementAndGet(stripe);
+        }
+
+        void awaitWriters() {
+            for (int i = 0; i < STRIPES * PAD; i += PAD) {
+                while (writers.get(i) != 0) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package dev.horoz.url_shortener.service.click;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog-скетч для оценки числа уникальных значений (p = 12: 4096 регистров, ошибка ~1.6%).
+ *
+ * Скетчи сливаются поэлементным max регистров, поэтому слияние идемпотентно и коммутативно:
+ * скетчи разных узлов и разных flush'ей можно мержить в любом порядке.
+ * Регистры только растут (CAS max), поэтому add/merge можно вызывать из нескольких потоков.
+ *
+ * Пока ненулевых регистров не больше SPARSE_MAX, в памяти лежат только они (int на регистр,
+ * под монитором скетча): у ссылки с парой посетителей скетч занимает десятки байт, а не 4 КБ.
+ * Дальше скетч один раз переходит в плотный массив и работает без блокировок.
+ */
+public final class HyperLogLog {
+
+    static final int P = 12;
+    static final int M = 1 << P;
+
+    private static final byte FORMAT_DENSE = 1;
+    private static final byte FORMAT_SPARSE = 2;
+    private static final int HEADER_BYTES = 2;
+    // регистр <= 64 - P + 1 = 53 -> хватает 6 бит
+    private static final int DENSE_BYTES = M * 6 / 8;
+    // в sparse-формате регистр занимает 3 байта: индекс (2) + значение (1)
+    private static final int SPARSE_ENTRY_BYTES = 3;
+
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / M);
+
+    // 512 int'ов = 2 КБ, половина плотного массива
+    static final int SPARSE_MAX = 512;
+    private static final int SPARSE_INITIAL = 4;
+
+    private static final VarHandle REGISTER = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    // null, пока скетч sparse; публикуется volatile-записью уже заполненным
+    private volatile byte[] registers;
+    // index << 8 | rank по возрастанию index; только под монитором, null после перехода в плотный
+    private int[] sparse;
+    private int sparseSize;
+
+    public HyperLogLog() {
+        this.sparse = new int[SPARSE_INITIAL];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    /**
+     * 64-битный хэш ключа клиента (финализатор MurmurHash3): равномерные старшие биты,
+     * по которым выбирается регистр. Детерминирован - скетчи разных узлов совместимы.
+     */
+    public static long hash(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public void add(long hash) {
+        int index = (int) (hash >>> (64 - P));
+        // сторожевой бит не даёт rank выйти за 64 - P + 1
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << P) | (1L << (P - 1))) + 1);
+        set(index, rank);
+    }
+
+    public void merge(HyperLogLog other) {
+        byte[] theirs = other.registers;
+        if (theirs == null) {
+            int[] entries = other.sparseEntries();
+            if (entries != null) {
+                for (int entry : entries) set(entry >>> 8, (byte) entry);
+                return;
+            }
+            theirs = other.registers;
+        }
+        for (int i = 0; i < M; i++) {
+            byte r = (byte) REGISTER.getOpaque(theirs, i);
+            if (r != 0) set(i, r);
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : snapshot()) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) zeros++;
+        }
+        double estimate = ALPHA * M * M / sum;
+        // на малых кардинальностях HLL смещён вверх -> linear counting по пустым регистрам
+        if (estimate <= 2.5 * M && zeros > 0) {
+            estimate = M * Math.log((double) M / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    // ========================================================================
+    // Сериализация: [format][p] + либо 6 бит на регистр, либо список ненулевых регистров
+    // ========================================================================
+
+    public byte[] toBytes() {
+        byte[] registers = snapshot();
+        int nonZero = 0;
+        for (int i = 0; i < M; i++) {
+            if (registers[i] != 0) nonZero++;
+        }
+
+        if (nonZero * SPARSE_ENTRY_BYTES < DENSE_BYTES) {
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + 2 + nonZero * SPARSE_ENTRY_BYTES);
+            buf.put(FORMAT_SPARSE).put((byte) P).putShort((short) nonZero);
+            for (int i = 0; i < M && nonZero > 0; i++) {
+                byte r = registers[i];
+                if (r == 0) continue;
+                buf.putShort((short) i).put(r);
+                nonZero--;
+            }
+            return buf.array();
+        }
+
+        byte[] out = new byte[HEADER_BYTES + DENSE_BYTES];
+        out[0] = FORMAT_DENSE;
+        out[1] = P;
+        // 4 регистра по 6 бит -> 3 байта
+        for (int i = 0, o = HEADER_BYTES; i < M; i += 4, o += 3) {
+            int packed = registers[i] << 18 | registers[i + 1] << 12 | registers[i + 2] << 6 | registers[i + 3];
+            out[o] = (byte) (packed >>> 16);
+            out[o + 1] = (byte) (packed >>> 8);
+            out[o + 2] = (byte) packed;
+        }
+        return out;
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes.length < HEADER_BYTES || bytes[1] != P) {
+            throw new IllegalArgumentException("Unsupported HyperLogLog sketch");
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes, HEADER_BYTES, bytes.length - HEADER_BYTES);
+
+        switch (bytes[0]) {
+            case FORMAT_SPARSE -> {
+                // маленький сохранённый скетч и в памяти остаётся sparse
+                HyperLogLog hll = new HyperLogLog();
+                int count = Short.toUnsignedInt(buf.getShort());
+                for (int i = 0; i < count; i++) {
+                    hll.set(Short.toUnsignedInt(buf.getShort()), buf.get());
+                }
+                return hll;
+            }
+            case FORMAT_DENSE -> {
+                byte[] registers = new byte[M];
+                for (int i = 0; i < M; i += 4) {
+                    int packed = (buf.get() & 0xFF) << 16 | (buf.get() & 0xFF) << 8 | (buf.get() & 0xFF);
+                    registers[i] = (byte) (packed >>> 18 & 0x3F);
+                    registers[i + 1] = (byte) (packed >>> 12 & 0x3F);
+                    registers[i + 2] = (byte) (packed >>> 6 & 0x3F);
+                    registers[i + 3] = (byte) (packed & 0x3F);
+                }
+                return new HyperLogLog(registers);
+            }
+            default -> throw new IllegalArgumentException("Unsupported HyperLogLog sketch");
+        }
+    }
+
+    boolean isSparse() {
+        return registers == null;
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    private void set(int index, byte rank) {
+        byte[] dense = registers;
+        if (dense == null) {
+            synchronized (this) {
+                dense = registers;
+                if (dense == null) {
+                    if (sparseSet(index, rank)) return;
+                    dense = toDense();
+                }
+            }
+        }
+        raise(dense, index, rank);
+    }
+
+    /**
+     * @return false - места нет, пора в плотный массив
+     */
+    private boolean sparseSet(int index, byte rank) {
+        int lo = 0, hi = sparseSize - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int at = sparse[mid] >>> 8;
+            if (at < index) lo = mid + 1;
+            else if (at > index) hi = mid - 1;
+            else {
+                if ((byte) sparse[mid] < rank) sparse[mid] = index << 8 | rank;
+                return true;
+            }
+        }
+        if (sparseSize == SPARSE_MAX) return false;
+        if (sparseSize == sparse.length) {
+            sparse = Arrays.copyOf(sparse, Math.min(SPARSE_MAX, sparse.length * 2));
+        }
+        System.arraycopy(sparse, lo, sparse, lo + 1, sparseSize - lo);
+        sparse[lo] = index << 8 | rank;
+        sparseSize++;
+        return true;
+    }
+
+    private byte[] toDense() {
+        byte[] dense = new byte[M];
+        for (int i = 0; i < sparseSize; i++) {
+            dense[sparse[i] >>> 8] = (byte) sparse[i];
+        }
+        registers = dense;
+        sparse = null;
+        return dense;
+    }
+
+    /**
+     * @return копия sparse-регистров или null, если скетч уже плотный
+     */
+    private synchronized int[] sparseEntries() {
+        return registers != null ? null : Arrays.copyOf(sparse, sparseSize);
+    }
+
+    /**
+     * Регистры целиком: плотный массив как есть, sparse - развёрнутой копией.
+     */
+    private byte[] snapshot() {
+        byte[] dense = registers;
+        if (dense != null) return dense;
+        synchronized (this) {
+            if (registers != null) return registers;
+            byte[] copy = new byte[M];
+            for (int i = 0; i < sparseSize; i++) {
+                copy[sparse[i] >>> 8] = (byte) sparse[i];
+            }
+            return copy;
+        }
+    }
+
+    private static void raise(byte[] registers, int index, byte value) {
+        byte current = (byte) REGISTER.getOpaque(registers, index);
+        while (current < value) {
+            byte witness = (byte) REGISTER.compareAndExchange(registers, index, current, value);
+            if (witness == current) return;
+            current = witness;
+        }
+    }
+}
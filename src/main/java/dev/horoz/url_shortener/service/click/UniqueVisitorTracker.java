@@ -0,0 +1,261 @@
+package dev.horoz.url_shortener.service.click;
+
+import dev.horoz.url_shortener.domain.ClickGranularity;
+import dev.horoz.url_shortener.repository.VisitorSketchRepository;
+import dev.horoz.url_shortener.repository.VisitorSketchRepository.NodeSketch;
+import dev.horoz.url_shortener.repository.VisitorSketchRepository.StoredSketch;
+import dev.horoz.url_shortener.security.ClientAddresses;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Уникальные посетители ссылок: HyperLogLog-скетч на ссылку (за всё время) и на (ссылку, день).
+ *
+ * В памяти живут только скетчи ссылок, которые кликали с прошлого flush'а. На flush они
+ * мержатся со строкой этого узла в БД (SELECT ... FOR UPDATE + upsert) - слияние HLL
+ * идемпотентно, поэтому повтор после ошибки ничего не задваивает.
+ * Скетч с парой посетителей sparse и почти ничего не весит; число живых скетчей ограничено
+ * порогом flush-threshold - дальше flush запускается досрочно.
+ *
+ * Строки узлов, которые давно не писали (прошлые поды после редеплоя), compact() сливает
+ * в общую строку MERGED_NODE - по той же идемпотентности слияния.
+ */
+@Component
+public class UniqueVisitorTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(UniqueVisitorTracker.class);
+
+    private static final int COMPACTION_BATCH_SIZE = 1_000;
+    private static final Comparator<StoredSketch> SKETCH_KEY_ORDER =
+            Comparator.comparing(StoredSketch::linkId).thenComparingLong(StoredSketch::bucketStart);
+
+    private final VisitorSketchRepository visitorSketchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId;
+    private final int flushThreshold;
+    private final Duration nodeRetention;
+
+    private final Generations<UUID, HyperLogLog> totals = new Generations<>(k -> new HyperLogLog());
+    // ссылка -> (начало дня -> скетч): dailyEstimates читает только скетчи своей ссылки
+    private final Generations<UUID, Map<Long, HyperLogLog>> daily = new Generations<>(k -> new ConcurrentHashMap<>());
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "visitor-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public UniqueVisitorTracker(VisitorSketchRepository visitorSketchRepository,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${app.node-id:local}") String nodeId,
+                                @Value("${app.analytics.visitors-flush-threshold:10000}") int flushThreshold,
+                                @Value("${app.analytics.visitors-node-retention:1d}") Duration nodeRetention) {
+        this.visitorSketchRepository = visitorSketchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.nodeId = nodeId;
+        this.flushThreshold = flushThreshold;
+        this.nodeRetention = nodeRetention;
+    }
+
+    public void record(ClickEvent event) {
+        if (event.visitorKey() == ClientAddresses.INVALID) return;
+
+        long hash = HyperLogLog.hash(event.visitorKey());
+        long day = ClickGranularity.DAY.truncate(event.occurredAt().getEpochSecond());
+        int size = totals.update(event.linkId(), hll -> hll.add(hash));
+        daily.update(event.linkId(), days -> days.computeIfAbsent(day, d -> new HyperLogLog()).add(hash));
+
+        if (size >= flushThreshold && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Оценка уникальных посетителей за всё время: скетчи всех узлов + незаписанный скетч этого узла.
+     */
+    public long estimate(UUID linkId) {
+        HyperLogLog merged = new HyperLogLog();
+        for (byte[] sketch : visitorSketchRepository.findTotal(linkId)) {
+            merged.merge(HyperLogLog.fromBytes(sketch));
+        }
+        totals.forEachPending(linkId, merged::merge);
+        return merged.estimate();
+    }
+
+    /**
+     * Оценки по дням в [from, to): (начало дня в epoch seconds, уникальные посетители).
+     */
+    public Map<Long, Long> dailyEstimates(UUID linkId, Instant from, Instant to) {
+        Map<Long, HyperLogLog> merged = new HashMap<>();
+        for (StoredSketch stored : visitorSketchRepository.findDaily(linkId, from, to)) {
+            merged.computeIfAbsent(stored.bucketStart(), k -> new HyperLogLog())
+                    .merge(HyperLogLog.fromBytes(stored.sketch()));
+        }
+
+        long fromSec = from.getEpochSecond();
+        long toSec = to.getEpochSecond();
+        daily.forEachPending(linkId, days -> days.forEach((day, hll) -> {
+            if (day < fromSec || day >= toSec) return;
+            merged.computeIfAbsent(day, k -> new HyperLogLog()).merge(hll);
+        }));
+
+        Map<Long, Long> result = new HashMap<>();
+        merged.forEach((day, hll) -> result.put(day, hll.estimate()));
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.visitors-flush-interval-ms:30000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            totals.drain(this::writeTotals);
+            daily.drain(this::writeDaily);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Сливает строки узлов, не обновлявшиеся дольше visitors-node-retention, в строку MERGED_NODE.
+     * Живой узел, чью строку слили, на следующем flush просто создаст её заново.
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.compaction-interval-ms:3600000}")
+    public void compact() {
+        Instant before = Instant.now().minus(nodeRetention);
+        long total = 0;
+        int merged;
+        do {
+            merged = compactBatch(before, false);
+            total += merged;
+        } while (merged == COMPACTION_BATCH_SIZE);
+        do {
+            merged = compactBatch(before, true);
+            total += merged;
+        } while (merged == COMPACTION_BATCH_SIZE);
+
+        if (total > 0) {
+            log.info("Merged {} visitor sketch rows of nodes idle since {}", total, before);
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        flushExecutor.shutdown();
+        flush();
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    private void writeTotals(Map<UUID, HyperLogLog> sketches) {
+        UUID[] linkIds = sketches.keySet().toArray(UUID[]::new);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (StoredSketch stored : visitorSketchRepository.lockTotal(nodeId, linkIds)) {
+                    sketches.get(stored.linkId()).merge(HyperLogLog.fromBytes(stored.sketch()));
+                }
+                List<StoredSketch> rows = new ArrayList<>(sketches.size());
+                sketches.forEach((linkId, hll) -> rows.add(new StoredSketch(linkId, 0, hll.toBytes())));
+                visitorSketchRepository.saveTotal(nodeId, rows);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush {} visitor sketches, will retry", sketches.size(), e);
+            totals.dropInFlight();
+            sketches.forEach((linkId, hll) -> totals.update(linkId, current -> current.merge(hll)));
+        }
+    }
+
+    private void writeDaily(Map<UUID, Map<Long, HyperLogLog>> sketches) {
+        List<UUID> linkIds = new ArrayList<>();
+        List<Long> days = new ArrayList<>();
+        sketches.forEach((linkId, byDay) -> byDay.keySet().forEach(day -> {
+            linkIds.add(linkId);
+            days.add(day);
+        }));
+        int n = linkIds.size();
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (StoredSketch stored : visitorSketchRepository.lockDaily(nodeId, linkIds.toArray(UUID[]::new),
+                        days.toArray(Long[]::new))) {
+                    sketches.get(stored.linkId()).get(stored.bucketStart())
+                            .merge(HyperLogLog.fromBytes(stored.sketch()));
+                }
+                List<StoredSketch> rows = new ArrayList<>(n);
+                sketches.forEach((linkId, byDay) -> byDay.forEach((day, hll) ->
+                        rows.add(new StoredSketch(linkId, day, hll.toBytes()))));
+                visitorSketchRepository.saveDaily(nodeId, rows);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush {} daily visitor sketches, will retry", n, e);
+            daily.dropInFlight();
+            sketches.forEach((linkId, byDay) -> byDay.forEach((day, hll) -> daily.update(linkId,
+                    current -> current.computeIfAbsent(day, d -> new HyperLogLog()).merge(hll))));
+        }
+    }
+
+    /**
+     * Одна транзакция: залоченные устаревшие строки + строки MERGED_NODE тех же ключей -> новая MERGED_NODE.
+     *
+     * @return сколько строк узлов слито
+     */
+    private int compactBatch(Instant before, boolean perDay) {
+        Integer merged = transactionTemplate.execute(status -> {
+            List<NodeSketch> stale = perDay
+                    ? visitorSketchRepository.lockStaleDaily(before, COMPACTION_BATCH_SIZE)
+                    : visitorSketchRepository.lockStaleTotal(before, COMPACTION_BATCH_SIZE);
+            if (stale.isEmpty()) return 0;
+
+            // порядок ключей = порядок блокировок строк MERGED_NODE у всех узлов
+            Map<StoredSketch, HyperLogLog> byKey = new TreeMap<>(SKETCH_KEY_ORDER);
+            for (NodeSketch s : stale) {
+                byKey.computeIfAbsent(new StoredSketch(s.linkId(), s.bucketStart(), null), k -> new HyperLogLog())
+                        .merge(HyperLogLog.fromBytes(s.sketch()));
+            }
+            UUID[] linkIds = byKey.keySet().stream().map(StoredSketch::linkId).toArray(UUID[]::new);
+            List<StoredSketch> existing = perDay
+                    ? visitorSketchRepository.lockDaily(VisitorSketchRepository.MERGED_NODE, linkIds,
+                            byKey.keySet().stream().map(StoredSketch::bucketStart).toArray(Long[]::new))
+                    : visitorSketchRepository.lockTotal(VisitorSketchRepository.MERGED_NODE, linkIds);
+            for (StoredSketch stored : existing) {
+                byKey.get(new StoredSketch(stored.linkId(), stored.bucketStart(), null))
+                        .merge(HyperLogLog.fromBytes(stored.sketch()));
+            }
+
+            List<StoredSketch> rows = new ArrayList<>(byKey.size());
+            byKey.forEach((key, hll) -> rows.add(new StoredSketch(key.linkId(), key.bucketStart(), hll.toBytes())));
+            if (perDay) {
+                visitorSketchRepository.saveDaily(VisitorSketchRepository.MERGED_NODE, rows);
+                visitorSketchRepository.deleteDaily(stale);
+            } else {
+                visitorSketchRepository.saveTotal(VisitorSketchRepository.MERGED_NODE, rows);
+                visitorSketchRepository.deleteTotal(stale);
+            }
+            return stale.size();
+        });
+        return merged == null ? 0 : merged;
+    }
+}
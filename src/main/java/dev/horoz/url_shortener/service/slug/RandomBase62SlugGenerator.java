@@ -1,24 +1,160 @@
 package dev.horoz.url_shortener.service.slug;
 
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Случайные base62 slug'и без общего узкого места.
+ *
+ * Случайные байты берутся пачками (POOL_BYTES за вызов SecureRandom) из полос (stripe): у каждой
+ * свой DRBG и свой lock, поток идёт в свою полосу по threadId, при занятой - в соседнюю свободную.
+ * Полосы, а не ThreadLocal: на виртуальных потоках ThreadLocal-состояние создавалось бы на каждый запрос.
+ * Байт -> символ: младшие 6 бит, значения 62 и 63 отбрасываются - без перекоса от остатка по модулю.
+ *
+ * Длина - app.slug.length; lengthCheck() увеличивает её, когда вероятность попасть новым slug'ом
+ * в существующий (ссылок / 62^длина) превышает app.slug.max-collision-probability. Длина только растёт.
+ */
 @Component
+@ConditionalOnProperty(name = "app.slug.strategy", havingValue = "random", matchIfMissing = true)
 public class RandomBase62SlugGenerator implements SlugGenerator {
 
-    private static final char[] ALPHABET =
-            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final Logger log = LoggerFactory.getLogger(RandomBase62SlugGenerator.class);
 
-    private final SecureRandom random = new SecureRandom();
+    // links.slug VARCHAR(32)
+    static final int MAX_LENGTH = 32;
+
+    private static final byte[] ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.US_ASCII);
+    private static final int POOL_BYTES = 512;
+
+    private final LinkJdbcRepository linkJdbcRepository;
+    private final double maxCollisionProbability;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    private volatile int length;
+
+    public RandomBase62SlugGenerator(LinkJdbcRepository linkJdbcRepository,
+                                     @Value("${app.slug.length:8}") int length,
+                                     @Value("${app.slug.max-collision-probability:0.001}") double maxCollisionProbability,
+                                     MeterRegistry meterRegistry) {
+        if (length < 1 || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("app.slug.length must be within 1.." + MAX_LENGTH + ": " + length);
+        }
+        this.linkJdbcRepository = linkJdbcRepository;
+        this.length = length;
+        this.maxCollisionProbability = maxCollisionProbability;
+
+        int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = n - 1;
+
+        Gauge.builder("slug.random.length", this, g -> g.length)
+                .description("Current length of random slugs")
+                .register(meterRegistry);
+    }
 
     @Override
     public String nextSlug() {
-        int length = 8;
-        char[] buf = new char[length];
-        for (int i = 0; i < length; i++) {
-            buf[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        int len = length;
+        Stripe stripe = acquireStripe();
+        try {
+            byte[] out = stripe.slug;
+            int filled = 0;
+            while (filled < len) {
+                if (stripe.position == POOL_BYTES) {
+                    stripe.random.nextBytes(stripe.pool);
+                    stripe.position = 0;
+                }
+                int v = stripe.pool[stripe.position++] & 0x3F;
+                if (v < ALPHABET.length) {
+                    out[filled++] = ALPHABET[v];
+                }
+            }
+            return new String(out, 0, len, StandardCharsets.US_ASCII);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * Пересчёт длины по оценке числа ссылок (pg_class.reltuples, без count(*)); первый запуск - после старта.
+     */
+    @Scheduled(fixedDelayString = "${app.slug.length-check-interval-ms:600000}")
+    public void lengthCheck() {
+        try {
+            growFor(linkJdbcRepository.estimatedLinkCount());
+        } catch (RuntimeException e) {
+            log.warn("Slug length check failed", e);
+        }
+    }
+
+    void growFor(long links) {
+        // -1: таблица ещё ни разу не анализировалась
+        if (links <= 0) return;
+        int current = length;
+        // links / 62^L <= p  =>  L >= log62(links / p)
+        int required = (int) Math.ceil(Math.log(links / maxCollisionProbability) / Math.log(ALPHABET.length));
+        if (required <= current) return;
+        if (required > MAX_LENGTH) {
+            log.warn("Slug length {} required for {} links exceeds the column limit {}", required, links, MAX_LENGTH);
+            required = MAX_LENGTH;
+            if (current == MAX_LENGTH) return;
+        }
+        length = required;
+        log.info("Random slug length grown from {} to {} for ~{} links", current, required, links);
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    private Stripe acquireStripe() {
+        int home = (int) Thread.currentThread().threadId();
+        for (int i = 0; i <= stripeMask; i++) {
+            Stripe stripe = stripes[(home + i) & stripeMask];
+            if (stripe.lock.tryLock()) return stripe;
+        }
+        Stripe stripe = stripes[home & stripeMask];
+        stripe.lock.lock();
+        return stripe;
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final SecureRandom random = newRandom();
+        final byte[] pool = new byte[POOL_BYTES];
+        final byte[] slug = new byte[MAX_LENGTH];
+        int position = POOL_BYTES;
+    }
+
+    /**
+     * DRBG синхронизируется на экземпляре; NativePRNG по умолчанию - на общем для всех экземпляров lock'е.
+     */
+    private static SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
         }
-        return new String(buf);
     }
 }
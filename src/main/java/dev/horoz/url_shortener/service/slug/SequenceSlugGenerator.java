@@ -0,0 +1,142 @@
+package dev.horoz.url_shortener.service.slug;
+
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import dev.horoz.url_shortener.repository.LinkJdbcRepository.SlugBlock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Slug'и без коллизий: id берутся блоками из links_slug_seq и раздаются из памяти,
+ * каждый id проходит через ключевую перестановку (сеть Фейстеля на 46 битах) и пишется в base62.
+ *
+ * Перестановка - биекция, поэтому разные id дают разные slug'и и вставка не ретраится,
+ * а без ключа (app.slug.secret) соседние id не угадать по выданному slug'у.
+ * 2^46 < 62^8, так что slug всегда ровно 8 символов.
+ */
+@Component
+@ConditionalOnProperty(name = "app.slug.strategy", havingValue = "sequence")
+public class SequenceSlugGenerator implements SlugGenerator {
+
+    static final int ID_BITS = 46;
+    static final long MAX_ID = (1L << ID_BITS) - 1;
+
+    private static final int HALF_BITS = ID_BITS / 2;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+    private static final int LENGTH = 8;
+
+    private static final char[] ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private final LinkJdbcRepository linkJdbcRepository;
+    private final long[] roundKeys;
+
+    private final ReentrantLock refillLock = new ReentrantLock();
+    private volatile Block block = new Block(0, 0);
+
+    public SequenceSlugGenerator(LinkJdbcRepository linkJdbcRepository,
+                                 @Value("${app.slug.secret}") String secret) {
+        this.linkJdbcRepository = linkJdbcRepository;
+        this.roundKeys = roundKeys(secret);
+    }
+
+    @Override
+    public String nextSlug() {
+        while (true) {
+            Block current = block;
+            long id = current.cursor.getAndIncrement();
+            if (id < current.end) {
+                return encode(permute(id));
+            }
+            refill(current);
+        }
+    }
+
+    /**
+     * Сбалансированная сеть Фейстеля: 23-битные половины, раунды с ключами из секрета.
+     */
+    long permute(long id) {
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalStateException("Slug id space exhausted: " + id);
+        }
+        long left = id >>> HALF_BITS;
+        long right = id & HALF_MASK;
+        for (long key : roundKeys) {
+            long next = left ^ round(right, key);
+            left = right;
+            right = next;
+        }
+        return left << HALF_BITS | right;
+    }
+
+    // ========================================================================
+    // Private helpers
+    // ========================================================================
+
+    private void refill(Block exhausted) {
+        refillLock.lock();
+        try {
+            // блок мог уже обновить другой поток, пока мы ждали lock
+            if (block == exhausted) {
+                SlugBlock reserved = linkJdbcRepository.reserveSlugBlock();
+                block = new Block(reserved.start(), reserved.start() + reserved.size());
+            }
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    private static String encode(long value) {
+        char[] buf = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            buf[i] = ALPHABET[(int) (value % ALPHABET.length)];
+            value /= ALPHABET.length;
+        }
+        return new String(buf);
+    }
+
+    private static long round(long half, long key) {
+        long h = half ^ key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h & HALF_MASK;
+    }
+
+    private static long[] roundKeys(String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("app.slug.secret must be set for the sequence slug strategy");
+        }
+        try {
+            ByteBuffer digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256")
+                    .digest(secret.getBytes(StandardCharsets.UTF_8)));
+            long[] keys = new long[ROUNDS];
+            for (int i = 0; i < ROUNDS; i++) {
+                keys[i] = digest.getLong();
+            }
+            return keys;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Block {
+        final AtomicLong cursor;
+        final long end;
+
+        Block(long start, long end) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
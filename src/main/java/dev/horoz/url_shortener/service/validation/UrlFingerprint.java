@@ -0,0 +1,67 @@
+package dev.horoz.url_shortener.service.validation;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Каноническая форма target URL и её 64-битный хэш (links.url_hash) для дедупликации ссылок.
+ *
+ * Каноническая форма сохраняет прежнюю семантику сравнения без учёта регистра и дополнительно
+ * склеивает очевидно одинаковые адреса: порт по умолчанию и пустой путь.
+ * Хэш - первые 8 байт MD5 (не для безопасности): совпадение хэша ещё не равенство URL,
+ * вызывающий сверяет канонические формы.
+ */
+public final class UrlFingerprint {
+
+    private UrlFingerprint() {}
+
+    /**
+     * @param url URL после UrlValidationService.normalizeAndValidateUrl
+     */
+    public static String canonical(String url) {
+        String lower = url.trim().toLowerCase(Locale.ROOT);
+        URI uri;
+        try {
+            uri = new URI(lower);
+        } catch (URISyntaxException e) {
+            return lower;
+        }
+        if (uri.getScheme() == null || uri.getRawAuthority() == null || uri.getHost() == null) {
+            return lower;
+        }
+
+        int port = uri.getPort();
+        if ((port == 80 && uri.getScheme().equals("http")) || (port == 443 && uri.getScheme().equals("https"))) {
+            port = -1;
+        }
+        String path = uri.getRawPath();
+
+        StringBuilder sb = new StringBuilder(lower.length() + 1)
+                .append(uri.getScheme()).append("://");
+        if (uri.getRawUserInfo() != null) sb.append(uri.getRawUserInfo()).append('@');
+        sb.append(uri.getHost());
+        if (port != -1) sb.append(':').append(port);
+        sb.append(path == null || path.isEmpty() ? "/" : path);
+        if (uri.getRawQuery() != null) sb.append('?').append(uri.getRawQuery());
+        if (uri.getRawFragment() != null) sb.append('#').append(uri.getRawFragment());
+        return sb.toString();
+    }
+
+    public static long hash(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(canonical(url).getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static boolean sameUrl(String a, String b) {
+        return canonical(a).equals(canonical(b));
+    }
+}
@@ -4,11 +4,17 @@ import org.springframework.stereotype.Service;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 
 @Service
 public class UrlValidationService {
 
+    // target_url входит в покрывающий индекс links_slug_uidx (V2), а строка btree-индекса
+    // ограничена ~2.7 KB - длинные URL ломали бы вставку. Лимит в байтах UTF-8, не в символах:
+    // 2048 кириллических символов - это уже 4 KB
+    public static final int MAX_URL_LENGTH = 2048;
+
     public String normalizeAndValidateUrl(String rawUrl) {
         if (rawUrl.isBlank()) {
             throw new InvalidTargetUrlException("targetUrl is required");
@@ -19,6 +25,11 @@ public class UrlValidationService {
             throw new InvalidTargetUrlException("targetUrl must not be blank");
         }
 
+        // length() - дешёвая нижняя оценка числа байт, огромную строку не кодируем
+        if (trimmed.length() > MAX_URL_LENGTH || trimmed.getBytes(StandardCharsets.UTF_8).length > MAX_URL_LENGTH) {
+            throw new InvalidTargetUrlException("targetUrl must be at most " + MAX_URL_LENGTH + " bytes");
+        }
+
         final URI uri;
         try {
             uri = new URI(trimmed);
@@ -0,0 +1,13 @@
+-- Истёкшие ссылки, которые ExpiredLinkReaper переносит сюда при app.links.expired-reaper.archive=true.
+-- Без внешних ключей и индексов кроме PK: таблица только пополняется и читается вручную.
+-- Rollup'ы кликов и скетчи посетителей удаляются каскадом вместе со строкой links, остаётся clicks_total.
+CREATE TABLE links_archive (
+    id UUID PRIMARY KEY,
+    user_id UUID,
+    slug VARCHAR(32) NOT NULL,
+    target_url TEXT NOT NULL,
+    expires_at TIMESTAMPTZ NOT NULL,
+    clicks_total BIGINT NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL,
+    archived_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
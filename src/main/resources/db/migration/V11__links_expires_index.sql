@@ -0,0 +1,5 @@
+-- ExpiredLinkReaper идёт по истёкшим ссылкам keyset'ом (expires_at, id).
+-- Частичный: бессрочные ссылки (expires_at IS NULL) в индекс не попадают.
+-- CONCURRENTLY не блокирует запись в links; вне транзакции - см. V11__links_expires_index.sql.conf
+CREATE INDEX CONCURRENTLY IF NOT EXISTS links_expires_idx ON links (expires_at, id)
+    WHERE expires_at IS NOT NULL;
@@ -0,0 +1,12 @@
+-- Строки скетчей разделены по node_id (HOSTNAME пода), и каждый редеплой добавлял новые.
+-- UniqueVisitorTracker.compact() сливает строки, не обновлявшиеся дольше
+-- app.analytics.visitors-node-retention, в общую строку node_id = '*'.
+-- ADD COLUMN с константным default не переписывает таблицу (PG 11+); существующие строки получают now().
+ALTER TABLE link_visitor_sketches ADD COLUMN IF NOT EXISTS updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+ALTER TABLE link_visitor_sketches_daily ADD COLUMN IF NOT EXISTS updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+
+-- CONCURRENTLY не блокирует запись скетчей; вне транзакции - см. V12__visitor_sketches_updated_at.sql.conf
+CREATE INDEX CONCURRENTLY IF NOT EXISTS link_visitor_sketches_stale_idx
+    ON link_visitor_sketches (updated_at) WHERE node_id <> '*';
+CREATE INDEX CONCURRENTLY IF NOT EXISTS link_visitor_sketches_daily_stale_idx
+    ON link_visitor_sketches_daily (updated_at) WHERE node_id <> '*';
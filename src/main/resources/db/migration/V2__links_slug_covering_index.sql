@@ -0,0 +1,32 @@
+-- Покрывающий уникальный индекс для redirect: (id, target_url, expires_at) читаются
+-- прямо из индекса (index-only scan), без похода в heap.
+-- Имя ограничения сохраняем: LinkService.isUniqueSlugViolation ищет links_slug_uidx.
+--
+-- Строка btree-индекса ограничена ~2.7 KB, а target_url теперь в ней. Новые URL ограничены
+-- 2048 байтами (UrlValidationService.MAX_URL_LENGTH), старые - нет: на длинном URL построение
+-- индекса упало бы посреди миграции с невнятной ошибкой. Проверяем заранее. Найти строки:
+--   SELECT id, slug, octet_length(target_url) FROM links WHERE octet_length(target_url) > 2048;
+-- и решить с владельцами (удалить или укоротить URL), затем повторить миграцию.
+DO $$
+DECLARE
+    too_long BIGINT;
+BEGIN
+    SELECT count(*) INTO too_long FROM links WHERE octet_length(target_url) > 2048;
+    IF too_long > 0 THEN
+        RAISE EXCEPTION '% links have target_url longer than 2048 bytes and would not fit links_slug_uidx', too_long
+            USING HINT = 'SELECT id, slug, octet_length(target_url) FROM links WHERE octet_length(target_url) > 2048';
+    END IF;
+END
+$$;
+
+ALTER TABLE links DROP CONSTRAINT links_slug_uidx;
+ALTER TABLE links ADD CONSTRAINT links_slug_uidx UNIQUE (slug) INCLUDE (target_url, expires_at, id);
+
+-- Index-only scan работает только по all-visible страницам.
+-- clicks_total обновляется постоянно: свободное место на странице даёт HOT-апдейты
+-- (индекс не трогается), а частый autovacuum держит visibility map свежей.
+ALTER TABLE links SET (
+    fillfactor = 90,
+    autovacuum_vacuum_scale_factor = 0.02,
+    autovacuum_vacuum_insert_scale_factor = 0.02
+);
@@ -0,0 +1,19 @@
+-- Rollup'ы кликов по часам и по дням (UTC). Минутные бакеты живут только в памяти узла
+-- и на flush складываются сюда. Часовые бакеты старше app.analytics.hourly-retention-days
+-- удаляются, дневные остаются.
+CREATE TABLE link_clicks_hourly (
+    link_id UUID NOT NULL REFERENCES links(id) ON DELETE CASCADE,
+    bucket_start TIMESTAMPTZ NOT NULL,
+    clicks BIGINT NOT NULL,
+    PRIMARY KEY (link_id, bucket_start)
+);
+
+-- для компакции старых часовых бакетов
+CREATE INDEX link_clicks_hourly_bucket_start_idx ON link_clicks_hourly (bucket_start);
+
+CREATE TABLE link_clicks_daily (
+    link_id UUID NOT NULL REFERENCES links(id) ON DELETE CASCADE,
+    bucket_start TIMESTAMPTZ NOT NULL,
+    clicks BIGINT NOT NULL,
+    PRIMARY KEY (link_id, bucket_start)
+);
@@ -0,0 +1,16 @@
+-- HyperLogLog-скетчи уникальных посетителей (см. HyperLogLog): за всё время и по дням (UTC).
+-- Каждый узел пишет только свои строки (node_id), при чтении скетчи узлов сливаются.
+CREATE TABLE link_visitor_sketches (
+    link_id UUID NOT NULL REFERENCES links(id) ON DELETE CASCADE,
+    node_id VARCHAR(64) NOT NULL,
+    sketch BYTEA NOT NULL,
+    PRIMARY KEY (link_id, node_id)
+);
+
+CREATE TABLE link_visitor_sketches_daily (
+    link_id UUID NOT NULL REFERENCES links(id) ON DELETE CASCADE,
+    bucket_start TIMESTAMPTZ NOT NULL,
+    node_id VARCHAR(64) NOT NULL,
+    sketch BYTEA NOT NULL,
+    PRIMARY KEY (link_id, bucket_start, node_id)
+);
@@ -0,0 +1,20 @@
+-- Общие для кластера token bucket'ы rate limit'а (bucket4j, app.rate-limit.mode=distributed).
+-- id = "<индекс маршрута>:<ключ клиента hex>", state - сериализованное состояние bucket4j.
+-- fillfactor: state переписывается постоянно, свободное место на странице даёт HOT-update без роста индекса.
+CREATE TABLE rate_limit_buckets (
+    id         VARCHAR(64) PRIMARY KEY,
+    state      BYTEA,
+    touched_at TIMESTAMPTZ NOT NULL DEFAULT now()
+) WITH (fillfactor = 70);
+
+-- bucket4j пишет только state, время последнего обращения ставит триггер (для удаления простаивающих)
+CREATE FUNCTION rate_limit_buckets_touch() RETURNS trigger AS $$
+BEGIN
+    NEW.touched_at := now();
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER rate_limit_buckets_touch
+    BEFORE UPDATE ON rate_limit_buckets
+    FOR EACH ROW EXECUTE FUNCTION rate_limit_buckets_touch();
@@ -0,0 +1,10 @@
+-- Источник id для SequenceSlugGenerator (app.slug.strategy=sequence): один nextval резервирует
+-- блок из INCREMENT id, блок раздаётся из памяти узла. Размер блока меняется только здесь
+-- (ALTER SEQUENCE ... INCREMENT BY), приложение читает его из pg_sequences.
+-- id переводятся в slug перестановкой 46-битного пространства -> MAXVALUE оставляет место под последний блок.
+CREATE SEQUENCE links_slug_seq
+    MINVALUE 0
+    START WITH 0
+    INCREMENT BY 1024
+    MAXVALUE 70368744176640
+    NO CYCLE;
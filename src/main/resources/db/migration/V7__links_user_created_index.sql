@@ -0,0 +1,5 @@
+-- Keyset-пагинация и экспорт ссылок пользователя: WHERE user_id = ? ORDER BY created_at DESC, id
+-- идёт по индексу без сортировки, а страница "после курсора" - range scan от курсора,
+-- так что тысячная страница стоит столько же, сколько первая.
+-- CONCURRENTLY не блокирует запись в links; вне транзакции - см. V7__links_user_created_index.sql.conf
+CREATE INDEX CONCURRENTLY IF NOT EXISTS links_user_created_idx ON links (user_id, created_at DESC, id);
@@ -0,0 +1,11 @@
+-- Дедупликация createLink: вместо upper(target_url) = upper(?) по всем ссылкам пользователя -
+-- одна проба индекса по 64-битному хэшу канонического URL (UrlFingerprint).
+-- Колонка nullable: ADD COLUMN без default не переписывает таблицу, старые строки
+-- заполняет UrlHashBackfill пачками.
+ALTER TABLE links ADD COLUMN IF NOT EXISTS url_hash BIGINT;
+
+-- Не unique: у пользователя уже могут быть дубли (гонки createLink), и хэш может совпасть у разных URL.
+-- Частичный: строки до backfill'а в индекс не попадают.
+-- CONCURRENTLY не блокирует запись в links; вне транзакции - см. V8__links_url_hash.sql.conf
+CREATE INDEX CONCURRENTLY IF NOT EXISTS links_user_url_hash_idx ON links (user_id, url_hash)
+    WHERE url_hash IS NOT NULL;
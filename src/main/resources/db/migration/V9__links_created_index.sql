@@ -0,0 +1,4 @@
+-- SlugFilter раз в секунду догружает slug'и, созданные другими узлами: WHERE created_at > ?
+-- Без индекса это seq scan всей links на каждом узле каждую секунду.
+-- CONCURRENTLY не блокирует запись в links; вне транзакции - см. V9__links_created_index.sql.conf
+CREATE INDEX CONCURRENTLY IF NOT EXISTS links_created_idx ON links (created_at);
@@ -0,0 +1,93 @@
+package dev.horoz.url_shortener.controller;
+
+import dev.horoz.url_shortener.edge.EdgeClickForwarder;
+import dev.horoz.url_shortener.service.click.ClickEvent;
+import dev.horoz.url_shortener.service.click.ClickIngestionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InternalClickControllerTest {
+
+    private static final UUID LINK_ID = UUID.fromString("0f8fad5b-d9cb-469f-a165-70867728950e");
+
+    @Mock
+    ClickIngestionService clickIngestionService;
+
+    InternalClickController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new InternalClickController(clickIngestionService, "s3cret", 3);
+    }
+
+    @Test
+    @DisplayName("пачка целых записей -> каждый клик уходит в ingest, 204")
+    void clicks_ingestsAllRecords() throws Exception {
+        var response = controller.clicks("s3cret", new ByteArrayInputStream(records(2)));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        ArgumentCaptor<ClickEvent> events = ArgumentCaptor.forClass(ClickEvent.class);
+        verify(clickIngestionService, times(2)).ingest(events.capture());
+        assertThat(events.getAllValues().get(1).linkId()).isEqualTo(LINK_ID);
+        assertThat(events.getAllValues().get(1).occurredAt()).isEqualTo(Instant.ofEpochMilli(1001));
+    }
+
+    @Test
+    @DisplayName("обрезанный хвост -> 400, и ни один клик пачки не засчитан (edge повторит её целиком)")
+    void clicks_whenTruncated_ingestsNothing() {
+        byte[] body = Arrays.copyOf(records(2), 2 * EdgeClickForwarder.RECORD_BYTES - 1);
+
+        assertThatThrownBy(() -> controller.clicks("s3cret", new ByteArrayInputStream(body)))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(clickIngestionService);
+    }
+
+    @Test
+    @DisplayName("пустое тело -> 400, больше лимита -> 413")
+    void clicks_rejectsEmptyAndOversizedBodies() {
+        assertThatThrownBy(() -> controller.clicks("s3cret", new ByteArrayInputStream(new byte[0])))
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThatThrownBy(() -> controller.clicks("s3cret", new ByteArrayInputStream(records(4))))
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+        verifyNoInteractions(clickIngestionService);
+    }
+
+    @Test
+    @DisplayName("неверный секрет -> 403")
+    void clicks_whenWrongSecret_forbidden() {
+        assertThatThrownBy(() -> controller.clicks("wrong", new ByteArrayInputStream(records(1))))
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.FORBIDDEN);
+        verifyNoInteractions(clickIngestionService);
+    }
+
+    private static byte[] records(int n) {
+        ByteBuffer buf = ByteBuffer.allocate(n * EdgeClickForwarder.RECORD_BYTES);
+        for (int i = 0; i < n; i++) {
+            buf.putLong(LINK_ID.getMostSignificantBits()).putLong(LINK_ID.getLeastSignificantBits())
+                    .putLong(1000 + i).putLong(42 + i);
+        }
+        return buf.array();
+    }
+}
@@ -0,0 +1,145 @@
+package dev.horoz.url_shortener.edge;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.*;
+
+class EdgeRedirectServerTest {
+
+    private static final UUID LINK_ID = UUID.randomUUID();
+
+    @TempDir
+    Path dir;
+
+    EdgeRedirectServer server;
+    HttpServer app;
+
+    final HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) server.close();
+        if (app != null) app.stop(0);
+    }
+
+    @Test
+    @DisplayName("slug из индекса -> 302, истёкший -> 410, неизвестный без fallback -> 404")
+    void redirects() throws Exception {
+        Path index = dir.resolve("slugs.idx");
+        try (SlugIndexWriter writer = new SlugIndexWriter(index)) {
+            writer.add("live", LINK_ID, "https://example.com/live", null);
+            writer.add("gone", UUID.randomUUID(), "https://example.com/gone", Instant.now().minusSeconds(60));
+            writer.commit();
+        }
+        start(index, null, null);
+
+        HttpResponse<Void> live = get("/r/live");
+        assertThat(live.statusCode()).isEqualTo(302);
+        assertThat(live.headers().firstValue("Location")).contains("https://example.com/live");
+
+        assertThat(get("/r/gone").statusCode()).isEqualTo(410);
+        assertThat(get("/r/nope").statusCode()).isEqualTo(404);
+        assertThat(get("/health").statusCode()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("slug'а нет в индексе -> redirect в основное приложение")
+    void missFallsBackToApp() throws Exception {
+        Path index = dir.resolve("slugs.idx");
+        try (SlugIndexWriter writer = new SlugIndexWriter(index)) {
+            writer.commit();
+        }
+        start(index, null, URI.create("http://app.internal:8080"));
+
+        HttpResponse<Void> response = get("/r/fresh");
+        assertThat(response.statusCode()).isEqualTo(302);
+        assertThat(response.headers().firstValue("Location")).contains("http://app.internal:8080/r/fresh");
+    }
+
+    @Test
+    @DisplayName("подменённый файл индекса подхватывается при следующей проверке")
+    void reloadsReplacedIndex() throws Exception {
+        Path index = dir.resolve("slugs.idx");
+        start(index, null, null);
+        assertThat(get("/health").statusCode()).isEqualTo(503);
+
+        try (SlugIndexWriter writer = new SlugIndexWriter(index)) {
+            writer.add("later", LINK_ID, "https://example.com/later", null);
+            writer.commit();
+        }
+        server.reloadIfChanged();
+
+        assertThat(get("/r/later").statusCode()).isEqualTo(302);
+        assertThat(get("/health").statusCode()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("клики уходят в основное приложение пачкой с секретом; неудачная пачка повторяется")
+    void forwardsClicks() throws Exception {
+        List<byte[]> bodies = new CopyOnWriteArrayList<>();
+        int[] status = {503};
+        app = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        app.createContext("/internal/clicks", exchange -> {
+            try (exchange) {
+                assertThat(exchange.getRequestHeaders().getFirst(EdgeClickForwarder.SECRET_HEADER)).isEqualTo("s3cret");
+                bodies.add(exchange.getRequestBody().readAllBytes());
+                exchange.sendResponseHeaders(status[0], -1);
+            }
+        });
+        app.start();
+
+        EdgeClickForwarder forwarder = new EdgeClickForwarder(
+                URI.create("http://127.0.0.1:" + app.getAddress().getPort() + "/internal/clicks"), "s3cret", 2);
+        forwarder.record(LINK_ID.getMostSignificantBits(), LINK_ID.getLeastSignificantBits(), 1000L, 42L);
+        forwarder.record(LINK_ID.getMostSignificantBits(), LINK_ID.getLeastSignificantBits(), 2000L, 43L);
+        forwarder.record(LINK_ID.getMostSignificantBits(), LINK_ID.getLeastSignificantBits(), 3000L, 44L);
+        assertThat(forwarder.dropped()).isEqualTo(1);
+
+        forwarder.flush();
+        status[0] = 204;
+        forwarder.flush();
+
+        assertThat(bodies).hasSize(2);
+        assertThat(bodies.get(1)).isEqualTo(bodies.get(0));
+        ByteBuffer body = ByteBuffer.wrap(bodies.get(1));
+        assertThat(body.remaining()).isEqualTo(2 * EdgeClickForwarder.RECORD_BYTES);
+        assertThat(new UUID(body.getLong(), body.getLong())).isEqualTo(LINK_ID);
+        assertThat(body.getLong()).isEqualTo(1000L);
+        assertThat(body.getLong()).isEqualTo(42L);
+
+        forwarder.flush();
+        assertThat(bodies).hasSize(2);
+    }
+
+    // ========================================================================
+    // Helpers
+    // ========================================================================
+
+    private void start(Path index, URI clicks, URI fallback) throws Exception {
+        server = new EdgeRedirectServer(new EdgeConfig(0, index, Duration.ofHours(1), clicks, "",
+                Duration.ofHours(1), 16, fallback, List.of("127.0.0.0/8")));
+        server.start();
+    }
+
+    private HttpResponse<Void> get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path)).build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+}
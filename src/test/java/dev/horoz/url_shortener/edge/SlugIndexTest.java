@@ -0,0 +1,102 @@
+package dev.horoz.url_shortener.edge;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SlugIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("записанные ссылки находятся по slug'у, отсутствующие -> -1")
+    void writeAndFind() throws Exception {
+        Path file = dir.resolve("slugs.idx");
+        UUID id = UUID.randomUUID();
+        Instant expiresAt = Instant.parse("2030-01-01T00:00:00Z");
+
+        try (SlugIndexWriter writer = new SlugIndexWriter(file)) {
+            for (int i = 0; i < 5_000; i++) {
+                writer.add("s" + i, UUID.randomUUID(), "https://example.com/" + i, null);
+            }
+            writer.add("abc", id, "https://example.com/путь?q=1", expiresAt);
+            writer.commit();
+        }
+
+        SlugIndex index = SlugIndex.open(file);
+        assertThat(index.size()).isEqualTo(5_001);
+
+        int record = index.find("abc");
+        assertThat(record).isNotNegative();
+        assertThat(new UUID(index.linkIdMostSigBits(record), index.linkIdLeastSigBits(record))).isEqualTo(id);
+        assertThat(index.targetUrl(record)).isEqualTo("https://example.com/путь?q=1");
+        assertThat(index.expiresAtMillis(record)).isEqualTo(expiresAt.toEpochMilli());
+
+        int other = index.find("s4321");
+        assertThat(index.targetUrl(other)).isEqualTo("https://example.com/4321");
+        assertThat(index.expiresAtMillis(other)).isEqualTo(SlugIndex.NO_EXPIRY);
+
+        assertThat(index.find("missing")).isEqualTo(-1);
+        assertThat(index.find("ab")).isEqualTo(-1);
+        assertThat(index.find("")).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("не-ASCII slug сравнивается по UTF-8 байтам")
+    void nonAsciiSlug() throws Exception {
+        Path file = dir.resolve("slugs.idx");
+        try (SlugIndexWriter writer = new SlugIndexWriter(file)) {
+            writer.add("ссылка", UUID.randomUUID(), "https://example.com/ru", null);
+            writer.add("cc", UUID.randomUUID(), "https://example.com/cc", null);
+            writer.commit();
+        }
+
+        SlugIndex index = SlugIndex.open(file);
+        assertThat(index.targetUrl(index.find("ссылка"))).isEqualTo("https://example.com/ru");
+        assertThat(index.find("ссылкa")).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("commit подменяет файл целиком: открытый старый индекс продолжает читаться, временных файлов не остаётся")
+    void commitReplacesAtomically() throws Exception {
+        Path file = dir.resolve("slugs.idx");
+        try (SlugIndexWriter writer = new SlugIndexWriter(file)) {
+            writer.add("old", UUID.randomUUID(), "https://example.com/old", null);
+            writer.commit();
+        }
+        SlugIndex before = SlugIndex.open(file);
+
+        try (SlugIndexWriter writer = new SlugIndexWriter(file)) {
+            writer.add("new", UUID.randomUUID(), "https://example.com/new", null);
+            writer.commit();
+        }
+        SlugIndex after = SlugIndex.open(file);
+
+        assertThat(before.targetUrl(before.find("old"))).isEqualTo("https://example.com/old");
+        assertThat(after.find("old")).isEqualTo(-1);
+        assertThat(after.targetUrl(after.find("new"))).isEqualTo("https://example.com/new");
+        try (var files = Files.list(dir)) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+
+    @Test
+    @DisplayName("writer без commit не трогает целевой файл и удаляет временные")
+    void closeWithoutCommit() throws Exception {
+        Path file = dir.resolve("slugs.idx");
+        try (SlugIndexWriter writer = new SlugIndexWriter(file)) {
+            writer.add("abc", UUID.randomUUID(), "https://example.com", null);
+        }
+        try (var files = Files.list(dir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+}
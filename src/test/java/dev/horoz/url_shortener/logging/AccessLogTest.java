@@ -0,0 +1,131 @@
+package dev.horoz.url_shortener.logging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class AccessLogTest {
+
+    private static final long MS = 1_000_000L;
+
+    @TempDir
+    Path dir;
+
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    AccessLog accessLog;
+
+    @AfterEach
+    void tearDown() {
+        if (accessLog != null) accessLog.close();
+    }
+
+    @Test
+    @DisplayName("выборка: /r/ по доле маршрута, ошибки и медленные запросы - всегда")
+    void sampling() {
+        accessLog = accessLog(DataSize.ofMegabytes(1), 65536, List.of(
+                new AccessLogProperties.Route("/r/", 0),
+                new AccessLogProperties.Route("/api/", 1.0)));
+
+        assertThat(accessLog.sampled("/r/abc", 302, MS)).isFalse();
+        assertThat(accessLog.sampled("/r/abc", 500, MS)).isTrue();
+        assertThat(accessLog.sampled("/r/abc", 302, 600 * MS)).isTrue();
+        assertThat(accessLog.sampled("/api/links", 200, MS)).isTrue();
+        // defaultSampleRate = 0.5
+        int logged = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (accessLog.sampled("/auth/login", 200, MS)) logged++;
+        }
+        assertThat(logged).isBetween(4_500, 5_500);
+    }
+
+    @Test
+    @DisplayName("строки пишутся JSON Lines с длительностью в наносекундах, клиентские строки экранируются")
+    void writesJsonLines() throws Exception {
+        accessLog = accessLog(DataSize.ofMegabytes(1), 65536, List.of());
+
+        accessLog.record("GET", "/r/abc", 500, 1_234_567, "id-\"1\"\n", "4bf92f3577b34da6a3ce929d0e0e4736",
+                "203.0.113.7");
+        accessLog.close();
+
+        List<String> lines = Files.readAllLines(dir.resolve("access.log"));
+        assertThat(lines).hasSize(1);
+        JsonNode json = new ObjectMapper().readTree(lines.get(0));
+        assertThat(json.get("request_id").asText()).isEqualTo("id-\"1\"\n");
+        assertThat(json.get("trace_id").asText()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+        assertThat(json.get("path").asText()).isEqualTo("/r/abc");
+        assertThat(json.get("status").asInt()).isEqualTo(500);
+        assertThat(json.get("duration_ns").asLong()).isEqualTo(1_234_567);
+        assertThat(json.get("remote").asText()).isEqualTo("203.0.113.7");
+        assertThat(json.get("ts").asText()).endsWith("Z");
+    }
+
+    @Test
+    @DisplayName("конкурентные писатели: каждая строка записана ровно один раз или посчитана в dropped")
+    void concurrentWriters() throws Exception {
+        accessLog = accessLog(DataSize.ofMegabytes(64), 1024, List.of());
+        int threads = 8, perThread = 5_000;
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                pool.execute(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        accessLog.record("GET", "/api/x", 500, MS, thread + "-" + i, null, "127.0.0.1");
+                    }
+                });
+            }
+            pool.shutdown();
+            assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        }
+        accessLog.close();
+
+        List<String> lines = Files.readAllLines(dir.resolve("access.log"));
+        Set<String> ids = new HashSet<>();
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (String line : lines) {
+            assertThat(ids.add(objectMapper.readTree(line).get("request_id").asText())).isTrue();
+        }
+        double dropped = meterRegistry.get("access.log.dropped").counter().count();
+        assertThat(lines.size() + dropped).isEqualTo(threads * perThread);
+        assertThat(meterRegistry.get("access.log.written").counter().count()).isEqualTo(lines.size());
+    }
+
+    @Test
+    @DisplayName("файл больше max-file-size уходит в .1, старые сдвигаются до max-history")
+    void rollsBySize() throws Exception {
+        accessLog = accessLog(DataSize.ofBytes(1_000), 65536, List.of());
+
+        for (int i = 0; i < 100; i++) {
+            accessLog.record("GET", "/api/links", 500, MS, "request-" + i, null, "127.0.0.1");
+        }
+        accessLog.close();
+
+        assertThat(dir.resolve("access.log.1")).exists();
+        assertThat(dir.resolve("access.log.2")).exists();
+        assertThat(dir.resolve("access.log.3")).doesNotExist();
+        assertThat(Files.size(dir.resolve("access.log.1"))).isLessThanOrEqualTo(1_000);
+        assertThat(Files.readAllLines(dir.resolve("access.log"))).last().asString().contains("request-99");
+    }
+
+    private AccessLog accessLog(DataSize maxFileSize, int bufferSize, List<AccessLogProperties.Route> routes) {
+        return new AccessLog(new AccessLogProperties(true, dir.resolve("access.log").toString(), maxFileSize, 2,
+                bufferSize, Duration.ofMillis(10), 500, Duration.ofMillis(500), 0.5, routes), meterRegistry);
+    }
+}
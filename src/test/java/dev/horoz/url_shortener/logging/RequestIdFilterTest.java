@@ -0,0 +1,85 @@
+package dev.horoz.url_shortener.logging;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RequestIdFilterTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+    private static final String TRACEPARENT = "00-" + TRACE_ID + "-00f067aa0ba902b7-01";
+
+    @Mock
+    AccessLog accessLog;
+
+    private final Map<String, String> mdcInChain = new HashMap<>();
+    private final FilterChain chain = (request, response) -> {
+        mdcInChain.put(RequestIdFilter.MDC_KEY, MDC.get(RequestIdFilter.MDC_KEY));
+        mdcInChain.put(RequestIdFilter.TRACE_MDC_KEY, MDC.get(RequestIdFilter.TRACE_MDC_KEY));
+    };
+
+    @Test
+    @DisplayName("без X-Request-Id генерируется time-ordered id, он же уходит в ответ, MDC и access log")
+    void generatesRequestId() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter().doFilter(new MockHttpServletRequest("GET", "/r/abc"), response, chain);
+
+        String id = response.getHeader(RequestIdFilter.HEADER);
+        assertThat(id).hasSize(RequestIdGenerator.LENGTH);
+        assertThat(mdcInChain).containsEntry(RequestIdFilter.MDC_KEY, id)
+                .containsEntry(RequestIdFilter.TRACE_MDC_KEY, null);
+        verify(accessLog).record(eq("GET"), eq("/r/abc"), eq(200), anyLong(), eq(id), isNull(), any());
+        assertThat(MDC.get(RequestIdFilter.MDC_KEY)).isNull();
+    }
+
+    @Test
+    @DisplayName("входящий X-Request-Id сохраняется, trace-id берётся из traceparent")
+    void propagatesIncomingIds() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/links");
+        request.addHeader(RequestIdFilter.HEADER, "edge-123");
+        request.addHeader("traceparent", TRACEPARENT);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter().doFilter(request, response, chain);
+
+        assertThat(response.getHeader(RequestIdFilter.HEADER)).isEqualTo("edge-123");
+        assertThat(mdcInChain).containsEntry(RequestIdFilter.MDC_KEY, "edge-123")
+                .containsEntry(RequestIdFilter.TRACE_MDC_KEY, TRACE_ID);
+        verify(accessLog).record(eq("GET"), eq("/api/links"), eq(200), anyLong(), eq("edge-123"), eq(TRACE_ID), any());
+        assertThat(MDC.get(RequestIdFilter.TRACE_MDC_KEY)).isNull();
+    }
+
+    @Test
+    @DisplayName("некорректный traceparent игнорируется")
+    void rejectsInvalidTraceparent() {
+        assertThat(TraceContext.traceId(TRACEPARENT)).isEqualTo(TRACE_ID);
+        assertThat(TraceContext.traceId("01-" + TRACE_ID + "-00f067aa0ba902b7-01-future")).isEqualTo(TRACE_ID);
+
+        assertThat(TraceContext.traceId(null)).isNull();
+        assertThat(TraceContext.traceId("garbage")).isNull();
+        assertThat(TraceContext.traceId("00-" + TRACE_ID.toUpperCase() + "-00f067aa0ba902b7-01")).isNull();
+        assertThat(TraceContext.traceId("00-00000000000000000000000000000000-00f067aa0ba902b7-01")).isNull();
+        assertThat(TraceContext.traceId("00-" + TRACE_ID + "-0000000000000000-01")).isNull();
+        assertThat(TraceContext.traceId("ff-" + TRACE_ID + "-00f067aa0ba902b7-01")).isNull();
+        assertThat(TraceContext.traceId(TRACEPARENT + "-extra")).isNull();
+    }
+
+    private RequestIdFilter filter() {
+        return new RequestIdFilter(new RequestIdGenerator(1), accessLog);
+    }
+}
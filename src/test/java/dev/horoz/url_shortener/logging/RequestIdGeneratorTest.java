@@ -0,0 +1,74 @@
+package dev.horoz.url_shortener.logging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RequestIdGeneratorTest {
+
+    private final RequestIdGenerator generator = new RequestIdGenerator(0xBEEF);
+
+    @Test
+    @DisplayName("26 символов Crockford base32, в начале - время создания, затем узел")
+    void format() {
+        long before = System.currentTimeMillis();
+        String id = generator.next();
+        long after = System.currentTimeMillis();
+
+        assertThat(id).hasSize(26).matches("[0-9A-HJKMNP-TV-Z]{26}");
+        assertThat(RequestIdGenerator.epochMillis(id)).isBetween(before, after);
+        assertThat(RequestIdGenerator.node(id)).isEqualTo(0xBEEF);
+    }
+
+    @Test
+    @DisplayName("внутри потока id строго возрастают")
+    void monotonicWithinThread() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(generator.next());
+        }
+
+        for (int i = 1; i < ids.size(); i++) {
+            assertThat(ids.get(i)).isGreaterThan(ids.get(i - 1));
+        }
+    }
+
+    @Test
+    @DisplayName("конкурентные потоки одного узла не выдают одинаковых id")
+    void uniqueAcrossThreads() throws Exception {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        int threads = 16, perThread = 20_000;
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(generator.next());
+                    }
+                });
+            }
+            pool.shutdown();
+            assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(ids).hasSize(threads * perThread);
+    }
+
+    @Test
+    @DisplayName("node-id: число берётся как есть, имя хоста хэшируется в 16 бит")
+    void nodeId() {
+        assertThat(RequestIdGenerator.node(new RequestIdGenerator("42").next())).isEqualTo(42);
+        assertThat(RequestIdGenerator.node(new RequestIdGenerator("url-shortener-7c9f5").next()))
+                .isEqualTo(RequestIdGenerator.node(new RequestIdGenerator("url-shortener-7c9f5").next()))
+                .isBetween(0, 0xFFFF);
+    }
+}
@@ -0,0 +1,40 @@
+package dev.horoz.url_shortener.repository;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RepositoryInvocationsTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RepositoryInvocations invocations = new RepositoryInvocations(meterRegistry, LinkJdbcRepository.class);
+
+    @Test
+    @DisplayName("успешный вызов -> таймер Spring Data с state=SUCCESS, exception=None")
+    void record_success_usesSpringDataTags() {
+        assertThat(invocations.record("addClicks", () -> 3)).isEqualTo(3);
+
+        Timer timer = meterRegistry.get(RepositoryInvocations.METRIC)
+                .tags("repository", "LinkJdbcRepository", "method", "addClicks", "state", "SUCCESS", "exception", "None")
+                .timer();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("ошибка -> пробрасывается, таймер с state=ERROR и именем исключения")
+    void record_failure_isTimedAndRethrown() {
+        assertThatThrownBy(() -> invocations.run("reapExpired", () -> {
+            throw new DataAccessResourceFailureException("db down");
+        })).isInstanceOf(DataAccessResourceFailureException.class);
+
+        Timer timer = meterRegistry.get(RepositoryInvocations.METRIC)
+                .tags("repository", "LinkJdbcRepository", "method", "reapExpired", "state", "ERROR",
+                        "exception", "DataAccessResourceFailureException")
+                .timer();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+}
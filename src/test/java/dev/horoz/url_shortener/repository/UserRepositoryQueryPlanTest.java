@@ -0,0 +1,68 @@
+package dev.horoz.url_shortener.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * План запроса поиска пользователя по email на настоящем Postgres со всеми миграциями.
+ * Без Docker тест пропускается.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class UserRepositoryQueryPlanTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void migrate() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        jdbc = new JdbcTemplate(dataSource);
+        // достаточно строк, чтобы seq scan не был дешевле индекса
+        jdbc.update("""
+                INSERT INTO users (email, password_hash)
+                SELECT 'user' || g || '@Example.com', 'x' FROM generate_series(1, 20000) g
+                """);
+        jdbc.execute("ANALYZE users");
+    }
+
+    @Test
+    @DisplayName("findByEmailIgnoreCase идёт по users_email_lower_uidx, а не seq scan")
+    void findByEmail_usesLowerEmailIndex() {
+        List<String> plan = new NamedParameterJdbcTemplate(jdbc).queryForList(
+                "EXPLAIN " + UserRepository.FIND_BY_EMAIL_SQL,
+                new MapSqlParameterSource("email", "USER42@example.COM"),
+                String.class);
+
+        assertThat(String.join("\n", plan))
+                .contains("users_email_lower_uidx")
+                .doesNotContain("Seq Scan");
+    }
+
+    @Test
+    @DisplayName("тот же email в другом регистре отклоняет уникальный индекс -> регистрации не нужен pre-check")
+    void duplicateEmailInOtherCase_isRejectedByIndex() {
+        assertThatThrownBy(() -> jdbc.update(
+                "INSERT INTO users (email, password_hash) VALUES ('USER7@EXAMPLE.COM', 'x')"))
+                .isInstanceOf(DuplicateKeyException.class)
+                .hasMessageContaining("users_email_lower_uidx");
+    }
+}
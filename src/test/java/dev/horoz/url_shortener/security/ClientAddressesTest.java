@@ -0,0 +1,66 @@
+package dev.horoz.url_shortener.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ClientAddressesTest {
+
+    @Test
+    @DisplayName("IPv4: адрес в младших 32 битах под тегом, порт и пробелы игнорируются")
+    void parsesIPv4() {
+        long key = ClientAddresses.IPV4_TAG | 0xC6336401L;
+
+        assertThat(ClientAddresses.parse("198.51.100.1")).isEqualTo(key);
+        assertThat(ClientAddresses.parse("  198.51.100.1 ")).isEqualTo(key);
+        assertThat(ClientAddresses.parse("198.51.100.1:8443")).isEqualTo(key);
+        assertThat(ClientAddresses.parse("0.0.0.0")).isEqualTo(ClientAddresses.IPV4_TAG);
+        assertThat(ClientAddresses.parse("255.255.255.255")).isEqualTo(ClientAddresses.IPV4_TAG | 0xFFFF_FFFFL);
+    }
+
+    @Test
+    @DisplayName("IPv6: ключ - префикс /64, все формы записи одного адреса дают один ключ")
+    void parsesIPv6Prefix() {
+        long key = 0x2001_0db8_0001_0002L;
+
+        assertThat(ClientAddresses.parse("2001:db8:1:2:aaaa:bbbb:cccc:dddd")).isEqualTo(key);
+        assertThat(ClientAddresses.parse("2001:0db8:0001:0002:0:0:0:1")).isEqualTo(key);
+        assertThat(ClientAddresses.parse("2001:db8:1:2::1")).isEqualTo(key);
+        assertThat(ClientAddresses.parse("[2001:db8:1:2::1]:443")).isEqualTo(key);
+        assertThat(ClientAddresses.parse("2001:DB8:1:2::1%eth0")).isEqualTo(key);
+        // другой интерфейсный идентификатор в том же /64 - тот же клиент
+        assertThat(ClientAddresses.parse("2001:db8:1:2::ffff")).isEqualTo(key);
+
+        assertThat(ClientAddresses.parse("2001:db8::")).isEqualTo(0x2001_0db8_0000_0000L);
+        assertThat(ClientAddresses.parse("::1")).isZero();
+        assertThat(ClientAddresses.parse("1:2:3:4:5:6:7::")).isEqualTo(0x0001_0002_0003_0004L);
+        assertThat(ClientAddresses.parse("::2:3:4:5:6:7:8")).isEqualTo(0x0000_0002_0003_0004L);
+    }
+
+    @Test
+    @DisplayName("IPv4-mapped IPv6 даёт тот же ключ, что и IPv4")
+    void mappedIPv4_equalsIPv4() {
+        assertThat(ClientAddresses.parse("::ffff:198.51.100.1")).isEqualTo(ClientAddresses.parse("198.51.100.1"));
+        assertThat(ClientAddresses.parse("::ffff:c633:6401")).isEqualTo(ClientAddresses.parse("198.51.100.1"));
+    }
+
+    @Test
+    @DisplayName("разбор подстроки: запятые списка X-Forwarded-For не мешают")
+    void parsesRegion() {
+        String xff = "198.51.100.1, 2001:db8:1:2::1";
+
+        assertThat(ClientAddresses.parse(xff, 0, 12)).isEqualTo(ClientAddresses.parse("198.51.100.1"));
+        assertThat(ClientAddresses.parse(xff, 13, xff.length())).isEqualTo(0x2001_0db8_0001_0002L);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "  ", "unknown", "1.2.3", "1.2.3.4.5", "256.1.1.1", "1.2.3.x", "1..2.3",
+            "1:2:3:4:5:6:7:8:9", "1::2::3", "12345::", ":1:2", "1:2:", "[::1", "1:2:3:4:5:6:7:8::", "::ffff:1.2.3"})
+    @DisplayName("мусор -> INVALID")
+    void rejectsGarbage(String input) {
+        assertThat(ClientAddresses.parse(input)).isEqualTo(ClientAddresses.INVALID);
+    }
+}
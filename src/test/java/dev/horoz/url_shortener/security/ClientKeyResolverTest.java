@@ -0,0 +1,59 @@
+package dev.horoz.url_shortener.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ClientKeyResolverTest {
+
+    ClientKeyResolver resolver = new ClientKeyResolver(
+            new RateLimitProperties(1_000, Duration.ofMinutes(10), List.of("10.0.0.0/8", "2001:db8:ffff::/48"), null, null, null));
+
+    @Test
+    @DisplayName("соединение не от доверенного прокси -> X-Forwarded-For игнорируется")
+    void untrustedPeer_ignoresHeader() {
+        assertThat(resolver.resolve(request("198.51.100.1", "203.0.113.9")))
+                .isEqualTo(ClientAddresses.parse("198.51.100.1"));
+    }
+
+    @Test
+    @DisplayName("цепочка прокси читается справа налево до первого недоверенного адреса")
+    void trustedChain_takesFirstUntrustedFromRight() {
+        // 203.0.113.9 клиент мог подставить сам, 198.51.100.7 дописал наш внешний прокси
+        assertThat(resolver.resolve(request("10.0.0.2", "203.0.113.9, 198.51.100.7, 10.1.1.1")))
+                .isEqualTo(ClientAddresses.parse("198.51.100.7"));
+        assertThat(resolver.resolve(request("2001:db8:ffff:1::2", "2001:db8:aaaa:1::5")))
+                .isEqualTo(ClientAddresses.parse("2001:db8:aaaa:1::"));
+    }
+
+    @Test
+    @DisplayName("все хопы доверенные -> самый левый; мусор в цепочке -> последний проверенный хоп")
+    void edgeCases() {
+        assertThat(resolver.resolve(request("10.0.0.2", "10.0.0.3, 10.0.0.4")))
+                .isEqualTo(ClientAddresses.parse("10.0.0.3"));
+        assertThat(resolver.resolve(request("10.0.0.2", "203.0.113.9, unknown, 10.0.0.4")))
+                .isEqualTo(ClientAddresses.parse("10.0.0.4"));
+        assertThat(resolver.resolve(request("10.0.0.2", null)))
+                .isEqualTo(ClientAddresses.parse("10.0.0.2"));
+    }
+
+    @Test
+    @DisplayName("некорректный CIDR в настройках -> ошибка при старте")
+    void invalidCidr_failsFast() {
+        assertThatThrownBy(() -> new ClientKeyResolver(
+                new RateLimitProperties(1_000, Duration.ofMinutes(10), List.of("10.0.0.0/33"), null, null, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/r/abc");
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) request.addHeader("X-Forwarded-For", forwardedFor);
+        return request;
+    }
+}
@@ -0,0 +1,226 @@
+package dev.horoz.url_shortener.security;
+
+import dev.horoz.url_shortener.repository.RateLimitBucketRepository;
+import io.github.bucket4j.TimeMeter;
+import io.github.bucket4j.distributed.jdbc.BucketTableSettings;
+import io.github.bucket4j.distributed.jdbc.PrimaryKeyMapper;
+import io.github.bucket4j.distributed.jdbc.SQLProxyConfiguration;
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
+import io.github.bucket4j.postgresql.PostgreSQLSelectForUpdateBasedProxyManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Postgres-диалект bucket4j (SELECT ... FOR UPDATE) на H2 в режиме PostgreSQL:
+ * два лимитера на одной БД изображают два узла. INSERT ... ON CONFLICT DO NOTHING
+ * H2 не понимает - подменяем его эквивалентным MERGE.
+ */
+class DistributedRateLimiterTest {
+
+    static final String INSERT_IF_ABSENT_SQL = """
+            MERGE INTO rate_limit_buckets t
+            USING (VALUES (CAST(? AS VARCHAR(64)))) s(id) ON t.id = s.id
+            WHEN NOT MATCHED THEN INSERT (id, state) VALUES (s.id, NULL)
+            """;
+
+    static final long CLIENT = ClientAddresses.parse("198.51.100.7");
+
+    DataSource dataSource;
+    JdbcTemplate jdbcTemplate;
+    AtomicLong nanos;
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = onConflictAsMerge(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE rate_limit_buckets (id VARCHAR(64) PRIMARY KEY, state BYTEA)");
+        nanos = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    @DisplayName("два узла делят один bucket: вместе пропускают не больше capacity")
+    void twoNodes_shareOneLimit() {
+        RateLimitProperties properties = properties(10, 16);
+        DistributedRateLimiter nodeA = limiter(properties, mock(RateLimiter.class));
+        DistributedRateLimiter nodeB = limiter(properties, mock(RateLimiter.class));
+
+        int granted = 0;
+        for (int i = 0; i < 20; i++) {
+            if (nodeA.tryConsume(0, CLIENT) == 0) granted++;
+            if (nodeB.tryConsume(0, CLIENT) == 0) granted++;
+        }
+
+        assertThat(granted).isEqualTo(10);
+        // у другого клиента свой bucket
+        assertThat(nodeA.tryConsume(0, CLIENT + 1)).isZero();
+    }
+
+    @Test
+    @DisplayName("частый клиент получает токены пачками: round-trip'ов в БД меньше, чем запросов")
+    void frequentClient_leasesTokensInBatches() {
+        DistributedRateLimiter limiter = limiter(properties(1_000, 16), mock(RateLimiter.class));
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.tryConsume(0, CLIENT)).isZero();
+        }
+
+        double calls = meterRegistry.get("ratelimit.remote.calls").functionCounter().count();
+        assertThat(calls).isLessThan(20);
+    }
+
+    @Test
+    @DisplayName("отказ кэшируется до пополнения, после пополнения токены снова выдаются")
+    void rejection_isCachedUntilRefill() {
+        DistributedRateLimiter limiter = limiter(properties(2, 16), mock(RateLimiter.class));
+
+        assertThat(limiter.tryConsume(0, CLIENT)).isZero();
+        assertThat(limiter.tryConsume(0, CLIENT)).isZero();
+        long wait = limiter.tryConsume(0, CLIENT);
+        assertThat(wait).isPositive();
+
+        double calls = meterRegistry.get("ratelimit.remote.calls").functionCounter().count();
+        assertThat(limiter.tryConsume(0, CLIENT)).isPositive();
+        assertThat(meterRegistry.get("ratelimit.remote.calls").functionCounter().count()).isEqualTo(calls);
+
+        nanos.addAndGet(wait);
+        assertThat(limiter.tryConsume(0, CLIENT)).isZero();
+    }
+
+    @Test
+    @DisplayName("просроченная пачка сгорает и не превышает лимит")
+    void expiredLease_isDropped() {
+        DistributedRateLimiter limiter = limiter(properties(8, 8), mock(RateLimiter.class));
+
+        // разгоняем пачку: 1 + 2 + 4 токена из БД
+        for (int i = 0; i < 7; i++) {
+            assertThat(limiter.tryConsume(0, CLIENT)).isZero();
+        }
+        // следующая пачка - оставшийся 1 токен
+        assertThat(limiter.tryConsume(0, CLIENT)).isZero();
+
+        nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertThat(limiter.tryConsume(0, CLIENT)).isPositive();
+    }
+
+    @Test
+    @DisplayName("БД недоступна -> решение принимает локальный лимитер")
+    void storeFailure_fallsBackToLocal() {
+        RateLimiter fallback = mock(RateLimiter.class);
+        when(fallback.tryConsume(0, CLIENT)).thenReturn(0L, 42L);
+        DistributedRateLimiter limiter = limiter(properties(10, 16), fallback);
+        jdbcTemplate.execute("DROP TABLE rate_limit_buckets");
+
+        assertThat(limiter.tryConsume(0, CLIENT)).isZero();
+        assertThat(limiter.tryConsume(0, CLIENT)).isEqualTo(42L);
+
+        verify(fallback, times(2)).tryConsume(0, CLIENT);
+        assertThat(meterRegistry.get("ratelimit.remote.failures").functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("после ошибки БД окно failureBackoff решает только локальный лимитер, потом БД пробуется снова")
+    void storeFailure_skipsRemoteUntilBackoffEnds() {
+        RateLimiter fallback = mock(RateLimiter.class);
+        DistributedRateLimiter limiter = limiter(properties(10, 1), fallback);
+        jdbcTemplate.execute("DROP TABLE rate_limit_buckets");
+
+        limiter.tryConsume(0, CLIENT);
+        nanos.addAndGet(Duration.ofSeconds(4).toNanos());
+        limiter.tryConsume(0, CLIENT);
+        limiter.tryConsume(0, CLIENT);
+
+        assertThat(meterRegistry.get("ratelimit.remote.calls").functionCounter().count()).isEqualTo(1);
+        verify(fallback, times(3)).tryConsume(0, CLIENT);
+
+        jdbcTemplate.execute("CREATE TABLE rate_limit_buckets (id VARCHAR(64) PRIMARY KEY, state BYTEA)");
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(limiter.tryConsume(0, CLIENT)).isZero();
+        assertThat(limiter.tryConsume(0, CLIENT)).isZero();
+
+        assertThat(meterRegistry.get("ratelimit.remote.calls").functionCounter().count()).isEqualTo(3);
+        verify(fallback, times(3)).tryConsume(0, CLIENT);
+    }
+
+    // ========================================================================
+    // Helpers
+    // ========================================================================
+
+    private DistributedRateLimiter limiter(RateLimitProperties properties, RateLimiter fallback) {
+        TimeMeter clock = new TimeMeter() {
+            @Override
+            public long currentTimeNanos() {
+                return nanos.get();
+            }
+
+            @Override
+            public boolean isWallClockBased() {
+                return false;
+            }
+        };
+        SQLProxyConfiguration<String> configuration = SQLProxyConfiguration.builder()
+                .withPrimaryKeyMapper(PrimaryKeyMapper.STRING)
+                .withTableSettings(BucketTableSettings.customSettings("rate_limit_buckets", "id", "state"))
+                .withClientSideConfig(ClientSideConfig.getDefault().withClientClock(clock))
+                .build(dataSource);
+        return new DistributedRateLimiter(properties, new PostgreSQLSelectForUpdateBasedProxyManager<>(configuration),
+                fallback, new RateLimitBucketRepository(jdbcTemplate), meterRegistry, nanos::get);
+    }
+
+    private static DataSource onConflictAsMerge(DataSource target) {
+        return new DelegatingDataSource(target) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                        (proxy, method, args) -> {
+                            if (method.getName().equals("prepareStatement") && args[0] instanceof String sql
+                                    && sql.contains("ON CONFLICT")) {
+                                args[0] = INSERT_IF_ABSENT_SQL;
+                            }
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+            }
+        };
+    }
+
+    private static RateLimitProperties properties(long capacity, long leaseMax) {
+        RateLimitProperties.Route route = new RateLimitProperties.Route("/r/", "GET", capacity, capacity,
+                Duration.ofMinutes(1), RateLimitProperties.KeyStrategy.X_FORWARDED_FOR);
+        return new RateLimitProperties(1_000, Duration.ofMinutes(10), null, List.of(route),
+                RateLimitProperties.Mode.DISTRIBUTED,
+                new RateLimitProperties.Distributed(leaseMax, Duration.ofSeconds(1), Duration.ofHours(1), Duration.ofSeconds(5)));
+    }
+}
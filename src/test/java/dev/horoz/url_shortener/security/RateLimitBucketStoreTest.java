@@ -0,0 +1,102 @@
+package dev.horoz.url_shortener.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RateLimitBucketStoreTest {
+
+    AtomicLong nanos = new AtomicLong();
+
+    @Test
+    @DisplayName("пополнение по интервалу: refillTokens (1) за каждый полный период, не выше capacity")
+    void refillsIntervally() {
+        RateLimitBucketStore store = store(100, 3, 1);
+        long client = ClientAddresses.parse("198.51.100.1");
+
+        for (int i = 0; i < 3; i++) assertThat(store.tryConsume(0, client)).isZero();
+        long wait = store.tryConsume(0, client);
+        assertThat(wait).isEqualTo(Duration.ofMinutes(1).toNanos());
+
+        nanos.addAndGet(Duration.ofSeconds(90).toNanos());
+        assertThat(store.tryConsume(0, client)).isZero();
+        // следующий период отсчитывается от границы интервала, а не от запроса
+        assertThat(store.tryConsume(0, client)).isEqualTo(Duration.ofSeconds(30).toNanos());
+
+        nanos.addAndGet(Duration.ofDays(365).toNanos());
+        for (int i = 0; i < 3; i++) assertThat(store.tryConsume(0, client)).isZero();
+        assertThat(store.tryConsume(0, client)).isPositive();
+    }
+
+    @Test
+    @DisplayName("разные маршруты с одним ключом клиента - разные bucket'ы")
+    void routesAreIsolated() {
+        RateLimitBucketStore store = store(100, 1, 2);
+        long client = ClientAddresses.parse("198.51.100.1");
+
+        assertThat(store.tryConsume(0, client)).isZero();
+        assertThat(store.tryConsume(0, client)).isPositive();
+        assertThat(store.tryConsume(1, client)).isZero();
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("конкурентные запросы одного клиента: выдаётся ровно capacity токенов")
+    void concurrentConsume_isExact() throws Exception {
+        RateLimitBucketStore store = store(100, 1_000, 1);
+        long client = ClientAddresses.parse("198.51.100.1");
+        LongAdder granted = new LongAdder();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    if (store.tryConsume(0, client) == 0) granted.increment();
+                }
+            });
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(granted.sum()).isEqualTo(1_000);
+    }
+
+    @Test
+    @DisplayName("при переполнении вытесняются давно не использованные, активные клиенты остаются")
+    void eviction_prefersLeastRecentlyUsed() {
+        RateLimitBucketStore store = store(64 * 32, 1, 1);
+        long regular = ClientAddresses.parse("198.51.100.1");
+        assertThat(store.tryConsume(0, regular)).isZero();
+
+        for (int i = 0; i < 100_000; i++) {
+            nanos.incrementAndGet();
+            store.tryConsume(0, ClientAddresses.IPV4_TAG | i);
+            if (i % 64 == 0) store.tryConsume(0, regular);
+        }
+
+        assertThat(store.size()).isLessThanOrEqualTo(64 * 32);
+        // bucket постоянного клиента не вытеснен -> токенов по-прежнему нет
+        assertThat(store.tryConsume(0, regular)).isPositive();
+    }
+
+    private RateLimitBucketStore store(long maxBuckets, long capacity, int routes) {
+        List<RateLimitProperties.Route> configured = new ArrayList<>();
+        for (int i = 0; i < routes; i++) {
+            configured.add(new RateLimitProperties.Route("/r" + i + "/", "GET", capacity, 1,
+                    Duration.ofMinutes(1), RateLimitProperties.KeyStrategy.X_FORWARDED_FOR));
+        }
+        return new RateLimitBucketStore(new RateLimitProperties(maxBuckets, Duration.ofMinutes(10), null, configured, null, null),
+                new SimpleMeterRegistry(), nanos::get);
+    }
+}
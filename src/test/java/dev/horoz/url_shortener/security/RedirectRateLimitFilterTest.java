@@ -0,0 +1,140 @@
+package dev.horoz.url_shortener.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RedirectRateLimitFilterTest {
+
+    MeterRegistry meterRegistry;
+    AtomicLong nanos;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        nanos = new AtomicLong();
+    }
+
+    @Test
+    @DisplayName("сверх capacity -> 429 с Retry-After, отказ считается в ratelimit.rejections")
+    void overCapacity_rejectsWith429() throws Exception {
+        RedirectRateLimitFilter filter = filter(properties(100, route("/r/", "GET", 2, RateLimitProperties.KeyStrategy.X_FORWARDED_FOR)));
+
+        assertThat(call(filter, "GET", "/r/abc", "198.51.100.1").getStatus()).isEqualTo(200);
+        assertThat(call(filter, "GET", "/r/abc", "198.51.100.1").getStatus()).isEqualTo(200);
+        MockHttpServletResponse rejected = call(filter, "GET", "/r/abc", "198.51.100.1");
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(Long.parseLong(rejected.getHeader("Retry-After"))).isBetween(1L, 60L);
+        assertThat(meterRegistry.get("ratelimit.rejections").tag("route", "/r/").counter().count()).isEqualTo(1);
+
+        // у другого клиента свой bucket
+        assertThat(call(filter, "GET", "/r/abc", "198.51.100.2").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("запросы вне правил и другим методом не лимитируются")
+    void unmatchedRequests_passThrough() throws Exception {
+        RedirectRateLimitFilter filter = filter(properties(100, route("/r/", "GET", 1, RateLimitProperties.KeyStrategy.X_FORWARDED_FOR)));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(call(filter, "GET", "/api/links", "198.51.100.1").getStatus()).isEqualTo(200);
+            assertThat(call(filter, "POST", "/r/abc", "198.51.100.1").getStatus()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    @DisplayName("правила по маршрутам: свой лимит и своя стратегия ключа")
+    void routes_haveOwnLimitsAndKeys() throws Exception {
+        RedirectRateLimitFilter filter = filter(properties(100,
+                route("/r/", "GET", 1, RateLimitProperties.KeyStrategy.REMOTE_ADDR),
+                route("/auth/", null, 2, RateLimitProperties.KeyStrategy.GLOBAL)));
+
+        // REMOTE_ADDR: X-Forwarded-For игнорируется, подмена заголовка не даёт новый bucket
+        assertThat(call(filter, "GET", "/r/abc", "198.51.100.1").getStatus()).isEqualTo(200);
+        assertThat(call(filter, "GET", "/r/abc", "198.51.100.2").getStatus()).isEqualTo(429);
+
+        // GLOBAL: один bucket на всех клиентов
+        assertThat(call(filter, "POST", "/auth/login", "198.51.100.3").getStatus()).isEqualTo(200);
+        assertThat(call(filter, "POST", "/auth/login", "198.51.100.4").getStatus()).isEqualTo(200);
+        assertThat(call(filter, "POST", "/auth/login", "198.51.100.5").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    @DisplayName("скан с ротацией IP: число bucket'ов не превышает max-buckets, вытеснения видны в метриках")
+    void rotatingClients_areCappedAndEvicted() throws Exception {
+        RateLimitProperties properties = properties(1_000, route("/r/", "GET", 60, RateLimitProperties.KeyStrategy.X_FORWARDED_FOR));
+        RateLimitBucketStore store = new RateLimitBucketStore(properties, meterRegistry, nanos::get);
+        RedirectRateLimitFilter filter = new RedirectRateLimitFilter(properties, store,
+                new ClientKeyResolver(properties), meterRegistry);
+
+        for (int i = 0; i < 20_000; i++) {
+            call(filter, "GET", "/r/abc", "203.0." + (i >>> 8 & 0xFF) + "." + (i & 0xFF));
+        }
+
+        assertThat(store.size()).isLessThanOrEqualTo(1_000);
+        assertThat(meterRegistry.get("ratelimit.buckets").gauge().value()).isLessThanOrEqualTo(1_000);
+        assertThat(meterRegistry.get("ratelimit.evictions").functionCounter().count()).isGreaterThanOrEqualTo(19_000);
+    }
+
+    @Test
+    @DisplayName("bucket без запросов дольше idle-timeout удаляется")
+    void idleBuckets_expire() throws Exception {
+        RateLimitProperties properties = properties(1_000, route("/r/", "GET", 1, RateLimitProperties.KeyStrategy.X_FORWARDED_FOR));
+        RateLimitBucketStore store = new RateLimitBucketStore(properties, meterRegistry, nanos::get);
+        RedirectRateLimitFilter filter = new RedirectRateLimitFilter(properties, store,
+                new ClientKeyResolver(properties), meterRegistry);
+
+        call(filter, "GET", "/r/abc", "198.51.100.1");
+        nanos.addAndGet(Duration.ofMinutes(5).toNanos());
+        call(filter, "GET", "/r/abc", "198.51.100.2");
+        assertThat(store.size()).isEqualTo(2);
+
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+        store.evictIdle();
+
+        // удалён только первый: второй простаивал 6 минут
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(meterRegistry.get("ratelimit.evictions").functionCounter().count()).isEqualTo(1);
+    }
+
+    private RedirectRateLimitFilter filter(RateLimitProperties properties) {
+        return new RedirectRateLimitFilter(properties, new RateLimitBucketStore(properties, meterRegistry, nanos::get),
+                new ClientKeyResolver(properties), meterRegistry);
+    }
+
+    private static RateLimitProperties properties(long maxBuckets, RateLimitProperties.Route... routes) {
+        return new RateLimitProperties(maxBuckets, Duration.ofMinutes(10), null, List.of(routes), null, null);
+    }
+
+    private static RateLimitProperties.Route route(String prefix, String method, long capacity,
+                                                   RateLimitProperties.KeyStrategy key) {
+        return new RateLimitProperties.Route(prefix, method, capacity, capacity, Duration.ofMinutes(1), key);
+    }
+
+    private static MockHttpServletResponse call(RedirectRateLimitFilter filter, String method, String uri,
+                                                String forwardedFor) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(method, uri, forwardedFor), response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        // соединение от доверенного прокси (10.0.0.0/8 в списке по умолчанию)
+        request.setRemoteAddr("10.0.0.254");
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        return request;
+    }
+}
@@ -0,0 +1,102 @@
+package dev.horoz.url_shortener.service;
+
+import dev.horoz.url_shortener.domain.User;
+import dev.horoz.url_shortener.exceptions.EmailAlreadyExistsException;
+import dev.horoz.url_shortener.repository.UserRepository;
+import dev.horoz.url_shortener.security.AuthenticatedUser;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthServiceTest {
+
+    @Mock UserRepository userRepository;
+    @Mock PasswordEncoder passwordEncoder;
+    @Mock AuthenticationManager authenticationManager;
+    @Mock JwtEncoder jwtEncoder;
+
+    AuthService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AuthService(userRepository, passwordEncoder, authenticationManager, jwtEncoder, 3600);
+    }
+
+    @Test
+    @DisplayName("register: один INSERT без предварительного SELECT по email")
+    void register_insertsWithoutPreCheck() {
+        when(passwordEncoder.encode("secret")).thenReturn("hash");
+
+        service.register("a@b.com", "secret");
+
+        verify(userRepository, times(1)).saveAndFlush(argThat(u ->
+                "a@b.com".equals(u.getEmail()) && "hash".equals(u.getPasswordHash())));
+        verify(userRepository, never()).findByEmailIgnoreCase(any());
+    }
+
+    @Test
+    @DisplayName("register: нарушение users_email_lower_uidx -> EmailAlreadyExistsException")
+    void register_whenEmailIndexViolated_throwsEmailAlreadyExists() {
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(violation("users_email_lower_uidx"));
+
+        assertThatThrownBy(() -> service.register("A@b.com", "secret"))
+                .isInstanceOf(EmailAlreadyExistsException.class);
+    }
+
+    @Test
+    @DisplayName("register: другое нарушение целостности пробрасывается как есть")
+    void register_whenOtherConstraintViolated_rethrows() {
+        DataIntegrityViolationException other = violation("users_pkey");
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(other);
+
+        assertThatThrownBy(() -> service.register("a@b.com", "secret")).isSameAs(other);
+    }
+
+    @Test
+    @DisplayName("loginAndIssueToken: id пользователя попадает в claim uid")
+    void login_putsUserIdClaim() {
+        UUID id = UUID.randomUUID();
+        AuthenticatedUser principal = new AuthenticatedUser(id, "a@b.com", "hash",
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        when(authenticationManager.authenticate(any()))
+                .thenReturn(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        when(jwtEncoder.encode(any())).thenReturn(Jwt.withTokenValue("token").header("alg", "HS256")
+                .subject("a@b.com").build());
+
+        assertThat(service.loginAndIssueToken("a@b.com", "secret")).isEqualTo("token");
+
+        ArgumentCaptor<JwtEncoderParameters> params = ArgumentCaptor.forClass(JwtEncoderParameters.class);
+        verify(jwtEncoder).encode(params.capture());
+        JwtClaimsSet claims = params.getValue().getClaims();
+        assertThat(claims.getSubject()).isEqualTo("a@b.com");
+        assertThat(claims.getClaimAsString(AuthenticatedUser.USER_ID_CLAIM)).isEqualTo(id.toString());
+    }
+
+    private static DataIntegrityViolationException violation(String constraint) {
+        return new DataIntegrityViolationException("constraint violation",
+                new ConstraintViolationException("duplicate key", new SQLException("23505"), constraint));
+    }
+}
@@ -1,14 +1,32 @@
 package dev.horoz.url_shortener.service;
 
+import dev.horoz.url_shortener.domain.ClickGranularity;
 import dev.horoz.url_shortener.domain.Link;
 import dev.horoz.url_shortener.domain.User;
+import dev.horoz.url_shortener.dto.link.ClickBucketDto;
+import dev.horoz.url_shortener.dto.link.LinkBatchItemDto;
+import dev.horoz.url_shortener.dto.link.LinkBatchResponseDto;
 import dev.horoz.url_shortener.dto.link.LinkResponseDto;
+import dev.horoz.url_shortener.dto.link.LinkSliceDto;
+import dev.horoz.url_shortener.dto.link.LinkStatsDto;
+import dev.horoz.url_shortener.dto.link.RedirectTargetDto;
+import dev.horoz.url_shortener.exceptions.InvalidTargetUrlException;
 import dev.horoz.url_shortener.exceptions.SlugAlreadyExistsException;
 import dev.horoz.url_shortener.mapper.LinkMapper;
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
 import dev.horoz.url_shortener.repository.LinkRepository;
 import dev.horoz.url_shortener.repository.UserRepository;
+import dev.horoz.url_shortener.security.AuthenticatedUser;
+import dev.horoz.url_shortener.security.ClientAddresses;
+import dev.horoz.url_shortener.service.cache.SlugCache;
+import dev.horoz.url_shortener.service.cache.SlugFilter;
+import dev.horoz.url_shortener.service.click.ClickEvent;
+import dev.horoz.url_shortener.service.click.ClickIngestionService;
+import dev.horoz.url_shortener.service.click.ClickStatsService;
 import dev.horoz.url_shortener.service.slug.SlugGenerator;
+import dev.horoz.url_shortener.service.validation.UrlFingerprint;
 import dev.horoz.url_shortener.service.validation.UrlValidationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -19,9 +37,14 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 
@@ -32,22 +55,41 @@ import static org.mockito.Mockito.*;
 @ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
 class LinkServiceTest {
 
+    static final long CLIENT_IP = ClientAddresses.parse("203.0.113.7");
+
     @Mock
     UserRepository userRepository;
     @Mock
     LinkRepository linkRepository;
     @Mock
+    LinkJdbcRepository linkJdbcRepository;
+    @Mock
     SlugGenerator slugGenerator;
     @Mock
     UrlValidationService urlValidationService;
     @Mock
+    ClickIngestionService clickIngestionService;
+    @Mock
+    ClickStatsService clickStatsService;
+    @Mock
     Authentication authentication;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    SlugCache slugCache;
+    SlugFilter slugFilter;
+    SimpleMeterRegistry meterRegistry;
 
     LinkService service;
 
     @BeforeEach
     void setUp() {
-        service = new LinkService(userRepository, linkRepository, slugGenerator, urlValidationService);
+        meterRegistry = new SimpleMeterRegistry();
+        slugCache = new SlugCache(1_000, 600, 30, meterRegistry);
+        // до первой сборки фильтр пропускает всё - тесты без rebuild() его не замечают
+        slugFilter = new SlugFilter(linkJdbcRepository, transactionManager, true, 0.01, 1_000, 60, meterRegistry);
+        service = new LinkService(userRepository, linkRepository, linkJdbcRepository, slugGenerator, urlValidationService, slugCache,
+                slugFilter, clickIngestionService, clickStatsService, meterRegistry);
     }
 
     // ----------------------------------------------------------------------
@@ -67,7 +109,7 @@ class LinkServiceTest {
         when(authentication.getName()).thenReturn(email);
         when(urlValidationService.normalizeAndValidateUrl(rawUrl)).thenReturn(validUrl);
         when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
-        when(linkRepository.findByUserAndTargetUrlIgnoreCase(user, validUrl)).thenReturn(Optional.of(existing));
+        when(linkRepository.findByUserIdAndUrlHash(user.getId(), UrlFingerprint.hash(validUrl))).thenReturn(List.of(existing));
 
         LinkResponseDto dto = service.createLink(authentication, rawUrl, null);
 
@@ -77,6 +119,30 @@ class LinkServiceTest {
         verify(slugGenerator, never()).nextSlug();
     }
 
+    @Test
+    @DisplayName("createLink: совпал только url_hash (коллизия) -> существующая ссылка не подходит, создаётся новая")
+    void createLink_whenOnlyUrlHashMatches_createsNewLink() {
+        String email = "a@b.com";
+        String validUrl = "https://example.com/a";
+        User user = givenUser(email);
+
+        Link collision = givenLink(user, "https://other.com/b", "OTHER123");
+
+        when(authentication.getName()).thenReturn(email);
+        when(urlValidationService.normalizeAndValidateUrl(validUrl)).thenReturn(validUrl);
+        when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
+        when(linkRepository.findByUserIdAndUrlHash(user.getId(), UrlFingerprint.hash(validUrl))).thenReturn(List.of(collision));
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
+        when(slugGenerator.nextSlug()).thenReturn("GEN12345");
+        when(linkRepository.saveAndFlush(any(Link.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        LinkResponseDto dto = service.createLink(authentication, validUrl, null);
+
+        assertThat(dto.slug()).isEqualTo("GEN12345");
+        verify(linkRepository, times(1)).saveAndFlush(argThat(l ->
+                validUrl.equals(l.getTargetUrl()) && Long.valueOf(UrlFingerprint.hash(validUrl)).equals(l.getUrlHash())));
+    }
+
     @Test
     @DisplayName("createLink: customSlug null/blank -> идёт в генерацию slug и сохраняет")
     void createLink_whenCustomSlugBlank_generatesSlug_andSaves() {
@@ -88,7 +154,8 @@ class LinkServiceTest {
         when(authentication.getName()).thenReturn(email);
         when(urlValidationService.normalizeAndValidateUrl(rawUrl)).thenReturn(validUrl);
         when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
-        when(linkRepository.findByUserAndTargetUrlIgnoreCase(user, validUrl)).thenReturn(Optional.empty());
+        when(linkRepository.findByUserIdAndUrlHash(user.getId(), UrlFingerprint.hash(validUrl))).thenReturn(List.of());
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
 
         when(slugGenerator.nextSlug()).thenReturn("GEN12345");
         // saveAndFlush успешно
@@ -117,7 +184,8 @@ class LinkServiceTest {
         when(authentication.getName()).thenReturn(email);
         when(urlValidationService.normalizeAndValidateUrl(rawUrl)).thenReturn(validUrl);
         when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
-        when(linkRepository.findByUserAndTargetUrlIgnoreCase(user, validUrl)).thenReturn(Optional.empty());
+        when(linkRepository.findByUserIdAndUrlHash(user.getId(), UrlFingerprint.hash(validUrl))).thenReturn(List.of());
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
 
         when(linkRepository.saveAndFlush(any(Link.class))).thenAnswer(inv -> inv.getArgument(0));
 
@@ -142,7 +210,8 @@ class LinkServiceTest {
         when(authentication.getName()).thenReturn(email);
         when(urlValidationService.normalizeAndValidateUrl(rawUrl)).thenReturn(validUrl);
         when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
-        when(linkRepository.findByUserAndTargetUrlIgnoreCase(user, validUrl)).thenReturn(Optional.empty());
+        when(linkRepository.findByUserIdAndUrlHash(user.getId(), UrlFingerprint.hash(validUrl))).thenReturn(List.of());
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
 
         DataIntegrityViolationException uniqueViolation = uniqueSlugViolation();
         when(linkRepository.saveAndFlush(any(Link.class))).thenThrow(uniqueViolation);
@@ -166,8 +235,9 @@ class LinkServiceTest {
         when(authentication.getName()).thenReturn(email);
         when(urlValidationService.normalizeAndValidateUrl(rawUrl)).thenReturn(validUrl);
         when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
-        when(linkRepository.findByUserAndTargetUrlIgnoreCase(user, validUrl))
-                .thenReturn(Optional.empty());
+        when(linkRepository.findByUserIdAndUrlHash(user.getId(), UrlFingerprint.hash(validUrl)))
+                .thenReturn(List.of());
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
 
         // 3 разных slug
         when(slugGenerator.nextSlug()).thenReturn("S1", "S2", "S3");
@@ -218,7 +288,8 @@ class LinkServiceTest {
         when(authentication.getName()).thenReturn(email);
         when(urlValidationService.normalizeAndValidateUrl(rawUrl)).thenReturn(validUrl);
         when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
-        when(linkRepository.findByUserAndTargetUrlIgnoreCase(user, validUrl)).thenReturn(Optional.empty());
+        when(linkRepository.findByUserIdAndUrlHash(user.getId(), UrlFingerprint.hash(validUrl))).thenReturn(List.of());
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
 
         // MAX_ATTEMPTS = 10
         when(slugGenerator.nextSlug()).thenReturn("A", "B", "C", "D", "E", "F", "G", "H", "I", "J");
@@ -230,6 +301,8 @@ class LinkServiceTest {
 
         verify(slugGenerator, times(10)).nextSlug();
         verify(linkRepository, times(10)).saveAndFlush(any(Link.class));
+        assertThat(meterRegistry.get("links.slug.collisions").counter().count()).isEqualTo(10);
+        assertThat(meterRegistry.get("links.create").tag("outcome", "error").timer().count()).isEqualTo(1);
     }
 
     @Test
@@ -243,7 +316,8 @@ class LinkServiceTest {
         when(authentication.getName()).thenReturn(email);
         when(urlValidationService.normalizeAndValidateUrl(rawUrl)).thenReturn(validUrl);
         when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
-        when(linkRepository.findByUserAndTargetUrlIgnoreCase(user, validUrl)).thenReturn(Optional.empty());
+        when(linkRepository.findByUserIdAndUrlHash(user.getId(), UrlFingerprint.hash(validUrl))).thenReturn(List.of());
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
 
         when(slugGenerator.nextSlug()).thenReturn("GEN12345");
         DataIntegrityViolationException other = new DataIntegrityViolationException("boom");
@@ -256,6 +330,87 @@ class LinkServiceTest {
         verify(linkRepository, times(1)).saveAndFlush(any(Link.class));
     }
 
+    // ----------------------------------------------------------------------
+    // createLinks()
+    // ----------------------------------------------------------------------
+
+    @Test
+    @DisplayName("createLinks: один поиск существующих и один INSERT, невалидный URL не валит пачку")
+    void createLinks_mixedBatch_returnsPerItemResults() {
+        String email = "a@b.com";
+        User user = givenUser(email);
+        when(authentication.getName()).thenReturn(email);
+        when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
+        when(urlValidationService.normalizeAndValidateUrl(anyString())).thenAnswer(inv -> {
+            String url = inv.getArgument(0);
+            if (url.startsWith("bad")) throw new InvalidTargetUrlException("targetUrl must be a valid URL");
+            return url.trim();
+        });
+        LinkResponseDto existing = new LinkResponseDto(UUID.randomUUID(), "EXIST123", "https://old.com",
+                Instant.now(), 5L, Instant.now());
+        when(linkJdbcRepository.findByUserAndUrlHashes(eq(user.getId()), any())).thenReturn(List.of(existing));
+        when(slugGenerator.nextSlug()).thenReturn("NEW00001");
+        when(linkJdbcRepository.insertLinks(eq(user.getId()), any(), any(), any(), any(), any())).thenAnswer(inv -> {
+            UUID[] ids = inv.getArgument(2);
+            String[] slugs = inv.getArgument(3);
+            String[] urls = inv.getArgument(4);
+            return List.of(new LinkResponseDto(ids[0], slugs[0], urls[0], Instant.now(), 0L, Instant.now()));
+        });
+
+        LinkBatchResponseDto result = service.createLinks(authentication,
+                List.of("https://new.com", "bad url", "https://old.com", "HTTPS://NEW.COM"));
+
+        assertThat(result.items()).extracting(LinkBatchItemDto::status).containsExactly(
+                LinkBatchItemDto.Status.CREATED, LinkBatchItemDto.Status.INVALID,
+                LinkBatchItemDto.Status.EXISTING, LinkBatchItemDto.Status.EXISTING);
+        assertThat(result.items().get(0).link().slug()).isEqualTo("NEW00001");
+        assertThat(result.items().get(3).link()).isEqualTo(result.items().get(0).link());
+        assertThat(result.items().get(1).error()).isEqualTo("targetUrl must be a valid URL");
+        assertThat(result.created()).isEqualTo(1);
+        assertThat(result.existing()).isEqualTo(2);
+        assertThat(result.failed()).isEqualTo(1);
+
+        ArgumentCaptor<Long[]> hashes = ArgumentCaptor.forClass(Long[].class);
+        verify(linkJdbcRepository, times(1)).findByUserAndUrlHashes(eq(user.getId()), hashes.capture());
+        assertThat(hashes.getValue()).containsExactly(
+                UrlFingerprint.hash("https://new.com"), UrlFingerprint.hash("https://old.com"));
+        verify(linkJdbcRepository, times(1)).insertLinks(any(), any(), any(), any(), any(), any());
+        verify(linkRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("createLinks: строки с занятым slug повторяются с новыми slug'ами, остальные не перевставляются")
+    void createLinks_slugConflict_retriesOnlyConflictingRows() {
+        String email = "a@b.com";
+        User user = givenUser(email);
+        when(authentication.getName()).thenReturn(email);
+        when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
+        when(urlValidationService.normalizeAndValidateUrl(anyString())).thenAnswer(inv -> inv.getArgument(0));
+        when(linkJdbcRepository.findByUserAndUrlHashes(any(), any())).thenReturn(List.of());
+        when(slugGenerator.nextSlug()).thenReturn("TAKEN001", "FREE0001", "FREE0002");
+        List<Integer> batchSizes = new ArrayList<>();
+        when(linkJdbcRepository.insertLinks(any(), any(), any(), any(), any(), any())).thenAnswer(inv -> {
+            UUID[] ids = inv.getArgument(2);
+            String[] slugs = inv.getArgument(3);
+            String[] urls = inv.getArgument(4);
+            batchSizes.add(ids.length);
+            List<LinkResponseDto> inserted = new ArrayList<>();
+            for (int i = 0; i < ids.length; i++) {
+                if (!slugs[i].startsWith("TAKEN")) {
+                    inserted.add(new LinkResponseDto(ids[i], slugs[i], urls[i], Instant.now(), 0L, Instant.now()));
+                }
+            }
+            return inserted;
+        });
+
+        LinkBatchResponseDto result = service.createLinks(authentication, List.of("https://a.com", "https://b.com"));
+
+        assertThat(batchSizes).containsExactly(2, 1);
+        assertThat(meterRegistry.get("links.slug.collisions").counter().count()).isEqualTo(1);
+        assertThat(result.created()).isEqualTo(2);
+        assertThat(result.items()).extracting(i -> i.link().slug()).containsExactly("FREE0002", "FREE0001");
+    }
+
     // ----------------------------------------------------------------------
     // getLinks()
     // ----------------------------------------------------------------------
@@ -272,14 +427,14 @@ class LinkServiceTest {
         Link l1 = givenLink(user, "https://a.com", "S1");
         Page<Link> page = new PageImpl<>(List.of(l1));
 
-        when(linkRepository.findAllByUser(eq(user), any(Pageable.class))).thenReturn(page);
+        when(linkRepository.findAllByUserId(eq(user.getId()), any(Pageable.class))).thenReturn(page);
 
         Page<LinkResponseDto> result = service.getLinks(authentication, 1, 20);
 
         assertThat(result.getContent()).hasSize(1);
 
         ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
-        verify(linkRepository).findAllByUser(eq(user), captor.capture());
+        verify(linkRepository).findAllByUserId(eq(user.getId()), captor.capture());
 
         Pageable p = captor.getValue();
         assertThat(p.getPageNumber()).isEqualTo(1);
@@ -287,10 +442,111 @@ class LinkServiceTest {
         assertThat(Objects.requireNonNull(p.getSort().getOrderFor("createdAt")).getDirection()).isEqualTo(Sort.Direction.DESC);
     }
 
+    @Test
+    @DisplayName("getLinksAfter: первая страница без курсора, limit+1 вместо count, nextCursor - последняя ссылка")
+    void getLinksAfter_firstPage_returnsCursorOfLastItem() {
+        String email = "a@b.com";
+        User user = givenUser(email);
+        when(authentication.getName()).thenReturn(email);
+        when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
+
+        Instant t = Instant.parse("2025-01-01T10:00:00.123456Z");
+        Link l1 = givenLink(user, "https://a.com", "S1");
+        Link l2 = givenLink(user, "https://b.com", "S2");
+        Link l3 = givenLink(user, "https://c.com", "S3");
+        setField(l1, "createdAt", t.plusSeconds(2));
+        setField(l2, "createdAt", t.plusSeconds(1));
+        setField(l3, "createdAt", t);
+        when(linkRepository.findByUserIdOrderByCreatedAtDescIdAsc(user.getId(), Limit.of(3))).thenReturn(List.of(l1, l2, l3));
+
+        LinkSliceDto slice = service.getLinksAfter(authentication, "", 2);
+
+        assertThat(slice.items()).extracting(LinkResponseDto::slug).containsExactly("S1", "S2");
+        assertThat(slice.hasNext()).isTrue();
+        assertThat(LinkCursor.decode(slice.nextCursor())).isEqualTo(new LinkCursor(t.plusSeconds(1), l2.getId()));
+        verify(linkRepository, never()).findAllByUserId(any(), any());
+    }
+
+    @Test
+    @DisplayName("getLinksAfter: страница после курсора идёт в findPageAfter, последняя страница без nextCursor")
+    void getLinksAfter_withCursor_usesKeysetQuery() {
+        String email = "a@b.com";
+        User user = givenUser(email);
+        when(authentication.getName()).thenReturn(email);
+        when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
+
+        LinkCursor cursor = new LinkCursor(Instant.parse("2025-01-01T10:00:00.123456Z"), UUID.randomUUID());
+        Link l = givenLink(user, "https://a.com", "S1");
+        when(linkRepository.findPageAfter(user.getId(), cursor.createdAt(), cursor.id(), Limit.of(21))).thenReturn(List.of(l));
+
+        LinkSliceDto slice = service.getLinksAfter(authentication, cursor.encode(), 20);
+
+        assertThat(slice.items()).hasSize(1);
+        assertThat(slice.hasNext()).isFalse();
+        assertThat(slice.nextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("getLinksAfter: испорченный курсор -> 400")
+    void getLinksAfter_malformedCursor_isBadRequest() {
+        assertThatThrownBy(() -> service.getLinksAfter(authentication, "not-a-cursor", 20))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        verifyNoInteractions(linkRepository);
+    }
+
+    @Test
+    @DisplayName("getLinksAfter: курсор с секундами за пределами Instant -> 400, а не 500")
+    void getLinksAfter_cursorEpochOutOfRange_isBadRequest() {
+        for (long[] forged : new long[][]{{Long.MAX_VALUE, 0}, {Long.MIN_VALUE, 0}, {Long.MAX_VALUE, Integer.MAX_VALUE}}) {
+            ByteBuffer buf = ByteBuffer.allocate(28).putLong(forged[0]).putInt((int) forged[1]).putLong(1).putLong(2);
+            String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(buf.array());
+
+            assertThatThrownBy(() -> service.getLinksAfter(authentication, cursor, 20))
+                    .isInstanceOf(ResponseStatusException.class)
+                    .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        }
+        verifyNoInteractions(linkRepository);
+    }
+
     // ----------------------------------------------------------------------
     // getLinkById / stats / delete / update (ветки ownership + not found)
     // ----------------------------------------------------------------------
 
+    @Test
+    @DisplayName("getLinkById: uid из JWT -> один запрос ссылки с проверкой владельца, users не читается")
+    void getLinkById_withUidClaim_skipsUserLookup() {
+        User user = givenUser("a@b.com");
+        UUID id = UUID.randomUUID();
+        Link link = givenLink(user, "https://x.com", "S1");
+        setId(link, id);
+
+        when(linkRepository.findByIdAndUserId(id, user.getId())).thenReturn(Optional.of(link));
+
+        LinkResponseDto dto = service.getLinkById(jwtAuthentication(user), id);
+
+        assertThat(dto.id()).isEqualTo(id);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("createLink: uid из JWT -> владелец через getReferenceById, без SELECT по email")
+    void createLink_withUidClaim_usesUserReference() {
+        User user = givenUser("a@b.com");
+        String validUrl = "https://example.com";
+
+        when(urlValidationService.normalizeAndValidateUrl(validUrl)).thenReturn(validUrl);
+        when(linkRepository.findByUserIdAndUrlHash(user.getId(), UrlFingerprint.hash(validUrl))).thenReturn(List.of());
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
+        when(slugGenerator.nextSlug()).thenReturn("GEN12345");
+        when(linkRepository.saveAndFlush(any(Link.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        service.createLink(jwtAuthentication(user), validUrl, null);
+
+        verify(linkRepository).saveAndFlush(argThat(l -> l.getUser() == user));
+        verify(userRepository, never()).findByEmailIgnoreCase(any());
+    }
+
     @Test
     @DisplayName("getLinkById: если link не найден у пользователя -> 404")
     void getLinkById_whenNotFound_returns404() {
@@ -300,7 +556,7 @@ class LinkServiceTest {
 
         when(authentication.getName()).thenReturn(email);
         when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
-        when(linkRepository.findByIdAndUser(id, user)).thenReturn(Optional.empty());
+        when(linkRepository.findByIdAndUserId(id, user.getId())).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> service.getLinkById(authentication, id))
                 .isInstanceOf(ResponseStatusException.class)
@@ -318,7 +574,7 @@ class LinkServiceTest {
 
         when(authentication.getName()).thenReturn(email);
         when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
-        when(linkRepository.findByIdAndUser(id, user)).thenReturn(Optional.of(link));
+        when(linkRepository.findByIdAndUserId(id, user.getId())).thenReturn(Optional.of(link));
 
         service.deleteLinkById(authentication, id);
 
@@ -340,7 +596,7 @@ class LinkServiceTest {
 
         when(authentication.getName()).thenReturn(email);
         when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
-        when(linkRepository.findByIdAndUser(id, user)).thenReturn(Optional.of(link));
+        when(linkRepository.findByIdAndUserId(id, user.getId())).thenReturn(Optional.of(link));
 
         LinkResponseDto dto = service.updateLink(authentication, id);
 
@@ -348,6 +604,59 @@ class LinkServiceTest {
         assertThat(link.getExpiresAt()).isAfter(before);
     }
 
+    @Test
+    @DisplayName("getLinkStatsById: clicksTotal включает ещё не записанные в БД клики, есть оценка уникальных")
+    void getLinkStatsById_addsPendingClicks() {
+        String email = "a@b.com";
+        User user = givenUser(email);
+        UUID id = UUID.randomUUID();
+        Link link = givenLink(user, "https://x.com", "S1");
+        setId(link, id);
+        setField(link, "clicksTotal", 40L);
+
+        when(authentication.getName()).thenReturn(email);
+        when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
+        when(linkRepository.findByIdAndUserId(id, user.getId())).thenReturn(Optional.of(link));
+        when(clickStatsService.parseGranularity(null)).thenReturn(ClickGranularity.HOUR);
+        when(clickStatsService.pendingClicks(id)).thenReturn(2L);
+        when(clickStatsService.uniqueVisitors(id)).thenReturn(17L);
+        when(clickStatsService.series(eq(id), any(Instant.class), any(Instant.class), eq(ClickGranularity.HOUR)))
+                .thenReturn(List.of());
+
+        LinkStatsDto stats = service.getLinkStatsById(authentication, id, null, null, null);
+
+        assertThat(stats.clicksTotal()).isEqualTo(42L);
+        assertThat(stats.uniqueVisitorsEstimate()).isEqualTo(17L);
+    }
+
+    @Test
+    @DisplayName("getLinkStatsById: без from/to берётся последняя неделя, бакеты из ClickStatsService")
+    void getLinkStatsById_defaultsToLastWeek() {
+        String email = "a@b.com";
+        User user = givenUser(email);
+        UUID id = UUID.randomUUID();
+        Link link = givenLink(user, "https://x.com", "S1");
+        setId(link, id);
+        List<ClickBucketDto> buckets = List.of(new ClickBucketDto(Instant.parse("2026-01-01T10:00:00Z"), 5, null));
+
+        when(authentication.getName()).thenReturn(email);
+        when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
+        when(linkRepository.findByIdAndUserId(id, user.getId())).thenReturn(Optional.of(link));
+        when(clickStatsService.parseGranularity("day")).thenReturn(ClickGranularity.DAY);
+        when(clickStatsService.series(eq(id), any(Instant.class), any(Instant.class), eq(ClickGranularity.DAY)))
+                .thenReturn(buckets);
+
+        LinkStatsDto stats = service.getLinkStatsById(authentication, id, null, null, "day");
+
+        ArgumentCaptor<Instant> from = ArgumentCaptor.forClass(Instant.class);
+        ArgumentCaptor<Instant> to = ArgumentCaptor.forClass(Instant.class);
+        verify(clickStatsService).series(eq(id), from.capture(), to.capture(), eq(ClickGranularity.DAY));
+        assertThat(Duration.between(from.getValue(), to.getValue())).isEqualTo(Duration.ofDays(7));
+
+        assertThat(stats.granularity()).isEqualTo(ClickGranularity.DAY);
+        assertThat(stats.buckets()).isEqualTo(buckets);
+    }
+
     // ----------------------------------------------------------------------
     // processRedirect()
     // ----------------------------------------------------------------------
@@ -355,13 +664,13 @@ class LinkServiceTest {
     @Test
     @DisplayName("processRedirect: slug не найден -> 404")
     void processRedirect_whenSlugNotFound_throws404() {
-        when(linkRepository.findBySlug("abc")).thenReturn(Optional.empty());
+        when(linkRepository.findRedirectTargetBySlug("abc")).thenReturn(Optional.empty());
 
-        assertThatThrownBy(() -> service.processRedirect("abc"))
+        assertThatThrownBy(() -> service.processRedirect("abc", CLIENT_IP))
                 .isInstanceOf(ResponseStatusException.class)
                 .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
 
-        verify(linkRepository, never()).incrementClicksTotal(any(UUID.class));
+        verify(clickIngestionService, never()).ingest(any(ClickEvent.class));
     }
 
     @Test
@@ -372,17 +681,17 @@ class LinkServiceTest {
         link.setTargetUrl("https://target.com");
         link.setExpiresAt(Instant.now().minusSeconds(5));
 
-        when(linkRepository.findBySlug("abc")).thenReturn(Optional.of(link));
+        when(linkRepository.findRedirectTargetBySlug("abc")).thenReturn(Optional.of(redirectTarget(link)));
 
-        assertThatThrownBy(() -> service.processRedirect("abc"))
+        assertThatThrownBy(() -> service.processRedirect("abc", CLIENT_IP))
                 .isInstanceOf(ResponseStatusException.class)
                 .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode()).isEqualTo(HttpStatus.GONE));
 
-        verify(linkRepository, never()).incrementClicksTotal(any(UUID.class));
+        verify(clickIngestionService, never()).ingest(any(ClickEvent.class));
     }
 
     @Test
-    @DisplayName("processRedirect: валидная ссылка -> incrementClicksTotal вызывается, возвращается targetUrl")
+    @DisplayName("processRedirect: валидная ссылка -> клик уходит в ClickIngestionService, возвращается targetUrl")
     void processRedirect_whenValid_incrementsAndReturnsTargetUrl() {
         Link link = new Link();
         UUID id = UUID.randomUUID();
@@ -390,18 +699,219 @@ class LinkServiceTest {
         link.setTargetUrl("https://target.com");
         link.setExpiresAt(Instant.now().plusSeconds(60));
 
-        when(linkRepository.findBySlug("abc")).thenReturn(Optional.of(link));
+        when(linkRepository.findRedirectTargetBySlug("abc")).thenReturn(Optional.of(redirectTarget(link)));
 
-        String target = service.processRedirect("abc");
+        String target = service.processRedirect("abc", CLIENT_IP);
 
         assertThat(target).isEqualTo("https://target.com");
-        verify(linkRepository).incrementClicksTotal(id);
+        verify(clickIngestionService).ingest(argThat(e -> e.linkId().equals(id) && e.visitorKey() == CLIENT_IP));
+    }
+
+    @Test
+    @DisplayName("processRedirect: время пишется в links.redirect с исходом found / not_found / gone / error")
+    void processRedirect_recordsTimerByOutcome() {
+        Link live = new Link();
+        setId(live, UUID.randomUUID());
+        live.setTargetUrl("https://target.com");
+        Link expired = new Link();
+        setId(expired, UUID.randomUUID());
+        expired.setTargetUrl("https://target.com");
+        expired.setExpiresAt(Instant.now().minusSeconds(5));
+
+        when(linkRepository.findRedirectTargetBySlug("live")).thenReturn(Optional.of(redirectTarget(live)));
+        when(linkRepository.findRedirectTargetBySlug("expired")).thenReturn(Optional.of(redirectTarget(expired)));
+        when(linkRepository.findRedirectTargetBySlug("missing")).thenReturn(Optional.empty());
+        when(linkRepository.findRedirectTargetBySlug("broken")).thenThrow(new IllegalStateException("db down"));
+
+        service.processRedirect("live", CLIENT_IP);
+        for (String slug : List.of("expired", "missing", "broken")) {
+            assertThatThrownBy(() -> service.processRedirect(slug, CLIENT_IP)).isInstanceOf(RuntimeException.class);
+        }
+
+        for (String outcome : List.of("found", "gone", "not_found", "error")) {
+            assertThat(meterRegistry.get("links.redirect").tag("outcome", outcome).timer().count())
+                    .as(outcome).isEqualTo(1);
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // slug cache
+    // ----------------------------------------------------------------------
+
+    @Test
+    @DisplayName("processRedirect: повторный redirect берётся из кэша, findRedirectTargetBySlug вызывается один раз")
+    void processRedirect_secondCall_isServedFromCache() {
+        Link link = new Link();
+        UUID id = UUID.randomUUID();
+        setId(link, id);
+        link.setTargetUrl("https://target.com");
+        link.setExpiresAt(Instant.now().plusSeconds(60));
+
+        when(linkRepository.findRedirectTargetBySlug("abc")).thenReturn(Optional.of(redirectTarget(link)));
+
+        assertThat(service.processRedirect("abc", CLIENT_IP)).isEqualTo("https://target.com");
+        assertThat(service.processRedirect("abc", CLIENT_IP)).isEqualTo("https://target.com");
+
+        verify(linkRepository, times(1)).findRedirectTargetBySlug("abc");
+        verify(clickIngestionService, times(2)).ingest(argThat(e -> e.linkId().equals(id)));
+        assertThat(slugCache.stats().hitCount()).isEqualTo(1);
+        assertThat(slugCache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("processRedirect: 404 кэшируется негативно, повторный запрос не идёт в БД")
+    void processRedirect_notFound_isNegativelyCached() {
+        when(linkRepository.findRedirectTargetBySlug("nope")).thenReturn(Optional.empty());
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> service.processRedirect("nope", CLIENT_IP))
+                    .isInstanceOf(ResponseStatusException.class)
+                    .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        }
+
+        verify(linkRepository, times(1)).findRedirectTargetBySlug("nope");
+    }
+
+    @Test
+    @DisplayName("processRedirect: истечение проверяется по закэшированному expiresAt")
+    void processRedirect_expiryIsCheckedFromCachedValue() {
+        Link link = new Link();
+        setId(link, UUID.randomUUID());
+        link.setTargetUrl("https://target.com");
+        link.setExpiresAt(Instant.now().minusSeconds(5));
+
+        when(linkRepository.findRedirectTargetBySlug("abc")).thenReturn(Optional.of(redirectTarget(link)));
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> service.processRedirect("abc", CLIENT_IP))
+                    .isInstanceOf(ResponseStatusException.class)
+                    .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode()).isEqualTo(HttpStatus.GONE));
+        }
+
+        verify(linkRepository, times(1)).findRedirectTargetBySlug("abc");
+    }
+
+    @Test
+    @DisplayName("deleteLinkById: slug удаляется из кэша")
+    void deleteLinkById_invalidatesSlugCache() {
+        String email = "a@b.com";
+        User user = givenUser(email);
+        UUID id = UUID.randomUUID();
+        Link link = givenLink(user, "https://x.com", "S1");
+        setId(link, id);
+
+        when(authentication.getName()).thenReturn(email);
+        when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
+        when(linkRepository.findByIdAndUserId(id, user.getId())).thenReturn(Optional.of(link));
+        when(linkRepository.findRedirectTargetBySlug("S1")).thenReturn(Optional.of(redirectTarget(link)))
+                .thenReturn(Optional.empty());
+
+        service.processRedirect("S1", CLIENT_IP);
+        service.deleteLinkById(authentication, id);
+
+        assertThatThrownBy(() -> service.processRedirect("S1", CLIENT_IP))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        verify(linkRepository, times(2)).findRedirectTargetBySlug("S1");
+    }
+
+    @Test
+    @DisplayName("updateLink: slug удаляется из кэша, новый expiresAt виден сразу")
+    void updateLink_invalidatesSlugCache() {
+        String email = "a@b.com";
+        User user = givenUser(email);
+        UUID id = UUID.randomUUID();
+        Link link = givenLink(user, "https://x.com", "S1");
+        setId(link, id);
+        link.setExpiresAt(Instant.now().minusSeconds(5));
+
+        when(authentication.getName()).thenReturn(email);
+        when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
+        when(linkRepository.findByIdAndUserId(id, user.getId())).thenReturn(Optional.of(link));
+        when(linkRepository.findRedirectTargetBySlug("S1")).thenAnswer(inv -> Optional.of(redirectTarget(link)));
+
+        assertThatThrownBy(() -> service.processRedirect("S1", CLIENT_IP))
+                .isInstanceOf(ResponseStatusException.class);
+
+        service.updateLink(authentication, id);
+
+        assertThat(service.processRedirect("S1", CLIENT_IP)).isEqualTo("https://x.com");
+        verify(linkRepository, times(2)).findRedirectTargetBySlug("S1");
+    }
+
+    @Test
+    @DisplayName("createLink: негативно закэшированный custom slug становится доступен сразу после создания")
+    void createLink_invalidatesNegativelyCachedSlug() {
+        String email = "a@b.com";
+        String validUrl = "https://example.com";
+        User user = givenUser(email);
+        Link created = givenLink(user, validUrl, "MYSLUG01");
+
+        when(linkRepository.findRedirectTargetBySlug("MYSLUG01")).thenReturn(Optional.empty())
+                .thenReturn(Optional.of(redirectTarget(created)));
+        assertThatThrownBy(() -> service.processRedirect("MYSLUG01", CLIENT_IP))
+                .isInstanceOf(ResponseStatusException.class);
+
+        when(authentication.getName()).thenReturn(email);
+        when(urlValidationService.normalizeAndValidateUrl(validUrl)).thenReturn(validUrl);
+        when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
+        when(linkRepository.findByUserIdAndUrlHash(user.getId(), UrlFingerprint.hash(validUrl))).thenReturn(List.of());
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
+        when(linkRepository.saveAndFlush(any(Link.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        service.createLink(authentication, validUrl, "MYSLUG01");
+
+        assertThat(service.processRedirect("MYSLUG01", CLIENT_IP)).isEqualTo(validUrl);
+    }
+
+    @Test
+    @DisplayName("processRedirect: slug отсеян фильтром -> 404 без запроса в БД и без записи в кэш")
+    void processRedirect_whenFilterRejects_throws404WithoutLookup() {
+        givenFilterSlugs("abc");
+
+        assertThatThrownBy(() -> service.processRedirect("nope", CLIENT_IP))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+
+        verify(linkRepository, never()).findRedirectTargetBySlug(any());
+        assertThat(slugCache.estimatedSize()).isZero();
+    }
+
+    @Test
+    @DisplayName("createLink: новый slug проходит уже собранный фильтр сразу, без ожидания refresh")
+    void createLink_addsSlugToFilter() {
+        givenFilterSlugs("abc");
+        String email = "a@b.com";
+        String validUrl = "https://example.com";
+        User user = givenUser(email);
+        Link created = givenLink(user, validUrl, "MYSLUG01");
+
+        when(authentication.getName()).thenReturn(email);
+        when(urlValidationService.normalizeAndValidateUrl(validUrl)).thenReturn(validUrl);
+        when(userRepository.findByEmailIgnoreCase(email)).thenReturn(Optional.of(user));
+        when(linkRepository.findByUserIdAndUrlHash(user.getId(), UrlFingerprint.hash(validUrl))).thenReturn(List.of());
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
+        when(linkRepository.saveAndFlush(any(Link.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(linkRepository.findRedirectTargetBySlug("MYSLUG01")).thenReturn(Optional.of(redirectTarget(created)));
+
+        service.createLink(authentication, validUrl, "MYSLUG01");
+
+        assertThat(service.processRedirect("MYSLUG01", CLIENT_IP)).isEqualTo(validUrl);
     }
 
     // ----------------------------------------------------------------------
     // helpers
     // ----------------------------------------------------------------------
 
+    private void givenFilterSlugs(String... slugs) {
+        doAnswer(inv -> {
+            LinkJdbcRepository.SlugHandler handler = inv.getArgument(1);
+            for (String slug : slugs) handler.accept(slug, Instant.now());
+            return null;
+        }).when(linkJdbcRepository).forEachSlug(isNull(), any());
+        slugFilter.rebuild();
+    }
+
     private User givenUser(String email) {
         User user = new User();
         user.setEmail(email);
@@ -412,6 +922,15 @@ class LinkServiceTest {
         return user;
     }
 
+    private static Authentication jwtAuthentication(User user) {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "HS256")
+                .subject(user.getEmail())
+                .claim(AuthenticatedUser.USER_ID_CLAIM, user.getId().toString())
+                .build();
+        return new JwtAuthenticationToken(jwt);
+    }
+
     private Link givenLink(User user, String targetUrl, String slug) {
         Link link = new Link();
         link.setUser(user);
@@ -436,11 +955,19 @@ class LinkServiceTest {
         return new DataIntegrityViolationException("DUP", cve);
     }
 
+    private static RedirectTargetDto redirectTarget(Link link) {
+        return new RedirectTargetDto(link.getId(), link.getTargetUrl(), link.getExpiresAt());
+    }
+
     private static <T> void setId(T entity, UUID id) {
+        setField(entity, "id", id);
+    }
+
+    private static <T> void setField(T entity, String name, Object value) {
         try {
-            Field field = entity.getClass().getDeclaredField("id");
+            Field field = entity.getClass().getDeclaredField(name);
             field.setAccessible(true);
-            field.set(entity, id);
+            field.set(entity, value);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
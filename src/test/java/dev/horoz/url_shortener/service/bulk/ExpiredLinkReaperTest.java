@@ -0,0 +1,168 @@
+package dev.horoz.url_shortener.service.bulk;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import dev.horoz.url_shortener.repository.LinkJdbcRepository.ReapedLink;
+import dev.horoz.url_shortener.service.cache.SlugCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpiredLinkReaperTest {
+
+    private static final Instant EXPIRED = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Mock
+    LinkJdbcRepository linkJdbcRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    SlugCache slugCache;
+
+    @Mock
+    HikariDataSource dataSource;
+
+    @Mock
+    HikariPoolMXBean pool;
+
+    SimpleMeterRegistry meterRegistry;
+    ExpiredLinkReaper reaper;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        when(dataSource.isWrapperFor(HikariDataSource.class)).thenReturn(true);
+        when(dataSource.unwrap(HikariDataSource.class)).thenReturn(dataSource);
+        lenient().when(dataSource.getHikariPoolMXBean()).thenReturn(pool);
+        reaper = reaper(false);
+    }
+
+    @Test
+    @DisplayName("run: пачки идут от курсора последней удалённой ссылки, slug'и вычищаются из кэша")
+    void run_walksKeysetBatchesAndInvalidatesCache() {
+        // RETURNING без порядка: курсор - максимум по (expires_at, id)
+        ReapedLink a = link(1, EXPIRED), b = link(2, EXPIRED.plusSeconds(1)), c = link(3, EXPIRED.plusSeconds(2));
+        when(linkJdbcRepository.reapExpired(any(), isNull(), eq(2), eq(false))).thenReturn(List.of(b, a));
+        when(linkJdbcRepository.reapExpired(any(), eq(b), eq(2), eq(false))).thenReturn(List.of(c));
+
+        Instant before = Instant.now();
+        reaper.run();
+
+        ArgumentCaptor<Instant> expiredBefore = ArgumentCaptor.forClass(Instant.class);
+        verify(linkJdbcRepository, times(2)).reapExpired(expiredBefore.capture(), any(), anyInt(), anyBoolean());
+        assertThat(expiredBefore.getValue()).isBetween(before.minus(Duration.ofDays(7)), Instant.now().minus(Duration.ofDays(7)));
+        verify(slugCache).invalidate("s1");
+        verify(slugCache).invalidate("s2");
+        verify(slugCache).invalidate("s3");
+        assertThat(meterRegistry.get("links.expired.reaped").tag("mode", "delete").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("run: курсор сравнивает uuid без знака, как Postgres")
+    void run_ordersUuidsUnsigned() {
+        UUID low = new UUID(0x1L, 0), high = new UUID(0x8000000000000000L, 0);
+        ReapedLink a = new ReapedLink(low, "low", EXPIRED), b = new ReapedLink(high, "high", EXPIRED);
+        when(linkJdbcRepository.reapExpired(any(), isNull(), eq(2), eq(false))).thenReturn(List.of(b, a));
+        when(linkJdbcRepository.reapExpired(any(), eq(b), eq(2), eq(false))).thenReturn(List.of());
+
+        reaper.run();
+
+        verify(linkJdbcRepository).reapExpired(any(), eq(b), eq(2), eq(false));
+    }
+
+    @Test
+    @DisplayName("run: archive=true переносит ссылки в архив тем же проходом")
+    void run_archives() {
+        reaper = reaper(true);
+        when(linkJdbcRepository.reapExpired(any(), isNull(), eq(2), eq(true))).thenReturn(List.of(link(1, EXPIRED)));
+
+        reaper.run();
+
+        verify(slugCache).invalidate("s1");
+        assertThat(meterRegistry.get("links.expired.reaped").tag("mode", "archive").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("run: очередь за соединениями в пуле не рассосалась -> проход откладывается")
+    void run_whenPoolSaturated_yields() {
+        when(pool.getThreadsAwaitingConnection()).thenReturn(3);
+
+        reaper.run();
+
+        // пауза 1 мс удваивается до max-backoff 4 мс: 1, 2, 4
+        verify(pool, times(4)).getThreadsAwaitingConnection();
+        verifyNoInteractions(linkJdbcRepository);
+    }
+
+    @Test
+    @DisplayName("run: пул освободился -> пачка идёт после backoff'а")
+    void run_whenPoolRecovers_continues() {
+        when(pool.getThreadsAwaitingConnection()).thenReturn(1, 0);
+        when(linkJdbcRepository.reapExpired(any(), isNull(), eq(2), eq(false))).thenReturn(List.of());
+
+        reaper.run();
+
+        verify(linkJdbcRepository).reapExpired(any(), isNull(), eq(2), eq(false));
+    }
+
+    @Test
+    @DisplayName("run: ошибка БД -> следующий запуск начинает проход заново")
+    void run_whenBatchFails_retries() {
+        when(linkJdbcRepository.reapExpired(any(), isNull(), eq(2), eq(false)))
+                .thenThrow(new DataAccessResourceFailureException("db down"))
+                .thenReturn(List.of(link(1, EXPIRED)));
+
+        reaper.run();
+        reaper.run();
+
+        verify(linkJdbcRepository, times(2)).reapExpired(any(), isNull(), eq(2), eq(false));
+        verify(slugCache).invalidate("s1");
+    }
+
+    @Test
+    @DisplayName("schedule: проход идёт в собственном потоке reaper'а, а не в потоке планировщика")
+    void schedule_runsOnOwnThread() throws Exception {
+        CompletableFuture<String> thread = new CompletableFuture<>();
+        when(linkJdbcRepository.reapExpired(any(), any(), anyInt(), anyBoolean())).thenAnswer(inv -> {
+            thread.complete(Thread.currentThread().getName());
+            return List.of();
+        });
+
+        reaper.schedule();
+
+        assertThat(thread.get(5, TimeUnit.SECONDS)).isEqualTo("expired-link-reaper");
+        reaper.stop();
+    }
+
+    private ExpiredLinkReaper reaper(boolean archive) {
+        return new ExpiredLinkReaper(linkJdbcRepository, new TransactionTemplate(transactionManager), slugCache,
+                dataSource, true, archive, Duration.ofDays(7), 2, 1, 4, meterRegistry);
+    }
+
+    private static ReapedLink link(long id, Instant expiresAt) {
+        return new ReapedLink(new UUID(0, id), "s" + id, expiresAt);
+    }
+}
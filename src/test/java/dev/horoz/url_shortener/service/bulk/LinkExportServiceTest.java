@@ -0,0 +1,108 @@
+package dev.horoz.url_shortener.service.bulk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.horoz.url_shortener.domain.Link;
+import dev.horoz.url_shortener.domain.User;
+import dev.horoz.url_shortener.repository.LinkRepository;
+import dev.horoz.url_shortener.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LinkExportServiceTest {
+
+    static final String EMAIL = "a@b.com";
+
+    @Mock
+    UserRepository userRepository;
+    @Mock
+    LinkRepository linkRepository;
+    @Mock
+    EntityManager entityManager;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    User user = new User();
+    LinkExportService service;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findByEmailIgnoreCase(EMAIL)).thenReturn(Optional.of(user));
+        service = new LinkExportService(userRepository, linkRepository, entityManager, transactionManager, objectMapper);
+    }
+
+    @Test
+    @DisplayName("NDJSON: одна строка на ссылку, каждая ссылка detach'ится, поток закрывается, транзакция read-only")
+    void ndjson_streamsAndDetaches() throws Exception {
+        Link a = link("abc001", "https://a.com");
+        Link b = link("abc002", "https://b.com");
+        AtomicBoolean closed = new AtomicBoolean();
+        when(linkRepository.streamAllByUser(user)).thenReturn(Stream.of(a, b).onClose(() -> closed.set(true)));
+
+        String[] lines = export(LinkFileFormat.NDJSON).split("\n");
+
+        assertThat(lines).hasSize(2);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("slug").asText()).isEqualTo("abc001");
+        assertThat(first.get("targetUrl").asText()).isEqualTo("https://a.com");
+        verify(entityManager).detach(a);
+        verify(entityManager).detach(b);
+        assertThat(closed).isTrue();
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertThat(definition.getValue().isReadOnly()).isTrue();
+    }
+
+    @Test
+    @DisplayName("CSV: заголовок, значения с запятыми и кавычками экранируются")
+    void csv_quotesSpecialCharacters() throws Exception {
+        Link link = link("abc001", "https://a.com/?q=\"1,2\"");
+        when(linkRepository.streamAllByUser(any())).thenReturn(Stream.of(link));
+
+        String[] lines = export(LinkFileFormat.CSV).split("\n");
+
+        assertThat(lines[0]).isEqualTo("slug,targetUrl,expiresAt,clicksTotal,createdAt,id");
+        assertThat(lines[1]).startsWith("abc001,\"https://a.com/?q=\"\"1,2\"\"\",2030-01-01T00:00:00Z,0,,");
+    }
+
+    private String export(LinkFileFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportLinks(EMAIL, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Link link(String slug, String url) throws Exception {
+        Link link = new Link();
+        link.setSlug(slug);
+        link.setTargetUrl(url);
+        link.setExpiresAt(Instant.parse("2030-01-01T00:00:00Z"));
+        Field id = Link.class.getDeclaredField("id");
+        id.setAccessible(true);
+        id.set(link, UUID.randomUUID());
+        return link;
+    }
+}
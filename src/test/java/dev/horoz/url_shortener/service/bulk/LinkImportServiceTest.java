@@ -0,0 +1,196 @@
+package dev.horoz.url_shortener.service.bulk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.horoz.url_shortener.domain.User;
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import dev.horoz.url_shortener.repository.UserRepository;
+import dev.horoz.url_shortener.service.cache.SlugCache;
+import dev.horoz.url_shortener.service.cache.SlugFilter;
+import dev.horoz.url_shortener.service.validation.UrlValidationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LinkImportServiceTest {
+
+    static final String EMAIL = "a@b.com";
+
+    @Mock
+    UserRepository userRepository;
+    @Mock
+    LinkJdbcRepository linkJdbcRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    User user;
+    List<String[]> batches = new ArrayList<>();
+    List<Timestamp[]> expiries = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        user = new User();
+        Field id = User.class.getDeclaredField("id");
+        id.setAccessible(true);
+        id.set(user, UUID.randomUUID());
+        when(userRepository.findByEmailIgnoreCase(EMAIL)).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    @DisplayName("NDJSON: пачки фиксированного размера, невалидные строки - ошибки с номером строки")
+    void ndjson_writesFixedSizeBatches() throws Exception {
+        insertAllExcept();
+        String body = """
+                {"slug":"abc001","targetUrl":"https://a.com","expiresAt":"2030-01-01T00:00:00Z"}
+                {"slug":"abc002","targetUrl":"ftp://bad"}
+                {"slug":"abc003","targetUrl":"https://c.com"}
+
+                not json
+                {"slug":"abc004","targetUrl":"https://d.com"}
+                {"slug":"abc005","targetUrl":"https://e.com"}
+                """;
+
+        List<JsonNode> events = run(service(2), body, LinkFileFormat.NDJSON);
+
+        assertThat(batches).extracting(b -> b.length).containsExactly(2, 2);
+        assertThat(batches.get(0)).containsExactly("abc001", "abc003");
+        assertThat(expiries.get(0)[0]).isEqualTo(Timestamp.from(Instant.parse("2030-01-01T00:00:00Z")));
+        assertThat(expiries.get(0)[1]).isNull();
+
+        assertThat(errors(events)).extracting(e -> e.get("line").asLong()).containsExactly(2L, 5L);
+        assertThat(events).filteredOn(e -> e.get("type").asText().equals("progress")).hasSize(2);
+        JsonNode summary = events.get(events.size() - 1);
+        assertThat(summary.get("type").asText()).isEqualTo("summary");
+        assertThat(summary.get("rows").asLong()).isEqualTo(6);
+        assertThat(summary.get("imported").asLong()).isEqualTo(4);
+        assertThat(summary.get("failed").asLong()).isEqualTo(2);
+        assertThat(summary.has("rowsPerSec")).isTrue();
+    }
+
+    @Test
+    @DisplayName("CSV: заголовок и лишние колонки экспорта пропускаются, кавычки, занятые и повторные slug'и, длинные строки")
+    void csv_reportsConflictsAndLongLines() throws Exception {
+        insertAllExcept("taken1");
+        String body = "slug,targetUrl,expiresAt,clicksTotal,createdAt,id\r\n"
+                + "free01,\"https://a.com/?q=1,2\",\r\n"
+                + "taken1,https://b.com,2030-01-01T00:00:00Z\r\n"
+                + "free01,https://c.com\r\n"
+                + "long01,https://d.com/" + "x".repeat(200) + "\r\n"
+                + "free02,https://e.com,not-a-date\r\n"
+                + "free03,https://f.com,,7,2024-01-01T00:00:00Z\r\n";
+
+        List<JsonNode> events = run(service(100, 64), body, LinkFileFormat.CSV);
+
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).containsExactly("free01", "taken1", "free03");
+        assertThat(errors(events)).extracting(e -> e.get("line").asLong() + ":" + e.get("error").asText())
+                .containsExactlyInAnyOrder(
+                        "3:Slug already exists",
+                        "4:Duplicate slug in import",
+                        "5:Line is longer than 64 characters",
+                        "6:expiresAt must be an ISO-8601 instant");
+        assertThat(events.get(events.size() - 1).get("imported").asLong()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("ошибка БД откатывает только свою пачку, импорт продолжается")
+    void batchFailure_doesNotAbortImport() throws Exception {
+        when(linkJdbcRepository.importLinks(any(), any(), any(), any(), any()))
+                .thenThrow(new DataAccessResourceFailureException("db down"))
+                .thenAnswer(inv -> new HashSet<>(Arrays.asList((String[]) inv.getArgument(1))));
+        String body = """
+                {"slug":"abc001","targetUrl":"https://a.com"}
+                {"slug":"abc002","targetUrl":"https://b.com"}
+                """;
+
+        List<JsonNode> events = run(service(1), body, LinkFileFormat.NDJSON);
+
+        assertThat(errors(events)).extracting(e -> e.get("slug").asText()).containsExactly("abc001");
+        assertThat(events.get(events.size() - 1).get("imported").asLong()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("ошибка commit'а тоже откатывает только свою пачку")
+    void commitFailure_doesNotAbortImport() throws Exception {
+        insertAllExcept();
+        doThrow(new TransactionSystemException("commit failed")).doNothing().when(transactionManager).commit(any());
+        String body = """
+                {"slug":"abc001","targetUrl":"https://a.com"}
+                {"slug":"abc002","targetUrl":"https://b.com"}
+                """;
+
+        List<JsonNode> events = run(service(1), body, LinkFileFormat.NDJSON);
+
+        assertThat(errors(events)).extracting(e -> e.get("slug").asText()).containsExactly("abc001");
+        assertThat(events.get(events.size() - 1).get("imported").asLong()).isEqualTo(1);
+    }
+
+    // ========================================================================
+    // Helpers
+    // ========================================================================
+
+    private LinkImportService service(int batchSize) {
+        return service(batchSize, 8192);
+    }
+
+    private LinkImportService service(int batchSize, int maxLineLength) {
+        return new LinkImportService(userRepository, linkJdbcRepository, new UrlValidationService(),
+                new SlugCache(1_000, 600, 30, new SimpleMeterRegistry()),
+                new SlugFilter(linkJdbcRepository, transactionManager, false, 0.01, 1_000, 60, new SimpleMeterRegistry()),
+                new TransactionTemplate(transactionManager),
+                objectMapper, batchSize, maxLineLength);
+    }
+
+    private void insertAllExcept(String... taken) {
+        List<String> conflicts = List.of(taken);
+        when(linkJdbcRepository.importLinks(any(), any(), any(), any(), any())).thenAnswer(inv -> {
+            String[] slugs = inv.getArgument(1);
+            batches.add(slugs);
+            expiries.add(inv.getArgument(4));
+            HashSet<String> inserted = new HashSet<>(Arrays.asList(slugs));
+            inserted.removeAll(conflicts);
+            return inserted;
+        });
+    }
+
+    private List<JsonNode> run(LinkImportService service, String body, LinkFileFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.importLinks(EMAIL, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), format, out);
+        List<JsonNode> events = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            events.add(objectMapper.readTree(line));
+        }
+        return events;
+    }
+
+    private static List<JsonNode> errors(List<JsonNode> events) {
+        return events.stream().filter(e -> e.get("type").asText().equals("error")).toList();
+    }
+}
@@ -0,0 +1,89 @@
+package dev.horoz.url_shortener.service.bulk;
+
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import dev.horoz.url_shortener.repository.LinkJdbcRepository.UrlRow;
+import dev.horoz.url_shortener.service.validation.UrlFingerprint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UrlHashBackfillTest {
+
+    private static final UUID START = new UUID(0, 0);
+
+    @Mock
+    LinkJdbcRepository linkJdbcRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    UrlHashBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        backfill = new UrlHashBackfill(linkJdbcRepository, new TransactionTemplate(transactionManager), 2);
+    }
+
+    @Test
+    @DisplayName("run: пачки идут по id после последнего обработанного, хэши считаются по target_url")
+    void run_walksKeysetBatches() {
+        UUID a = new UUID(0, 1), b = new UUID(0, 2), c = new UUID(0, 3);
+        when(linkJdbcRepository.lockWithoutUrlHash(START, 2)).thenReturn(
+                List.of(new UrlRow(a, "https://a.com"), new UrlRow(b, "https://b.com")));
+        when(linkJdbcRepository.lockWithoutUrlHash(b, 2)).thenReturn(List.of(new UrlRow(c, "https://c.com")));
+
+        backfill.run();
+
+        ArgumentCaptor<UUID[]> ids = ArgumentCaptor.forClass(UUID[].class);
+        ArgumentCaptor<Long[]> hashes = ArgumentCaptor.forClass(Long[].class);
+        verify(linkJdbcRepository, times(2)).setUrlHashes(ids.capture(), hashes.capture());
+        assertThat(ids.getAllValues().get(0)).containsExactly(a, b);
+        assertThat(ids.getAllValues().get(1)).containsExactly(c);
+        assertThat(hashes.getAllValues().get(1)).containsExactly(UrlFingerprint.hash("https://c.com"));
+        assertThat(backfill.isDone()).isFalse();
+    }
+
+    @Test
+    @DisplayName("run: проход без строк -> backfill завершён, дальше в БД не ходит")
+    void run_whenNothingLeft_marksDone() {
+        when(linkJdbcRepository.lockWithoutUrlHash(START, 2)).thenReturn(List.of());
+
+        backfill.run();
+        backfill.run();
+
+        assertThat(backfill.isDone()).isTrue();
+        verify(linkJdbcRepository, times(1)).lockWithoutUrlHash(any(), anyInt());
+        verify(linkJdbcRepository, never()).setUrlHashes(any(), any());
+    }
+
+    @Test
+    @DisplayName("run: ошибка БД -> следующий запуск повторяет ту же пачку")
+    void run_whenBatchFails_retriesFromSamePosition() {
+        UUID a = new UUID(0, 1);
+        when(linkJdbcRepository.lockWithoutUrlHash(START, 2))
+                .thenThrow(new DataAccessResourceFailureException("db down"))
+                .thenReturn(List.of(new UrlRow(a, "https://a.com")));
+
+        backfill.run();
+        backfill.run();
+
+        verify(linkJdbcRepository, times(2)).lockWithoutUrlHash(START, 2);
+        verify(linkJdbcRepository, times(1)).setUrlHashes(new UUID[]{a}, new Long[]{UrlFingerprint.hash("https://a.com")});
+        assertThat(backfill.isDone()).isFalse();
+    }
+}
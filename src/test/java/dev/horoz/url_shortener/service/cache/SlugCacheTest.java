@@ -0,0 +1,101 @@
+package dev.horoz.url_shortener.service.cache;
+
+import dev.horoz.url_shortener.dto.link.RedirectTargetDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SlugCacheTest {
+
+    private static final RedirectTargetDto TARGET =
+            new RedirectTargetDto(UUID.randomUUID(), "https://example.com", Instant.now().plusSeconds(3600));
+
+    SlugCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SlugCache(1_000, 600, 30, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("конкурентные промахи по одному slug -> одна загрузка, остальные ждут её результат")
+    void concurrentMisses_loadOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 16;
+
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Optional<RedirectTargetDto>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> cache.get("SLUG0001", slug -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return Optional.of(TARGET);
+                })));
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            for (Future<Optional<RedirectTargetDto>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).contains(TARGET);
+            }
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("ошибка загрузки пробрасывается как есть и не кэшируется")
+    void loaderFailure_isRethrownAndRetried() {
+        IllegalStateException failure = new IllegalStateException("db down");
+
+        assertThatThrownBy(() -> cache.get("SLUG0001", slug -> {
+            throw failure;
+        })).isSameAs(failure);
+
+        assertThat(cache.get("SLUG0001", slug -> Optional.of(TARGET))).contains(TARGET);
+    }
+
+    @Test
+    @DisplayName("загрузка идёт вне compute(): invalidate того же slug из загрузчика не блокируется и не теряется")
+    void invalidateDuringLoad_dropsLoadedValue() {
+        AtomicInteger loads = new AtomicInteger();
+
+        Optional<RedirectTargetDto> first = cache.get("SLUG0001", slug -> {
+            loads.incrementAndGet();
+            // ссылку обновили, пока шла загрузка
+            cache.invalidate(slug);
+            return Optional.empty();
+        });
+        Optional<RedirectTargetDto> second = cache.get("SLUG0001", slug -> {
+            loads.incrementAndGet();
+            return Optional.of(TARGET);
+        });
+
+        assertThat(first).isEmpty();
+        assertThat(second).contains(TARGET);
+        assertThat(loads).hasValue(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package dev.horoz.url_shortener.service.cache;
+
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SlugFilterTest {
+
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Mock
+    LinkJdbcRepository linkJdbcRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Bloom: ни одного ложноотрицательного ответа, доля ложноположительных около заданной")
+    void bloomFilter_noFalseNegatives_fppNearTarget() {
+        int n = 100_000;
+        SlugBloomFilter filter = SlugBloomFilter.create(n, 0.01);
+        for (int i = 0; i < n; i++) {
+            filter.put("s" + i);
+        }
+
+        for (int i = 0; i < n; i++) {
+            assertThat(filter.mightContain("s" + i)).isTrue();
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < n; i++) {
+            if (filter.mightContain("x" + i)) falsePositives++;
+        }
+        assertThat(falsePositives / (double) n).isLessThan(0.02);
+        assertThat(filter.expectedFpp()).isBetween(0.005, 0.015);
+        // ~9.6 бит на элемент при 1%
+        assertThat(filter.memoryBytes()).isBetween(110_000L, 130_000L);
+    }
+
+    @Test
+    @DisplayName("до первой сборки и при enabled=false пропускает всё в БД")
+    void notBuilt_passesEverything() {
+        SlugFilter disabled = filter(false);
+        disabled.rebuild();
+        assertThat(disabled.mightContain("anything")).isTrue();
+        assertThat(filter(true).mightContain("anything")).isTrue();
+        verifyNoInteractions(linkJdbcRepository);
+    }
+
+    @Test
+    @DisplayName("refresh догружает slug'и, созданные после watermark, с перекрытием refresh-overlap")
+    void refresh_loadsSlugsCreatedSinceWatermark() {
+        givenSlugs(null, List.of("old1", "old2"), T0);
+        SlugFilter filter = filter(true);
+        filter.rebuild();
+        assertThat(filter.mightContain("old1")).isTrue();
+        assertThat(filter.mightContain("fresh")).isFalse();
+
+        givenSlugs(T0.minusSeconds(60), List.of("old2", "fresh"), T0.plusSeconds(5));
+        filter.refresh();
+
+        assertThat(filter.mightContain("fresh")).isTrue();
+        // watermark сдвинулся: следующая догрузка - от нового max(created_at)
+        filter.refresh();
+        verify(linkJdbcRepository).forEachSlug(eq(T0.plusSeconds(5).minusSeconds(60)), any());
+
+        assertThat(meterRegistry.get("slug.filter.negatives").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("slug.filter.entries").gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("переполненный фильтр пересобирается на refresh с размером по фактическому числу slug'ов")
+    void refresh_rebuildsWhenOverCapacity() {
+        givenSlugs(null, List.of(), T0);
+        SlugFilter filter = filter(true);
+        filter.rebuild();
+        double memoryBefore = meterRegistry.get("slug.filter.memory").gauge().value();
+
+        // ёмкость - expected-insertions (100) x2
+        List<String> many = java.util.stream.IntStream.range(0, 300).mapToObj(i -> "s" + i).toList();
+        givenSlugs(null, many, T0);
+        givenSlugs(Instant.EPOCH.minusSeconds(60), many, T0);
+        filter.refresh();
+
+        assertThat(meterRegistry.get("slug.filter.memory").gauge().value()).isGreaterThan(memoryBefore);
+        assertThat(many).allMatch(filter::mightContain);
+    }
+
+    // ----------------------------------------------------------------------
+    // helpers
+    // ----------------------------------------------------------------------
+
+    private SlugFilter filter(boolean enabled) {
+        return new SlugFilter(linkJdbcRepository, transactionManager, enabled, 0.01, 100, 60, meterRegistry);
+    }
+
+    private void givenSlugs(Instant createdAfter, List<String> slugs, Instant createdAt) {
+        doAnswer(inv -> {
+            LinkJdbcRepository.SlugHandler handler = inv.getArgument(1);
+            slugs.forEach(slug -> handler.accept(slug, createdAt));
+            return null;
+        }).when(linkJdbcRepository).forEachSlug(createdAfter == null ? isNull() : eq(createdAfter), any());
+    }
+}
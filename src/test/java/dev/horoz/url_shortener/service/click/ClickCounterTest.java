@@ -0,0 +1,151 @@
+package dev.horoz.url_shortener.service.click;
+
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClickCounterTest {
+
+    @Mock
+    LinkJdbcRepository linkJdbcRepository;
+
+    ClickCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        counter = new ClickCounter(linkJdbcRepository, 10_000);
+    }
+
+    @Test
+    @DisplayName("record не пишет в БД, клики видны через pending")
+    void record_isInMemoryOnly() {
+        UUID id = UUID.randomUUID();
+
+        counter.record(id);
+        counter.record(id);
+
+        assertThat(counter.pending(id)).isEqualTo(2);
+        verifyNoInteractions(linkJdbcRepository);
+    }
+
+    @Test
+    @DisplayName("flush пишет дельты одним UPDATE, pending обнуляется")
+    void flush_writesBatchedDeltas() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+
+        counter.record(a);
+        counter.record(a);
+        counter.record(b);
+
+        counter.flush();
+
+        ArgumentCaptor<UUID[]> ids = ArgumentCaptor.forClass(UUID[].class);
+        ArgumentCaptor<Long[]> deltas = ArgumentCaptor.forClass(Long[].class);
+        verify(linkJdbcRepository, times(1)).addClicks(ids.capture(), deltas.capture());
+
+        assertThat(ids.getValue()).containsExactlyInAnyOrder(a, b);
+        int ia = Arrays.asList(ids.getValue()).indexOf(a);
+        int ib = Arrays.asList(ids.getValue()).indexOf(b);
+        assertThat(deltas.getValue()[ia]).isEqualTo(2L);
+        assertThat(deltas.getValue()[ib]).isEqualTo(1L);
+
+        assertThat(counter.pending(a)).isZero();
+        assertThat(counter.pending(b)).isZero();
+    }
+
+    @Test
+    @DisplayName("ошибка БД при flush -> дельты возвращаются в память и не теряются")
+    void flush_whenWriteFails_keepsDeltas() {
+        UUID id = UUID.randomUUID();
+        when(linkJdbcRepository.addClicks(any(), any()))
+                .thenThrow(new IllegalStateException("db down"))
+                .thenReturn(1);
+
+        counter.record(id);
+        counter.flush();
+
+        assertThat(counter.pending(id)).isEqualTo(1);
+
+        counter.flush();
+
+        verify(linkJdbcRepository, times(2)).addClicks(any(), any());
+        assertThat(counter.pending(id)).isZero();
+    }
+
+    @Test
+    @DisplayName("flushAll повторяет запись с паузой, пока БД не поднимется")
+    void flushAll_retriesUntilWritten() {
+        UUID id = UUID.randomUUID();
+        when(linkJdbcRepository.addClicks(any(), any()))
+                .thenThrow(new IllegalStateException("db down"))
+                .thenThrow(new IllegalStateException("db down"))
+                .thenReturn(1);
+
+        counter.record(id);
+        counter.flushAll();
+
+        verify(linkJdbcRepository, times(3)).addClicks(any(), any());
+        assertThat(counter.pending(id)).isZero();
+    }
+
+    @Test
+    @DisplayName("flushAll: попытки ограничены, незаписанные клики остаются посчитанными")
+    void flushAll_givesUpAfterBoundedAttempts() {
+        UUID id = UUID.randomUUID();
+        when(linkJdbcRepository.addClicks(any(), any())).thenThrow(new IllegalStateException("db down"));
+
+        counter.record(id);
+        counter.flushAll();
+
+        verify(linkJdbcRepository, times(4)).addClicks(any(), any());
+        assertThat(counter.pending(id)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("конкурентные record + flush: ни один клик не теряется")
+    void concurrentRecordAndFlush_countsEveryClick() throws Exception {
+        UUID id = UUID.randomUUID();
+        long[] written = new long[1];
+        when(linkJdbcRepository.addClicks(any(), any())).thenAnswer(inv -> {
+            Long[] d = inv.getArgument(1);
+            synchronized (written) {
+                written[0] += d[0];
+            }
+            return 1;
+        });
+
+        int threads = 8;
+        int perThread = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < perThread; i++) counter.record(id);
+            });
+        }
+        pool.shutdown();
+        while (!pool.awaitTermination(1, TimeUnit.MILLISECONDS)) {
+            counter.flush();
+        }
+
+        counter.flushAll();
+
+        assertThat(written[0]).isEqualTo((long) threads * perThread);
+    }
+}
@@ -0,0 +1,126 @@
+package dev.horoz.url_shortener.service.click;
+
+import dev.horoz.url_shortener.domain.ClickGranularity;
+import dev.horoz.url_shortener.repository.ClickRollupRepository;
+import dev.horoz.url_shortener.security.ClientAddresses;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClickRollupAggregatorTest {
+
+    @Mock
+    ClickRollupRepository clickRollupRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    ClickRollupAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        aggregator = new ClickRollupAggregator(clickRollupRepository, new TransactionTemplate(transactionManager), 90);
+    }
+
+    @Test
+    @DisplayName("flush складывает минутные бакеты в часовые и дневные rollup'ы")
+    void flush_rollsMinutesUpToHoursAndDays() {
+        UUID id = UUID.randomUUID();
+        aggregator.record(new ClickEvent(id, Instant.parse("2026-03-01T10:05:10Z"), ClientAddresses.INVALID));
+        aggregator.record(new ClickEvent(id, Instant.parse("2026-03-01T10:59:59Z"), ClientAddresses.INVALID));
+        aggregator.record(new ClickEvent(id, Instant.parse("2026-03-01T11:00:00Z"), ClientAddresses.INVALID));
+
+        aggregator.flush();
+
+        ArgumentCaptor<UUID[]> ids = ArgumentCaptor.forClass(UUID[].class);
+        ArgumentCaptor<Long[]> starts = ArgumentCaptor.forClass(Long[].class);
+        ArgumentCaptor<Long[]> clicks = ArgumentCaptor.forClass(Long[].class);
+
+        verify(clickRollupRepository).addClicks(eq(ClickGranularity.HOUR), ids.capture(), starts.capture(), clicks.capture());
+        assertThat(ids.getValue()).containsOnly(id);
+        assertThat(starts.getValue()).hasSize(2);
+        long h10 = Instant.parse("2026-03-01T10:00:00Z").getEpochSecond();
+        int i10 = starts.getValue()[0] == h10 ? 0 : 1;
+        assertThat(clicks.getValue()[i10]).isEqualTo(2L);
+        assertThat(clicks.getValue()[1 - i10]).isEqualTo(1L);
+
+        verify(clickRollupRepository).addClicks(eq(ClickGranularity.DAY), ids.capture(), starts.capture(), clicks.capture());
+        assertThat(starts.getValue()).containsExactly(Instant.parse("2026-03-01T00:00:00Z").getEpochSecond());
+        assertThat(clicks.getValue()).containsExactly(3L);
+
+        assertThat(aggregator.pendingMinutes(id)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("flush пишет rollup'ы в порядке (linkId, bucketStart) - одинаково на всех узлах")
+    void flush_writesRollupsInKeyOrder() {
+        UUID a = new UUID(0, 1), b = new UUID(0, 2), c = new UUID(0, 3);
+        for (UUID id : new UUID[]{c, a, b}) {
+            aggregator.record(new ClickEvent(id, Instant.parse("2026-03-02T11:00:00Z"), ClientAddresses.INVALID));
+            aggregator.record(new ClickEvent(id, Instant.parse("2026-03-01T10:00:00Z"), ClientAddresses.INVALID));
+        }
+
+        aggregator.flush();
+
+        ArgumentCaptor<UUID[]> ids = ArgumentCaptor.forClass(UUID[].class);
+        ArgumentCaptor<Long[]> starts = ArgumentCaptor.forClass(Long[].class);
+        long d1 = Instant.parse("2026-03-01T00:00:00Z").getEpochSecond();
+        long d2 = Instant.parse("2026-03-02T00:00:00Z").getEpochSecond();
+        verify(clickRollupRepository).addClicks(eq(ClickGranularity.DAY), ids.capture(), starts.capture(), any());
+        assertThat(ids.getValue()).containsExactly(a, a, b, b, c, c);
+        assertThat(starts.getValue()).containsExactly(d1, d2, d1, d2, d1, d2);
+    }
+
+    @Test
+    @DisplayName("pendingMinutes отдаёт только бакеты запрошенной ссылки")
+    void pendingMinutes_onlyRequestedLink() {
+        UUID id = UUID.randomUUID(), other = UUID.randomUUID();
+        aggregator.record(new ClickEvent(id, Instant.parse("2026-03-01T10:05:10Z"), ClientAddresses.INVALID));
+        aggregator.record(new ClickEvent(id, Instant.parse("2026-03-01T10:05:50Z"), ClientAddresses.INVALID));
+        aggregator.record(new ClickEvent(other, Instant.parse("2026-03-01T10:06:00Z"), ClientAddresses.INVALID));
+
+        assertThat(aggregator.pendingMinutes(id))
+                .containsExactly(entry(Instant.parse("2026-03-01T10:05:00Z").getEpochSecond(), 2L));
+    }
+
+    @Test
+    @DisplayName("ошибка записи -> минутные бакеты остаются в памяти")
+    void flush_whenWriteFails_keepsMinutes() {
+        UUID id = UUID.randomUUID();
+        Instant at = Instant.parse("2026-03-01T10:05:10Z");
+        aggregator.record(new ClickEvent(id, at, ClientAddresses.INVALID));
+
+        doThrow(new IllegalStateException("db down"))
+                .when(clickRollupRepository).addClicks(eq(ClickGranularity.HOUR), any(), any(), any());
+
+        aggregator.flush();
+
+        assertThat(aggregator.pendingMinutes(id))
+                .containsEntry(Instant.parse("2026-03-01T10:05:00Z").getEpochSecond(), 1L);
+    }
+
+    @Test
+    @DisplayName("compact удаляет часовые бакеты пачками, пока пачка полная")
+    void compact_deletesInBatches() {
+        when(clickRollupRepository.deleteBefore(eq(ClickGranularity.HOUR), any(Instant.class), anyInt()))
+                .thenReturn(10_000, 10_000, 3);
+
+        aggregator.compact();
+
+        verify(clickRollupRepository, times(3)).deleteBefore(eq(ClickGranularity.HOUR), any(Instant.class), eq(10_000));
+        verify(clickRollupRepository, never()).deleteBefore(eq(ClickGranularity.DAY), any(Instant.class), anyInt());
+    }
+}
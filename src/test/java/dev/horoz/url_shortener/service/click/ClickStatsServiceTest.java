@@ -0,0 +1,127 @@
+package dev.horoz.url_shortener.service.click;
+
+import dev.horoz.url_shortener.domain.ClickGranularity;
+import dev.horoz.url_shortener.dto.link.ClickBucketDto;
+import dev.horoz.url_shortener.repository.ClickRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClickStatsServiceTest {
+
+    @Mock
+    ClickRollupRepository clickRollupRepository;
+    @Mock
+    ClickCounter clickCounter;
+    @Mock
+    ClickRollupAggregator clickRollupAggregator;
+    @Mock
+    UniqueVisitorTracker uniqueVisitorTracker;
+
+    ClickStatsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ClickStatsService(clickRollupRepository, clickCounter, clickRollupAggregator,
+                uniqueVisitorTracker);
+    }
+
+    @Test
+    @DisplayName("series: rollup'ы из БД + незаписанные минуты этого узла, from выравнивается по бакету")
+    void series_mergesPersistedAndPendingBuckets() {
+        UUID id = UUID.randomUUID();
+        Instant from = Instant.parse("2026-03-01T09:30:00Z");
+        Instant alignedFrom = Instant.parse("2026-03-01T09:00:00Z");
+        Instant to = Instant.parse("2026-03-01T12:00:00Z");
+
+        when(clickRollupRepository.find(ClickGranularity.HOUR, id, alignedFrom, to)).thenReturn(List.of(
+                new ClickBucketDto(Instant.parse("2026-03-01T09:00:00Z"), 4, null),
+                new ClickBucketDto(Instant.parse("2026-03-01T10:00:00Z"), 1, null)
+        ));
+        when(clickRollupAggregator.pendingMinutes(id)).thenReturn(Map.of(
+                Instant.parse("2026-03-01T10:15:00Z").getEpochSecond(), 2L,
+                Instant.parse("2026-03-01T11:59:00Z").getEpochSecond(), 3L,
+                Instant.parse("2026-03-01T12:00:00Z").getEpochSecond(), 100L
+        ));
+
+        List<ClickBucketDto> series = service.series(id, from, to, ClickGranularity.HOUR);
+
+        assertThat(series).containsExactly(
+                new ClickBucketDto(Instant.parse("2026-03-01T09:00:00Z"), 4, null),
+                new ClickBucketDto(Instant.parse("2026-03-01T10:00:00Z"), 3, null),
+                new ClickBucketDto(Instant.parse("2026-03-01T11:00:00Z"), 3, null)
+        );
+        verifyNoInteractions(uniqueVisitorTracker);
+    }
+
+    @Test
+    @DisplayName("series: дневные бакеты получают оценку уникальных посетителей")
+    void series_dailyBucketsCarryUniqueVisitors() {
+        UUID id = UUID.randomUUID();
+        Instant from = Instant.parse("2026-03-01T00:00:00Z");
+        Instant to = Instant.parse("2026-03-03T00:00:00Z");
+        Instant day1 = Instant.parse("2026-03-01T00:00:00Z");
+        Instant day2 = Instant.parse("2026-03-02T00:00:00Z");
+
+        when(clickRollupRepository.find(ClickGranularity.DAY, id, from, to)).thenReturn(List.of(
+                new ClickBucketDto(day1, 10, null),
+                new ClickBucketDto(day2, 4, null)
+        ));
+        when(clickRollupAggregator.pendingMinutes(id)).thenReturn(Map.of());
+        when(uniqueVisitorTracker.dailyEstimates(id, from, to)).thenReturn(Map.of(day1.getEpochSecond(), 6L));
+
+        assertThat(service.series(id, from, to, ClickGranularity.DAY)).containsExactly(
+                new ClickBucketDto(day1, 10, 6L),
+                new ClickBucketDto(day2, 4, 0L)
+        );
+    }
+
+    @Test
+    @DisplayName("series: from >= to -> 400")
+    void series_whenRangeEmpty_throws400() {
+        Instant t = Instant.parse("2026-03-01T10:00:00Z");
+
+        assertThatThrownBy(() -> service.series(UUID.randomUUID(), t, t, ClickGranularity.HOUR))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        verifyNoInteractions(clickRollupRepository);
+    }
+
+    @Test
+    @DisplayName("series: слишком много бакетов -> 400, в БД не ходим")
+    void series_whenTooManyBuckets_throws400() {
+        Instant to = Instant.parse("2026-03-01T00:00:00Z");
+        Instant from = to.minusSeconds(3_600L * (ClickStatsService.MAX_BUCKETS + 1));
+
+        assertThatThrownBy(() -> service.series(UUID.randomUUID(), from, to, ClickGranularity.HOUR))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Range is too large");
+        verifyNoInteractions(clickRollupRepository);
+    }
+
+    @Test
+    @DisplayName("parseGranularity: регистр не важен, по умолчанию HOUR, мусор -> 400")
+    void parseGranularity() {
+        assertThat(service.parseGranularity(null)).isEqualTo(ClickGranularity.HOUR);
+        assertThat(service.parseGranularity("day")).isEqualTo(ClickGranularity.DAY);
+        assertThat(service.parseGranularity(" Hour ")).isEqualTo(ClickGranularity.HOUR);
+
+        assertThatThrownBy(() -> service.parseGranularity("week"))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+}
@@ -0,0 +1,38 @@
+package dev.horoz.url_shortener.service.click;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.*;
+
+class GenerationsTest {
+
+    @Test
+    @DisplayName("пишущееся поколение видно в forEachPending, пока writer не вернул значения после ошибки")
+    void dropInFlight_hidesWritingGeneration() {
+        Generations<UUID, LongAdder> counters = new Generations<>(k -> new LongAdder());
+        UUID id = UUID.randomUUID();
+        counters.update(id, LongAdder::increment);
+        long[] seen = new long[2];
+
+        counters.drain(values -> {
+            seen[0] = pending(counters, id);
+            // как writer после упавшей записи
+            counters.dropInFlight();
+            values.forEach((key, adder) -> counters.update(key, current -> current.add(adder.sum())));
+            seen[1] = pending(counters, id);
+        });
+
+        assertThat(seen).containsExactly(1, 1);
+        assertThat(pending(counters, id)).isEqualTo(1);
+    }
+
+    private static long pending(Generations<UUID, LongAdder> counters, UUID id) {
+        long[] sum = new long[1];
+        counters.forEachPending(id, adder -> sum[0] += adder.sum());
+        return sum[0];
+    }
+}
@@ -0,0 +1,123 @@
+package dev.horoz.url_shortener.service.click;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    @DisplayName("пустой скетч -> 0, повторы одного ключа не увеличивают оценку")
+    void estimate_smallCardinalities() {
+        HyperLogLog hll = new HyperLogLog();
+        assertThat(hll.estimate()).isZero();
+
+        for (int i = 0; i < 100; i++) hll.add(HyperLogLog.hash(1));
+        assertThat(hll.estimate()).isEqualTo(1);
+
+        for (int i = 0; i < 100; i++) hll.add(HyperLogLog.hash(1_000 + i));
+        assertThat(hll.estimate()).isBetween(97L, 103L);
+    }
+
+    @Test
+    @DisplayName("100k разных ключей -> ошибка оценки в пределах 5%")
+    void estimate_largeCardinality() {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            hll.add(HyperLogLog.hash(i));
+        }
+
+        assertThat(hll.estimate()).isCloseTo(100_000L, withinPercentage(5));
+    }
+
+    @Test
+    @DisplayName("merge = оценка объединения, пересечение не задваивается, повторный merge ничего не меняет")
+    void merge_estimatesUnion() {
+        HyperLogLog a = new HyperLogLog();
+        HyperLogLog b = new HyperLogLog();
+        for (int i = 0; i < 30_000; i++) a.add(HyperLogLog.hash(i));
+        for (int i = 20_000; i < 50_000; i++) b.add(HyperLogLog.hash(i));
+
+        a.merge(b);
+        long merged = a.estimate();
+        a.merge(b);
+
+        assertThat(merged).isCloseTo(50_000L, withinPercentage(5));
+        assertThat(a.estimate()).isEqualTo(merged);
+    }
+
+    @Test
+    @DisplayName("toBytes/fromBytes: sparse для малых скетчей, dense 6 бит/регистр для больших")
+    void serialization_roundTrip() {
+        HyperLogLog small = new HyperLogLog();
+        for (int i = 0; i < 10; i++) small.add(HyperLogLog.hash(i));
+        byte[] smallBytes = small.toBytes();
+
+        HyperLogLog big = new HyperLogLog();
+        for (int i = 0; i < 50_000; i++) big.add(HyperLogLog.hash(i));
+        byte[] bigBytes = big.toBytes();
+
+        assertThat(smallBytes.length).isLessThan(50);
+        assertThat(bigBytes.length).isEqualTo(2 + HyperLogLog.M * 6 / 8);
+        assertThat(HyperLogLog.fromBytes(smallBytes).estimate()).isEqualTo(small.estimate());
+        assertThat(HyperLogLog.fromBytes(bigBytes).estimate()).isEqualTo(big.estimate());
+        assertThat(HyperLogLog.fromBytes(bigBytes).toBytes()).isEqualTo(bigBytes);
+    }
+
+    @Test
+    @DisplayName("в памяти скетч sparse до SPARSE_MAX регистров, затем плотный - с теми же регистрами")
+    void sparseInMemory_switchesToDense() {
+        HyperLogLog small = new HyperLogLog();
+        for (int i = 0; i < 100; i++) small.add(HyperLogLog.hash(i));
+        assertThat(small.isSparse()).isTrue();
+        assertThat(HyperLogLog.fromBytes(small.toBytes()).isSparse()).isTrue();
+
+        HyperLogLog grown = new HyperLogLog();
+        grown.merge(small);
+        for (int i = 100; i < 5_000; i++) grown.add(HyperLogLog.hash(i));
+        assertThat(grown.isSparse()).isFalse();
+
+        HyperLogLog reference = HyperLogLog.fromBytes(new HyperLogLog().toBytes());
+        for (int i = 0; i < 5_000; i++) reference.add(HyperLogLog.hash(i));
+        assertThat(grown.toBytes()).isEqualTo(reference.toBytes());
+        assertThat(grown.estimate()).isCloseTo(5_000L, withinPercentage(5));
+
+        // sparse, слитый с плотным, переходит в плотный
+        small.merge(grown);
+        assertThat(small.isSparse()).isFalse();
+        assertThat(small.toBytes()).isEqualTo(grown.toBytes());
+    }
+
+    @Test
+    @DisplayName("fromBytes: чужой формат -> IllegalArgumentException")
+    void fromBytes_rejectsUnknownFormat() {
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[]{9, HyperLogLog.P}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("конкурентные add дают тот же скетч, что и последовательные")
+    void concurrentAdd_isEquivalentToSequential() throws Exception {
+        HyperLogLog sequential = new HyperLogLog();
+        for (int i = 0; i < 80_000; i++) sequential.add(HyperLogLog.hash(i));
+
+        HyperLogLog concurrent = new HyperLogLog();
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            pool.execute(() -> {
+                for (int i = offset; i < 80_000; i += threads) concurrent.add(HyperLogLog.hash(i));
+            });
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(concurrent.toBytes()).isEqualTo(sequential.toBytes());
+    }
+}
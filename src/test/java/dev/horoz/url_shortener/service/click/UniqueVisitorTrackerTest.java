@@ -0,0 +1,141 @@
+package dev.horoz.url_shortener.service.click;
+
+import dev.horoz.url_shortener.repository.VisitorSketchRepository;
+import dev.horoz.url_shortener.repository.VisitorSketchRepository.NodeSketch;
+import dev.horoz.url_shortener.repository.VisitorSketchRepository.StoredSketch;
+import dev.horoz.url_shortener.security.ClientAddresses;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UniqueVisitorTrackerTest {
+
+    static final String NODE = "node-a";
+
+    @Mock
+    VisitorSketchRepository visitorSketchRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    UniqueVisitorTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new UniqueVisitorTracker(visitorSketchRepository, new TransactionTemplate(transactionManager), NODE,
+                10_000, Duration.ofDays(1));
+    }
+
+    @Test
+    @DisplayName("estimate: скетчи всех узлов из БД + незаписанные клики этого узла")
+    void estimate_mergesNodesAndPending() {
+        UUID id = UUID.randomUUID();
+        when(visitorSketchRepository.findTotal(id)).thenReturn(List.of(
+                sketchOf("1.1.1.1", "2.2.2.2"),
+                sketchOf("2.2.2.2", "3.3.3.3")
+        ));
+        Instant now = Instant.parse("2026-03-01T10:00:00Z");
+        tracker.record(new ClickEvent(id, now, ClientAddresses.parse("3.3.3.3")));
+        tracker.record(new ClickEvent(id, now, ClientAddresses.parse("4.4.4.4")));
+        tracker.record(new ClickEvent(id, now, ClientAddresses.INVALID));
+
+        assertThat(tracker.estimate(id)).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("flush мержит скетч со строкой узла в БД и перезаписывает её, в памяти ничего не остаётся")
+    void flush_mergesWithStoredNodeRow() {
+        UUID id = UUID.randomUUID();
+        Instant at = Instant.parse("2026-03-01T10:00:00Z");
+        long day = Instant.parse("2026-03-01T00:00:00Z").getEpochSecond();
+        when(visitorSketchRepository.lockTotal(eq(NODE), any()))
+                .thenReturn(List.of(new StoredSketch(id, 0, sketchOf("1.1.1.1").toBytes())));
+        when(visitorSketchRepository.lockDaily(eq(NODE), any(), any())).thenReturn(List.of());
+
+        tracker.record(new ClickEvent(id, at, ClientAddresses.parse("2.2.2.2")));
+        tracker.flush();
+
+        ArgumentCaptor<List<StoredSketch>> totals = ArgumentCaptor.captor();
+        verify(visitorSketchRepository).saveTotal(eq(NODE), totals.capture());
+        assertThat(totals.getValue()).singleElement().satisfies(s -> {
+            assertThat(s.linkId()).isEqualTo(id);
+            assertThat(HyperLogLog.fromBytes(s.sketch()).estimate()).isEqualTo(2);
+        });
+
+        ArgumentCaptor<List<StoredSketch>> daily = ArgumentCaptor.captor();
+        verify(visitorSketchRepository).saveDaily(eq(NODE), daily.capture());
+        assertThat(daily.getValue()).singleElement().satisfies(s -> {
+            assertThat(s.bucketStart()).isEqualTo(day);
+            assertThat(HyperLogLog.fromBytes(s.sketch()).estimate()).isEqualTo(1);
+        });
+
+        when(visitorSketchRepository.findDaily(any(), any(), any())).thenReturn(List.of());
+        assertThat(tracker.dailyEstimates(id, at.minusSeconds(86_400), at.plusSeconds(86_400))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("ошибка БД при flush -> скетчи возвращаются в память")
+    void flush_whenWriteFails_keepsSketches() {
+        UUID id = UUID.randomUUID();
+        when(visitorSketchRepository.lockTotal(eq(NODE), any())).thenThrow(new IllegalStateException("db down"));
+        when(visitorSketchRepository.lockDaily(eq(NODE), any(), any())).thenThrow(new IllegalStateException("db down"));
+
+        tracker.record(new ClickEvent(id, Instant.parse("2026-03-01T10:00:00Z"), ClientAddresses.parse("1.1.1.1")));
+        tracker.flush();
+
+        assertThat(tracker.estimate(id)).isEqualTo(1);
+        assertThat(tracker.dailyEstimates(id, Instant.parse("2026-03-01T00:00:00Z"), Instant.parse("2026-03-02T00:00:00Z")))
+                .isEqualTo(Map.of(Instant.parse("2026-03-01T00:00:00Z").getEpochSecond(), 1L));
+    }
+
+    @Test
+    @DisplayName("compact: строки простаивающих узлов сливаются в строку '*' и удаляются")
+    void compact_mergesStaleNodeRowsIntoMergedRow() {
+        UUID id = UUID.randomUUID();
+        List<NodeSketch> stale = List.of(
+                new NodeSketch(id, 0, "old-pod-1", sketchOf("1.1.1.1", "2.2.2.2")),
+                new NodeSketch(id, 0, "old-pod-2", sketchOf("2.2.2.2", "3.3.3.3"))
+        );
+        when(visitorSketchRepository.lockStaleTotal(any(), anyInt())).thenReturn(stale);
+        when(visitorSketchRepository.lockTotal(eq(VisitorSketchRepository.MERGED_NODE), any()))
+                .thenReturn(List.of(new StoredSketch(id, 0, sketchOf("4.4.4.4", "5.5.5.5"))));
+        when(visitorSketchRepository.lockStaleDaily(any(), anyInt())).thenReturn(List.of());
+
+        tracker.compact();
+
+        ArgumentCaptor<List<StoredSketch>> merged = ArgumentCaptor.captor();
+        verify(visitorSketchRepository).saveTotal(eq(VisitorSketchRepository.MERGED_NODE), merged.capture());
+        assertThat(merged.getValue()).singleElement().satisfies(s -> {
+            assertThat(s.linkId()).isEqualTo(id);
+            assertThat(HyperLogLog.fromBytes(s.sketch()).estimate()).isEqualTo(5);
+        });
+        verify(visitorSketchRepository).deleteTotal(stale);
+        verify(visitorSketchRepository, never()).saveDaily(any(), any());
+    }
+
+    private static HyperLogLog sketchOf(String... keys) {
+        HyperLogLog hll = new HyperLogLog();
+        for (String key : keys) hll.add(HyperLogLog.hash(ClientAddresses.parse(key)));
+        return hll;
+    }
+
+    private static byte[] sketchOf(String a, String b) {
+        return sketchOf(new String[]{a, b}).toBytes();
+    }
+}
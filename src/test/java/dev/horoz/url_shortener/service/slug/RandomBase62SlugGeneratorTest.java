@@ -1,23 +1,36 @@
 package dev.horoz.url_shortener.service.slug;
 
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
 class RandomBase62SlugGeneratorTest {
 
     private RandomBase62SlugGenerator generator;
+    private LinkJdbcRepository linkJdbcRepository;
+    private SimpleMeterRegistry meterRegistry;
 
     private static final String BASE62_REGEX = "^[0-9A-Za-z]{8}$";
 
     @BeforeEach
     void setUp() {
-        generator = new RandomBase62SlugGenerator();
+        linkJdbcRepository = mock(LinkJdbcRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        generator = new RandomBase62SlugGenerator(linkJdbcRepository, 8, 0.001, meterRegistry);
     }
 
     @Test
@@ -55,4 +68,91 @@ class RandomBase62SlugGeneratorTest {
 
         assertThat(slugs.size()).isGreaterThan(95);
     }
+
+    @Test
+    @DisplayName("символы распределены равномерно - без перекоса от остатка по модулю")
+    void shouldUseAllCharactersUniformly() {
+        int[] counts = new int[128];
+        int slugs = 62_000;
+        for (int i = 0; i < slugs; i++) {
+            for (char c : generator.nextSlug().toCharArray()) counts[c]++;
+        }
+
+        // ожидание 8000 на символ, sigma ~ 89
+        String alphabet = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+        for (char c : alphabet.toCharArray()) {
+            assertThat(counts[c]).as("count of %s", c).isBetween(7_500, 8_500);
+        }
+    }
+
+    @Test
+    @DisplayName("конкурентные потоки получают корректные и уникальные slug'и")
+    void shouldGenerateConcurrently() throws Exception {
+        Set<String> slugs = ConcurrentHashMap.newKeySet();
+        int threads = 8, perThread = 10_000;
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        slugs.add(generator.nextSlug());
+                    }
+                });
+            }
+            pool.shutdown();
+            assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(slugs).hasSize(threads * perThread).allMatch(s -> s.matches(BASE62_REGEX));
+    }
+
+    @Test
+    @DisplayName("длина берётся из настройки")
+    void shouldUseConfiguredLength() {
+        generator = new RandomBase62SlugGenerator(linkJdbcRepository, 12, 0.001, meterRegistry);
+
+        assertThat(generator.nextSlug()).matches("^[0-9A-Za-z]{12}$");
+    }
+
+    @Test
+    @DisplayName("длина растёт, когда ссылок / 62^длина превышает порог, и не уменьшается")
+    void shouldGrowLengthWithFillRatio() {
+        // 62^8 * 0.001 ~ 2.18e11 ссылок - ещё в пределах порога
+        when(linkJdbcRepository.estimatedLinkCount()).thenReturn(200_000_000_000L);
+        generator.lengthCheck();
+        assertThat(generator.length()).isEqualTo(8);
+
+        when(linkJdbcRepository.estimatedLinkCount()).thenReturn(300_000_000_000L);
+        generator.lengthCheck();
+        assertThat(generator.length()).isEqualTo(9);
+        assertThat(generator.nextSlug()).hasSize(9);
+        assertThat(meterRegistry.get("slug.random.length").gauge().value()).isEqualTo(9);
+
+        when(linkJdbcRepository.estimatedLinkCount()).thenReturn(10L);
+        generator.lengthCheck();
+        assertThat(generator.length()).isEqualTo(9);
+    }
+
+    @Test
+    @DisplayName("неизвестная оценка или ошибка БД не меняют длину")
+    void shouldKeepLengthWhenEstimateUnavailable() {
+        when(linkJdbcRepository.estimatedLinkCount()).thenReturn(-1L);
+        generator.lengthCheck();
+        when(linkJdbcRepository.estimatedLinkCount()).thenThrow(new DataAccessResourceFailureException("down"));
+        generator.lengthCheck();
+
+        assertThat(generator.length()).isEqualTo(8);
+    }
+
+    @Test
+    @DisplayName("длина ограничена размером колонки links.slug")
+    void shouldCapLengthAtColumnLimit() {
+        generator.growFor(Long.MAX_VALUE);
+
+        assertThat(generator.length()).isEqualTo(13);
+
+        generator = new RandomBase62SlugGenerator(linkJdbcRepository, 8, 1e-60, meterRegistry);
+        generator.growFor(Long.MAX_VALUE);
+        assertThat(generator.length()).isEqualTo(RandomBase62SlugGenerator.MAX_LENGTH);
+    }
 }
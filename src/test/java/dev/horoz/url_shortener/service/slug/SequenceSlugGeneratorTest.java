@@ -0,0 +1,106 @@
+package dev.horoz.url_shortener.service.slug;
+
+import dev.horoz.url_shortener.repository.LinkJdbcRepository;
+import dev.horoz.url_shortener.repository.LinkJdbcRepository.SlugBlock;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SequenceSlugGeneratorTest {
+
+    static final String SECRET = "test-secret";
+
+    @Mock
+    LinkJdbcRepository linkJdbcRepository;
+
+    @Test
+    @DisplayName("один запрос к БД на блок id, slug'и - 8 символов base62")
+    void nextSlug_reservesOneBlockPerBlockSize() {
+        AtomicLong sequence = sequence(16);
+        SequenceSlugGenerator generator = new SequenceSlugGenerator(linkJdbcRepository, SECRET);
+
+        List<String> slugs = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            slugs.add(generator.nextSlug());
+        }
+
+        assertThat(slugs).allMatch(s -> s.matches("^[0-9A-Za-z]{8}$"));
+        assertThat(new HashSet<>(slugs)).hasSize(40);
+        verify(linkJdbcRepository, times(3)).reserveSlugBlock();
+        assertThat(sequence.get()).isEqualTo(48);
+    }
+
+    @Test
+    @DisplayName("перестановка - биекция: разные id никогда не дают один slug")
+    void permute_isBijective() {
+        SequenceSlugGenerator generator = new SequenceSlugGenerator(linkJdbcRepository, SECRET);
+
+        Set<Long> seen = new HashSet<>();
+        for (long id = 0; id < 200_000; id++) {
+            long permuted = generator.permute(id);
+            assertThat(permuted).isBetween(0L, SequenceSlugGenerator.MAX_ID);
+            assertThat(seen.add(permuted)).isTrue();
+        }
+        assertThat(seen.add(generator.permute(SequenceSlugGenerator.MAX_ID))).isTrue();
+    }
+
+    @Test
+    @DisplayName("соседние id не выдают друг друга, другой секрет - другое отображение")
+    void permute_dependsOnSecret() {
+        SequenceSlugGenerator generator = new SequenceSlugGenerator(linkJdbcRepository, SECRET);
+        SequenceSlugGenerator other = new SequenceSlugGenerator(linkJdbcRepository, "another-secret");
+
+        assertThat(Math.abs(generator.permute(1) - generator.permute(2))).isGreaterThan(1_000);
+        assertThat(generator.permute(1)).isNotEqualTo(other.permute(1));
+        assertThatThrownBy(() -> new SequenceSlugGenerator(linkJdbcRepository, " "))
+                .isInstanceOf(IllegalStateException.class);
+        // SLUG_SECRET не задан -> пустая строка из application.yml
+        assertThatThrownBy(() -> new SequenceSlugGenerator(linkJdbcRepository, ""))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("конкурентная выдача: все slug'и уникальны, блоки не теряются")
+    void concurrentNextSlug_isUnique() throws Exception {
+        sequence(64);
+        SequenceSlugGenerator generator = new SequenceSlugGenerator(linkJdbcRepository, SECRET);
+
+        int threads = 8;
+        int perThread = 5_000;
+        Set<String> slugs = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < perThread; i++) slugs.add(generator.nextSlug());
+            });
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(slugs).hasSize(threads * perThread);
+        verify(linkJdbcRepository, times(threads * perThread / 64)).reserveSlugBlock();
+    }
+
+    private AtomicLong sequence(long blockSize) {
+        AtomicLong next = new AtomicLong();
+        when(linkJdbcRepository.reserveSlugBlock())
+                .thenAnswer(inv -> new SlugBlock(next.getAndAdd(blockSize), blockSize));
+        return next;
+    }
+}
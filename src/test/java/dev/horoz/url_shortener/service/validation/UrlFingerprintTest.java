@@ -0,0 +1,35 @@
+package dev.horoz.url_shortener.service.validation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class UrlFingerprintTest {
+
+    @Test
+    @DisplayName("canonical: регистр, порт по умолчанию и пустой путь не различают URL")
+    void canonical_collapsesEquivalentForms() {
+        assertThat(UrlFingerprint.canonical("HTTPS://Example.COM")).isEqualTo("https://example.com/");
+        assertThat(UrlFingerprint.canonical("https://example.com:443/")).isEqualTo("https://example.com/");
+        assertThat(UrlFingerprint.canonical("http://example.com:80/a?b=1#c")).isEqualTo("http://example.com/a?b=1#c");
+    }
+
+    @Test
+    @DisplayName("canonical: нестандартный порт, путь и query сохраняются")
+    void canonical_keepsMeaningfulParts() {
+        assertThat(UrlFingerprint.canonical("https://example.com:8443/a")).isEqualTo("https://example.com:8443/a");
+        assertThat(UrlFingerprint.canonical("http://example.com:443/")).isEqualTo("http://example.com:443/");
+        assertThat(UrlFingerprint.sameUrl("https://example.com/a", "https://example.com/b")).isFalse();
+        assertThat(UrlFingerprint.sameUrl("https://example.com/?q=1", "https://example.com/?q=2")).isFalse();
+    }
+
+    @Test
+    @DisplayName("hash: одинаков для эквивалентных URL и стабилен между запусками")
+    void hash_isStableAndFollowsCanonicalForm() {
+        assertThat(UrlFingerprint.hash("https://EXAMPLE.com:443")).isEqualTo(UrlFingerprint.hash("https://example.com/"));
+        assertThat(UrlFingerprint.hash("https://example.com/a")).isNotEqualTo(UrlFingerprint.hash("https://example.com/b"));
+        // значение лежит в links.url_hash: смена алгоритма требует перезаполнения колонки
+        assertThat(UrlFingerprint.hash("https://example.com/")).isEqualTo(0x182ccedb33a9e03fL);
+    }
+}
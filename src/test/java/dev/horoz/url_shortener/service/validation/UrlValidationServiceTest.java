@@ -41,6 +41,35 @@ class UrlValidationServiceTest {
                 .hasMessage("targetUrl is required");
     }
 
+    @Test
+    @DisplayName("Too long URL -> throws: targetUrl must be at most 2048 bytes")
+    void shouldThrowWhenUrlTooLong() {
+        String prefix = "https://example.com/";
+        String atLimit = prefix + "a".repeat(UrlValidationService.MAX_URL_LENGTH - prefix.length());
+
+        assertThat(service.normalizeAndValidateUrl(atLimit)).isEqualTo(atLimit);
+
+        assertThatThrownBy(() -> service.normalizeAndValidateUrl(atLimit + "a"))
+                .isInstanceOf(InvalidTargetUrlException.class)
+                .hasMessage("targetUrl must be at most 2048 bytes");
+    }
+
+    @Test
+    @DisplayName("Multibyte URL: лимит считается в байтах UTF-8, а не в символах")
+    void shouldCountUrlLengthInUtf8Bytes() {
+        String prefix = "https://example.com/";
+        // "ж" - 2 байта в UTF-8: по символам строка в пределах лимита, по байтам - почти вдвое длиннее
+        String multibyte = prefix + "ж".repeat(UrlValidationService.MAX_URL_LENGTH - prefix.length());
+        assertThat(multibyte.length()).isEqualTo(UrlValidationService.MAX_URL_LENGTH);
+
+        assertThatThrownBy(() -> service.normalizeAndValidateUrl(multibyte))
+                .isInstanceOf(InvalidTargetUrlException.class)
+                .hasMessage("targetUrl must be at most 2048 bytes");
+
+        String atLimit = prefix + "ж".repeat((UrlValidationService.MAX_URL_LENGTH - prefix.length()) / 2);
+        assertThat(service.normalizeAndValidateUrl(atLimit)).isEqualTo(atLimit);
+    }
+
     @Test
     @DisplayName("Invalid URI syntax -> throws: targetUrl must be a valid URL")
     void shouldThrowWhenUriSyntaxIsInvalid() {